@@ -44,7 +44,7 @@ import org.concord.modeler.util.Evaluator;
 
 public final class DataSource {
 
-	private final static Evaluator evaluator = new Evaluator();
+	private final Evaluator evaluator = new Evaluator();
 	private final static DecimalFormat format = new DecimalFormat("###.##");
 	private float[] data;
 	private int pointer;
@@ -64,7 +64,7 @@ public final class DataSource {
 	private boolean showSelectedPoint;
 	private int preferredPointNumber = 100;
 
-	static {
+	{
 		evaluator.setImplicitMultiplication(true);
 	}
 
@@ -137,7 +137,7 @@ public final class DataSource {
 	 * return the functions supported by the math expression parser associated with the data source class
 	 */
 	public static Hashtable getSupportedFunctions() {
-		return evaluator.getFunctionTable();
+		return new Evaluator().getFunctionTable();
 	}
 
 	public void setShowSelectedPoint(boolean b) {
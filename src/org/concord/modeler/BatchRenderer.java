@@ -0,0 +1,449 @@
+/*
+ *   Copyright (C) 2006  The Concord Consortium, Inc.,
+ *   25 Love Lane, Concord, MA 01742
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * END LICENSE */
+
+package org.concord.modeler;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.EventQueue;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.imageio.ImageIO;
+import javax.swing.JPanel;
+
+import org.concord.modeler.process.WorkerPool;
+import org.concord.modeler.util.FileChooser;
+import org.concord.modeler.util.FileUtilities;
+import org.concord.modeler.util.ImageSequenceWriter;
+import org.concord.mw2d.MDView;
+import org.concord.mw2d.models.MDModel;
+import org.concord.mw2d.ui.AtomContainer;
+import org.concord.mw2d.ui.GBContainer;
+import org.concord.mw2d.ui.MDContainer;
+import org.concord.mw3d.MolecularView;
+import org.myjmol.adapter.smarter.SmarterJmolAdapter;
+import org.myjmol.api.JmolViewer;
+
+/**
+ * <p>
+ * This renders models into images without a display, so that the thumbnails or the movie frames of many activities can
+ * be produced on a machine that has no screen. A 2D model (.mml or .gbl) or a 3D model (.mdd) is loaded, run for a
+ * number of steps between frames, or replayed from its recorded movie, and painted into offscreen images. Any other
+ * file is loaded into a bare Jmol viewer: a Jmol script (.spt) is executed, and a structure file is simply loaded.
+ * </p>
+ *
+ * <p>
+ * A single frame is written as <code>name.png</code> in the output directory. More frames are written either as
+ * numbered images in the directory <code>name</code>, or as a single stream <code>name.pngs</code> that a video
+ * encoder can read (see <code>ImageSequenceWriter</code>). Different files are rendered at the same time, each on a
+ * thread of the renderer's own.
+ * </p>
+ *
+ * <pre>
+ * java -cp mw.jar org.concord.modeler.BatchRenderer [-frames n] [-steps n] [-replay] [-size w h] [-stream] [-out dir] file ...
+ * </pre>
+ *
+ * @author Charles Xie
+ */
+
+public class BatchRenderer {
+
+	private final static Dimension DEFAULT_3D_SIZE = new Dimension(400, 300);
+
+	private int frameCount = 1;
+	private int stepsPerFrame = 100;
+	private boolean replay;
+	private boolean stream;
+	private Dimension size;
+	private File outputDirectory = new File(".");
+
+	public BatchRenderer() {
+		synchronized (BatchRenderer.class) {
+			// a 2D model sets up its readers and writers with the shared file chooser when it is created
+			if (ModelerUtilities.fileChooser == null)
+				ModelerUtilities.fileChooser = new FileChooser(System.getProperty("user.dir"));
+		}
+	}
+
+	/** set the number of frames to render from each file, unless a recorded movie is replayed */
+	public void setFrameCount(int n) {
+		if (n < 1)
+			throw new IllegalArgumentException("at least one frame must be rendered");
+		frameCount = n;
+	}
+
+	public int getFrameCount() {
+		return frameCount;
+	}
+
+	/** set the number of steps a model runs between two frames */
+	public void setStepsPerFrame(int n) {
+		if (n < 0)
+			throw new IllegalArgumentException("steps per frame cannot be negative");
+		stepsPerFrame = n;
+	}
+
+	public int getStepsPerFrame() {
+		return stepsPerFrame;
+	}
+
+	/** if true, render every frame of the movie recorded with a model instead of running it */
+	public void setReplay(boolean b) {
+		replay = b;
+	}
+
+	public boolean getReplay() {
+		return replay;
+	}
+
+	/** if true, write the frames of a file into a single stream instead of numbered images */
+	public void setStream(boolean b) {
+		stream = b;
+	}
+
+	public boolean getStream() {
+		return stream;
+	}
+
+	/**
+	 * set the size of the images. A 2D model is scaled to this size; a 3D scene is rendered at this size. Null means
+	 * the size of a 2D model itself, and 400x300 for a 3D scene.
+	 */
+	public void setImageSize(Dimension d) {
+		size = d;
+	}
+
+	public Dimension getImageSize() {
+		return size;
+	}
+
+	public void setOutputDirectory(File dir) {
+		if (dir == null)
+			throw new IllegalArgumentException("null directory");
+		outputDirectory = dir;
+	}
+
+	public File getOutputDirectory() {
+		return outputDirectory;
+	}
+
+	/**
+	 * render the files on threads of their own, one file at a time on each thread, and return the number of files that
+	 * failed. The failures are reported to the standard error stream. The worker pool is left to the models, which use
+	 * it to compute their forces while the files are being rendered.
+	 */
+	public int render(List<File> files) {
+		int n = Math.min(files.size(), WorkerPool.getProcessorCount());
+		if (n == 0)
+			return 0;
+		ExecutorService executor = Executors.newFixedThreadPool(n, new ThreadFactory() {
+			private int count;
+
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Batch renderer " + (count++));
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(files.size());
+		for (final File f : files) {
+			futures.add(executor.submit(new Callable<Boolean>() {
+				public Boolean call() {
+					try {
+						render(f);
+					}
+					catch (Exception e) {
+						System.err.println("Error in rendering " + f + ": " + e);
+						return Boolean.FALSE;
+					}
+					return Boolean.TRUE;
+				}
+			}));
+		}
+		executor.shutdown();
+		int failures = 0;
+		boolean interrupted = false;
+		for (Future<Boolean> f : futures) {
+			while (true) {
+				try {
+					if (!f.get())
+						failures++;
+					break;
+				}
+				catch (InterruptedException e) {
+					interrupted = true;
+				}
+				catch (ExecutionException e) {
+					failures++;
+					break;
+				}
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		return failures;
+	}
+
+	/** render a file on the calling thread */
+	public void render(File file) throws Exception {
+		if (!file.isFile())
+			throw new IOException(file + " was not found");
+		String ext = FileUtilities.getExtensionInLowerCase(file);
+		if ("mml".equals(ext) || "gbl".equals(ext)) {
+			render2D(file, "gbl".equals(ext));
+		}
+		else if ("mdd".equals(ext)) {
+			render3D(file);
+		}
+		else {
+			renderJmol(file);
+		}
+	}
+
+	private void render2D(File file, boolean meso) throws Exception {
+		MDContainer container = meso ? new GBContainer() : new AtomContainer();
+		MDView view = container.getView();
+		MDModel model = container.getModel();
+		model.input(file);
+		waitForEventQueue();
+		// a model is saved with the size of its view, which is otherwise set by the page that embeds it
+		Dimension dim = model.getBoundary().getView().getBounds().getSize();
+		view.setPreferredSize(dim);
+		view.setBounds(0, 0, dim.width, dim.height);
+		Dimension out = size != null ? size : dim;
+		int n = replay ? model.getMovie().length() : frameCount;
+		if (n <= 0)
+			throw new IOException(file + " has no recorded movie");
+		FrameOutput output = new FrameOutput(file, n);
+		try {
+			for (int i = 0; i < n; i++) {
+				if (replay)
+					model.getMovie().showFrame(i);
+				else if (i > 0)
+					model.step(stepsPerFrame);
+				BufferedImage image = new BufferedImage(out.width, out.height, BufferedImage.TYPE_INT_RGB);
+				Graphics2D g = image.createGraphics();
+				if (out.width != dim.width || out.height != dim.height) {
+					g.scale((double) out.width / (double) dim.width, (double) out.height / (double) dim.height);
+				}
+				g.setClip(0, 0, dim.width, dim.height);
+				view.update(g);
+				g.dispose();
+				output.write(image);
+			}
+		}
+		finally {
+			output.close();
+			model.destroy();
+		}
+	}
+
+	private void render3D(File file) throws Exception {
+		PageMd3d container = new PageMd3d();
+		container.input(file);
+		waitForEventQueue();
+		MolecularView view = container.getMolecularView();
+		Dimension dim = size != null ? size : DEFAULT_3D_SIZE;
+		view.setBounds(0, 0, dim.width, dim.height);
+		int n = replay ? container.getMolecularModel().getMovie().length() : frameCount;
+		if (n <= 0)
+			throw new IOException(file + " has no recorded movie");
+		FrameOutput output = new FrameOutput(file, n);
+		try {
+			for (int i = 0; i < n; i++) {
+				if (replay) {
+					container.getMolecularModel().getMovie().showFrame(i);
+				}
+				else if (i > 0) {
+					container.getMolecularModel().step(stepsPerFrame);
+					view.refresh();
+				}
+				BufferedImage image = new BufferedImage(dim.width, dim.height, BufferedImage.TYPE_INT_RGB);
+				Graphics2D g = image.createGraphics();
+				g.setClip(0, 0, dim.width, dim.height);
+				view.update(g);
+				g.dispose();
+				output.write(image);
+			}
+		}
+		finally {
+			output.close();
+		}
+	}
+
+	/*
+	 * Each frame of a Jmol scene shows the next model of its animation. A scene of a single model is turned around the
+	 * vertical axis, one full turn over all the frames.
+	 */
+	private void renderJmol(File file) throws Exception {
+		JmolViewer viewer = JmolViewer.allocateViewer(new JPanel(), new SmarterJmolAdapter(null));
+		viewer.setBackgroundArgb(Color.black.getRGB());
+		String path = file.getAbsolutePath().replace('\\', '/');
+		if ("spt".equals(FileUtilities.getExtensionInLowerCase(file))) {
+			viewer.scriptWait("script \"" + path + "\"");
+		}
+		else {
+			viewer.scriptWait("load \"" + path + "\"");
+		}
+		if (viewer.getModelCount() <= 0)
+			throw new IOException(file + " has no model to render");
+		Dimension dim = size != null ? size : DEFAULT_3D_SIZE;
+		viewer.setScreenDimension(dim);
+		int models = viewer.getModelCount();
+		FrameOutput output = new FrameOutput(file, frameCount);
+		try {
+			for (int i = 0; i < frameCount; i++) {
+				if (models > 1) {
+					viewer.scriptWait("frame " + (i % models + 1));
+				}
+				else if (i > 0) {
+					viewer.scriptWait("rotate y " + (360.0f / frameCount));
+				}
+				BufferedImage image = new BufferedImage(dim.width, dim.height, BufferedImage.TYPE_INT_RGB);
+				Graphics2D g = image.createGraphics();
+				viewer.renderScreenImage(g, dim, null);
+				g.dispose();
+				output.write(image);
+			}
+		}
+		finally {
+			output.close();
+		}
+	}
+
+	/* a model finishes loading on the event dispatch thread, which must be done before it can be rendered */
+	private static void waitForEventQueue() throws Exception {
+		if (EventQueue.isDispatchThread())
+			return;
+		EventQueue.invokeAndWait(new Runnable() {
+			public void run() {
+			}
+		});
+	}
+
+	/* where the frames rendered from a file go: a single image, numbered images, or a stream */
+	private class FrameOutput {
+
+		private File image;
+		private ImageSequenceWriter writer;
+
+		FrameOutput(File file, int n) throws IOException {
+			String name = FileUtilities.getPrefix(file.getName());
+			if (n == 1 && !stream) {
+				outputDirectory.mkdirs();
+				image = new File(outputDirectory, name + ".png");
+			}
+			else {
+				writer = new ImageSequenceWriter(new File(outputDirectory, stream ? name + ".pngs" : name), stream);
+			}
+		}
+
+		void write(BufferedImage bi) throws IOException {
+			if (writer != null) {
+				writer.write(bi);
+			}
+			else if (!ImageIO.write(bi, "png", image)) {
+				throw new IOException("No PNG writer found");
+			}
+		}
+
+		void close() throws IOException {
+			if (writer != null)
+				writer.close();
+		}
+
+	}
+
+	private static void printUsage() {
+		System.err.println("Usage: BatchRenderer [options] file ...");
+		System.err.println("  -frames n    number of frames to render from each file (default 1)");
+		System.err.println("  -steps n     number of steps a model runs between frames (default 100)");
+		System.err.println("  -replay      render the recorded movie of a model instead of running it");
+		System.err.println("  -size w h    size of the images");
+		System.err.println("  -stream      write the frames of a file into a single PNG stream");
+		System.err.println("  -out dir     output directory (default the current directory)");
+	}
+
+	public static void main(String[] args) {
+
+		if (System.getProperty("java.awt.headless") == null)
+			System.setProperty("java.awt.headless", "true");
+
+		BatchRenderer renderer = new BatchRenderer();
+		List<File> files = new ArrayList<File>();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if ("-frames".equals(args[i])) {
+					renderer.setFrameCount(Integer.parseInt(args[++i]));
+				}
+				else if ("-steps".equals(args[i])) {
+					renderer.setStepsPerFrame(Integer.parseInt(args[++i]));
+				}
+				else if ("-replay".equals(args[i])) {
+					renderer.setReplay(true);
+				}
+				else if ("-size".equals(args[i])) {
+					int w = Integer.parseInt(args[++i]);
+					int h = Integer.parseInt(args[++i]);
+					if (w <= 0 || h <= 0)
+						throw new IllegalArgumentException("the size must be positive");
+					renderer.setImageSize(new Dimension(w, h));
+				}
+				else if ("-stream".equals(args[i])) {
+					renderer.setStream(true);
+				}
+				else if ("-out".equals(args[i])) {
+					renderer.setOutputDirectory(new File(args[++i]));
+				}
+				else if (args[i].startsWith("-")) {
+					throw new IllegalArgumentException("unknown option " + args[i]);
+				}
+				else {
+					files.add(new File(args[i]));
+				}
+			}
+		}
+		catch (RuntimeException e) {
+			System.err.println(e.getMessage() != null ? e.getMessage() : "missing argument");
+			printUsage();
+			System.exit(2);
+		}
+		if (files.isEmpty()) {
+			printUsage();
+			System.exit(2);
+		}
+
+		int failures = renderer.render(files);
+		System.exit(failures > 0 ? 1 : 0);
+
+	}
+
+}
@@ -233,6 +233,8 @@ public final class ModelerUtilities {
 	}
 
 	public static Cursor createCursor(Image cursorImage, Point hotSpot, String name) {
+		if (GraphicsEnvironment.isHeadless()) // no custom cursors without a display, e.g., when rendering offscreen
+			return Cursor.getDefaultCursor();
 		if (hotSpot == null)
 			hotSpot = new Point();
 		Dimension prefDimension = Toolkit.getDefaultToolkit().getBestCursorSize(hotSpot.x, hotSpot.y);
@@ -26,6 +26,7 @@ import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.EventQueue;
 import java.awt.Graphics;
+import java.awt.GraphicsEnvironment;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.Toolkit;
@@ -1511,6 +1512,8 @@ public abstract class Draw extends PrintableComponent {
 	static Cursor createCustomCursor(String url, Point hotSpot, String name) {
 		if (url == null)
 			return null;
+		if (GraphicsEnvironment.isHeadless()) // no custom cursors without a display, e.g., when rendering offscreen
+			return Cursor.getDefaultCursor();
 		ImageIcon cursorIcon = new ImageIcon(Draw.class.getResource(url));
 		if (hotSpot == null)
 			hotSpot = new Point();
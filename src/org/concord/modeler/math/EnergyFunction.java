@@ -0,0 +1,44 @@
+/*
+ *   Copyright (C) 2006  The Concord Consortium, Inc.,
+ *   25 Love Lane, Concord, MA 01742
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * END LICENSE */
+
+package org.concord.modeler.math;
+
+/**
+ * A function of many variables whose value and gradient can be computed together, such as the potential energy of a
+ * molecular model as a function of the coordinates of its atoms.
+ *
+ * @author Charles Xie
+ * @see org.concord.modeler.math.GradientMinimizer
+ */
+
+public interface EnergyFunction {
+
+	/**
+	 * compute the value of this function at the given point, and store the gradient at that point into the given array.
+	 *
+	 * @param x
+	 *            the variables, which must not be changed
+	 * @param gradient
+	 *            the array to receive the gradient, which has the same length as the variables
+	 * @return the value of this function
+	 */
+	public double compute(double[] x, double[] gradient);
+
+}
@@ -0,0 +1,454 @@
+/*
+ *   Copyright (C) 2006  The Concord Consortium, Inc.,
+ *   25 Love Lane, Concord, MA 01742
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * END LICENSE */
+
+package org.concord.modeler.math;
+
+/**
+ * <p>
+ * This minimizes an <code>EnergyFunction</code> with the steepest descent method, the Polak-Ribiere conjugate
+ * gradient method or the limited-memory BFGS method. Each iteration searches along its direction for a step that
+ * satisfies the strong Wolfe conditions, so that the energy never goes up. The minimization stops when the root mean
+ * square of the gradient falls below the tolerance, when the maximum number of iterations is reached, when the line
+ * search cannot make any more progress, or when it is stopped by the listener or another thread.
+ * </p>
+ *
+ * <p>
+ * The displacement of any variable in a trial step is limited by the maximum step, so that a model will not be blown
+ * up by a steep potential. The first trial of a steepest descent step moves the variable with the largest gradient by
+ * exactly the maximum step, which is what the fixed-steplength minimizers of the models do in each step.
+ * </p>
+ *
+ * @author Charles Xie
+ */
+
+public class GradientMinimizer {
+
+	public final static byte STEEPEST_DESCENT = 0;
+	public final static byte CONJUGATE_GRADIENT = 1;
+	public final static byte LBFGS = 2;
+
+	/** the default root mean square of the gradient below which the minimum is considered found */
+	public final static double DEFAULT_TOLERANCE = 0.001;
+
+	/** A callback that is notified after each iteration. */
+	public static interface Listener {
+
+		/**
+		 * @return false to stop the minimization
+		 */
+		public boolean iterationDone(int iteration, double energy, double rmsGradient);
+
+	}
+
+	private final static double C1 = 0.0001;
+	private final static int MAX_EVALUATIONS = 20;
+
+	private byte method = LBFGS;
+	private int memory = 8;
+	private double tolerance = DEFAULT_TOLERANCE;
+	private double maxStep = 1.0;
+	private int maxIterations = 1000;
+	private Listener listener;
+	private volatile boolean stopped;
+
+	private int n;
+	private double energy, rmsGradient;
+	private boolean converged;
+	private int iterations, evaluations;
+	private double[] g, d, xt, gt, gPrev, dPrev;
+	private double[][] s, y;
+	private double[] rho, a;
+	private int stored, newest;
+	private double alpha, slope;
+
+	public GradientMinimizer() {
+	}
+
+	/** set the method, which must be STEEPEST_DESCENT, CONJUGATE_GRADIENT or LBFGS. The default is LBFGS. */
+	public void setMethod(byte method) {
+		if (method != STEEPEST_DESCENT && method != CONJUGATE_GRADIENT && method != LBFGS)
+			throw new IllegalArgumentException("unknown method: " + method);
+		this.method = method;
+	}
+
+	public byte getMethod() {
+		return method;
+	}
+
+	/** set the number of corrections the LBFGS method remembers. The default is 8. */
+	public void setMemory(int memory) {
+		if (memory < 1)
+			throw new IllegalArgumentException("memory must be at least 1");
+		this.memory = memory;
+	}
+
+	public int getMemory() {
+		return memory;
+	}
+
+	/** set the root mean square of the gradient below which the minimum is considered found. The default is 0.001. */
+	public void setTolerance(double tolerance) {
+		if (tolerance < 0)
+			throw new IllegalArgumentException("tolerance must not be negative");
+		this.tolerance = tolerance;
+	}
+
+	public double getTolerance() {
+		return tolerance;
+	}
+
+	/** set the maximum displacement of any variable in the first trial of a line search */
+	public void setMaximumStep(double maxStep) {
+		if (maxStep <= 0)
+			throw new IllegalArgumentException("maximum step must be positive");
+		this.maxStep = maxStep;
+	}
+
+	public double getMaximumStep() {
+		return maxStep;
+	}
+
+	public void setMaximumIterations(int maxIterations) {
+		this.maxIterations = maxIterations;
+	}
+
+	public int getMaximumIterations() {
+		return maxIterations;
+	}
+
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+
+	public Listener getListener() {
+		return listener;
+	}
+
+	/** stop the minimization after the current iteration. This can be called from another thread. */
+	public void stop() {
+		stopped = true;
+	}
+
+	/** return the energy at the last point */
+	public double getEnergy() {
+		return energy;
+	}
+
+	/** return the root mean square of the gradient at the last point */
+	public double getRmsGradient() {
+		return rmsGradient;
+	}
+
+	/** return true if the last minimization has reached the tolerance */
+	public boolean isConverged() {
+		return converged;
+	}
+
+	/** return the number of iterations of the last minimization */
+	public int getIterations() {
+		return iterations;
+	}
+
+	/** return the number of times the function was computed in the last minimization */
+	public int getEvaluations() {
+		return evaluations;
+	}
+
+	/**
+	 * minimize the function starting from the given point. Upon return, the array holds the point of the lowest energy
+	 * that has been found.
+	 *
+	 * @return the energy at that point
+	 */
+	public double minimize(EnergyFunction f, double[] x) {
+
+		stopped = false;
+		converged = false;
+		iterations = 0;
+		evaluations = 0;
+		allocate(x.length);
+		if (n == 0) {
+			energy = f.compute(x, g);
+			rmsGradient = 0;
+			converged = true;
+			return energy;
+		}
+
+		energy = compute(f, x, g);
+		rmsGradient = rms(g);
+		converged = rmsGradient <= tolerance;
+
+		boolean restart = true;
+		double previousSlope = 0, previousAlpha = 0;
+
+		while (!converged && iterations < maxIterations && !stopped) {
+
+			// choose the search direction
+			if (restart || method == STEEPEST_DESCENT) {
+				for (int i = 0; i < n; i++)
+					d[i] = -g[i];
+				stored = 0;
+			}
+			else if (method == LBFGS) {
+				computeLbfgsDirection();
+			}
+			else {
+				// Polak-Ribiere, reset to steepest descent if beta becomes negative
+				double num = 0, den = 0;
+				for (int i = 0; i < n; i++) {
+					num += g[i] * (g[i] - gPrev[i]);
+					den += gPrev[i] * gPrev[i];
+				}
+				double beta = den > 0 ? Math.max(0, num / den) : 0;
+				for (int i = 0; i < n; i++)
+					d[i] = -g[i] + beta * dPrev[i];
+			}
+			slope = dot(g, d);
+			if (slope >= 0) {
+				// not a descent direction, fall back to steepest descent
+				for (int i = 0; i < n; i++)
+					d[i] = -g[i];
+				stored = 0;
+				slope = dot(g, d);
+				restart = true;
+			}
+
+			double dmax = 0;
+			for (int i = 0; i < n; i++) {
+				if (Math.abs(d[i]) > dmax)
+					dmax = Math.abs(d[i]);
+			}
+			if (dmax == 0 || slope == 0)
+				break;
+
+			// choose the first trial step
+			double alphaMax = 10 * maxStep / dmax;
+			if (restart || method == STEEPEST_DESCENT) {
+				alpha = maxStep / dmax;
+			}
+			else if (method == LBFGS) {
+				alpha = Math.min(1, alphaMax);
+			}
+			else {
+				alpha = Math.min(previousAlpha * previousSlope / slope, alphaMax);
+				if (!(alpha > 0))
+					alpha = maxStep / dmax;
+			}
+
+			System.arraycopy(g, 0, gPrev, 0, n);
+			if (!lineSearch(f, x, alpha, alphaMax, method == CONJUGATE_GRADIENT ? 0.1 : 0.9)) {
+				if (restart || method == STEEPEST_DESCENT)
+					break;
+				// the direction was poor, so try again with steepest descent
+				restart = true;
+				continue;
+			}
+
+			if (method == LBFGS) {
+				// remember the correction pair if it keeps the inverse Hessian positive definite
+				newest = (newest + 1) % memory;
+				double sy = 0;
+				for (int i = 0; i < n; i++) {
+					s[newest][i] = alpha * d[i];
+					y[newest][i] = g[i] - gPrev[i];
+					sy += s[newest][i] * y[newest][i];
+				}
+				if (sy > 0) {
+					rho[newest] = 1.0 / sy;
+					if (stored < memory)
+						stored++;
+				}
+				else {
+					newest = (newest + memory - 1) % memory;
+				}
+			}
+			System.arraycopy(d, 0, dPrev, 0, n);
+			previousSlope = slope;
+			previousAlpha = alpha;
+			restart = false;
+
+			iterations++;
+			rmsGradient = rms(g);
+			converged = rmsGradient <= tolerance;
+			if (listener != null && !listener.iterationDone(iterations, energy, rmsGradient))
+				break;
+
+		}
+
+		return energy;
+
+	}
+
+	private void allocate(int n) {
+		this.n = n;
+		if (g == null || g.length != n) {
+			g = new double[n];
+			d = new double[n];
+			xt = new double[n];
+			gt = new double[n];
+			gPrev = new double[n];
+			dPrev = new double[n];
+			s = null;
+		}
+		if (method == LBFGS && (s == null || s.length != memory)) {
+			s = new double[memory][n];
+			y = new double[memory][n];
+			rho = new double[memory];
+			a = new double[memory];
+		}
+		stored = 0;
+		newest = 0;
+	}
+
+	/* the two-loop recursion for the product of the approximate inverse Hessian and the negative gradient */
+	private void computeLbfgsDirection() {
+		for (int i = 0; i < n; i++)
+			d[i] = -g[i];
+		int k = newest;
+		for (int m = 0; m < stored; m++) {
+			a[k] = rho[k] * dot(s[k], d);
+			for (int i = 0; i < n; i++)
+				d[i] -= a[k] * y[k][i];
+			k = (k + memory - 1) % memory;
+		}
+		if (stored > 0) {
+			double gamma = 1.0 / (rho[newest] * dot(y[newest], y[newest]));
+			for (int i = 0; i < n; i++)
+				d[i] *= gamma;
+		}
+		k = (newest + memory - stored + 1) % memory;
+		for (int m = 0; m < stored; m++) {
+			double b = rho[k] * dot(y[k], d);
+			for (int i = 0; i < n; i++)
+				d[i] += (a[k] - b) * s[k][i];
+			k = (k + 1) % memory;
+		}
+	}
+
+	/*
+	 * search along d from x for a step that satisfies the strong Wolfe conditions (Nocedal and Wright, Algorithms 3.5
+	 * and 3.6). If one is found, move x there, update the gradient and the energy, and return true.
+	 */
+	private boolean lineSearch(EnergyFunction f, double[] x, double alpha, double alphaMax, double c2) {
+		double e0 = energy;
+		double aPrev = 0, ePrev = e0, sPrev = slope;
+		for (int k = 0; k < MAX_EVALUATIONS; k++) {
+			double e = trial(f, x, alpha);
+			double st = dot(gt, d);
+			if (e > e0 + C1 * alpha * slope || (k > 0 && e >= ePrev))
+				return zoom(f, x, aPrev, ePrev, sPrev, alpha, e, st, c2, MAX_EVALUATIONS - k - 1);
+			if (Math.abs(st) <= -c2 * slope || alpha >= alphaMax) {
+				accept(x, alpha, e);
+				return true;
+			}
+			if (st >= 0)
+				return zoom(f, x, alpha, e, st, aPrev, ePrev, sPrev, c2, MAX_EVALUATIONS - k - 1);
+			aPrev = alpha;
+			ePrev = e;
+			sPrev = st;
+			alpha = Math.min(2 * alpha, alphaMax);
+		}
+		return false;
+	}
+
+	/* narrow down the interval between lo, which has the lower energy, and hi until a step satisfies the conditions */
+	private boolean zoom(EnergyFunction f, double[] x, double lo, double eLo, double sLo, double hi, double eHi,
+			double sHi, double c2, int evaluationsLeft) {
+		double e0 = energy;
+		for (int k = 0; k < evaluationsLeft; k++) {
+			double at = interpolate(lo, eLo, sLo, hi, eHi, sHi);
+			double e = trial(f, x, at);
+			double st = dot(gt, d);
+			if (e > e0 + C1 * at * slope || e >= eLo) {
+				hi = at;
+				eHi = e;
+				sHi = st;
+			}
+			else {
+				if (Math.abs(st) <= -c2 * slope) {
+					accept(x, at, e);
+					return true;
+				}
+				if (st * (hi - lo) >= 0) {
+					hi = lo;
+					eHi = eLo;
+					sHi = sLo;
+				}
+				lo = at;
+				eLo = e;
+				sLo = st;
+			}
+			if (Math.abs(hi - lo) <= 1.0e-12 * Math.max(hi, lo))
+				break;
+		}
+		// out of evaluations: settle for the best step found so far, which decreases the energy sufficiently
+		if (lo > 0) {
+			accept(x, lo, trial(f, x, lo));
+			return true;
+		}
+		return false;
+	}
+
+	/* the minimum of the cubic that fits the energies and slopes at the two ends, kept away from the ends */
+	private static double interpolate(double a1, double e1, double s1, double a2, double e2, double s2) {
+		double d1 = s1 + s2 - 3 * (e1 - e2) / (a1 - a2);
+		double disc = d1 * d1 - s1 * s2;
+		double lo = Math.min(a1, a2), hi = Math.max(a1, a2), w = hi - lo;
+		double at = Double.NaN;
+		if (disc >= 0) {
+			double d2 = Math.signum(a2 - a1) * Math.sqrt(disc);
+			at = a2 - (a2 - a1) * (s2 + d2 - d1) / (s2 - s1 + 2 * d2);
+		}
+		if (!(at >= lo + 0.1 * w && at <= hi - 0.1 * w))
+			at = 0.5 * (lo + hi);
+		return at;
+	}
+
+	private double trial(EnergyFunction f, double[] x, double step) {
+		for (int i = 0; i < n; i++)
+			xt[i] = x[i] + step * d[i];
+		return compute(f, xt, gt);
+	}
+
+	/* move to the last trial point, whose gradient is in gt */
+	private void accept(double[] x, double step, double e) {
+		alpha = step;
+		System.arraycopy(xt, 0, x, 0, n);
+		System.arraycopy(gt, 0, g, 0, n);
+		energy = e;
+	}
+
+	private double compute(EnergyFunction f, double[] x, double[] gradient) {
+		evaluations++;
+		return f.compute(x, gradient);
+	}
+
+	private double rms(double[] v) {
+		return Math.sqrt(dot(v, v) / n);
+	}
+
+	private double dot(double[] u, double[] v) {
+		double sum = 0;
+		for (int i = 0; i < n; i++)
+			sum += u[i] * v[i];
+		return sum;
+	}
+
+}
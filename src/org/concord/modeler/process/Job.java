@@ -62,6 +62,7 @@ public abstract class Job implements Runnable {
 	private List<Loadable> jobToRemove, jobToAdd;
 	private String name;
 	private JobTable jobTable;
+	private JobProfiler profiler;
 
 	/**
 	 * @param name
@@ -81,6 +82,12 @@ public abstract class Job implements Runnable {
 
 	/** remove all the tasks in the pool */
 	public void clear() {
+		if (profiler != null) {
+			synchronized (taskPool) {
+				for (Loadable l : taskPool)
+					profiler.removeTask(l);
+			}
+		}
 		taskPool.clear();
 		if (mainThread != null)
 			mainThread.interrupt();
@@ -109,6 +116,15 @@ public abstract class Job implements Runnable {
 		return list;
 	}
 
+	/** set the profiler that times the tasks of this job, or null to time nothing */
+	public void setProfiler(JobProfiler profiler) {
+		this.profiler = profiler;
+	}
+
+	public JobProfiler getProfiler() {
+		return profiler;
+	}
+
 	/** get the running index of step */
 	public int getIndexOfStep() {
 		return indexOfStep;
@@ -265,12 +281,15 @@ public abstract class Job implements Runnable {
 				if (task.isCompleted()) {
 					remove(task);
 				}
-				if (task.getInterval() <= 1) {
-					task.execute();
-				}
-				else {
-					if (indexOfStep % task.getInterval() == 0)
+				if (task.getInterval() <= 1 || indexOfStep % task.getInterval() == 0) {
+					if (profiler != null) {
+						long t = profiler.begin();
 						task.execute();
+						profiler.endTask(task, t);
+					}
+					else {
+						task.execute();
+					}
 				}
 			}
 		}
@@ -300,6 +319,8 @@ public abstract class Job implements Runnable {
 		if (!contains(l))
 			return;
 		taskPool.remove(l);
+		if (profiler != null)
+			profiler.removeTask(l);
 		if (EventQueue.isDispatchThread()) {
 			jobTable.removeRow(l);
 		}
@@ -0,0 +1,287 @@
+/*
+ *   Copyright (C) 2006  The Concord Consortium, Inc.,
+ *   25 Love Lane, Concord, MA 01742
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * END LICENSE */
+
+package org.concord.modeler.process;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * This measures where the time of a job goes: the whole step, the phases of a step (predictor, force computation,
+ * corrector, boundary and recording), the update of the view requested by the job, the painting of the view on the
+ * event dispatch thread, and each task in the task pool.
+ * </p>
+ *
+ * <p>
+ * A timing is taken between <code>begin()</code> and one of the <code>end</code> methods. When the profiler is
+ * disabled, <code>begin()</code> returns zero and the <code>end</code> methods return immediately, so the
+ * instrumented code costs no more than reading a flag.
+ * </p>
+ *
+ * @author Charles Xie
+ */
+
+public class JobProfiler {
+
+	public final static byte PREDICTOR = 0;
+	public final static byte FORCE = 1;
+	public final static byte CORRECTOR = 2;
+	public final static byte BOUNDARY = 3;
+	public final static byte RECORD = 4;
+	/** the update of the view on the job thread, which only requests a repaint unless the view renders there */
+	public final static byte VIEW_UPDATE = 5;
+	/** the painting of the view on the event dispatch thread */
+	public final static byte PAINT = 6;
+
+	private final static String[] PHASE_NAMES = { "Predictor", "Force", "Corrector", "Boundary", "Record",
+			"View update", "Paint" };
+
+	private volatile boolean enabled;
+	private Timer step;
+	private Timer[] phases;
+	private Map<Loadable, Timer> tasks;
+
+	public JobProfiler() {
+		step = new Timer("Step");
+		phases = new Timer[PHASE_NAMES.length];
+		for (int i = 0; i < phases.length; i++)
+			phases[i] = new Timer(PHASE_NAMES[i]);
+		tasks = Collections.synchronizedMap(new LinkedHashMap<Loadable, Timer>());
+	}
+
+	/** enable or disable this profiler. Enabling it clears the previous measurements. */
+	public void setEnabled(boolean b) {
+		if (b && !enabled)
+			reset();
+		enabled = b;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/** clear all the measurements */
+	public void reset() {
+		step.reset();
+		for (Timer t : phases)
+			t.reset();
+		tasks.clear();
+	}
+
+	/** return the current time in nanoseconds if this profiler is enabled, or zero otherwise. */
+	public long begin() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * end the timing of a phase, and return the time it ended so that the next phase can start from there.
+	 *
+	 * @param phase
+	 *            the phase being timed
+	 * @param start
+	 *            the value returned by <code>begin()</code> or by the last call of this method
+	 */
+	public long lap(byte phase, long start) {
+		if (start == 0)
+			return 0;
+		long t = System.nanoTime();
+		phases[phase].add(t - start);
+		return t;
+	}
+
+	/** end the timing of a phase */
+	public void end(byte phase, long start) {
+		if (start != 0)
+			phases[phase].add(System.nanoTime() - start);
+	}
+
+	/** end the timing of a task */
+	public void endTask(Loadable task, long start) {
+		if (start == 0)
+			return;
+		long t = System.nanoTime() - start;
+		Timer timer = tasks.get(task);
+		if (timer == null) {
+			timer = new Timer(task.getName());
+			tasks.put(task, timer);
+		}
+		timer.add(t);
+	}
+
+	/** forget the timings of a task that has been removed from the task pool */
+	public void removeTask(Loadable task) {
+		tasks.remove(task);
+	}
+
+	/** end the timing of a whole step */
+	public void endStep(long start) {
+		if (start != 0)
+			step.add(System.nanoTime() - start);
+	}
+
+	public Timer getStepTimer() {
+		return step;
+	}
+
+	public Timer getPhaseTimer(byte phase) {
+		return phases[phase];
+	}
+
+	/** return the number of steps per second, estimated from the mean time of a step */
+	public double getStepsPerSecond() {
+		double t = step.getMean();
+		return t > 0 ? 1.0e9 / t : 0;
+	}
+
+	/** return the mean time of a step in milliseconds */
+	public double getMillisecondsPerStep() {
+		return step.getMean() * 1.0e-6;
+	}
+
+	/**
+	 * return at most the specified number of phases and tasks that have taken the most time in total, the slowest
+	 * first.
+	 */
+	public List<Timer> getSlowest(int n) {
+		List<Timer> list = new ArrayList<Timer>();
+		for (Timer t : phases) {
+			if (t.getCount() > 0)
+				list.add(t);
+		}
+		synchronized (tasks) {
+			list.addAll(tasks.values());
+		}
+		Collections.sort(list, new Comparator<Timer>() {
+			public int compare(Timer t1, Timer t2) {
+				long x = t2.getTotal() - t1.getTotal();
+				return x > 0 ? 1 : (x < 0 ? -1 : 0);
+			}
+		});
+		return n < list.size() ? list.subList(0, n) : list;
+	}
+
+	/** return a text report of the measurements of the step, the phases and the tasks */
+	public String getReport() {
+		StringBuffer sb = new StringBuffer();
+		sb.append(Math.round(getStepsPerSecond()) + " steps/s, " + format(getMillisecondsPerStep()) + " ms/step\n");
+		sb.append(step + "\n");
+		for (Timer t : phases) {
+			if (t.getCount() > 0)
+				sb.append(t + "\n");
+		}
+		synchronized (tasks) {
+			for (Timer t : tasks.values())
+				sb.append(t + "\n");
+		}
+		return sb.toString();
+	}
+
+	static String format(double x) {
+		return Math.round(x * 1000.0) / 1000.0 + "";
+	}
+
+	/**
+	 * The accumulated timings of a step, a phase or a task. Besides the count, total and maximum, a histogram with bins
+	 * of powers of two in nanoseconds is kept, from which percentiles can be estimated without storing the samples.
+	 */
+	public static class Timer {
+
+		private final static int BINS = 40;
+
+		private String name;
+		private long count, total, max;
+		private long[] histogram = new long[BINS];
+
+		Timer(String name) {
+			this.name = name;
+		}
+
+		synchronized void add(long nanos) {
+			if (nanos < 0)
+				nanos = 0;
+			count++;
+			total += nanos;
+			if (nanos > max)
+				max = nanos;
+			int i = nanos == 0 ? 0 : 64 - Long.numberOfLeadingZeros(nanos);
+			histogram[i < BINS ? i : BINS - 1]++;
+		}
+
+		synchronized void reset() {
+			count = total = max = 0;
+			for (int i = 0; i < BINS; i++)
+				histogram[i] = 0;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public synchronized long getCount() {
+			return count;
+		}
+
+		/** return the total time in nanoseconds */
+		public synchronized long getTotal() {
+			return total;
+		}
+
+		/** return the longest time in nanoseconds */
+		public synchronized long getMax() {
+			return max;
+		}
+
+		/** return the mean time in nanoseconds */
+		public synchronized double getMean() {
+			return count > 0 ? (double) total / (double) count : 0;
+		}
+
+		/**
+		 * return an upper bound of the given percentile in nanoseconds, which is no more than twice the true value.
+		 *
+		 * @param p
+		 *            the percentile between 0 and 1
+		 */
+		public synchronized long getPercentile(double p) {
+			if (count == 0)
+				return 0;
+			long k = (long) Math.ceil(p * count);
+			long sum = 0;
+			for (int i = 0; i < BINS; i++) {
+				sum += histogram[i];
+				if (sum >= k)
+					return i == 0 ? 0 : Math.min(max, (1L << i) - 1);
+			}
+			return max;
+		}
+
+		public String toString() {
+			return name + ": n=" + getCount() + ", mean=" + format(getMean() * 1.0e-6) + " ms, p95<"
+					+ format(getPercentile(0.95) * 1.0e-6) + " ms, max=" + format(getMax() * 1.0e-6) + " ms";
+		}
+
+	}
+
+}
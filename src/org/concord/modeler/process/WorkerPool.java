@@ -0,0 +1,63 @@
+/*
+ *   Copyright (C) 2006  The Concord Consortium, Inc.,
+ *   25 Love Lane, Concord, MA 01742
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * END LICENSE */
+
+package org.concord.modeler.process;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.myjmol.util.TaskPool;
+
+/**
+ * This is a pool of daemon worker threads shared by all the models, used to split a computation that a job does in a
+ * step into pieces that run on several processor cores. The calling thread always does the first piece itself, so a
+ * computation split into a single piece never leaves the calling thread. A worker thread that splits a computation of
+ * its own runs all the pieces itself, so that a worker thread never waits for the pool.
+ *
+ * @author Charles Xie
+ */
+
+public final class WorkerPool {
+
+	private final static int PROCESSORS = Runtime.getRuntime().availableProcessors();
+	private final static TaskPool pool = new TaskPool("Worker thread", PROCESSORS - 1, Thread.MIN_PRIORITY);
+
+	private WorkerPool() {
+	}
+
+	/** return the number of processors available to the virtual machine */
+	public static int getProcessorCount() {
+		return PROCESSORS;
+	}
+
+	/**
+	 * run the tasks and return their results in the same order as the tasks. The first task runs on the calling thread
+	 * and the rest on the worker threads, unless the calling thread is a worker thread itself, in which case all the
+	 * tasks run on the calling thread. This method does not return before all the tasks are done, even if the calling
+	 * thread is interrupted in the meantime, in which case the interrupt status is restored upon return.
+	 *
+	 * @throws RuntimeException
+	 *             if any task throws an exception
+	 */
+	public static <T> List<T> invoke(List<? extends Callable<T>> tasks) {
+		return pool.invoke(tasks);
+	}
+
+}
@@ -40,6 +40,7 @@ import java.util.Collections;
 import java.util.EmptyStackException;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -90,7 +91,7 @@ public abstract class AbstractEval {
 	protected final static Pattern NNI = compile("\\d+");
 	protected final static short DELAY_FRACTION = 500;
 
-	protected static Evaluator mathEval;
+	protected final Evaluator mathEval;
 	protected Stack<Object> logicalStack;
 	protected Map<String, String> definition;
 	protected static Map<Class, Map<String, String>> sharedDefinition;
@@ -113,6 +114,7 @@ public abstract class AbstractEval {
 	private final static Pattern LOGICAL_EXPRESSION = compile("(" + REGEX_NOT + ")|(" + REGEX_OR + ")|(" + REGEX_AND + ")|\\(|\\)");
 
 	private final static int MAX_NESTED_DEPTH = 10;
+	private final static int INSTRUCTION_CACHE_SIZE = 1000;
 	private int ifLevel;
 	private boolean[] foundIf = new boolean[MAX_NESTED_DEPTH];
 	private boolean[] foundElse = new boolean[MAX_NESTED_DEPTH];
@@ -131,10 +133,16 @@ public abstract class AbstractEval {
 
 	private boolean notifySaver = true;
 
+	/* the compiled form of the script lines, so that a line run again (in a while loop, a task or a mouse script) is not parsed again */
+	private final Map<String, Instruction> instructions = new LinkedHashMap<String, Instruction>(64, 0.75f, true) {
+		protected boolean removeEldestEntry(Map.Entry<String, Instruction> eldest) {
+			return size() > INSTRUCTION_CACHE_SIZE;
+		}
+	};
+
 	protected AbstractEval() {
 		scriptQueue = new LinkedList<String>();
-		if (mathEval == null)
-			mathEval = new Evaluator();
+		mathEval = new Evaluator();
 		logicalStack = new Stack<Object>();
 		definition = Collections.synchronizedMap(new HashMap<String, String>());
 		if (sharedDefinition == null)
@@ -273,10 +281,12 @@ public abstract class AbstractEval {
 			return Double.NaN;
 		if (expression.indexOf("%") >= 0)
 			expression = replaceVariablesWithValues(useDefinitions(expression));
-		mathEval.setExpression(expression);
 		double x = 0;
 		try {
-			x = mathEval.eval();
+			synchronized (mathEval) {
+				mathEval.setExpression(expression);
+				x = mathEval.eval();
+			}
 		}
 		catch (Exception e) {
 			e.printStackTrace();
@@ -468,13 +478,11 @@ public abstract class AbstractEval {
 		loopList.clear();
 		int n = command.length;
 		int k = 0;
-		String ci;
 		String[] s = null;
 		for (int i = 0; i < n; i++) {
 			if (interrupted || stop)
 				return;
-			ci = command[i].trim().toLowerCase();
-			if (ci.startsWith("loop")) {
+			if (getInstruction(command[i]).type == Instruction.LOOP) {
 				s = new String[k + 1];
 				for (int j = 0; j < k + 1; j++)
 					s[j] = command[i - k + j];
@@ -499,7 +507,7 @@ public abstract class AbstractEval {
 				for (String[] t : loopList) {
 					if (interrupted || stop)
 						return;
-					if (t.length == 1 && t[0].trim().toLowerCase().startsWith("loop"))
+					if (t.length == 1 && getInstruction(t[0]).type == Instruction.LOOP)
 						continue;
 					iLoop = 0;
 					nLoop = 10;
@@ -510,10 +518,56 @@ public abstract class AbstractEval {
 	}
 
 	private boolean testWhile(String command) {
-		int lp = command.indexOf("(");
-		int rp = command.lastIndexOf(")");
-		String whileExpression = command.substring(lp + 1, rp);
-		return evaluateLogicalExpression(whileExpression);
+		return evaluateLogicalExpression(getInstruction(command).condition);
+	}
+
+	/*
+	 * Return the compiled form of a script line, which tells what kind of control statement the line is and extracts
+	 * the condition of an if or while statement, so that the line is matched against the patterns only the first time
+	 * it is run. The cache is keyed by the text of the line, so it is shared by all the scripts of this evaluator.
+	 */
+	private Instruction getInstruction(String command) {
+		Instruction instruction;
+		synchronized (instructions) {
+			instruction = instructions.get(command);
+		}
+		if (instruction != null)
+			return instruction;
+		String ci = command.trim();
+		if (ci.equals("")) {
+			instruction = new Instruction(Instruction.EMPTY, ci, null);
+		}
+		else if (WHILE.matcher(ci).find()) {
+			instruction = new Instruction(Instruction.WHILE, ci, command.substring(command.indexOf("(") + 1, command.lastIndexOf(")")));
+		}
+		else if (ENDWHILE.matcher(ci).find()) {
+			instruction = new Instruction(Instruction.ENDWHILE, ci, null);
+		}
+		else if (IF.matcher(ci).find()) {
+			instruction = new Instruction(Instruction.IF, ci, ci.substring(ci.indexOf("(") + 1, ci.lastIndexOf(")")));
+		}
+		else if (ELSE.matcher(ci).find()) {
+			instruction = new Instruction(Instruction.ELSE, ci, null);
+		}
+		else if (ENDIF.matcher(ci).find()) {
+			instruction = new Instruction(Instruction.ENDIF, ci, null);
+		}
+		else if ("return".equalsIgnoreCase(ci)) {
+			instruction = new Instruction(Instruction.RETURN, ci, null);
+		}
+		else if (COMMENT.matcher(ci).find()) {
+			instruction = new Instruction(Instruction.COMMENT, ci, null);
+		}
+		else if (ci.toLowerCase().startsWith("loop")) {
+			instruction = new Instruction(Instruction.LOOP, ci, null);
+		}
+		else {
+			instruction = new Instruction(Instruction.COMMAND, ci, null);
+		}
+		synchronized (instructions) {
+			instructions.put(command, instruction);
+		}
+		return instruction;
 	}
 
 	/**
@@ -529,20 +583,21 @@ public abstract class AbstractEval {
 		for (int i = 0; i < n; i++) {
 			if (interrupted || stop)
 				return false;
-			ci = command[i].trim();
-			if (ci.equals(""))
+			Instruction instruction = getInstruction(command[i]);
+			if (instruction.type == Instruction.EMPTY)
 				continue;
+			ci = instruction.text;
 
+			switch (instruction.type) {
 			// handling while
-			if (WHILE.matcher(ci).find()) {
+			case Instruction.WHILE:
 				iWhile = i;
 				firstWhileFalse = !testWhile(command[iWhile]);
 				stopWhile = false;
 				ifLevelBeforeWhile = ifLevel;
 				whileLoopCommands = null;
 				continue;
-			}
-			else if (ENDWHILE.matcher(ci).find()) {
+			case Instruction.ENDWHILE:
 				if (iWhile < 0) {
 					out(ScriptEvent.FAILED, "No matching while is found.");
 					return false;
@@ -576,33 +631,26 @@ public abstract class AbstractEval {
 				firstWhileFalse = false;
 				ifLevelBeforeWhile = 0;
 				continue;
-			}
-
 			// handling if
-			if (IF.matcher(ci).find()) {
+			case Instruction.IF:
 				if (ifLevel > MAX_NESTED_DEPTH - 1) {
 					out(ScriptEvent.FAILED, "Too many nested if commands (maximum = " + MAX_NESTED_DEPTH + ").");
 					return false;
 				}
 				foundIf[ifLevel] = true;
 				foundElse[ifLevel] = false;
-				int lp = ci.indexOf("(");
-				int rp = ci.lastIndexOf(")");
-				String ifExpression = ci.substring(lp + 1, rp);
-				ifTrue[ifLevel] = skipIf() ? false : evaluateLogicalExpression(ifExpression);
+				ifTrue[ifLevel] = skipIf() ? false : evaluateLogicalExpression(instruction.condition);
 				// ifTrue[ifLevel] = evaluateLogicalExpression(ifExpression);
 				ifLevel++;
 				continue;
-			}
-			if (ELSE.matcher(ci).find()) {
+			case Instruction.ELSE:
 				if (ifLevel > ifLevelBeforeWhile) {
 					int i1 = ifLevel - 1;
 					foundElse[i1] = true;
 					foundIf[i1] = false;
 				}
 				continue;
-			}
-			if (ENDIF.matcher(ci).find()) {
+			case Instruction.ENDIF:
 				if (ifLevel > ifLevelBeforeWhile) {
 					ifLevel--;
 					foundIf[ifLevel] = foundElse[ifLevel] = ifTrue[ifLevel] = false;
@@ -615,16 +663,16 @@ public abstract class AbstractEval {
 			if (firstWhileFalse) // if the while command is evaluated false for the first time
 				continue;
 
-			if ("return".equalsIgnoreCase(ci)) {
+			if (instruction.type == Instruction.RETURN) {
 				stop();
 				ifLevel = ifLevelBeforeWhile;
 				return false;
 			}
-			if (COMMENT.matcher(ci).find()) // comments
+			if (instruction.type == Instruction.COMMENT) // comments
 				continue;
 			if (evaluateSingleKeyword(ci))
 				continue;
-			if (ci.toLowerCase().startsWith("loop")) { // loop
+			if (instruction.type == Instruction.LOOP) { // loop
 				nLoop = getNLoop(ci);
 				if (++iLoop < nLoop) {
 					evalCommandSet2(command);
@@ -1463,27 +1511,52 @@ public abstract class AbstractEval {
 	}
 
 	protected static String replaceAll(String expression, String variable, double value) {
+		if (isAbsent(expression, variable))
+			return expression;
 		return expression.replaceAll("(?i)" + variable, "" + value);
 	}
 
 	protected static String replaceAll(String expression, String variable, float value) {
+		if (isAbsent(expression, variable))
+			return expression;
 		return expression.replaceAll("(?i)" + variable, "" + value);
 	}
 
 	protected static String replaceAll(String expression, String variable, int value) {
+		if (isAbsent(expression, variable))
+			return expression;
 		return expression.replaceAll("(?i)" + variable, "" + value);
 	}
 
 	protected static String replaceAll(String expression, String variable, String value) {
+		if (isAbsent(expression, variable))
+			return expression;
 		String replacement = Matcher.quoteReplacement(value);
 		return expression.replaceAll("(?i)" + variable, replacement);
 	}
 
 	protected static String replaceAll(String expression, String variable, FloatQueue value) {
+		if (isAbsent(expression, variable))
+			return expression;
 		String replacement = value.toString();
 		return expression.replaceAll("(?i)" + variable, replacement);
 	}
 
+	/*
+	 * return true if the variable is a plain name (not a pattern with escaped characters) that does not occur in the
+	 * expression, ignoring case, so that the regular expression does not have to be compiled to replace nothing.
+	 */
+	private static boolean isAbsent(String expression, String variable) {
+		if (variable.indexOf('\\') != -1)
+			return false;
+		int n = variable.length();
+		for (int i = expression.length() - n; i >= 0; i--) {
+			if (expression.regionMatches(true, i, variable, 0, n))
+				return false;
+		}
+		return true;
+	}
+
 	private short getNLoop(String ci) {
 		int i = ci.toLowerCase().lastIndexOf("loop") + 4;
 		if (i < ci.length() - 1) {
@@ -1746,4 +1819,30 @@ public abstract class AbstractEval {
 		return true;
 	}
 
-}
\ No newline at end of file
+	/* a script line classified by the control statement it is, with the condition of an if or while statement */
+	private static class Instruction {
+
+		final static byte EMPTY = 0;
+		final static byte WHILE = 1;
+		final static byte ENDWHILE = 2;
+		final static byte IF = 3;
+		final static byte ELSE = 4;
+		final static byte ENDIF = 5;
+		final static byte RETURN = 6;
+		final static byte COMMENT = 7;
+		final static byte LOOP = 8;
+		final static byte COMMAND = 9;
+
+		final byte type;
+		final String text;
+		final String condition;
+
+		Instruction(byte type, String text, String condition) {
+			this.type = type;
+			this.text = text;
+			this.condition = condition;
+		}
+
+	}
+
+}
@@ -87,7 +87,8 @@ public class ProcessMonitor {
 	public void setTitle(final String title) {
 		EventQueue.invokeLater(new Runnable() {
 			public void run() {
-				titleLabel.setText(title);
+				if (titleLabel != null)
+					titleLabel.setText(title);
 			}
 		});
 	}
@@ -172,6 +173,8 @@ public class ProcessMonitor {
 	public void setLocationRelativeTo(final Component c) {
 		EventQueue.invokeLater(new Runnable() {
 			public void run() {
+				if (window == null)
+					return;
 				window.pack();
 				window.setLocationRelativeTo(c);
 				isLocationRelativeToSet = true;
@@ -183,6 +186,8 @@ public class ProcessMonitor {
 	public void show(final int x, final int y) {
 		EventQueue.invokeLater(new Runnable() {
 			public void run() {
+				if (window == null)
+					return;
 				if (!isLocationRelativeToSet)
 					window.setLocation(x, y);
 				window.setVisible(true);
@@ -191,15 +196,17 @@ public class ProcessMonitor {
 	}
 
 	public boolean isShowing() {
-		return window.isShowing();
+		return window != null && window.isShowing();
 	}
 
 	/** hide the progress bar */
 	public void hide() {
 		EventQueue.invokeLater(new Runnable() {
 			public void run() {
-				window.setVisible(false);
-				window.dispose();
+				if (window != null) {
+					window.setVisible(false);
+					window.dispose();
+				}
 				index = 0;
 				progressBar.setValue(0);
 			}
@@ -208,7 +215,7 @@ public class ProcessMonitor {
 
 	/** return the size of the progress bar */
 	public Dimension getSize() {
-		if (window.getSize().width == 0 || window.getSize().height == 0) {
+		if (window == null || window.getSize().width == 0 || window.getSize().height == 0) {
 			return progressBar.getPreferredSize();
 		}
 		return window.getSize();
@@ -21,11 +21,25 @@
 package org.concord.modeler.util;
 
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Stack;
 
+import org.nfunk.jep.ASTConstant;
+import org.nfunk.jep.ASTFunNode;
+import org.nfunk.jep.ASTVarNode;
+import org.nfunk.jep.FunctionTable;
 import org.nfunk.jep.JEP;
+import org.nfunk.jep.Node;
+import org.nfunk.jep.ParseException;
+import org.nfunk.jep.function.PostfixMathCommandI;
 
 /**
- * This class is a simple wrapper around JEP package.
+ * This class is a simple wrapper around JEP package. An expression is parsed only the first time it is seen, and
+ * compiled into a flat postfix program that is kept in a bounded cache shared by all the evaluators, so evaluating it
+ * again with different variable values skips the parser. Each evaluator has its own symbol and function tables, so it
+ * is not thread-safe: confine an evaluator to one thread (or guard it yourself), and create one per model or thread
+ * that needs to evaluate expressions concurrently.
  * 
  * @author Dima Markman
  * @author Connie J. Chen
@@ -33,15 +47,25 @@ import org.nfunk.jep.JEP;
 
 public class Evaluator {
 
+	private final static int CACHE_SIZE = 256;
+
+	/* the compiled programs, keyed by the expression and the parser options, with the least recently used dropped */
+	private final static Map<String, Program> cache = new LinkedHashMap<String, Program>(64, 0.75f, true) {
+		protected boolean removeEldestEntry(Map.Entry<String, Program> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
 	/* JEP evaluator */
-	private static JEP evaluator;
+	private final JEP evaluator;
 
 	/* The current expression */
 	private String expression;
 
 	private boolean allowUndeclared;
-
-	private final Object lock = new Object();
+	private boolean implicitMul;
+	private String errorInfo;
+	private final Stack<Object> stack = new Stack<Object>();
 
 	/**
 	 * 
@@ -54,7 +78,11 @@ public class Evaluator {
 
 	private Evaluator(String expression, boolean allowUndeclared) {
 		this.allowUndeclared = allowUndeclared;
-		init(allowUndeclared);
+		evaluator = new JEP();
+		evaluator.addStandardConstants();
+		evaluator.addSpecialFunctions();
+		evaluator.addStandardFunctions();
+		evaluator.setAllowUndeclared(allowUndeclared);
 		setExpression(expression);
 	}
 
@@ -70,16 +98,6 @@ public class Evaluator {
 		return evaluator.getFunTab();
 	}
 
-	private void init(boolean allowUndeclared) {
-		if (evaluator == null) {
-			evaluator = new JEP();
-			evaluator.addStandardConstants();
-			evaluator.addSpecialFunctions();
-			evaluator.addStandardFunctions();
-		}
-		evaluator.setAllowUndeclared(allowUndeclared);
-	}
-
 	/**
 	 * Set an expression for the evaluator
 	 * 
@@ -87,25 +105,16 @@ public class Evaluator {
 	 *            Example: g*t^2/2
 	 */
 	public void setExpression(String expression) {
-		synchronized (lock) {
-			this.expression = expression == null ? null : expression.trim();
-		}
+		this.expression = expression == null ? null : expression.trim();
 	}
 
 	public void setImplicitMultiplication(boolean b) {
-		if (evaluator == null)
-			return;
-		synchronized (lock) {
-			evaluator.setImplicitMul(b);
-		}
+		implicitMul = b;
+		evaluator.setImplicitMul(b);
 	}
 
 	public String getErrorInfo() {
-		if (evaluator == null)
-			return null;
-		synchronized (lock) {
-			return evaluator.getErrorInfo();
-		}
+		return errorInfo;
 	}
 
 	/**
@@ -115,9 +124,7 @@ public class Evaluator {
 	 */
 
 	public String getExpression() {
-		synchronized (lock) {
-			return expression;
-		}
+		return expression;
 	}
 
 	public void addVariable(String name) {
@@ -135,15 +142,11 @@ public class Evaluator {
 	 *                if expression doesn't contain variable
 	 */
 	public void setVariableValue(String name, double value) throws IllegalArgumentException {
-		if (evaluator == null)
-			return;
-		synchronized (lock) {
-			if (!allowUndeclared || evaluator.getSymbolTable().containsKey(name)) {
-				evaluator.addVariable(name, value);
-			}
-			else {
-				throw new IllegalArgumentException("Expression " + expression + " doesn't contain variable " + name);
-			}
+		if (!allowUndeclared || evaluator.getSymbolTable().containsKey(name)) {
+			evaluator.addVariable(name, value);
+		}
+		else {
+			throw new IllegalArgumentException("Expression " + expression + " doesn't contain variable " + name);
 		}
 	}
 
@@ -157,21 +160,17 @@ public class Evaluator {
 	 *                if expression doesn't contain variable
 	 */
 	public double getVariableValue(String name) throws IllegalArgumentException {
-		if (evaluator == null)
-			return 0;
 		double retValue = 0;
-		synchronized (lock) {
-			if (evaluator.getSymbolTable().containsKey(name)) {
-				Object o = evaluator.getSymbolTable().get(name);
-				if (o instanceof Number) {
-					retValue = ((Number) o).doubleValue();
-				}
+		if (evaluator.getSymbolTable().containsKey(name)) {
+			Object o = evaluator.getSymbolTable().get(name);
+			if (o instanceof Number) {
+				retValue = ((Number) o).doubleValue();
 			}
-			else {
-				throw new IllegalArgumentException("Expression " + expression + " doesn't contain variable " + name);
-			}
-			return retValue;
 		}
+		else {
+			throw new IllegalArgumentException("Expression " + expression + " doesn't contain variable " + name);
+		}
+		return retValue;
 	}
 
 	/**
@@ -182,21 +181,13 @@ public class Evaluator {
 	 * @return true if variable is in the expression
 	 */
 	public boolean isVariableInExpression(String name) {
-		if (evaluator == null)
-			return false;
-		synchronized (lock) {
-			return evaluator.getSymbolTable().containsKey(name);
-		}
+		return evaluator.getSymbolTable().containsKey(name);
 	}
 
 	/** Remove all variables from expression */
 	public void removeAllVariables() {
-		if (evaluator == null)
-			return;
-		synchronized (lock) {
-			evaluator.getSymbolTable().clear();
-			evaluator.addStandardConstants();
-		}
+		evaluator.getSymbolTable().clear();
+		evaluator.addStandardConstants();
 	}
 
 	/**
@@ -208,15 +199,11 @@ public class Evaluator {
 	 *                if expression doesn't contain variable
 	 */
 	public void removeVariable(String name) {
-		if (evaluator == null)
-			return;
-		synchronized (lock) {
-			if (evaluator.getSymbolTable().containsKey(name)) {
-				evaluator.removeVariable(name);
-			}
-			else {
-				throw new IllegalArgumentException("Expression " + expression + " doesn't contain variable " + name);
-			}
+		if (evaluator.getSymbolTable().containsKey(name)) {
+			evaluator.removeVariable(name);
+		}
+		else {
+			throw new IllegalArgumentException("Expression " + expression + " doesn't contain variable " + name);
 		}
 	}
 
@@ -228,7 +215,7 @@ public class Evaluator {
 	 *                if it was an error
 	 */
 	public double eval() throws EvaluationException {
-		if (evaluator == null || expression == null)
+		if (expression == null)
 			return 0;
 		if (expression.startsWith("0x")) {
 			try {
@@ -246,12 +233,154 @@ public class Evaluator {
 				throw new EvaluationException("Evaluation exception: " + e.getMessage());
 			}
 		}
-		synchronized (lock) {
-			evaluator.parseExpression(expression);
-			if (evaluator.hasError())
-				throw new EvaluationException("Evaluation exception: " + evaluator.getErrorInfo());
-			return evaluator.getValue();
+		errorInfo = null;
+		Program program = compile(expression);
+		Object value = program.run(this);
+		if (value instanceof Number)
+			return ((Number) value).doubleValue();
+		return Double.NaN;
+	}
+
+	/* return the cached program of the expression, or parse and compile it if it is not in the cache */
+	private Program compile(String expression) {
+		String key = implicitMul ? "*" + expression : expression;
+		Program program;
+		synchronized (cache) {
+			program = cache.get(key);
+		}
+		if (program != null)
+			return program;
+		evaluator.parseExpression(expression);
+		if (evaluator.hasError()) {
+			errorInfo = evaluator.getErrorInfo();
+			throw new EvaluationException("Evaluation exception: " + errorInfo);
+		}
+		program = new Program(evaluator.getTopNode(), evaluator.getFunTab());
+		synchronized (cache) {
+			cache.put(key, program);
+		}
+		return program;
+	}
+
+	/* look up a variable the way the parser would have done it when the program was compiled */
+	private Object getVariable(String name) {
+		Object value = evaluator.getSymbolTable().get(name);
+		if (value != null)
+			return value;
+		if (!evaluator.getSymbolTable().containsKey(name)) {
+			if (!allowUndeclared) {
+				errorInfo = "Unrecognized symbol \"" + name + "\"\n";
+				throw new EvaluationException("Evaluation exception: " + errorInfo);
+			}
+			value = new Double(0);
+			evaluator.getSymbolTable().put(name, value);
+		}
+		return value;
+	}
+
+	/*
+	 * An expression tree flattened into postfix order. It holds the constants, the names of the variables and the named
+	 * functions, which each evaluator binds to its own symbol and function tables, and the operators, which the parser
+	 * creates for every node and which are immutable except for the argument count of the variadic ones. So it never
+	 * changes once compiled and can be shared by evaluators on different threads.
+	 */
+	private static class Program {
+
+		private final static byte CONSTANT = 0;
+		private final static byte VARIABLE = 1;
+		private final static byte FUNCTION = 2;
+
+		private final byte[] type;
+		private final Object[] operand;
+		private final int[] argumentCount;
+		private int size;
+
+		Program(Node top, FunctionTable functions) {
+			int n = count(top);
+			type = new byte[n];
+			operand = new Object[n];
+			argumentCount = new int[n];
+			add(top, functions);
 		}
+
+		private static int count(Node node) {
+			int n = 1;
+			for (int i = 0, m = node.jjtGetNumChildren(); i < m; i++)
+				n += count(node.jjtGetChild(i));
+			return n;
+		}
+
+		private void add(Node node, FunctionTable functions) {
+			int m = node.jjtGetNumChildren();
+			for (int i = 0; i < m; i++)
+				add(node.jjtGetChild(i), functions);
+			if (node instanceof ASTConstant) {
+				type[size] = CONSTANT;
+				operand[size] = ((ASTConstant) node).getValue();
+			}
+			else if (node instanceof ASTVarNode) {
+				type[size] = VARIABLE;
+				operand[size] = ((ASTVarNode) node).getName();
+			}
+			else if (node instanceof ASTFunNode) {
+				ASTFunNode f = (ASTFunNode) node;
+				type[size] = FUNCTION;
+				// a named function is looked up again in the table of the evaluator, an operator is kept as it is
+				operand[size] = functions.get(f.getName()) == f.getPFMC() ? f.getName() : f.getPFMC();
+				argumentCount[size] = m;
+			}
+			else {
+				throw new EvaluationException("Evaluation exception: unknown node " + node);
+			}
+			size++;
+		}
+
+		/* return the value, or null if the evaluation fails, as JEP does */
+		Object run(Evaluator e) {
+			Stack<Object> stack = e.stack;
+			stack.clear();
+			FunctionTable functions = e.evaluator.getFunTab();
+			for (int i = 0; i < size; i++) {
+				switch (type[i]) {
+				case CONSTANT:
+					stack.push(operand[i]);
+					break;
+				case VARIABLE:
+					stack.push(e.getVariable((String) operand[i]));
+					break;
+				case FUNCTION:
+					PostfixMathCommandI f;
+					if (operand[i] instanceof String) {
+						f = (PostfixMathCommandI) functions.get(operand[i]);
+						if (f == null) {
+							e.errorInfo = "No function class associated with " + operand[i] + "\n";
+							throw new EvaluationException("Evaluation exception: " + e.errorInfo);
+						}
+					}
+					else {
+						f = (PostfixMathCommandI) operand[i];
+					}
+					try {
+						if (f.getNumberOfParameters() == -1) {
+							synchronized (f) {
+								f.setCurNumberOfParameters(argumentCount[i]);
+								f.run(stack);
+							}
+						}
+						else {
+							f.run(stack);
+						}
+					}
+					catch (ParseException x) {
+						e.errorInfo = x.getMessage();
+						return null;
+					}
+					break;
+				}
+			}
+			return stack.size() == 1 ? stack.pop() : null;
+		}
+
 	}
 
-}
\ No newline at end of file
+}
@@ -329,7 +329,7 @@ public class FloatQueue extends DataQueue {
 	public void copyFrom(DataQueue q) {
 		if (!(q instanceof FloatQueue))
 			throw new IllegalArgumentException("Elements of the input queue must be floats");
-		float[] array = ((FloatQueue) q).data;
+		float[] array = (float[]) q.getData();
 		if (data == null || array.length != data.length)
 			data = new float[array.length];
 		System.arraycopy(array, 0, data, 0, array.length);
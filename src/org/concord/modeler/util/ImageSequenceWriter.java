@@ -0,0 +1,103 @@
+/*
+ *   Copyright (C) 2006  The Concord Consortium, Inc.,
+ *   25 Love Lane, Concord, MA 01742
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * END LICENSE */
+
+package org.concord.modeler.util;
+
+import java.awt.image.RenderedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.imageio.ImageIO;
+
+/**
+ * <p>
+ * This writes a sequence of frames as PNG images, either into a directory as numbered files (000000.png, 000001.png,
+ * ...) the same way the image stream generator names its snapshots, or into a single file in which the PNG images
+ * follow one another.
+ * </p>
+ *
+ * <p>
+ * A single stream can be piped to a video encoder without unpacking it, for example:
+ * </p>
+ *
+ * <pre>
+ * ffmpeg -f image2pipe -c:v png -framerate 25 -i frames.pngs movie.mp4
+ * </pre>
+ *
+ * @author Charles Xie
+ */
+
+public class ImageSequenceWriter {
+
+	private File file;
+	private OutputStream out;
+	private int frameCount;
+
+	/**
+	 * @param file
+	 *            the directory to write the numbered files into, or the file to write the stream into
+	 * @param stream
+	 *            true to write all the frames into a single stream
+	 */
+	public ImageSequenceWriter(File file, boolean stream) throws IOException {
+		this.file = file;
+		if (stream) {
+			File parent = file.getAbsoluteFile().getParentFile();
+			if (parent != null)
+				parent.mkdirs();
+			out = new BufferedOutputStream(new FileOutputStream(file));
+		}
+		else {
+			file.mkdirs();
+			if (!file.isDirectory())
+				throw new IOException(file + " is not a directory");
+		}
+	}
+
+	/** append a frame to the sequence */
+	public void write(RenderedImage image) throws IOException {
+		if (out != null) {
+			if (!ImageIO.write(image, "png", out))
+				throw new IOException("No PNG writer found");
+		}
+		else {
+			File f = new File(file, String.format("%06d", frameCount) + ".png");
+			if (!ImageIO.write(image, "png", f))
+				throw new IOException("No PNG writer found");
+		}
+		frameCount++;
+	}
+
+	/** return the number of frames written so far */
+	public int getFrameCount() {
+		return frameCount;
+	}
+
+	public void close() throws IOException {
+		if (out != null) {
+			out.close();
+			out = null;
+		}
+	}
+
+}
@@ -53,6 +53,7 @@ import org.concord.modeler.ui.HyperlinkLabel;
 import org.concord.modeler.ui.RealNumberTextField;
 import org.concord.modeler.ui.RestrictedTextField;
 import org.concord.modeler.util.DataQueueUtilities;
+import org.concord.modeler.util.FloatQueueTwin;
 import org.concord.molbio.engine.Aminoacid;
 import org.concord.molbio.engine.Nucleotide;
 import org.concord.mw2d.models.Atom;
@@ -458,9 +459,10 @@ class AtomPropertiesPanel extends PropertiesPanel {
 		leftXLabel.setToolTipText("Click to view this variable's graph");
 		leftXLabel.setAction(new Runnable() {
 			public void run() {
-				if (atom.getRxRyQueue() != null) {
-					atom.getRxRyQueue().getQueue1().setMultiplier(0.1f);
-					DataQueueUtilities.show(atom.getRxRyQueue().getQueue1(), JOptionPane
+				FloatQueueTwin q = atom.getRxRyQueue();
+				if (q != null) {
+					q.getQueue1().setMultiplier(0.1f);
+					DataQueueUtilities.show(q.getQueue1(), JOptionPane
 							.getFrameForComponent(AtomPropertiesPanel.this));
 				}
 				else {
@@ -478,9 +480,10 @@ class AtomPropertiesPanel extends PropertiesPanel {
 		leftYLabel.setToolTipText("Click to view this variable's graph");
 		leftYLabel.setAction(new Runnable() {
 			public void run() {
-				if (atom.getRxRyQueue() != null) {
-					atom.getRxRyQueue().getQueue2().setMultiplier(0.1f);
-					DataQueueUtilities.show(atom.getRxRyQueue().getQueue2(), JOptionPane
+				FloatQueueTwin q = atom.getRxRyQueue();
+				if (q != null) {
+					q.getQueue2().setMultiplier(0.1f);
+					DataQueueUtilities.show(q.getQueue2(), JOptionPane
 							.getFrameForComponent(AtomPropertiesPanel.this));
 				}
 				else {
@@ -498,9 +501,10 @@ class AtomPropertiesPanel extends PropertiesPanel {
 		leftVxLabel.setToolTipText("Click to view this variable's graph");
 		leftVxLabel.setAction(new Runnable() {
 			public void run() {
-				if (atom.getVxVyQueue() != null) {
-					atom.getVxVyQueue().getQueue1().setMultiplier(10000);
-					DataQueueUtilities.show(atom.getVxVyQueue().getQueue1(), JOptionPane
+				FloatQueueTwin q = atom.getVxVyQueue();
+				if (q != null) {
+					q.getQueue1().setMultiplier(10000);
+					DataQueueUtilities.show(q.getQueue1(), JOptionPane
 							.getFrameForComponent(AtomPropertiesPanel.this));
 				}
 				else {
@@ -518,9 +522,10 @@ class AtomPropertiesPanel extends PropertiesPanel {
 		leftVyLabel.setToolTipText("Click to view this variable's graph");
 		leftVyLabel.setAction(new Runnable() {
 			public void run() {
-				if (atom.getVxVyQueue() != null) {
-					atom.getVxVyQueue().getQueue2().setMultiplier(10000);
-					DataQueueUtilities.show(atom.getVxVyQueue().getQueue2(), JOptionPane
+				FloatQueueTwin q = atom.getVxVyQueue();
+				if (q != null) {
+					q.getQueue2().setMultiplier(10000);
+					DataQueueUtilities.show(q.getQueue2(), JOptionPane
 							.getFrameForComponent(AtomPropertiesPanel.this));
 				}
 				else {
@@ -538,9 +543,10 @@ class AtomPropertiesPanel extends PropertiesPanel {
 		hLabel.setToolTipText("Click to view this variable's graph");
 		hLabel.setAction(new Runnable() {
 			public void run() {
-				if (atom.getAxAyQueue() != null) {
-					atom.getAxAyQueue().getQueue1().setMultiplier(0.1f);
-					DataQueueUtilities.show(atom.getAxAyQueue().getQueue1(), JOptionPane
+				FloatQueueTwin q = atom.getAxAyQueue();
+				if (q != null) {
+					q.getQueue1().setMultiplier(0.1f);
+					DataQueueUtilities.show(q.getQueue1(), JOptionPane
 							.getFrameForComponent(AtomPropertiesPanel.this));
 				}
 				else {
@@ -560,9 +566,10 @@ class AtomPropertiesPanel extends PropertiesPanel {
 		hLabel.setToolTipText("Click to view this variable's graph");
 		hLabel.setAction(new Runnable() {
 			public void run() {
-				if (atom.getAxAyQueue() != null) {
-					atom.getAxAyQueue().getQueue2().setMultiplier(0.1f);
-					DataQueueUtilities.show(atom.getAxAyQueue().getQueue2(), JOptionPane
+				FloatQueueTwin q = atom.getAxAyQueue();
+				if (q != null) {
+					q.getQueue2().setMultiplier(0.1f);
+					DataQueueUtilities.show(q.getQueue2(), JOptionPane
 							.getFrameForComponent(AtomPropertiesPanel.this));
 				}
 				else {
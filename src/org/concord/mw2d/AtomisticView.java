@@ -1247,6 +1247,7 @@ public class AtomisticView extends MDView implements BondChangeListener {
 				probe = a;
 				contour.setProbe(probe, dim.width, dim.height);
 				contour.setConstant(model.getUniverse().getCoulombConstant(), model.getUniverse().getDielectricConstant());
+				contour.setCutOff(model.getCutOff());
 				contourMap = new ContourMap(dim.width / contour.getCellSize(), dim.height / contour.getCellSize(), contour.getContour(nAtom, atom, boundary.getType()));
 				// contourMap.setNLevels(model.checkCharges()? 20 : 10);
 				contourMap.setNLevels(20);
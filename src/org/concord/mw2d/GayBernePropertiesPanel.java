@@ -48,6 +48,7 @@ import org.concord.modeler.ui.ComboBoxRenderer;
 import org.concord.modeler.ui.HyperlinkLabel;
 import org.concord.modeler.ui.RealNumberTextField;
 import org.concord.modeler.util.DataQueueUtilities;
+import org.concord.modeler.util.FloatQueueTwin;
 import org.concord.mw2d.models.GayBerneParticle;
 import org.concord.mw2d.models.PointRestraint;
 import org.concord.mw2d.models.UnitedAtom;
@@ -277,9 +278,10 @@ class GayBernePropertiesPanel extends PropertiesPanel {
 		hLabel.setToolTipText("Click to view this variable's graph");
 		hLabel.setAction(new Runnable() {
 			public void run() {
-				if (gb.getRxRyQueue() != null) {
-					gb.getRxRyQueue().getQueue1().setMultiplier(0.1f);
-					DataQueueUtilities.show(gb.getRxRyQueue().getQueue1(), JOptionPane
+				FloatQueueTwin q = gb.getRxRyQueue();
+				if (q != null) {
+					q.getQueue1().setMultiplier(0.1f);
+					DataQueueUtilities.show(q.getQueue1(), JOptionPane
 							.getFrameForComponent(GayBernePropertiesPanel.this));
 				}
 				else {
@@ -296,9 +298,10 @@ class GayBernePropertiesPanel extends PropertiesPanel {
 		hLabel.setToolTipText("Click to view this variable's graph");
 		hLabel.setAction(new Runnable() {
 			public void run() {
-				if (gb.getRxRyQueue() != null) {
-					gb.getRxRyQueue().getQueue2().setMultiplier(0.1f);
-					DataQueueUtilities.show(gb.getRxRyQueue().getQueue2(), JOptionPane
+				FloatQueueTwin q = gb.getRxRyQueue();
+				if (q != null) {
+					q.getQueue2().setMultiplier(0.1f);
+					DataQueueUtilities.show(q.getQueue2(), JOptionPane
 							.getFrameForComponent(GayBernePropertiesPanel.this));
 				}
 				else {
@@ -335,9 +338,10 @@ class GayBernePropertiesPanel extends PropertiesPanel {
 		hLabel.setToolTipText("Click to view this variable's graph");
 		hLabel.setAction(new Runnable() {
 			public void run() {
-				if (gb.getVxVyQueue() != null) {
-					gb.getVxVyQueue().getQueue1().setMultiplier(10000);
-					DataQueueUtilities.show(gb.getVxVyQueue().getQueue1(), JOptionPane
+				FloatQueueTwin q = gb.getVxVyQueue();
+				if (q != null) {
+					q.getQueue1().setMultiplier(10000);
+					DataQueueUtilities.show(q.getQueue1(), JOptionPane
 							.getFrameForComponent(GayBernePropertiesPanel.this));
 				}
 				else {
@@ -354,9 +358,10 @@ class GayBernePropertiesPanel extends PropertiesPanel {
 		hLabel.setToolTipText("Click to view this variable's graph");
 		hLabel.setAction(new Runnable() {
 			public void run() {
-				if (gb.getVxVyQueue() != null) {
-					gb.getVxVyQueue().getQueue2().setMultiplier(10000);
-					DataQueueUtilities.show(gb.getVxVyQueue().getQueue2(), JOptionPane
+				FloatQueueTwin q = gb.getVxVyQueue();
+				if (q != null) {
+					q.getQueue2().setMultiplier(10000);
+					DataQueueUtilities.show(q.getQueue2(), JOptionPane
 							.getFrameForComponent(GayBernePropertiesPanel.this));
 				}
 				else {
@@ -393,9 +398,10 @@ class GayBernePropertiesPanel extends PropertiesPanel {
 		hLabel.setToolTipText("Click to view this variable's graph");
 		hLabel.setAction(new Runnable() {
 			public void run() {
-				if (gb.getAxAyQueue() != null) {
-					gb.getAxAyQueue().getQueue1().setMultiplier(0.01f);
-					DataQueueUtilities.show(gb.getAxAyQueue().getQueue1(), JOptionPane
+				FloatQueueTwin q = gb.getAxAyQueue();
+				if (q != null) {
+					q.getQueue1().setMultiplier(0.01f);
+					DataQueueUtilities.show(q.getQueue1(), JOptionPane
 							.getFrameForComponent(GayBernePropertiesPanel.this));
 				}
 				else {
@@ -412,9 +418,10 @@ class GayBernePropertiesPanel extends PropertiesPanel {
 		hLabel.setToolTipText("Click to view this variable's graph");
 		hLabel.setAction(new Runnable() {
 			public void run() {
-				if (gb.getAxAyQueue() != null) {
-					gb.getAxAyQueue().getQueue2().setMultiplier(0.01f);
-					DataQueueUtilities.show(gb.getAxAyQueue().getQueue2(), JOptionPane
+				FloatQueueTwin q = gb.getAxAyQueue();
+				if (q != null) {
+					q.getQueue2().setMultiplier(0.01f);
+					DataQueueUtilities.show(q.getQueue2(), JOptionPane
 							.getFrameForComponent(GayBernePropertiesPanel.this));
 				}
 				else {
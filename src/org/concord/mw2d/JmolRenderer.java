@@ -37,12 +37,14 @@ import org.concord.mw2d.models.RadialBond;
 import org.concord.mw2d.models.RadialBondCollection;
 import org.concord.mw2d.models.ReactionModel;
 
+import org.myjmol.api.AtomCoordinateBuffer;
 import org.myjmol.api.JmolAdapter;
 import org.myjmol.api.JmolViewer;
 
 class JmolRenderer {
 
 	private final Object lock = new Object();
+	private final Object coordinateLock = new Object();
 	private AtomisticView view;
 	private JmolAdapter adapter;
 	private JmolViewer viewer;
@@ -185,36 +187,47 @@ class JmolRenderer {
 		Atom at;
 		int argb = 0;
 		float sigma = 0;
-		for (int i = 0; i < n; i++) {
-			at = view.atom[i];
-			if (at.isVisible()) {
-				sigma = getCurrentSigma(at);
-				if (view.model instanceof ReactionModel) {
-					sigma *= 2; // special treatment to deal with covalent bond is much shorter than vdw bond
-				}
-			}
-			else {
-				sigma = 0;
-			}
-			if (sigma > 0.000001f) {
-				if (at.isMarked()) {
-					argb = view.getMarkColor().getRGB();
-				}
-				else if (view.shadingShown()) {
-					argb = view.getKeShadingColor((at.getVx() * at.getVx() + at.getVy() * at.getVy()) * at.getMass())
-							.getRGB();
-				}
-				else if (view.chargeShadingShown()) {
-					argb = view.getChargeShadingColor(at.getCharge()).getRGB();
+		double w = view.getWidth() * 0.5, h = view.getHeight() * 0.5;
+		synchronized (coordinateLock) {
+			AtomCoordinateBuffer buffer = viewer.getAtomCoordinateBuffer();
+			AtomCoordinateBuffer.Frame frame = buffer.getBackFrame(n, true, true);
+			float[] xyz = frame.getCoordinates();
+			float[] size = frame.getSizes();
+			int[] color = frame.getColors();
+			for (int i = 0; i < n; i++) {
+				at = view.atom[i];
+				if (at.isVisible()) {
+					sigma = getCurrentSigma(at);
+					if (view.model instanceof ReactionModel) {
+						sigma *= 2; // special treatment to deal with covalent bond is much shorter than vdw bond
+					}
 				}
 				else {
-					// argb = view.getColor(at);
-					argb = at.getColor().getRGB();
+					sigma = 0;
+				}
+				if (sigma > 0.000001f) {
+					if (at.isMarked()) {
+						argb = view.getMarkColor().getRGB();
+					}
+					else if (view.shadingShown()) {
+						argb = view.getKeShadingColor((at.getVx() * at.getVx() + at.getVy() * at.getVy()) * at.getMass())
+								.getRGB();
+					}
+					else if (view.chargeShadingShown()) {
+						argb = view.getChargeShadingColor(at.getCharge()).getRGB();
+					}
+					else {
+						// argb = view.getColor(at);
+						argb = at.getColor().getRGB();
+					}
 				}
+				xyz[3 * i] = 0.1f * (float) (at.getRx() - w);
+				xyz[3 * i + 1] = 0.1f * (float) (h - at.getRy());
+				xyz[3 * i + 2] = 0;
+				size[i] = 100 * sigma;
+				color[i] = argb | 0xff000000; // set alpha to 255
 			}
-			viewer.setAtomCoordinates(i, 0.1f * (float) (at.getRx() - view.getWidth() * 0.5),
-					0.1f * (float) (0.5 * view.getHeight() - at.getRy()), 0, 100 * sigma, argb | 0xff000000);
-			// set alpha to 255
+			buffer.publish();
 		}
 		viewer.refresh();
 	}
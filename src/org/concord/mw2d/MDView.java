@@ -47,6 +47,7 @@ import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collections;
@@ -94,6 +95,7 @@ import org.concord.modeler.event.PageComponentEvent;
 import org.concord.modeler.math.Vector2D;
 import org.concord.modeler.process.Executable;
 import org.concord.modeler.process.Job;
+import org.concord.modeler.process.JobProfiler;
 import org.concord.modeler.text.XMLCharacterDecoder;
 import org.concord.modeler.ui.IconPool;
 import org.concord.modeler.ui.PrintableComponent;
@@ -131,6 +133,7 @@ public abstract class MDView extends PrintableComponent {
 	final static int LEFT_PRESSED = 4;
 	final static int RIGHT_PRESSED = 8;
 	final static double ZERO = 0.000000001;
+	private final static DecimalFormat PROFILER_FORMAT = new DecimalFormat("#0.###");
 	final static int MINIMUM_MOUSE_DRAG_RESPONSE_INTERVAL = 20;
 	final static int SPEED_RENDERING = 1;
 	final static int ANTIALIASING_OFF = 2;
@@ -186,6 +189,7 @@ public abstract class MDView extends PrintableComponent {
 	boolean showHeatBath = true;
 	double relativeKEForShading = 1.0;
 	boolean showClock = true, showParticleIndex, drawCharge = true, showSelectionHalo = true;
+	private boolean showProfiler;
 	boolean drawExternalForce;
 	boolean showMirrorImages = true;
 	float chargeIncrement = 0.5f;
@@ -2211,6 +2215,21 @@ public abstract class MDView extends PrintableComponent {
 				g.drawString((int) getModel().getModelTime() + " fs", 25, getHeight() - 5);
 			}
 		}
+		if (showProfiler)
+			paintProfiler(g);
+	}
+
+	private void paintProfiler(Graphics g) {
+		JobProfiler profiler = getModel().getProfiler();
+		g.setColor(contrastBackground());
+		g.setFont(ViewAttribute.SMALL_FONT);
+		int h = g.getFontMetrics().getHeight();
+		int y = h + 2;
+		g.drawString(Math.round(profiler.getStepsPerSecond()) + " steps/s, " + PROFILER_FORMAT.format(profiler.getMillisecondsPerStep()) + " ms/step", 5, y);
+		for (JobProfiler.Timer t : profiler.getSlowest(5)) {
+			y += h;
+			g.drawString(t.getName() + ": " + PROFILER_FORMAT.format(t.getMean() * 1.0e-6) + " ms x " + t.getCount(), 5, y);
+		}
 	}
 
 	void paintPleaseWait(Graphics g) {
@@ -2228,8 +2247,12 @@ public abstract class MDView extends PrintableComponent {
 
 	/** this method being public is a side effect of interface implementation */
 	public void paintComponent(Graphics g) {
+		JobProfiler profiler = getModel() != null ? getModel().getProfiler() : null;
+		long t = profiler != null ? profiler.begin() : 0;
 		super.paintComponent(g);
 		update(g);
+		if (profiler != null)
+			profiler.end(JobProfiler.PAINT, t);
 	}
 
 	/** this method being public is a side effect of interface implementation */
@@ -2325,6 +2348,17 @@ public abstract class MDView extends PrintableComponent {
 		return showSelectionHalo;
 	}
 
+	/** show the steps per second, the milliseconds per step and the slowest phases and tasks of the simulation */
+	public void setShowProfiler(boolean b) {
+		showProfiler = b;
+		getModel().getProfiler().setEnabled(b);
+		repaint();
+	}
+
+	public boolean getShowProfiler() {
+		return showProfiler;
+	}
+
 	public void setShowClock(boolean b) {
 		if (showClock == b)
 			return;
@@ -33,6 +33,7 @@ import java.util.Hashtable;
 
 import javax.swing.BorderFactory;
 import javax.swing.ImageIcon;
+import javax.swing.JCheckBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
@@ -61,6 +62,7 @@ class MesoModelProperties extends ModelProperties {
 	private MesoModel model;
 	private JTextArea scriptArea;
 	private RealNumberTextField widthField, heightField, viscosityField, stepField;
+	private JCheckBox parallelForceCheckBox;
 	private JPanel scriptPanel;
 
 	public MesoModelProperties(Frame owner) {
@@ -76,6 +78,7 @@ class MesoModelProperties extends ModelProperties {
 			((MDContainer) cp).getView().resize(new Dimension(w, h), false);
 		}
 
+		model.setParallelForceEnabled(parallelForceCheckBox.isSelected());
 		model.getUniverse().setViscosity((float) viscosityField.getValue());
 		model.setTimeStep(stepField.getValue());
 		String s = scriptArea.getText();
@@ -260,6 +263,14 @@ class MesoModelProperties extends ModelProperties {
 		label.setBorder(BUTTON_BORDER);
 		p.add(label);
 
+		s = MDView.getInternationalText("ForceComputationLabel");
+		p.add(new JLabel(s != null ? s : "Force Computation", SwingConstants.LEFT));
+
+		s = MDView.getInternationalText("ComputeForcesInParallel");
+		parallelForceCheckBox = new JCheckBox(s != null ? s : "Use all processors");
+		parallelForceCheckBox.setSelected(model.isParallelForceEnabled());
+		p.add(parallelForceCheckBox);
+
 		/* dielectric constant */
 
 		panel = new JPanel(new BorderLayout());
@@ -77,6 +77,9 @@ class MolecularModelProperties extends ModelProperties {
 	private IntegerTextField reactionIntervalField;
 	private JCheckBox ljCheckBox;
 	private JCheckBox interCoulombCheckBox;
+	private JCheckBox cellListCheckBox;
+	private JCheckBox parallelForceCheckBox;
+	private JCheckBox coulombTreeCheckBox;
 	private static BoundarySetup boundarySetup;
 	private JPanel scriptPanel;
 
@@ -98,6 +101,9 @@ class MolecularModelProperties extends ModelProperties {
 
 		model.setLJBetweenBondPairs(ljCheckBox.isSelected());
 		model.setInterCoulomb(interCoulombCheckBox.isSelected());
+		model.setCellListEnabled(cellListCheckBox.isSelected());
+		model.setParallelForceEnabled(parallelForceCheckBox.isSelected());
+		model.setCoulombTreeEnabled(coulombTreeCheckBox.isSelected());
 		model.getUniverse().setViscosity((float) viscosityField.getValue());
 		model.setTimeStep(stepField.getValue());
 		String s = scriptArea.getText();
@@ -308,7 +314,7 @@ class MolecularModelProperties extends ModelProperties {
 		s = MDView.getInternationalText("InteractionTab");
 		tabbedPane.add(s != null ? s : "Interactions", panel);
 
-		p = new JPanel(new GridLayout(9, 2, 2, 2));
+		p = new JPanel(new GridLayout(12, 2, 2, 2));
 		panel.add(p, BorderLayout.NORTH);
 
 		label = new HyperlinkLabel("<html><font color=\"#0000ff\"><u>Lennard-Jones</u></font></html>", SwingConstants.LEFT);
@@ -334,6 +340,30 @@ class MolecularModelProperties extends ModelProperties {
 		interCoulombCheckBox.setSelected(model.getInterCoulomb());
 		p.add(interCoulombCheckBox);
 
+		s = MDView.getInternationalText("LongRangeElectrostaticsLabel");
+		p.add(new JLabel(s != null ? s : "Long-Range Electrostatics", SwingConstants.LEFT));
+
+		s = MDView.getInternationalText("ApproximateElectrostaticsWithTree");
+		coulombTreeCheckBox = new JCheckBox(s != null ? s : "Approximate with multipole tree");
+		coulombTreeCheckBox.setSelected(model.isCoulombTreeEnabled());
+		p.add(coulombTreeCheckBox);
+
+		s = MDView.getInternationalText("NeighborListLabel");
+		p.add(new JLabel(s != null ? s : "Neighbor List", SwingConstants.LEFT));
+
+		s = MDView.getInternationalText("BuildNeighborListWithCells");
+		cellListCheckBox = new JCheckBox(s != null ? s : "Build with cell list");
+		cellListCheckBox.setSelected(model.isCellListEnabled());
+		p.add(cellListCheckBox);
+
+		s = MDView.getInternationalText("ForceComputationLabel");
+		p.add(new JLabel(s != null ? s : "Force Computation", SwingConstants.LEFT));
+
+		s = MDView.getInternationalText("ComputeForcesInParallel");
+		parallelForceCheckBox = new JCheckBox(s != null ? s : "Use all processors");
+		parallelForceCheckBox.setSelected(model.isParallelForceEnabled());
+		p.add(parallelForceCheckBox);
+
 		s = MDView.getInternationalText("NumberOfRadialBondsLabel");
 		p.add(new JLabel(s != null ? s : "Number of Radial Bonds", SwingConstants.LEFT));
 
@@ -449,9 +449,9 @@ public class AngularBond implements ModelComponent {
 	double getAngle(int frame) {
 		if (frame < 0)
 			return getAngle(atom1, atom3, atom2);
-		return getAngle(atom1.rQ.getQueue1().getData(frame), atom1.rQ.getQueue2().getData(frame), atom3.rQ.getQueue1()
-				.getData(frame), atom3.rQ.getQueue2().getData(frame), atom2.rQ.getQueue1().getData(frame), atom2.rQ
-				.getQueue2().getData(frame));
+		return getAngle(atom1.getRecord(TrajectoryTape.RX, frame), atom1.getRecord(TrajectoryTape.RY, frame), atom3
+				.getRecord(TrajectoryTape.RX, frame), atom3.getRecord(TrajectoryTape.RY, frame), atom2.getRecord(
+				TrajectoryTape.RX, frame), atom2.getRecord(TrajectoryTape.RY, frame));
 	}
 
 	public int indexOf(Atom atom) {
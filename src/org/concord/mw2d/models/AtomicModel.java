@@ -35,6 +35,7 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -46,7 +47,9 @@ import org.concord.modeler.ModelerUtilities;
 import org.concord.modeler.draw.FillMode;
 import org.concord.modeler.event.ModelEvent;
 import org.concord.modeler.process.AbstractLoadable;
+import org.concord.modeler.process.JobProfiler;
 import org.concord.modeler.process.Loadable;
+import org.concord.modeler.process.WorkerPool;
 import org.concord.modeler.ui.IconPool;
 import org.concord.modeler.util.DataQueue;
 import org.concord.modeler.util.FloatQueue;
@@ -143,11 +146,25 @@ public abstract class AtomicModel extends MDModel {
 
 	/* internal parameters and arrays */
 	boolean ljBetweenBondPairs = true;
-	boolean[][] bondTable;
-	private float[][] epsab, sigab;
+	BondExclusions bondExclusions = new BondExclusions();
+	private float[][] epsab = new float[Element.NMAX][Element.NMAX];
+	private float[][] sigab = new float[Element.NMAX][Element.NMAX];
 	private double[] rx0, ry0;
 	private volatile boolean updateParArray;
 	private int nlist;
+	private boolean cellListEnabled;
+	private CellList cellList;
+	private int[] adjacentCells = new int[9];
+	private CellList photonCellList;
+	private double[] photonTargetX, photonTargetY;
+	private boolean parallelForceEnabled;
+	private boolean coulombTreeEnabled;
+	private CoulombTree coulombTree;
+	private int forceThreads = WorkerPool.getProcessorCount();
+	private double[][] fxBuffer, fyBuffer;
+	private ParticleArrays store = new ParticleArrays();
+	private boolean[] presentElements = new boolean[Element.NMAX];
+	private boolean[][] repulsiveMatrix = new boolean[Element.NMAX][Element.NMAX];
 	private int jbeg, jend;
 	private double rxi, ryi, fxi, fyi, rxij, ryij, rijsq, xbox, ybox;
 	private double sr2, sr6, sr12, vij, wij, fij, fxij, fyij;
@@ -548,6 +565,68 @@ public abstract class AtomicModel extends MDModel {
 		return ljBetweenBondPairs;
 	}
 
+	/**
+	 * If set true, the neighbor list will be rebuilt by binning atoms into cells, which scales linearly with the number of atoms. Otherwise, the neighbor list will be rebuilt by checking all pairs of atoms. Both methods produce the same list.
+	 */
+	public void setCellListEnabled(boolean b) {
+		cellListEnabled = b;
+		updateList = true;
+	}
+
+	public boolean isCellListEnabled() {
+		return cellListEnabled;
+	}
+
+	/**
+	 * If set true, the pairwise forces will be computed on multiple threads whenever the neighbor list is valid (or has been rebuilt with the cell list). Each thread accumulates forces into its own buffer, and the buffers are summed up in a fixed order, so the results do not depend on thread scheduling. With one thread, the results are exactly the same as those of the serial computation.
+	 */
+	public void setParallelForceEnabled(boolean b) {
+		parallelForceEnabled = b;
+	}
+
+	public boolean isParallelForceEnabled() {
+		return parallelForceEnabled;
+	}
+
+	/**
+	 * If set true, the electrostatic forces between atoms will be computed with a Barnes-Hut tree in O(N log N) time instead of summing over all pairs. The accuracy is controlled by the opening angle. The direct sum remains the reference.
+	 * 
+	 * @see #setCoulombTreeTheta(float)
+	 */
+	public void setCoulombTreeEnabled(boolean b) {
+		coulombTreeEnabled = b;
+	}
+
+	public boolean isCoulombTreeEnabled() {
+		return coulombTreeEnabled;
+	}
+
+	/**
+	 * set the opening angle of the electrostatic tree, which must be greater than 0 and no greater than 1. A group of charges is treated as a multipole if its size divided by its distance is smaller than this angle. The default is 0.5. Smaller angles are more accurate but slower.
+	 */
+	public void setCoulombTreeTheta(float theta) {
+		if (coulombTree == null)
+			coulombTree = new CoulombTree();
+		coulombTree.setTheta(theta);
+	}
+
+	public float getCoulombTreeTheta() {
+		if (coulombTree == null)
+			coulombTree = new CoulombTree();
+		return coulombTree.getTheta();
+	}
+
+	/** set the number of threads used to compute the pairwise forces in parallel. The default is the number of processors. */
+	public void setForceThreads(int n) {
+		if (n < 1)
+			throw new IllegalArgumentException("number of threads must be at least 1");
+		forceThreads = n;
+	}
+
+	public int getForceThreads() {
+		return forceThreads;
+	}
+
 	public void setAtomFlowEnabled(boolean b) {
 		atomFlowEnabled = b;
 		boundary.getWall().reset();
@@ -997,6 +1076,9 @@ public abstract class AtomicModel extends MDModel {
 
 	void record() {
 		super.record();
+		tape.record(atom, numberOfAtoms);
+		if (tcf != null)
+			tcf.record();
 		updateAllRQ();
 		updateAllVQ();
 		updateAllAQ();
@@ -1232,10 +1314,8 @@ public abstract class AtomicModel extends MDModel {
 			atom[i].translateTo(data[i], data[i + numberOfAtoms]);
 			atom[i].vx = data[i + numberOfAtoms * 2];
 			atom[i].vy = data[i + numberOfAtoms * 3];
-			atom[i].moveRPointer(0);
-			atom[i].moveVPointer(0);
-			atom[i].moveAPointer(0);
 		}
+		tape.setPointer(0);
 		kine.setPointer(0);
 		pote.setPointer(0);
 		tote.setPointer(0);
@@ -1291,11 +1371,7 @@ public abstract class AtomicModel extends MDModel {
 		if (!hasEmbeddedMovie())
 			throw new RuntimeException("cannot set pointer because there is no tape");
 		modelTimeQueue.setPointer(n);
-		for (int i = 0; i < numberOfAtoms; i++) {
-			atom[i].moveRPointer(n);
-			atom[i].moveVPointer(n);
-			atom[i].moveAPointer(n);
-		}
+		tape.setPointer(n);
 		if (obstacles != null && !obstacles.isEmpty()) {
 			RectangularObstacle obs = null;
 			synchronized (obstacles.getSynchronizationLock()) {
@@ -1345,6 +1421,7 @@ public abstract class AtomicModel extends MDModel {
 				q.setInterval(m);
 			int n = movie.getCapacity();
 			setQueueLength(n);
+			tape.allocate(n, numberOfAtoms);
 			for (int i = 0; i < numberOfAtoms; i++) {
 				atom[i].initializeMovieQ(n);
 				if (!atom[i].getElectrons().isEmpty())
@@ -1360,8 +1437,8 @@ public abstract class AtomicModel extends MDModel {
 			if (job != null && job.contains(movieUpdater))
 				job.remove(movieUpdater);
 			setQueueLength(-1);
+			tape.release();
 			for (int i = 0; i < numberOfAtoms; i++) {
-				atom[i].initializeMovieQ(-1);
 				atom[i].initializeExcitationQ(-1);
 			}
 			if (obstacles != null && !obstacles.isEmpty()) {
@@ -1375,11 +1452,29 @@ public abstract class AtomicModel extends MDModel {
 		setRecorderDisabled(!b);
 	}
 
+	List<FloatQueue> getMovieSeries() {
+		List<FloatQueue> list = super.getMovieSeries();
+		for (FloatQueue q : kep)
+			list.add(q);
+		return list;
+	}
+
+	/* the obstacles are not stored in a trajectory file, so they stay where they are throughout the loaded movie */
+	void fillMovieQueues(int n) {
+		if (obstacles == null || obstacles.isEmpty())
+			return;
+		for (int k = 0; k < n; k++) {
+			updateAllRQ();
+			updateAllVQ();
+			updateAllAQ();
+		}
+	}
+
 	public boolean hasEmbeddedMovie() {
 		if (isEmpty() || getTapePointer() <= 0)
 			return false;
 		if (numberOfAtoms > 0) {
-			if (atom[0].rQ == null || atom[0].rQ.isEmpty())
+			if (!atom[0].isOnTape())
 				return false;
 		}
 		if (obstacles != null && !obstacles.isEmpty()) {
@@ -1392,14 +1487,6 @@ public abstract class AtomicModel extends MDModel {
 
 	private void updateAllRQ() {
 		int c = movie.getCapacity();
-		for (int i = 0; i < numberOfAtoms; i++) {
-			try {
-				atom[i].updateRQ();
-			} catch (Exception e) {
-				atom[i].initializeRQ(c);
-				atom[i].updateRQ();
-			}
-		}
 		if (obstacles != null && !obstacles.isEmpty()) {
 			RectangularObstacle obs = null;
 			synchronized (obstacles.getSynchronizationLock()) {
@@ -1420,14 +1507,6 @@ public abstract class AtomicModel extends MDModel {
 
 	private void updateAllVQ() {
 		int c = movie.getCapacity();
-		for (int i = 0; i < numberOfAtoms; i++) {
-			try {
-				atom[i].updateVQ();
-			} catch (Exception e) {
-				atom[i].initializeVQ(c);
-				atom[i].updateVQ();
-			}
-		}
 		if (obstacles != null && !obstacles.isEmpty()) {
 			RectangularObstacle obs = null;
 			synchronized (obstacles.getSynchronizationLock()) {
@@ -1448,14 +1527,6 @@ public abstract class AtomicModel extends MDModel {
 
 	private void updateAllAQ() {
 		int c = movie.getCapacity();
-		for (int i = 0; i < numberOfAtoms; i++) {
-			try {
-				atom[i].updateAQ();
-			} catch (Exception e) {
-				atom[i].initializeAQ(c);
-				atom[i].updateAQ();
-			}
-		}
 		if (obstacles != null && !obstacles.isEmpty()) {
 			RectangularObstacle obs = null;
 			synchronized (obstacles.getSynchronizationLock()) {
@@ -2277,13 +2348,16 @@ public abstract class AtomicModel extends MDModel {
 				return;
 		}
 		predictor();
+		long t = profiler.begin();
 		if (indexOfStep <= 1) {
 			setUpdateList(true);
 		} else {
 			checkNeighborList();
 		}
 		pot = computeForce(indexOfStep);
+		t = profiler.lap(JobProfiler.FORCE, t);
 		corrector();
+		profiler.end(JobProfiler.CORRECTOR, t);
 		movePhotons();
 	}
 
@@ -2291,47 +2365,68 @@ public abstract class AtomicModel extends MDModel {
 	 * Two things can happen when a photon hits an atom. The first is absorption: the atom absorbs photonic energy and its electron is excited. The second is stimulated emission: the photon induces the emission of another photon and causes the atom to de-excite. In both cases, the incident photon must have the energy identical to the energy difference between the two states involved in the transition.
 	 */
 	private void photonHitAtom() {
-		if (photons == null || photons.isEmpty())
+		if (photons == null || photons.isEmpty() || numberOfAtoms <= 0)
 			return;
+		// bin the atoms into cells no smaller than the largest hit radius, so that a photon is only tested against the
+		// atoms in its own cell and the eight cells around it
+		if (photonTargetX == null || photonTargetX.length < numberOfAtoms) {
+			photonTargetX = new double[atom.length];
+			photonTargetY = new double[atom.length];
+		}
+		double rmax = 0;
+		for (int k = 0; k < numberOfAtoms; k++) {
+			photonTargetX[k] = atom[k].rx;
+			photonTargetY[k] = atom[k].ry;
+			if (atom[k].sigma > rmax)
+				rmax = atom[k].sigma;
+		}
+		rmax *= 0.5;
+		if (photonCellList == null)
+			photonCellList = new CellList();
+		photonCellList.bin(boundary, boundary.getType(), rmax, photonTargetX, photonTargetY, numberOfAtoms);
+		int[] cells = new int[9];
 		Photon p;
+		Atom a;
 		double s2;
 		List<Photon> tmpList = null;
 		double dx, dy;
-		for (int k = 0; k < numberOfAtoms; k++) {
-			if (photons.isEmpty())
-				break; // no more photons
-			s2 = atom[k].sigma * atom[k].sigma * 0.25;
-			synchronized (photons) {
-				for (Iterator it = photons.iterator(); it.hasNext();) {
-					p = (Photon) it.next();
-					dx = p.x - atom[k].rx;
-					dy = p.y - atom[k].ry;
-					if (dx * dx + dy * dy < s2) {
-						if (photonicExcitor == null)
-							photonicExcitor = new PhotonicExcitor(this);
-						Photon p2 = photonicExcitor.interact(p, atom[k]);
-						if (p2 == p) {
-							p.setModel(null);
-							it.remove();
-							notifyModelListeners(new ModelEvent(this, "Photon absorbed", null, p));
-						} else if (p2 != null) {
-							if (tmpList == null)
-								tmpList = new ArrayList<Photon>();
-							tmpList.add(p2);
-							// notifyModelListeners(new ModelEvent(this, "Photon emitted", null, p2));
-							// postone to be handled by RectangularBoundary when the photon exits
-						} else {
-							// the photon wasn't absorbed. Should it shine through, or should it be scattered?
-							if (Math.random() < quantumRule.getScatterProbability())
-								p.setAngle((float) (p.getAngle() + Math.PI * (1 + 0.2 * (0.5 - Math.random()))));
+		int ncell;
+		synchronized (photons) {
+			for (Iterator<Photon> it = photons.iterator(); it.hasNext();) {
+				p = it.next();
+				ncell = photonCellList.getAdjacentCells(photonCellList.getCell(p.x, p.y), cells);
+				search: for (int c = 0; c < ncell; c++) {
+					for (int k = photonCellList.getFirst(cells[c]); k >= 0; k = photonCellList.getNext(k)) {
+						a = atom[k];
+						s2 = a.sigma * a.sigma * 0.25;
+						dx = p.x - a.rx;
+						dy = p.y - a.ry;
+						if (dx * dx + dy * dy < s2) {
+							if (photonicExcitor == null)
+								photonicExcitor = new PhotonicExcitor(this);
+							Photon p2 = photonicExcitor.interact(p, a);
+							if (p2 == p) {
+								p.setModel(null);
+								it.remove();
+								notifyModelListeners(new ModelEvent(this, "Photon absorbed", null, p));
+								break search;
+							} else if (p2 != null) {
+								if (tmpList == null)
+									tmpList = new ArrayList<Photon>();
+								tmpList.add(p2);
+								// notifyModelListeners(new ModelEvent(this, "Photon emitted", null, p2));
+								// postone to be handled by RectangularBoundary when the photon exits
+							} else {
+								// the photon wasn't absorbed. Should it shine through, or should it be scattered?
+								if (Math.random() < quantumRule.getScatterProbability())
+									p.setAngle((float) (p.getAngle() + Math.PI * (1 + 0.2 * (0.5 - Math.random()))));
+							}
 						}
 					}
 				}
-				if (tmpList != null) {
-					photons.addAll(tmpList);
-					tmpList.clear();
-				}
 			}
+			if (tmpList != null)
+				photons.addAll(tmpList);
 		}
 	}
 
@@ -2659,6 +2754,346 @@ public abstract class AtomicModel extends MDModel {
 		}
 	}
 
+	private void findPresentElements() {
+		Arrays.fill(presentElements, false);
+		for (int i = 0; i < numberOfAtoms; i++)
+			presentElements[store.id[i]] = true;
+	}
+
+	/* return the longest neighbor list radius among the pairs of elements that are present */
+	private double getMaximumListRadius() {
+		findPresentElements();
+		double max = 0;
+		for (int a = 0; a < presentElements.length; a++) {
+			if (!presentElements[a])
+				continue;
+			for (int b = a; b < presentElements.length; b++) {
+				if (presentElements[b] && listSquareMatrix[a][b] > max)
+					max = listSquareMatrix[a][b];
+			}
+		}
+		return Math.sqrt(max);
+	}
+
+	/*
+	 * compute the Lennard-Jones and Coulomb forces between atoms ibeg, ..., iend-1 and their partners in exactly the same way as the serial loop in computeForce, except that everything is held in local variables and the forces are accumulated into the given buffers instead of the atoms. The potential energy is added to v.
+	 */
+	private double computePairForces(int ibeg, int iend, double[] bx, double[] by, double v, double rCD) {
+
+		int n = numberOfAtoms;
+		double[] rx = store.rx, ry = store.ry, charge = store.charge;
+		int[] id = store.id;
+		boolean coulomb = hasCoulomb && interCoulomb && !coulombTreeEnabled;
+		int type = boundary.getType();
+		boolean xPeriodic = type == RectangularBoundary.PBC_ID || type == RectangularBoundary.XPYRBC_ID;
+		boolean yPeriodic = type == RectangularBoundary.PBC_ID || type == RectangularBoundary.XRYPBC_ID;
+		double rxi, ryi, fxi, fyi, rxij, ryij, rijsq, sr2, sr6, sr12, vij, wij, fij, fxij, fyij, coul;
+		int j, idi, idj;
+
+		for (int i = ibeg; i < iend; i++) {
+
+			rxi = rx[i];
+			ryi = ry[i];
+			fxi = bx[i];
+			fyi = by[i];
+			idi = id[i];
+
+			for (int jnab = pointer[i], jend = pointer[i + 1]; jnab < jend; jnab++) {
+				j = neighborList[jnab];
+				if (!ljBetweenBondPairs && bondExclusions.contains(i, j))
+					continue;
+				rxij = rxi - rx[j];
+				ryij = ryi - ry[j];
+				if (xPeriodic) {
+					if (rxij > xbox * 0.5)
+						rxij -= xbox;
+					if (rxij <= -xbox * 0.5)
+						rxij += xbox;
+				}
+				if (yPeriodic) {
+					if (ryij > ybox * 0.5)
+						ryij -= ybox;
+					if (ryij <= -ybox * 0.5)
+						ryij += ybox;
+				}
+				rijsq = rxij * rxij + ryij * ryij;
+				idj = id[j];
+				if (rijsq < cutOffSquareMatrix[idi][idj]) {
+					sr2 = sigab[idi][idj] / rijsq;
+					if (sr2 > 2.0) {
+						sr2 = 2.0;
+						rijsq = 0.5 * sigab[idi][idj];
+					}
+					sr6 = sr2 * sr2 * sr2;
+					sr12 = sr6 * sr6;
+					if (repulsiveMatrix[idi][idj]) {
+						vij = sr6 * epsab[idi][idj] * crossRepulsionIntensity;
+						wij = vij;
+					} else {
+						vij = (sr12 - sr6) * epsab[idi][idj];
+						wij = vij + sr12 * epsab[idi][idj];
+					}
+					if (cutOffShift) {
+						vij -= poten_LJ[idi][idj];
+						wij -= slope_LJ[idi][idj];
+					}
+					v += vij;
+					fij = wij / rijsq * SIX_TIMES_UNIT_FORCE;
+					fxij = fij * rxij;
+					fyij = fij * ryij;
+					fxi += fxij;
+					fyi += fyij;
+					bx[j] -= fxij;
+					by[j] -= fyij;
+				}
+			}
+
+			if (coulomb) {
+				for (j = i + 1; j < n; j++) {
+					if (!ljBetweenBondPairs && bondExclusions.contains(i, j))
+						continue;
+					if (Math.abs(charge[i]) > ZERO && Math.abs(charge[j]) > ZERO) {
+						rxij = rxi - rx[j];
+						ryij = ryi - ry[j];
+						if (xPeriodic) {
+							if (rxij > xbox * 0.5)
+								rxij -= xbox;
+							if (rxij <= -xbox * 0.5)
+								rxij += xbox;
+						}
+						if (yPeriodic) {
+							if (ryij > ybox * 0.5)
+								ryij -= ybox;
+							if (ryij <= -ybox * 0.5)
+								ryij += ybox;
+						}
+						rijsq = rxij * rxij + ryij * ryij;
+						coul = charge[i] * charge[j] / Math.sqrt(rijsq) * rCD;
+						v += coul;
+						fij = coul / rijsq * GF_CONVERSION_CONSTANT;
+						fxij = fij * rxij;
+						fyij = fij * ryij;
+						fxi += fxij;
+						fyi += fyij;
+						bx[j] -= fxij;
+						by[j] -= fyij;
+					}
+				}
+			}
+
+			bx[i] = fxi;
+			by[i] = fyi;
+
+		}
+
+		return v;
+
+	}
+
+	/*
+	 * compute the electrostatic forces between atoms with the Barnes-Hut tree and add them to the atoms. The tree sums over all pairs of charged atoms, so the pairs excluded from the direct sum (bonded pairs when the LJ interaction between them is turned off) are subtracted afterwards.
+	 */
+	private double computeCoulombWithTree(double vsum, double rCD) {
+
+		if (coulombTree == null)
+			coulombTree = new CoulombTree();
+		final CoulombTree tree = coulombTree;
+		tree.build(boundary, boundary.getType(), store.rx, store.ry, store.charge, numberOfAtoms, ZERO);
+		int m = tree.getChargeCount();
+		if (m < 2)
+			return vsum;
+
+		int nl = tree.getLeafCount();
+		int nt = parallelForceEnabled ? Math.min(forceThreads, nl) : 1;
+		if (nt > 1) {
+			List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(nt);
+			for (int t = 0; t < nt; t++) {
+				final int b = nl * t / nt, e = nl * (t + 1) / nt;
+				tasks.add(new Callable<Object>() {
+					public Object call() {
+						tree.evaluate(b, e);
+						return null;
+					}
+				});
+			}
+			WorkerPool.invoke(tasks);
+		}
+		else {
+			tree.evaluate(0, nl);
+		}
+
+		double v = 0, f = rCD * GF_CONVERSION_CONSTANT, q;
+		double[] fx = store.fx, fy = store.fy;
+		for (int k = 0; k < m; k++) {
+			int i = tree.getIndex(k);
+			q = tree.getCharge(k);
+			v += q * tree.getPotential(k);
+			fx[i] += f * q * tree.getFieldX(k);
+			fy[i] += f * q * tree.getFieldY(k);
+		}
+		vsum += 0.5 * v * rCD;
+
+		if (!ljBetweenBondPairs) {
+			double[] rx = store.rx, ry = store.ry, charge = store.charge;
+			double coul;
+			int j;
+			for (int i = 0, imax1 = numberOfAtoms - 1; i < imax1; i++) {
+				if (Math.abs(charge[i]) <= ZERO)
+					continue;
+				for (int k = bondExclusions.getStart(i), kend = bondExclusions.getEnd(i); k < kend; k++) {
+					j = bondExclusions.getPartner(k);
+					if (j <= i || j >= numberOfAtoms || Math.abs(charge[j]) <= ZERO)
+						continue;
+					rxij = rx[i] - rx[j];
+					ryij = ry[i] - ry[j];
+					minimumImageConvention();
+					rijsq = rxij * rxij + ryij * ryij;
+					coul = charge[i] * charge[j] / Math.sqrt(rijsq) * rCD;
+					vsum -= coul;
+					fij = coul / rijsq * GF_CONVERSION_CONSTANT;
+					fxij = fij * rxij;
+					fyij = fij * ryij;
+					fx[i] -= fxij;
+					fy[i] -= fyij;
+					fx[j] += fxij;
+					fy[j] += fyij;
+				}
+			}
+		}
+
+		return vsum;
+
+	}
+
+	/* look up the repulsion flags of the pairs of elements that are present, so that the force kernels do not query the affinity for every pair of atoms */
+	private void updateRepulsiveMatrix() {
+		findPresentElements();
+		for (int a = 0; a < presentElements.length; a++) {
+			if (!presentElements[a])
+				continue;
+			for (int b = 0; b < presentElements.length; b++) {
+				if (presentElements[b])
+					repulsiveMatrix[a][b] = isRepulsive(a, b);
+			}
+		}
+	}
+
+	/*
+	 * split the atoms that own pairs in the neighbor list into contiguous blocks of about equal work and compute their forces on the worker threads. The first block accumulates directly into the force arrays of the store, which hold the forces computed so far, and starts with the energy computed so far. The other blocks use their own buffers, which are added in the order of the blocks, so that a single block reproduces the serial computation bit for bit.
+	 */
+	private double computePairForcesInParallel(double vsum, final double rCD) {
+
+		int n = numberOfAtoms;
+		int m = n - 1;
+		if (m <= 0)
+			return vsum;
+		int nt = Math.min(forceThreads, m);
+
+		if (nt > 1) {
+			if (fxBuffer == null || fxBuffer.length < nt - 1 || fxBuffer[0].length < n) {
+				int capacity = Math.max(n, atom.length);
+				fxBuffer = new double[nt - 1][capacity];
+				fyBuffer = new double[nt - 1][capacity];
+			}
+			for (int t = 0; t < nt - 1; t++) {
+				Arrays.fill(fxBuffer[t], 0, n, 0);
+				Arrays.fill(fyBuffer[t], 0, n, 0);
+			}
+		}
+
+		// the work of an atom is its number of neighbors plus, if there are charges, the number of atoms after it
+		boolean coulomb = hasCoulomb && interCoulomb && !coulombTreeEnabled;
+		long total = 0;
+		for (int i = 0; i < m; i++)
+			total += pointer[i + 1] - pointer[i] + (coulomb ? n - 1 - i : 0) + 1;
+		List<Callable<Double>> tasks = new ArrayList<Callable<Double>>(nt);
+		long work = 0;
+		int ibeg = 0, i = 0;
+		for (int t = 0; t < nt; t++) {
+			long target = total * (t + 1) / nt;
+			while (i < m && (work < target || t == nt - 1)) {
+				work += pointer[i + 1] - pointer[i] + (coulomb ? n - 1 - i : 0) + 1;
+				i++;
+			}
+			final int b = ibeg, e = i;
+			final double v0 = t == 0 ? vsum : 0;
+			final double[] bx = t == 0 ? store.fx : fxBuffer[t - 1];
+			final double[] by = t == 0 ? store.fy : fyBuffer[t - 1];
+			tasks.add(new Callable<Double>() {
+				public Double call() {
+					return computePairForces(b, e, bx, by, v0, rCD);
+				}
+			});
+			ibeg = i;
+		}
+
+		List<Double> partials = WorkerPool.invoke(tasks);
+		vsum = partials.get(0);
+		for (int t = 1; t < nt; t++)
+			vsum += partials.get(t);
+
+		for (int t = 0; t < nt - 1; t++) {
+			double[] bx = fxBuffer[t], by = fyBuffer[t];
+			for (int k = 0; k < n; k++) {
+				store.fx[k] += bx[k];
+				store.fy[k] += by[k];
+			}
+		}
+
+		return vsum;
+
+	}
+
+	/*
+	 * rebuild the Verlet neighbor list by binning the atoms into cells no smaller than the longest list radius, so that only the atoms in adjacent cells have to be checked. The neighbors of each atom are sorted so that the pointer and neighborList arrays are exactly the same as those built by the pairwise scan in computeForce.
+	 */
+	private void updateNeighborListWithCells() {
+
+		double[] rx = store.rx, ry = store.ry;
+		int[] id = store.id;
+		System.arraycopy(rx, 0, rx0, 0, numberOfAtoms);
+		System.arraycopy(ry, 0, ry0, 0, numberOfAtoms);
+
+		if (cellList == null)
+			cellList = new CellList();
+		cellList.bin(boundary, boundary.getType(), getMaximumListRadius(), rx, ry, numberOfAtoms);
+
+		nlist = 0;
+		int ncell;
+
+		for (int i = 0, imax1 = numberOfAtoms - 1; i < imax1; i++) {
+
+			pointer[i] = nlist;
+			rxi = rx[i];
+			ryi = ry[i];
+
+			ncell = cellList.getAdjacentCells(cellList.getCellOf(i), adjacentCells);
+			for (int k = 0; k < ncell; k++) {
+				for (int j = cellList.getFirst(adjacentCells[k]); j >= 0; j = cellList.getNext(j)) {
+					if (j <= i)
+						continue;
+					if (!ljBetweenBondPairs && bondExclusions.contains(i, j))
+						continue;
+					rxij = rxi - rx[j];
+					ryij = ryi - ry[j];
+					minimumImageConvention();
+					rijsq = rxij * rxij + ryij * ryij;
+					if (rijsq < listSquareMatrix[id[i]][id[j]]) {
+						neighborList[nlist++] = j;
+					}
+				}
+			}
+
+			if (nlist - pointer[i] > 1)
+				Arrays.sort(neighborList, pointer[i], nlist);
+
+		}
+
+		if (numberOfAtoms > 0)
+			pointer[numberOfAtoms - 1] = nlist;
+
+	}
+
 	private double computeForceForElectrons(final int time) {
 		if (freeElectrons.isEmpty())
 			return 0;
@@ -2752,8 +3187,8 @@ public abstract class AtomicModel extends MDModel {
 						fyij = fij * ryij;
 						e.fx += fxij;
 						e.fy += fyij;
-						atom[i].fx -= fxij;
-						atom[i].fy -= fyij;
+						store.fx[i] -= fxij;
+						store.fy[i] -= fyij;
 					}
 				}
 			}
@@ -2918,10 +3353,7 @@ public abstract class AtomicModel extends MDModel {
 			updateList = true; // the neighbor list has to be updated in order for the force vector to be plotted
 		}
 
-		for (int i = 0; i < numberOfAtoms; i++) {
-			atom[i].fx = 0;
-			atom[i].fy = 0;
-		}
+		store.load(atom, numberOfAtoms);
 		if (obstacles != null) {
 			RectangularObstacle obs;
 			synchronized (obstacles.getSynchronizationLock()) {
@@ -2953,7 +3385,13 @@ public abstract class AtomicModel extends MDModel {
 		if (hasCoulomb && interCoulomb)
 			rCD = universe.getCoulombConstant() / universe.getDielectricConstant();
 
-		if (updateList) {
+		boolean rebuildList = updateList;
+		if (rebuildList && cellListEnabled) {
+			updateNeighborListWithCells();
+			rebuildList = false;
+		}
+
+		if (rebuildList) {
 
 			for (int i = 0; i < numberOfAtoms; i++) {
 				rx0[i] = atom[i].rx;
@@ -2967,12 +3405,12 @@ public abstract class AtomicModel extends MDModel {
 				pointer[i] = nlist;
 				rxi = atom[i].rx;
 				ryi = atom[i].ry;
-				fxi = atom[i].fx;
-				fyi = atom[i].fy;
+				fxi = store.fx[i];
+				fyi = store.fy[i];
 
 				for (int j = i + 1; j < numberOfAtoms; j++) {
 
-					if (!ljBetweenBondPairs && bondTable[i][j])
+					if (!ljBetweenBondPairs && bondExclusions.contains(i, j))
 						continue;
 
 					rxij = rxi - atom[j].rx;
@@ -2986,21 +3424,21 @@ public abstract class AtomicModel extends MDModel {
 
 					if (rijsq < cutOffSquareMatrix[atom[i].id][atom[j].id]) {
 
-						sr2 = sigab[i][j] / rijsq;
+						sr2 = sigab[atom[i].id][atom[j].id] / rijsq;
 						/* check if this pair gets too close */
 						if (sr2 > 2.0) {
 							sr2 = 2.0;
-							rijsq = 0.5 * sigab[i][j];
+							rijsq = 0.5 * sigab[atom[i].id][atom[j].id];
 						}
 						sr6 = sr2 * sr2 * sr2;
 						sr12 = sr6 * sr6;
 
 						if (isRepulsive(atom[i].id, atom[j].id)) {
-							vij = sr6 * epsab[i][j] * crossRepulsionIntensity;
+							vij = sr6 * epsab[atom[i].id][atom[j].id] * crossRepulsionIntensity;
 							wij = vij;
 						} else {
-							vij = (sr12 - sr6) * epsab[i][j];
-							wij = vij + sr12 * epsab[i][j];
+							vij = (sr12 - sr6) * epsab[atom[i].id][atom[j].id];
+							wij = vij + sr12 * epsab[atom[i].id][atom[j].id];
 						}
 						if (cutOffShift) {
 							vij -= poten_LJ[atom[i].id][atom[j].id];
@@ -3013,12 +3451,12 @@ public abstract class AtomicModel extends MDModel {
 						fyij = fij * ryij;
 						fxi += fxij;
 						fyi += fyij;
-						atom[j].fx -= fxij;
-						atom[j].fy -= fyij;
+						store.fx[j] -= fxij;
+						store.fy[j] -= fyij;
 
 					}
 
-					if (hasCoulomb && interCoulomb) {
+					if (hasCoulomb && interCoulomb && !coulombTreeEnabled) {
 						if (Math.abs(atom[i].charge) > ZERO && Math.abs(atom[j].charge) > ZERO) {
 							coul = atom[i].charge * atom[j].charge / Math.sqrt(rijsq) * rCD;
 							vsum += coul;
@@ -3027,15 +3465,15 @@ public abstract class AtomicModel extends MDModel {
 							fyij = fij * ryij;
 							fxi += fxij;
 							fyi += fyij;
-							atom[j].fx -= fxij;
-							atom[j].fy -= fyij;
+							store.fx[j] -= fxij;
+							store.fy[j] -= fyij;
 						}
 					}
 
 				}
 
-				atom[i].fx = fxi;
-				atom[i].fy = fyi;
+				store.fx[i] = fxi;
+				store.fy[i] = fyi;
 
 			}
 
@@ -3044,103 +3482,22 @@ public abstract class AtomicModel extends MDModel {
 
 		} else {
 
-			for (int i = 0, imax1 = numberOfAtoms - 1; i < imax1; i++) {
-
-				rxi = atom[i].rx;
-				ryi = atom[i].ry;
-				fxi = atom[i].fx;
-				fyi = atom[i].fy;
-
-				jbeg = pointer[i];
-				jend = pointer[i + 1];
-
-				if (jbeg < jend) {
-
-					for (int jnab = jbeg; jnab < jend; jnab++) {
-
-						int j = neighborList[jnab];
-						if (!ljBetweenBondPairs && bondTable[i][j])
-							continue;
-						rxij = rxi - atom[j].rx;
-						ryij = ryi - atom[j].ry;
-						minimumImageConvention();
-						rijsq = rxij * rxij + ryij * ryij;
-
-						if (rijsq < cutOffSquareMatrix[atom[i].id][atom[j].id]) {
-
-							sr2 = sigab[i][j] / rijsq;
-							/* check if this pair gets too close */
-							if (sr2 > 2.0) {
-								sr2 = 2.0;
-								rijsq = 0.5 * sigab[i][j];
-							}
-							sr6 = sr2 * sr2 * sr2;
-							sr12 = sr6 * sr6;
-
-							if (isRepulsive(atom[i].id, atom[j].id)) {
-								vij = sr6 * epsab[i][j] * crossRepulsionIntensity;
-								wij = vij;
-							} else {
-								vij = (sr12 - sr6) * epsab[i][j];
-								wij = vij + sr12 * epsab[i][j];
-							}
-							if (cutOffShift) {
-								vij -= poten_LJ[atom[i].id][atom[j].id];
-								wij -= slope_LJ[atom[i].id][atom[j].id];
-							}
-
-							vsum += vij;
-
-							fij = wij / rijsq * SIX_TIMES_UNIT_FORCE;
-							fxij = fij * rxij;
-							fyij = fij * ryij;
-							fxi += fxij;
-							fyi += fyij;
-							atom[j].fx -= fxij;
-							atom[j].fy -= fyij;
-
-						}
-					}
-				}
-
-				if (hasCoulomb && interCoulomb) { // no Verlet neighbor list for long-range electrostatic potentials
-
-					for (int j = i + 1; j < numberOfAtoms; j++) {
-						if (!ljBetweenBondPairs && bondTable[i][j])
-							continue;
-						if (Math.abs(atom[i].charge) > ZERO && Math.abs(atom[j].charge) > ZERO) {
-							rxij = rxi - atom[j].rx;
-							ryij = ryi - atom[j].ry;
-							minimumImageConvention();
-							rijsq = rxij * rxij + ryij * ryij;
-							coul = atom[i].charge * atom[j].charge / Math.sqrt(rijsq) * rCD;
-							vsum += coul;
-							fij = coul / rijsq * GF_CONVERSION_CONSTANT;
-							fxij = fij * rxij;
-							fyij = fij * ryij;
-							fxi += fxij;
-							fyi += fyij;
-							atom[j].fx -= fxij;
-							atom[j].fy -= fyij;
-						}
-					}
-
-				}
-
-				atom[i].fx = fxi;
-				atom[i].fy = fyi;
-
-			}
+			updateRepulsiveMatrix();
+			if (parallelForceEnabled)
+				vsum = computePairForcesInParallel(vsum, rCD);
+			else
+				vsum = computePairForces(0, numberOfAtoms - 1, store.fx, store.fy, vsum, rCD);
 
 		}
 
+		if (hasCoulomb && interCoulomb && coulombTreeEnabled)
+			vsum = computeCoulombWithTree(vsum, rCD);
+
 		double inverseMass;
 		for (int i = 0; i < numberOfAtoms; i++) {
-			atom[i].fx += atom[i].hx * GF_CONVERSION_CONSTANT;
-			atom[i].fy += atom[i].hy * GF_CONVERSION_CONSTANT;
 			inverseMass = 1.0 / atom[i].mass;
-			atom[i].fx *= inverseMass;
-			atom[i].fy *= inverseMass;
+			atom[i].fx = (store.fx[i] + atom[i].hx * GF_CONVERSION_CONSTANT) * inverseMass;
+			atom[i].fy = (store.fy[i] + atom[i].hy * GF_CONVERSION_CONSTANT) * inverseMass;
 		}
 
 		// pointwise space restraints do not contribute to the internal pressure
@@ -3460,7 +3817,6 @@ public abstract class AtomicModel extends MDModel {
 	public void destroy() {
 		super.destroy();
 		for (Atom a : atom) {
-			a.initializeMovieQ(-1);
 			a.initializeRadicalQ(-1);
 			a.initializeExcitationQ(-1);
 			a.setModel(null);
@@ -3515,7 +3871,7 @@ public abstract class AtomicModel extends MDModel {
 	}
 
 	/*
-	 * this method initializes the working arrays to the given capacity. These working arrays are: <p> <ul> <li>The atom array; <li>The van der Waals parameter array; <li>The neighbor list array; <li>The neighbor list pointer array; <li>The x,y coordinates at last step; <li>The x,y displacements since last step; <li>If the integration order is higher, higher derivatives arrays. </ul> </p>
+	 * this method initializes the working arrays to the given capacity. These working arrays are: <p> <ul> <li>The atom array; <li>The neighbor list array; <li>The neighbor list pointer array; <li>The x,y coordinates at last step; <li>The x,y displacements since last step; <li>If the integration order is higher, higher derivatives arrays. </ul> </p>
 	 * 
 	 * @param n the capacity of the working arrays
 	 */
@@ -3526,9 +3882,6 @@ public abstract class AtomicModel extends MDModel {
 			atom[i].setIndex(i);
 			atom[i].setModel(this);
 		}
-		bondTable = new boolean[n][n];
-		epsab = new float[n][n];
-		sigab = new float[n][n];
 		neighborList = new int[n * n / 2];
 		pointer = new int[n];
 		rx0 = new double[n];
@@ -3544,6 +3897,7 @@ public abstract class AtomicModel extends MDModel {
 	 * @GuardedBy("this")
 	 */
 	synchronized void predictor() {
+		long t = profiler.begin();
 		if (numberOfAtoms == 1) {
 			atom[0].predict(timeStep, timeStep2);
 		} else if (numberOfAtoms > 1) {
@@ -3557,7 +3911,9 @@ public abstract class AtomicModel extends MDModel {
 					e.predict(timeStep, timeStep2);
 			}
 		}
+		t = profiler.lap(JobProfiler.PREDICTOR, t);
 		putInBounds();
+		profiler.end(JobProfiler.BOUNDARY, t);
 	}
 
 	/*
@@ -3659,19 +4015,21 @@ public abstract class AtomicModel extends MDModel {
 
 	}
 
+	/* the mixed Lennard-Jones parameters depend only on the elements, so they are tabulated for the pairs of elements present in the model */
 	private void resetParArray() {
-		if (numberOfAtoms > 1) {
-			for (int i = 0; i < numberOfAtoms - 1; i++) {
-				for (int j = i + 1; j < numberOfAtoms; j++) {
-					sigab[j][i] = sigab[i][j] = (float) multiplySigmaFor(atom[i].id, atom[j].id);
-					epsab[j][i] = epsab[i][j] = 2.0f * (float) plusEpsilonFor(atom[i].id, atom[j].id);
-				}
+		boolean[] present = new boolean[Element.NMAX];
+		for (int i = 0; i < numberOfAtoms; i++)
+			present[atom[i].id] = true;
+		for (int a = 0; a < Element.NMAX; a++) {
+			if (!present[a])
+				continue;
+			for (int b = a; b < Element.NMAX; b++) {
+				if (!present[b])
+					continue;
+				sigab[b][a] = sigab[a][b] = (float) multiplySigmaFor(a, b);
+				epsab[b][a] = epsab[a][b] = 2.0f * (float) plusEpsilonFor(a, b);
 			}
 		}
-		for (int i = 0; i < numberOfAtoms; i++) {
-			sigab[i][i] = (float) multiplySigmaFor(atom[i].id, atom[i].id);
-			epsab[i][i] = 2.0f * (float) plusEpsilonFor(atom[i].id, atom[i].id);
-		}
 	}
 
 	private double multiplySigmaFor(int idOfI, int idOfJ) {
@@ -3912,6 +4270,10 @@ public abstract class AtomicModel extends MDModel {
 		if (job != null)
 			state.addTasks(job.getCustomTasks());
 		state.setLJBetweenBondPairs(ljBetweenBondPairs);
+		state.setCellListEnabled(cellListEnabled);
+		state.setParallelForceEnabled(parallelForceEnabled);
+		state.setCoulombTreeEnabled(coulombTreeEnabled);
+		state.setCoulombTreeTheta(getCoulombTreeTheta());
 		state.setInterCoulomb(interCoulomb);
 		state.setUniverse(universe);
 		state.setProperties(properties);
@@ -3922,6 +4284,7 @@ public abstract class AtomicModel extends MDModel {
 		state.setTimeStep(timeStep);
 		state.setScript(initializationScript);
 		state.setFrameInterval(movieUpdater.getInterval());
+		state.setMovieSaved(isMovieSaved());
 		state.setViewRefreshInterval(paintView.getInterval());
 		state.setMoEpsilon(mo.getEpsilon());
 		state.setMoMass(mo.getMass());
@@ -4064,6 +4427,10 @@ public abstract class AtomicModel extends MDModel {
 
 		final State state = (State) in.readObject();
 		setLJBetweenBondPairs(state.getLJBetweenBondPairs());
+		setCellListEnabled(state.isCellListEnabled());
+		setParallelForceEnabled(state.isParallelForceEnabled());
+		setCoulombTreeEnabled(state.isCoulombTreeEnabled());
+		setCoulombTreeTheta(state.getCoulombTreeTheta());
 		setInterCoulomb(state.getInterCoulomb());
 		setUniverse(state.getUniverse() == null ? new Universe() : state.getUniverse());
 		setSubatomicEnabled(state.getPhotonEnabled());
@@ -4118,6 +4485,7 @@ public abstract class AtomicModel extends MDModel {
 			q.clear();
 		Arrays.fill(channels, 0);
 		movieUpdater.setInterval(state.getFrameInterval());
+		setMovieSaved(state.getMovieSaved());
 		paintView.setInterval(state.getViewRefreshInterval());
 		if (heatBath != null)
 			heatBath.destroy();
@@ -4364,14 +4732,9 @@ public abstract class AtomicModel extends MDModel {
 			throw new IllegalArgumentException("Frame " + frame + " does not exist");
 		view.showFrameOfImages(frame);
 		modelTime = modelTimeQueue.getData(frame);
+		tape.load(frame, atom, numberOfAtoms);
 		for (int i = 0; i < numberOfAtoms; i++) {
 			Atom a = atom[i];
-			a.rx = a.rQ.getQueue1().getData(frame);
-			a.ry = a.rQ.getQueue2().getData(frame);
-			a.vx = a.vQ.getQueue1().getData(frame);
-			a.vy = a.vQ.getQueue2().getData(frame);
-			a.ax = a.aQ.getQueue1().getData(frame);
-			a.ay = a.aQ.getQueue2().getData(frame);
 			a.fx = a.ax * a.mass;
 			a.fy = a.ay * a.mass;
 		}
@@ -4424,6 +4787,10 @@ public abstract class AtomicModel extends MDModel {
 	public static class State extends MDModel.State {
 
 		private boolean ljBetweenBondPairs = true;
+		private boolean cellListEnabled;
+		private boolean parallelForceEnabled;
+		private boolean coulombTreeEnabled;
+		private float coulombTreeTheta = 0.5f;
 		private boolean interCoulomb = true;
 		private float cutOff = 2.0f, rList = 2.5f;
 		private boolean cutOffShift = true;
@@ -4466,6 +4833,38 @@ public abstract class AtomicModel extends MDModel {
 			return ljBetweenBondPairs;
 		}
 
+		public void setCellListEnabled(boolean b) {
+			cellListEnabled = b;
+		}
+
+		public boolean isCellListEnabled() {
+			return cellListEnabled;
+		}
+
+		public void setParallelForceEnabled(boolean b) {
+			parallelForceEnabled = b;
+		}
+
+		public boolean isParallelForceEnabled() {
+			return parallelForceEnabled;
+		}
+
+		public void setCoulombTreeEnabled(boolean b) {
+			coulombTreeEnabled = b;
+		}
+
+		public boolean isCoulombTreeEnabled() {
+			return coulombTreeEnabled;
+		}
+
+		public void setCoulombTreeTheta(float x) {
+			coulombTreeTheta = x;
+		}
+
+		public float getCoulombTreeTheta() {
+			return coulombTreeTheta;
+		}
+
 		public void setMoEpsilon(double x) {
 			moEpsilon = x;
 		}
@@ -0,0 +1,134 @@
+/*
+ *   Copyright (C) 2006  The Concord Consortium, Inc.,
+ *   25 Love Lane, Concord, MA 01742
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * END LICENSE */
+
+package org.concord.mw2d.models;
+
+import java.util.Arrays;
+
+/**
+ * This is the set of bonded pairs of atoms whose non-bonded interactions are excluded. It is stored as a sorted
+ * adjacency list: the partners of atom i are <code>partner[start[i]]</code> through
+ * <code>partner[start[i + 1] - 1]</code>, in ascending order. Since an atom has only a few bonds, looking up a pair
+ * scans a handful of entries, and the memory is proportional to the number of atoms plus the number of bonds.
+ *
+ * @author Charles Xie
+ */
+
+class BondExclusions {
+
+	private int n;
+	private int[] start = new int[1];
+	private int[] partner = new int[0];
+
+	/* pairs added since the last call to build() */
+	private int pairCount;
+	private int[] pair1 = new int[16], pair2 = new int[16];
+
+	BondExclusions() {
+	}
+
+	/** remove all the pairs */
+	void clear() {
+		pairCount = 0;
+		n = 0;
+	}
+
+	/** add a pair. The pair does not take effect until build() is called. */
+	void add(int i, int j) {
+		if (pairCount == pair1.length) {
+			int[] a = new int[pairCount * 2];
+			System.arraycopy(pair1, 0, a, 0, pairCount);
+			pair1 = a;
+			a = new int[pairCount * 2];
+			System.arraycopy(pair2, 0, a, 0, pairCount);
+			pair2 = a;
+		}
+		pair1[pairCount] = i;
+		pair2[pairCount] = j;
+		pairCount++;
+	}
+
+	/** build the adjacency list for atoms 0, ..., size-1 from the pairs added since the last call to clear() */
+	void build(int size) {
+		n = size;
+		if (start.length < n + 1)
+			start = new int[n + 1];
+		for (int i = 0; i <= n; i++)
+			start[i] = 0;
+		for (int k = 0; k < pairCount; k++) {
+			if (pair1[k] == pair2[k])
+				continue;
+			start[pair1[k] + 1]++;
+			start[pair2[k] + 1]++;
+		}
+		for (int i = 0; i < n; i++)
+			start[i + 1] += start[i];
+		if (partner.length < start[n])
+			partner = new int[start[n]];
+		int[] fill = new int[n];
+		for (int k = 0; k < pairCount; k++) {
+			int i = pair1[k], j = pair2[k];
+			if (i == j)
+				continue;
+			partner[start[i] + fill[i]++] = j;
+			partner[start[j] + fill[j]++] = i;
+		}
+		// sort the partners of each atom and drop duplicate pairs
+		int m = 0;
+		for (int i = 0; i < n; i++) {
+			int beg = start[i], end = start[i + 1];
+			start[i] = m;
+			Arrays.sort(partner, beg, end);
+			for (int k = beg; k < end; k++) {
+				if (k == beg || partner[k] != partner[k - 1])
+					partner[m++] = partner[k];
+			}
+		}
+		start[n] = m;
+	}
+
+	/** return true if the two atoms are a bonded pair */
+	boolean contains(int i, int j) {
+		if (i >= n)
+			return false;
+		for (int k = start[i], end = start[i + 1]; k < end; k++) {
+			if (partner[k] == j)
+				return true;
+			if (partner[k] > j)
+				return false;
+		}
+		return false;
+	}
+
+	/** return the index of the first partner of the i-th atom in the partner array */
+	int getStart(int i) {
+		return i < n ? start[i] : 0;
+	}
+
+	/** return the index after the last partner of the i-th atom in the partner array */
+	int getEnd(int i) {
+		return i < n ? start[i + 1] : 0;
+	}
+
+	int getPartner(int k) {
+		return partner[k];
+	}
+
+}
@@ -0,0 +1,179 @@
+/*
+ *   Copyright (C) 2006  The Concord Consortium, Inc.,
+ *   25 Love Lane, Concord, MA 01742
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * END LICENSE */
+
+package org.concord.mw2d.models;
+
+import java.awt.geom.Rectangle2D;
+
+/**
+ * This is a linked-cell binning of particles. The simulation box is divided into cells that are no smaller than the given interaction range, so that all the partners of a particle within the range can be found in the particle's own cell and the eight cells around it. Cells wrap around in the periodic directions of a <code>RectangularBoundary</code>. Particles outside the box in a non-periodic direction are put into the nearest edge cell, which does not miss any pair because clamping never separates two cells further.
+ *
+ * @author Charles Xie
+ */
+
+class CellList {
+
+	private int nx, ny;
+	private double x0, y0, dx, dy;
+	private boolean xPeriodic, yPeriodic;
+	private int[] head, next, cell;
+
+	CellList() {
+	}
+
+	/** return the number of cells in the x direction */
+	int getCellCountX() {
+		return nx;
+	}
+
+	/** return the number of cells in the y direction */
+	int getCellCountY() {
+		return ny;
+	}
+
+	int getCellCount() {
+		return nx * ny;
+	}
+
+	/**
+	 * bin the first n particles at the given coordinates into cells of at least the given range. The total number of cells is capped at a few per particle so that a sparse system in a big box does not allocate a huge empty grid.
+	 */
+	void bin(Rectangle2D box, int boundaryType, double range, double[] rx, double[] ry, int n) {
+		if (n <= 0) {
+			nx = ny = 0;
+			return;
+		}
+		setGrid(box, boundaryType, range, n);
+		int m = nx * ny;
+		if (head == null || head.length < m)
+			head = new int[m];
+		for (int k = 0; k < m; k++)
+			head[k] = -1;
+		if (next == null || next.length < n) {
+			next = new int[n];
+			cell = new int[n];
+		}
+		// insert in reverse order so that each cell chain lists particles in ascending index order
+		for (int i = n - 1; i >= 0; i--) {
+			int c = getCell(rx[i], ry[i]);
+			cell[i] = c;
+			next[i] = head[c];
+			head[c] = i;
+		}
+	}
+
+	private void setGrid(Rectangle2D box, int boundaryType, double range, int n) {
+		xPeriodic = boundaryType == RectangularBoundary.PBC_ID || boundaryType == RectangularBoundary.XPYRBC_ID;
+		yPeriodic = boundaryType == RectangularBoundary.PBC_ID || boundaryType == RectangularBoundary.XRYPBC_ID;
+		x0 = box.getX();
+		y0 = box.getY();
+		double w = box.getWidth();
+		double h = box.getHeight();
+		if (range <= 0 || Double.isNaN(range))
+			range = Math.max(w, h);
+		int maxCells = Math.max(4 * n, 9);
+		while (true) {
+			nx = Math.max(1, (int) (w / range));
+			ny = Math.max(1, (int) (h / range));
+			if ((long) nx * ny <= maxCells)
+				break;
+			range *= 1.5;
+		}
+		dx = w / nx;
+		dy = h / ny;
+	}
+
+	/** return the index of the cell the specified point falls in, wrapped or clamped in the same way as the particles */
+	int getCell(double x, double y) {
+		int i = (int) Math.floor((x - x0) / dx);
+		int j = (int) Math.floor((y - y0) / dy);
+		return index(i, j);
+	}
+
+	private int index(int i, int j) {
+		if (xPeriodic) {
+			i %= nx;
+			if (i < 0)
+				i += nx;
+		}
+		else {
+			if (i < 0)
+				i = 0;
+			else if (i >= nx)
+				i = nx - 1;
+		}
+		if (yPeriodic) {
+			j %= ny;
+			if (j < 0)
+				j += ny;
+		}
+		else {
+			if (j < 0)
+				j = 0;
+			else if (j >= ny)
+				j = ny - 1;
+		}
+		return i + j * nx;
+	}
+
+	/** return the cell index of the i-th particle at the time it was binned */
+	int getCellOf(int i) {
+		return cell[i];
+	}
+
+	/** return the first particle in the specified cell, or -1 if the cell is empty */
+	int getFirst(int c) {
+		return head[c];
+	}
+
+	/** return the particle next to the i-th particle in the same cell, or -1 if i is the last one */
+	int getNext(int i) {
+		return next[i];
+	}
+
+	/**
+	 * fill the buffer with the distinct indices of the cell and its neighbors (at most nine), and return how many there are. A cell is never listed twice even when the grid is less than three cells wide in a periodic direction.
+	 */
+	int getAdjacentCells(int c, int[] buffer) {
+		int ci = c % nx;
+		int cj = c / nx;
+		int count = 0;
+		for (int j = cj - 1; j <= cj + 1; j++) {
+			if (!yPeriodic && (j < 0 || j >= ny))
+				continue;
+			for (int i = ci - 1; i <= ci + 1; i++) {
+				if (!xPeriodic && (i < 0 || i >= nx))
+					continue;
+				int k = index(i, j);
+				boolean dup = false;
+				for (int m = 0; m < count; m++) {
+					if (buffer[m] == k) {
+						dup = true;
+						break;
+					}
+				}
+				if (!dup)
+					buffer[count++] = k;
+			}
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,508 @@
+/*
+ *   Copyright (C) 2006  The Concord Consortium, Inc.,
+ *   25 Love Lane, Concord, MA 01742
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * END LICENSE */
+
+package org.concord.mw2d.models;
+
+import java.awt.geom.Rectangle2D;
+
+/**
+ * <p>
+ * This is a Barnes-Hut tree code for the electrostatic potentials and fields of the charged particles, which takes
+ * O(N log N) time instead of the O(N<sup>2</sup>) time of the direct sum over pairs. The charges are sorted into a
+ * quadtree. Each node carries the monopole, dipole and quadrupole moments of its charges about the center of its
+ * bounding box. The tree is walked once for each leaf, and a node is used as a whole for all the particles in the
+ * leaf if its size seen from the leaf is smaller than the opening angle. Nearby charges are summed directly.
+ * </p>
+ *
+ * <p>
+ * The interaction is the same 1/r potential with the minimum image convention that the direct sum uses. In a periodic
+ * direction, a node is accepted only if all its charges fall on the same side of the minimum image cut as seen from
+ * the particles of the leaf, so the tree converges to the direct sum as the opening angle goes to zero.
+ * </p>
+ *
+ * @author Charles Xie
+ */
+
+class CoulombTree {
+
+	private final static int LEAF_SIZE = 16;
+	private final static int MAX_DEPTH = 48;
+
+	private float theta = 0.5f;
+
+	/* the charged particles, in tree order */
+	private int m;
+	private int[] index;
+	private double[] x, y, q;
+
+	/* the potentials and fields at the charged particles, in tree order */
+	private double[] phi, ex, ey;
+
+	/* the nodes */
+	private int nodeCount, leafCount;
+	private int[] leaves;
+	private int[] first, count, child;
+	private double[] cx, cy, hx, hy, mq, dx, dy, qxx, qxy, qyy;
+
+	private boolean xPeriodic, yPeriodic;
+	private double xbox, ybox;
+
+	CoulombTree() {
+	}
+
+	/** set the opening angle, which must be in (0, 1]. The smaller it is, the more accurate and the slower. */
+	void setTheta(float theta) {
+		if (theta <= 0 || theta > 1)
+			throw new IllegalArgumentException("opening angle must be in (0, 1]");
+		this.theta = theta;
+	}
+
+	float getTheta() {
+		return theta;
+	}
+
+	/** return the number of charged particles in the tree */
+	int getChargeCount() {
+		return m;
+	}
+
+	/** return the number of leaves, over which the evaluation can be split */
+	int getLeafCount() {
+		return leafCount;
+	}
+
+	/** return the index in the original arrays of the k-th charged particle in the tree */
+	int getIndex(int k) {
+		return index[k];
+	}
+
+	double getCharge(int k) {
+		return q[k];
+	}
+
+	/** return the potential at the k-th charged particle, excluding its own charge */
+	double getPotential(int k) {
+		return phi[k];
+	}
+
+	double getFieldX(int k) {
+		return ex[k];
+	}
+
+	double getFieldY(int k) {
+		return ey[k];
+	}
+
+	/**
+	 * sort the particles whose absolute charges are greater than the threshold into a new tree.
+	 */
+	void build(Rectangle2D box, int boundaryType, double[] rx, double[] ry, double[] charge, int n, double threshold) {
+
+		xPeriodic = boundaryType == RectangularBoundary.PBC_ID || boundaryType == RectangularBoundary.XPYRBC_ID;
+		yPeriodic = boundaryType == RectangularBoundary.PBC_ID || boundaryType == RectangularBoundary.XRYPBC_ID;
+		xbox = box.getWidth();
+		ybox = box.getHeight();
+
+		if (index == null || index.length < n) {
+			index = new int[n];
+			x = new double[n];
+			y = new double[n];
+			q = new double[n];
+			phi = new double[n];
+			ex = new double[n];
+			ey = new double[n];
+		}
+		m = 0;
+		for (int i = 0; i < n; i++) {
+			if (Math.abs(charge[i]) > threshold) {
+				index[m] = i;
+				x[m] = rx[i];
+				y[m] = ry[i];
+				q[m] = charge[i];
+				m++;
+			}
+		}
+
+		// a quadtree with leaves of at least one particle has fewer than 2m nodes, plus some slack for coincident particles
+		int capacity = 2 * m + 8;
+		if (first == null || first.length < capacity) {
+			first = new int[capacity];
+			count = new int[capacity];
+			child = new int[capacity * 4];
+			cx = new double[capacity];
+			cy = new double[capacity];
+			hx = new double[capacity];
+			hy = new double[capacity];
+			mq = new double[capacity];
+			dx = new double[capacity];
+			dy = new double[capacity];
+			qxx = new double[capacity];
+			qxy = new double[capacity];
+			qyy = new double[capacity];
+		}
+		if (leaves == null || leaves.length < m)
+			leaves = new int[m];
+		nodeCount = leafCount = 0;
+		if (m > 0)
+			buildNode(0, m, 0);
+
+	}
+
+	private int newNode() {
+		if (nodeCount >= first.length) {
+			int capacity = 2 * first.length;
+			first = grow(first, capacity);
+			count = grow(count, capacity);
+			child = grow(child, capacity * 4);
+			cx = grow(cx, capacity);
+			cy = grow(cy, capacity);
+			hx = grow(hx, capacity);
+			hy = grow(hy, capacity);
+			mq = grow(mq, capacity);
+			dx = grow(dx, capacity);
+			dy = grow(dy, capacity);
+			qxx = grow(qxx, capacity);
+			qxy = grow(qxy, capacity);
+			qyy = grow(qyy, capacity);
+		}
+		return nodeCount++;
+	}
+
+	private static int[] grow(int[] a, int capacity) {
+		int[] b = new int[capacity];
+		System.arraycopy(a, 0, b, 0, a.length);
+		return b;
+	}
+
+	private static double[] grow(double[] a, int capacity) {
+		double[] b = new double[capacity];
+		System.arraycopy(a, 0, b, 0, a.length);
+		return b;
+	}
+
+	private int buildNode(int beg, int end, int depth) {
+
+		int node = newNode();
+		first[node] = beg;
+		count[node] = end - beg;
+
+		double xmin = Double.MAX_VALUE, xmax = -Double.MAX_VALUE;
+		double ymin = Double.MAX_VALUE, ymax = -Double.MAX_VALUE;
+		for (int k = beg; k < end; k++) {
+			if (x[k] < xmin)
+				xmin = x[k];
+			if (x[k] > xmax)
+				xmax = x[k];
+			if (y[k] < ymin)
+				ymin = y[k];
+			if (y[k] > ymax)
+				ymax = y[k];
+		}
+		double xc = 0.5 * (xmin + xmax);
+		double yc = 0.5 * (ymin + ymax);
+		cx[node] = xc;
+		cy[node] = yc;
+		hx[node] = 0.5 * (xmax - xmin);
+		hy[node] = 0.5 * (ymax - ymin);
+
+		double sq = 0, sdx = 0, sdy = 0, sxx = 0, sxy = 0, syy = 0, ux, uy;
+		for (int k = beg; k < end; k++) {
+			ux = x[k] - xc;
+			uy = y[k] - yc;
+			sq += q[k];
+			sdx += q[k] * ux;
+			sdy += q[k] * uy;
+			sxx += q[k] * (2 * ux * ux - uy * uy);
+			syy += q[k] * (2 * uy * uy - ux * ux);
+			sxy += 3 * q[k] * ux * uy;
+		}
+		mq[node] = sq;
+		dx[node] = sdx;
+		dy[node] = sdy;
+		qxx[node] = sxx;
+		qxy[node] = sxy;
+		qyy[node] = syy;
+
+		int c = node * 4;
+		if (end - beg <= LEAF_SIZE || depth >= MAX_DEPTH || (hx[node] <= 0 && hy[node] <= 0)) {
+			child[c] = child[c + 1] = child[c + 2] = child[c + 3] = -1;
+			leaves[leafCount++] = node;
+			return node;
+		}
+
+		// split into quadrants: first by x, then each half by y
+		int mid = partition(beg, end, true, xc);
+		int lower = partition(beg, mid, false, yc);
+		int upper = partition(mid, end, false, yc);
+		int[] bounds = { beg, lower, mid, upper, end };
+		for (int k = 0; k < 4; k++) {
+			child[c + k] = bounds[k] < bounds[k + 1] ? buildNode(bounds[k], bounds[k + 1], depth + 1) : -1;
+		}
+		return node;
+
+	}
+
+	/* move the particles in [beg, end) whose coordinate is less than the pivot to the front, and return the split */
+	private int partition(int beg, int end, boolean alongX, double pivot) {
+		int i = beg, j = end - 1;
+		double[] a = alongX ? x : y;
+		while (i <= j) {
+			if (a[i] < pivot) {
+				i++;
+			}
+			else {
+				swap(i, j);
+				j--;
+			}
+		}
+		return i;
+	}
+
+	private void swap(int i, int j) {
+		int t = index[i];
+		index[i] = index[j];
+		index[j] = t;
+		double s = x[i];
+		x[i] = x[j];
+		x[j] = s;
+		s = y[i];
+		y[i] = y[j];
+		y[j] = s;
+		s = q[i];
+		q[i] = q[j];
+		q[j] = s;
+	}
+
+	/**
+	 * compute the potentials and fields at the charged particles in the leaves from lbeg to lend-1 due to all the other
+	 * charges. The tree is walked once for each leaf and the nodes that are far enough from the whole leaf are applied
+	 * to all its particles. Different ranges of leaves can be computed concurrently, since each particle only writes
+	 * its own results.
+	 */
+	void evaluate(int lbeg, int lend) {
+		int[] stack = new int[4 * MAX_DEPTH + 8];
+		for (int l = lbeg; l < lend; l++)
+			evaluateLeaf(leaves[l], stack);
+	}
+
+	/** return a stack big enough for walking the tree, to be passed to <code>getPotentialAt</code> */
+	int[] createStack() {
+		return new int[4 * MAX_DEPTH + 8];
+	}
+
+	/**
+	 * return the potential at the given point due to all the charges in the tree, skipping a charge that sits exactly
+	 * at the point. The tree is walked in the same way as for a leaf of zero size. This method only reads the tree, so
+	 * different points can be computed concurrently, each thread with its own stack.
+	 */
+	double getPotentialAt(double px, double py, int[] stack) {
+
+		if (m == 0)
+			return 0;
+
+		double rx, ry, gx, gy, r2, inv, inv2, inv3, inv5, dr, rqr, qrx, qry, size, shiftX, shiftY;
+		double halfX = xbox * 0.5, halfY = ybox * 0.5;
+		double theta2 = theta * theta;
+		double p = 0;
+		int top = 0;
+		stack[top++] = 0;
+
+		while (top > 0) {
+
+			int node = stack[--top];
+
+			rx = px - cx[node];
+			ry = py - cy[node];
+			shiftX = shiftY = 0;
+			if (xPeriodic) {
+				if (rx > halfX)
+					shiftX = -xbox;
+				else if (rx <= -halfX)
+					shiftX = xbox;
+				rx += shiftX;
+			}
+			if (yPeriodic) {
+				if (ry > halfY)
+					shiftY = -ybox;
+				else if (ry <= -halfY)
+					shiftY = ybox;
+				ry += shiftY;
+			}
+			gx = Math.max(0, Math.abs(rx) - hx[node]);
+			gy = Math.max(0, Math.abs(ry) - hy[node]);
+			size = 2 * Math.max(hx[node], hy[node]);
+
+			if (size * size < theta2 * (gx * gx + gy * gy) && (!xPeriodic || Math.abs(rx) + hx[node] < halfX)
+					&& (!yPeriodic || Math.abs(ry) + hy[node] < halfY)) {
+				inv2 = 1.0 / (rx * rx + ry * ry);
+				inv = Math.sqrt(inv2);
+				inv3 = inv * inv2;
+				inv5 = inv3 * inv2;
+				dr = dx[node] * rx + dy[node] * ry;
+				qrx = qxx[node] * rx + qxy[node] * ry;
+				qry = qxy[node] * rx + qyy[node] * ry;
+				rqr = qrx * rx + qry * ry;
+				p += mq[node] * inv + dr * inv3 + 0.5 * rqr * inv5;
+				continue;
+			}
+
+			int c = node * 4;
+			if (child[c] == -1 && child[c + 1] == -1 && child[c + 2] == -1 && child[c + 3] == -1) {
+				for (int j = first[node], jend = j + count[node]; j < jend; j++) {
+					rx = px - x[j];
+					ry = py - y[j];
+					if (xPeriodic) {
+						if (rx > halfX)
+							rx -= xbox;
+						if (rx <= -halfX)
+							rx += xbox;
+					}
+					if (yPeriodic) {
+						if (ry > halfY)
+							ry -= ybox;
+						if (ry <= -halfY)
+							ry += ybox;
+					}
+					r2 = rx * rx + ry * ry;
+					if (r2 > 0)
+						p += q[j] / Math.sqrt(r2);
+				}
+			}
+			else {
+				for (int i = 0; i < 4; i++) {
+					if (child[c + i] >= 0)
+						stack[top++] = child[c + i];
+				}
+			}
+
+		}
+
+		return p;
+
+	}
+
+	private void evaluateLeaf(int leaf, int[] stack) {
+
+		int kbeg = first[leaf], kend = kbeg + count[leaf];
+		for (int k = kbeg; k < kend; k++) {
+			phi[k] = 0;
+			ex[k] = 0;
+			ey[k] = 0;
+		}
+
+		double xl = cx[leaf], yl = cy[leaf], hxl = hx[leaf], hyl = hy[leaf];
+		double rx, ry, gx, gy, r2, inv, inv2, inv3, inv5, inv7, dr, rqr, qrx, qry, size, shiftX, shiftY;
+		double halfX = xbox * 0.5, halfY = ybox * 0.5;
+		double theta2 = theta * theta;
+		int top = 0;
+		stack[top++] = 0;
+
+		while (top > 0) {
+
+			int node = stack[--top];
+
+			// the separation between the centers of the leaf and the node, and the gap between their bounding boxes
+			rx = xl - cx[node];
+			ry = yl - cy[node];
+			shiftX = shiftY = 0;
+			if (xPeriodic) {
+				if (rx > halfX)
+					shiftX = -xbox;
+				else if (rx <= -halfX)
+					shiftX = xbox;
+				rx += shiftX;
+			}
+			if (yPeriodic) {
+				if (ry > halfY)
+					shiftY = -ybox;
+				else if (ry <= -halfY)
+					shiftY = ybox;
+				ry += shiftY;
+			}
+			gx = Math.max(0, Math.abs(rx) - hxl - hx[node]);
+			gy = Math.max(0, Math.abs(ry) - hyl - hy[node]);
+			size = 2 * Math.max(hx[node], hy[node]);
+
+			if (size * size < theta2 * (gx * gx + gy * gy) && (!xPeriodic || Math.abs(rx) + hxl + hx[node] < halfX)
+					&& (!yPeriodic || Math.abs(ry) + hyl + hy[node] < halfY)) {
+				for (int k = kbeg; k < kend; k++) {
+					rx = x[k] + shiftX - cx[node];
+					ry = y[k] + shiftY - cy[node];
+					inv2 = 1.0 / (rx * rx + ry * ry);
+					inv = Math.sqrt(inv2);
+					inv3 = inv * inv2;
+					inv5 = inv3 * inv2;
+					inv7 = inv5 * inv2;
+					dr = dx[node] * rx + dy[node] * ry;
+					qrx = qxx[node] * rx + qxy[node] * ry;
+					qry = qxy[node] * rx + qyy[node] * ry;
+					rqr = qrx * rx + qry * ry;
+					phi[k] += mq[node] * inv + dr * inv3 + 0.5 * rqr * inv5;
+					ex[k] += mq[node] * rx * inv3 + 3 * dr * rx * inv5 - dx[node] * inv3 + 2.5 * rqr * rx * inv7 - qrx * inv5;
+					ey[k] += mq[node] * ry * inv3 + 3 * dr * ry * inv5 - dy[node] * inv3 + 2.5 * rqr * ry * inv7 - qry * inv5;
+				}
+				continue;
+			}
+
+			int c = node * 4;
+			if (child[c] == -1 && child[c + 1] == -1 && child[c + 2] == -1 && child[c + 3] == -1) {
+				for (int k = kbeg; k < kend; k++) {
+					double xk = x[k], yk = y[k], p = 0, fx = 0, fy = 0;
+					for (int j = first[node], jend = j + count[node]; j < jend; j++) {
+						if (j == k)
+							continue;
+						rx = xk - x[j];
+						ry = yk - y[j];
+						if (xPeriodic) {
+							if (rx > halfX)
+								rx -= xbox;
+							if (rx <= -halfX)
+								rx += xbox;
+						}
+						if (yPeriodic) {
+							if (ry > halfY)
+								ry -= ybox;
+							if (ry <= -halfY)
+								ry += ybox;
+						}
+						r2 = rx * rx + ry * ry;
+						inv = q[j] / Math.sqrt(r2);
+						inv3 = inv / r2;
+						p += inv;
+						fx += inv3 * rx;
+						fy += inv3 * ry;
+					}
+					phi[k] += p;
+					ex[k] += fx;
+					ey[k] += fy;
+				}
+			}
+			else {
+				for (int i = 0; i < 4; i++) {
+					if (child[c + i] >= 0)
+						stack[top++] = child[c + i];
+				}
+			}
+
+		}
+
+	}
+
+}
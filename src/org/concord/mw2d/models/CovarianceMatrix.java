@@ -25,6 +25,7 @@ import java.text.DecimalFormat;
 import org.concord.modeler.math.LinearAlgebra;
 import org.concord.modeler.util.DataQueueUtilities;
 import org.concord.modeler.util.FloatQueue;
+import org.concord.modeler.util.FloatQueueTwin;
 
 public class CovarianceMatrix {
 
@@ -90,8 +91,10 @@ public class CovarianceMatrix {
 
 	for(int i=0; i<n; i++){
 	    atom=model.getAtom(i);
-	    q[i+i]=new FloatQueue(atom.rQ.getQueue1());
-	    q[i+i+1]=new FloatQueue(atom.rQ.getQueue2());
+	    FloatQueueTwin rq=atom.getRxRyQueue();
+	    // the queues are centered below, so copy them from the read-only tape
+	    q[i+i]=new FloatQueue(rq.getQueue1());
+	    q[i+i+1]=new FloatQueue(rq.getQueue2());
 	}
 
 	int m=q[0].getPointer();
@@ -109,6 +109,32 @@ class Eval2D extends AbstractEval {
 	private final static Pattern TRANSCRIBE = compile("(^(?i)transcribe\\b){1}");
 	private final static Pattern TRANSLATE = compile("(^(?i)translate\\b){1}");
 
+	/*
+	 * The commands that are dispatched after the variables are replaced with their values, in the order they are tried,
+	 * with the first words they can start with. A command is looked up by its first word, so only the patterns that can
+	 * possibly match it are tried, instead of all of them in turn.
+	 */
+	private final static Pattern[] COMMAND = { EXIT, LOAD, SOURCE, SELECT, BACKGROUND, MARK_COLOR, CHARGE, RESTRAIN, DAMP, HEAT, TRAJECTORY, STORE, AVERAGE_POSITION, AVERAGE_FORCE, LAC, LAT, LAP, PCF, TCF, MVD, SHOW, SET, ADD, ATTACH, SOUND, CURSOR, MOVE, ROTATE, DELAY, PRINT, MESSAGE, MINIMIZE, BUILD_RBOND, BUILD_ABOND, TRANSCRIBE, TRANSLATE };
+	private final static String[][] COMMAND_KEYWORD = { { "exit" }, { "load" }, { "script", "source" }, { "select" }, { "background" }, { "mark" }, { "charge" }, { "restrain" }, { "damp" }, { "heat" }, { "trajectory", "traj" }, { "store" }, { "averageposition", "avpos" }, { "averageforce", "avfor" }, { "lac" }, { "lat" }, { "lap" }, { "pcf" }, { "tcf" }, { "mvd" }, { "show" }, { "set" }, { "add" }, { "attach" }, { "sound" }, { "cursor" }, { "move" }, { "rotate" }, { "delay" }, { "print" }, { "message" }, { "minimize" }, { "bond", "rbond" }, { "bond", "abond" }, { "transcribe" }, { "translate" } };
+	private final static Map<String, int[]> COMMAND_INDEX = new HashMap<String, int[]>();
+
+	static {
+		for (int i = 0; i < COMMAND.length; i++) {
+			for (String keyword : COMMAND_KEYWORD[i]) {
+				int[] a = COMMAND_INDEX.get(keyword);
+				int[] b;
+				if (a == null) {
+					b = new int[] { i };
+				} else {
+					b = new int[a.length + 1];
+					System.arraycopy(a, 0, b, 0, a.length);
+					b[a.length] = i;
+				}
+				COMMAND_INDEX.put(keyword, b);
+			}
+		}
+	}
+
 	// converters to convert the internal units to normal units.
 	private final static float R_CONVERTER = 0.1f;
 	private final static float V_CONVERTER = 10000;
@@ -303,12 +329,12 @@ class Eval2D extends AbstractEval {
 					s = replaceAll(s, "%particle\\[" + v + "\\]\\.omega", p.omega);
 					s = replaceAll(s, "%particle\\[" + v + "\\]\\.alpha", p.alpha);
 				} else {
-					s = replaceAll(s, "%particle\\[" + v + "\\]\\.rx", p.rQ.getQueue1().getData(frame) * R_CONVERTER);
-					s = replaceAll(s, "%particle\\[" + v + "\\]\\.ry", p.rQ.getQueue2().getData(frame) * R_CONVERTER);
-					s = replaceAll(s, "%particle\\[" + v + "\\]\\.vx", p.vQ.getQueue1().getData(frame) * V_CONVERTER);
-					s = replaceAll(s, "%particle\\[" + v + "\\]\\.vy", p.vQ.getQueue2().getData(frame) * V_CONVERTER);
-					s = replaceAll(s, "%particle\\[" + v + "\\]\\.ax", p.aQ.getQueue1().getData(frame) * A_CONVERTER);
-					s = replaceAll(s, "%particle\\[" + v + "\\]\\.ay", p.aQ.getQueue2().getData(frame) * A_CONVERTER);
+					s = replaceAll(s, "%particle\\[" + v + "\\]\\.rx", p.getRecord(TrajectoryTape.RX, frame) * R_CONVERTER);
+					s = replaceAll(s, "%particle\\[" + v + "\\]\\.ry", p.getRecord(TrajectoryTape.RY, frame) * R_CONVERTER);
+					s = replaceAll(s, "%particle\\[" + v + "\\]\\.vx", p.getRecord(TrajectoryTape.VX, frame) * V_CONVERTER);
+					s = replaceAll(s, "%particle\\[" + v + "\\]\\.vy", p.getRecord(TrajectoryTape.VY, frame) * V_CONVERTER);
+					s = replaceAll(s, "%particle\\[" + v + "\\]\\.ax", p.getRecord(TrajectoryTape.AX, frame) * A_CONVERTER);
+					s = replaceAll(s, "%particle\\[" + v + "\\]\\.ay", p.getRecord(TrajectoryTape.AY, frame) * A_CONVERTER);
 					s = replaceAll(s, "%particle\\[" + v + "\\]\\.theta", p.thetaQ.getData(frame));
 					s = replaceAll(s, "%particle\\[" + v + "\\]\\.omega", p.omegaQ.getData(frame));
 					s = replaceAll(s, "%particle\\[" + v + "\\]\\.alpha", p.alphaQ.getData(frame));
@@ -330,12 +356,12 @@ class Eval2D extends AbstractEval {
 					s = replaceAll(s, "%particle\\[" + v + "\\]\\.ax", a.ax * A_CONVERTER);
 					s = replaceAll(s, "%particle\\[" + v + "\\]\\.ay", a.ay * A_CONVERTER);
 				} else {
-					s = replaceAll(s, "%particle\\[" + v + "\\]\\.rx", a.rQ.getQueue1().getData(frame) * R_CONVERTER);
-					s = replaceAll(s, "%particle\\[" + v + "\\]\\.ry", a.rQ.getQueue2().getData(frame) * R_CONVERTER);
-					s = replaceAll(s, "%particle\\[" + v + "\\]\\.vx", a.vQ.getQueue1().getData(frame) * V_CONVERTER);
-					s = replaceAll(s, "%particle\\[" + v + "\\]\\.vy", a.vQ.getQueue2().getData(frame) * V_CONVERTER);
-					s = replaceAll(s, "%particle\\[" + v + "\\]\\.ax", a.aQ.getQueue1().getData(frame) * A_CONVERTER);
-					s = replaceAll(s, "%particle\\[" + v + "\\]\\.ay", a.aQ.getQueue2().getData(frame) * A_CONVERTER);
+					s = replaceAll(s, "%particle\\[" + v + "\\]\\.rx", a.getRecord(TrajectoryTape.RX, frame) * R_CONVERTER);
+					s = replaceAll(s, "%particle\\[" + v + "\\]\\.ry", a.getRecord(TrajectoryTape.RY, frame) * R_CONVERTER);
+					s = replaceAll(s, "%particle\\[" + v + "\\]\\.vx", a.getRecord(TrajectoryTape.VX, frame) * V_CONVERTER);
+					s = replaceAll(s, "%particle\\[" + v + "\\]\\.vy", a.getRecord(TrajectoryTape.VY, frame) * V_CONVERTER);
+					s = replaceAll(s, "%particle\\[" + v + "\\]\\.ax", a.getRecord(TrajectoryTape.AX, frame) * A_CONVERTER);
+					s = replaceAll(s, "%particle\\[" + v + "\\]\\.ay", a.getRecord(TrajectoryTape.AY, frame) * A_CONVERTER);
 				}
 			}
 			lb0 = lb;
@@ -377,12 +403,12 @@ class Eval2D extends AbstractEval {
 					s = replaceAll(s, "%atom\\[" + v + "\\]\\.ax", a.ax * A_CONVERTER);
 					s = replaceAll(s, "%atom\\[" + v + "\\]\\.ay", a.ay * A_CONVERTER);
 				} else {
-					s = replaceAll(s, "%atom\\[" + v + "\\]\\.rx", a.rQ.getQueue1().getData(frame) * R_CONVERTER);
-					s = replaceAll(s, "%atom\\[" + v + "\\]\\.ry", a.rQ.getQueue2().getData(frame) * R_CONVERTER);
-					s = replaceAll(s, "%atom\\[" + v + "\\]\\.vx", a.vQ.getQueue1().getData(frame) * V_CONVERTER);
-					s = replaceAll(s, "%atom\\[" + v + "\\]\\.vy", a.vQ.getQueue2().getData(frame) * V_CONVERTER);
-					s = replaceAll(s, "%atom\\[" + v + "\\]\\.ax", a.aQ.getQueue1().getData(frame) * A_CONVERTER);
-					s = replaceAll(s, "%atom\\[" + v + "\\]\\.ay", a.aQ.getQueue2().getData(frame) * A_CONVERTER);
+					s = replaceAll(s, "%atom\\[" + v + "\\]\\.rx", a.getRecord(TrajectoryTape.RX, frame) * R_CONVERTER);
+					s = replaceAll(s, "%atom\\[" + v + "\\]\\.ry", a.getRecord(TrajectoryTape.RY, frame) * R_CONVERTER);
+					s = replaceAll(s, "%atom\\[" + v + "\\]\\.vx", a.getRecord(TrajectoryTape.VX, frame) * V_CONVERTER);
+					s = replaceAll(s, "%atom\\[" + v + "\\]\\.vy", a.getRecord(TrajectoryTape.VY, frame) * V_CONVERTER);
+					s = replaceAll(s, "%atom\\[" + v + "\\]\\.ax", a.getRecord(TrajectoryTape.AX, frame) * A_CONVERTER);
+					s = replaceAll(s, "%atom\\[" + v + "\\]\\.ay", a.getRecord(TrajectoryTape.AY, frame) * A_CONVERTER);
 				}
 				lb0 = lb;
 				lb = s.indexOf("%atom[");
@@ -567,8 +593,8 @@ class Eval2D extends AbstractEval {
 				Atom at = null;
 				for (int k = 0; k < nmol; k++) {
 					at = mol.getAtom(k);
-					xc += at.rQ.getQueue1().getData(frame);
-					yc += at.rQ.getQueue2().getData(frame);
+					xc += at.getRecord(TrajectoryTape.RX, frame);
+					yc += at.getRecord(TrajectoryTape.RY, frame);
 				}
 				xc /= nmol;
 				yc /= nmol;
@@ -833,6 +859,8 @@ class Eval2D extends AbstractEval {
 	}
 
 	protected String useDefinitions(String s) {
+		if (s.indexOf("%") == -1)
+			return s;
 		s = useSystemVariables(s);
 		s = useElementVariables(s);
 		s = useParticleVariables(s, -1);
@@ -984,9 +1012,37 @@ class Eval2D extends AbstractEval {
 		// System.out.println(ci);
 		// System.out.println("-------------------------");
 
+		// run the commands whose patterns match, in the order of the table, until one of them succeeds
+		int[] candidates = COMMAND_INDEX.get(getKeyword(ci));
+		if (candidates != null) {
+			for (int k : candidates) {
+				matcher = COMMAND[k].matcher(ci);
+				if (matcher.find()) {
+					if (evaluateCommand(COMMAND[k], ci, matcher.end()))
+						return true;
+				}
+			}
+		}
+
+		out(ScriptEvent.FAILED, "Unrecognized command: " + ci);
+		return false;
+
+	}
+
+	/* return the first word of the command in lower case, which is all that a command pattern can start with */
+	private static String getKeyword(String ci) {
+		int n = ci.length();
+		int i = 0;
+		while (i < n && Character.isLetter(ci.charAt(i)))
+			i++;
+		return ci.substring(0, i).toLowerCase();
+	}
+
+	/* evaluate the clause of a command resolved from the dispatch table, where end is the end of the matched keyword */
+	private boolean evaluateCommand(Pattern p, String ci, int end) throws InterruptedException {
+
 		// exit
-		matcher = EXIT.matcher(ci);
-		if (matcher.find()) {
+		if (p == EXIT) {
 			Object o = view.getClientProperty("close_full_screen");
 			if (o instanceof Runnable) {
 				((Runnable) o).run();
@@ -995,212 +1051,124 @@ class Eval2D extends AbstractEval {
 		}
 
 		// load
-		matcher = LOAD.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateLoadClause(ci.substring(matcher.end()).trim()))
-				return true;
-		}
+		if (p == LOAD)
+			return evaluateLoadClause(ci.substring(end).trim());
 
 		// source
-		matcher = SOURCE.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateSourceClause(ci.substring(matcher.end()).trim()))
-				return true;
-		}
+		if (p == SOURCE)
+			return evaluateSourceClause(ci.substring(end).trim());
 
 		// select
-		matcher = SELECT.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateSelectClause(ci.substring(matcher.end()).trim()))
-				return true;
-		}
+		if (p == SELECT)
+			return evaluateSelectClause(ci.substring(end).trim());
 
 		// background
-		matcher = BACKGROUND.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateBackgroundClause(ci.substring(matcher.end()).trim()))
-				return true;
-		}
+		if (p == BACKGROUND)
+			return evaluateBackgroundClause(ci.substring(end).trim());
 
 		// mark selected objects with a specified color
-		matcher = MARK_COLOR.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateMarkClause(ci.substring(matcher.end()).trim()))
-				return true;
-		}
+		if (p == MARK_COLOR)
+			return evaluateMarkClause(ci.substring(end).trim());
 
 		// charge
-		matcher = CHARGE.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateChargeClause(ci.substring(matcher.end()).trim()))
-				return true;
-		}
+		if (p == CHARGE)
+			return evaluateChargeClause(ci.substring(end).trim());
 
 		// restrain
-		matcher = RESTRAIN.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateRestrainClause(ci.substring(matcher.end()).trim()))
-				return true;
-		}
+		if (p == RESTRAIN)
+			return evaluateRestrainClause(ci.substring(end).trim());
 
 		// damp
-		matcher = DAMP.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateDampClause(ci.substring(matcher.end()).trim()))
-				return true;
-		}
+		if (p == DAMP)
+			return evaluateDampClause(ci.substring(end).trim());
 
 		// heat
-		matcher = HEAT.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateHeatClause(ci.substring(matcher.end()).trim()))
-				return true;
-		}
+		if (p == HEAT)
+			return evaluateHeatClause(ci.substring(end).trim());
 
 		// trajectory
-		matcher = TRAJECTORY.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateTrajectoryClause(ci.substring(matcher.end()).trim()))
-				return true;
-		}
+		if (p == TRAJECTORY)
+			return evaluateTrajectoryClause(ci.substring(end).trim());
 
 		// store
-		matcher = STORE.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateStoreClause(ci.substring(matcher.end()).trim()))
-				return true;
-		}
+		if (p == STORE)
+			return evaluateStoreClause(ci.substring(end).trim());
 
 		// averageposition
-		matcher = AVERAGE_POSITION.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateAvposClause(ci.substring(matcher.end()).trim()))
-				return true;
-		}
+		if (p == AVERAGE_POSITION)
+			return evaluateAvposClause(ci.substring(end).trim());
 
 		// averageforce
-		matcher = AVERAGE_FORCE.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateAvforClause(ci.substring(matcher.end()).trim()))
-				return true;
-		}
+		if (p == AVERAGE_FORCE)
+			return evaluateAvforClause(ci.substring(end).trim());
 
 		// local area counter
-		matcher = LAC.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateLacClause(ci.substring(matcher.end()).trim()))
-				return true;
-		}
+		if (p == LAC)
+			return evaluateLacClause(ci.substring(end).trim());
 
 		// local area temperature
-		matcher = LAT.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateLatClause(ci.substring(matcher.end()).trim()))
-				return true;
-		}
+		if (p == LAT)
+			return evaluateLatClause(ci.substring(end).trim());
 
 		// local area pressure
-		matcher = LAP.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateLapClause(ci.substring(matcher.end()).trim()))
-				return true;
-		}
+		if (p == LAP)
+			return evaluateLapClause(ci.substring(end).trim());
 
 		// pcf
-		matcher = PCF.matcher(ci);
-		if (matcher.find()) {
-			if (evaluatePcfClause(ci.substring(matcher.end()).trim().toLowerCase()))
-				return true;
-		}
+		if (p == PCF)
+			return evaluatePcfClause(ci.substring(end).trim().toLowerCase());
 
 		// tcf
-		matcher = TCF.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateTcfClause(ci.substring(matcher.end()).trim().toLowerCase()))
-				return true;
-		}
+		if (p == TCF)
+			return evaluateTcfClause(ci.substring(end).trim().toLowerCase());
 
 		// mvd
-		matcher = MVD.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateMvdClause(ci.substring(matcher.end()).trim().toLowerCase()))
-				return true;
-		}
+		if (p == MVD)
+			return evaluateMvdClause(ci.substring(end).trim().toLowerCase());
 
 		// show
-		matcher = SHOW.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateShowClause(ci.substring(matcher.end()).trim()))
-				return true;
-		}
+		if (p == SHOW)
+			return evaluateShowClause(ci.substring(end).trim());
 
 		// set
-		matcher = SET.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateSetClause(ci.substring(matcher.end()).trim()))
-				return true;
-		}
+		if (p == SET)
+			return evaluateSetClause(ci.substring(end).trim());
 
 		// add
-		matcher = ADD.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateAddClause(ci.substring(matcher.end()).trim()))
-				return true;
-		}
+		if (p == ADD)
+			return evaluateAddClause(ci.substring(end).trim());
 
 		// attach
-		matcher = ATTACH.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateAttachClause(ci.substring(matcher.end()).trim()))
-				return true;
-		}
+		if (p == ATTACH)
+			return evaluateAttachClause(ci.substring(end).trim());
 
 		// sound
-		matcher = SOUND.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateSoundClause(ci.substring(matcher.end()).trim()))
-				return true;
-		}
+		if (p == SOUND)
+			return evaluateSoundClause(ci.substring(end).trim());
 
 		// mouse cursor
-		matcher = CURSOR.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateCursorClause(ci.substring(matcher.end()).trim()))
-				return true;
-		}
+		if (p == CURSOR)
+			return evaluateCursorClause(ci.substring(end).trim());
 
 		// move
-		matcher = MOVE.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateMoveClause(ci.substring(matcher.end()).trim()))
-				return true;
-		}
+		if (p == MOVE)
+			return evaluateMoveClause(ci.substring(end).trim());
 
 		// rotate
-		matcher = ROTATE.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateRotateClause(ci.substring(matcher.end()).trim()))
-				return true;
-		}
+		if (p == ROTATE)
+			return evaluateRotateClause(ci.substring(end).trim());
 
 		// delay
-		matcher = DELAY.matcher(ci);
-		if (matcher.find()) {
-			if (evaluateDelayClause(ci.substring(matcher.end()).trim()))
-				return true;
-		}
+		if (p == DELAY)
+			return evaluateDelayClause(ci.substring(end).trim());
 
 		// print
-		matcher = PRINT.matcher(ci);
-		if (matcher.find()) {
-			if (evaluatePrintClause(ci.substring(matcher.end()).trim().toLowerCase()))
-				return true;
-		}
+		if (p == PRINT)
+			return evaluatePrintClause(ci.substring(end).trim().toLowerCase());
 
 		// show message
-		matcher = MESSAGE.matcher(ci);
-		if (matcher.find()) {
-			String s = XMLCharacterDecoder.decode(ci.substring(matcher.end()).trim());
+		if (p == MESSAGE) {
+			String s = XMLCharacterDecoder.decode(ci.substring(end).trim());
 			String slc = s.toLowerCase();
 			int a = slc.indexOf("<t>");
 			int b = slc.indexOf("</t>");
@@ -1215,7 +1183,7 @@ class Eval2D extends AbstractEval {
 					info = info + "</html>";
 				}
 			} else {
-				matcher = Compiler.HTML_EXTENSION.matcher(s);
+				Matcher matcher = Compiler.HTML_EXTENSION.matcher(s);
 				if (matcher.find()) {
 					info = readText(s, view);
 				} else {
@@ -1235,37 +1203,19 @@ class Eval2D extends AbstractEval {
 		if (model instanceof MolecularModel) {
 
 			// minimize
-			matcher = MINIMIZE.matcher(ci);
-			if (matcher.find()) {
-				if (evaluateMinimizeClause(ci.substring(matcher.end()).trim()))
-					return true;
-			}
+			if (p == MINIMIZE)
+				return evaluateMinimizeClause(ci.substring(end).trim());
 
 			// build radial bond
-			matcher = BUILD_RBOND.matcher(ci);
-			if (matcher.find()) {
-				if (evaluateBuildBondClause(ci.substring(ci.startsWith("rbond") ? 5 : 4).trim()))
-					return true;
-			}
+			if (p == BUILD_RBOND)
+				return evaluateBuildBondClause(ci.substring(ci.startsWith("rbond") ? 5 : 4).trim());
 
 			// build angular bond
-			matcher = BUILD_ABOND.matcher(ci);
-			if (matcher.find()) {
-				if (evaluateBuildBendClause(ci.substring(ci.startsWith("abond") ? 5 : 4).trim()))
-					return true;
-			}
+			if (p == BUILD_ABOND)
+				return evaluateBuildBendClause(ci.substring(ci.startsWith("abond") ? 5 : 4).trim());
 
-			// transcribe
-			matcher = TRANSCRIBE.matcher(ci);
-			if (matcher.find()) {
-				model.containerScriptCallback.setScript(ci);
-				model.containerScriptCallback.execute();
-				return true;
-			}
-
-			// translate
-			matcher = TRANSLATE.matcher(ci);
-			if (matcher.find()) {
+			// transcribe or translate
+			if (p == TRANSCRIBE || p == TRANSLATE) {
 				model.containerScriptCallback.setScript(ci);
 				model.containerScriptCallback.execute();
 				return true;
@@ -1273,7 +1223,6 @@ class Eval2D extends AbstractEval {
 
 		}
 
-		out(ScriptEvent.FAILED, "Unrecognized command: " + ci);
 		return false;
 
 	}
@@ -3398,6 +3347,11 @@ class Eval2D extends AbstractEval {
 			view.setShowClock(result == ON);
 			return true;
 		}
+		result = parseOnOff("profiler", s);
+		if (result != -1) {
+			view.setShowProfiler(result == ON);
+			return true;
+		}
 		result = parseOnOff("heatbath", s);
 		if (result != -1) {
 			view.setShowHeatBath(result == ON);
@@ -4069,6 +4023,22 @@ class Eval2D extends AbstractEval {
 						return true;
 					}
 				}
+				if (s0 == "savemovie") {
+					model.setMovieSaved("on".equalsIgnoreCase(s[1].trim()));
+					notifyChange();
+					return true;
+				}
+				if (s0 == "parallelforce") {
+					boolean b = "on".equalsIgnoreCase(s[1].trim());
+					if (model instanceof AtomicModel) {
+						((AtomicModel) model).setParallelForceEnabled(b);
+					}
+					else if (model instanceof MesoModel) {
+						((MesoModel) model).setParallelForceEnabled(b);
+					}
+					notifyChange();
+					return true;
+				}
 			}
 			if (s0 == "bondstyle") {
 				if (model instanceof MolecularModel) {
@@ -5241,6 +5211,10 @@ class Eval2D extends AbstractEval {
 	private boolean evaluatePrintClause(String str) {
 		if (str == null)
 			return false;
+		if (str.trim().equalsIgnoreCase("profiler")) {
+			out(ScriptEvent.SUCCEEDED, model.getProfiler().getReport());
+			return true;
+		}
 		str = format(str);
 		// average over the selected particles
 		Matcher matcher = MEAN.matcher(str);
@@ -0,0 +1,112 @@
+/*
+ *   Copyright (C) 2006  The Concord Consortium, Inc.,
+ *   25 Love Lane, Concord, MA 01742
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * END LICENSE */
+
+package org.concord.mw2d.models;
+
+/**
+ * This is an in-place radix-2 fast Fourier transform of a fixed size. The twiddle factors are computed once, so an
+ * instance should be reused for all the transforms of the same size. The tables are never changed after construction,
+ * so an instance can be shared by threads.
+ *
+ * @author Charles Xie
+ */
+
+final class FFT {
+
+	private final int n;
+	private final int[] reverse;
+	private final double[] cos, sin;
+
+	/** create a transform of the specified size, which must be a power of two */
+	FFT(int n) {
+		if (n < 1 || (n & (n - 1)) != 0)
+			throw new IllegalArgumentException("The size of FFT must be a power of two: " + n);
+		this.n = n;
+		reverse = new int[n];
+		int bits = Integer.numberOfTrailingZeros(n);
+		for (int i = 0; i < n; i++)
+			reverse[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+		cos = new double[n / 2];
+		sin = new double[n / 2];
+		for (int i = 0; i < n / 2; i++) {
+			double a = -2 * Math.PI * i / n;
+			cos[i] = Math.cos(a);
+			sin[i] = Math.sin(a);
+		}
+	}
+
+	/** return the smallest power of two that is not less than the specified number */
+	static int getSize(int m) {
+		int n = 1;
+		while (n < m)
+			n <<= 1;
+		return n;
+	}
+
+	int getSize() {
+		return n;
+	}
+
+	/** transform the complex data in place */
+	void transform(double[] re, double[] im) {
+		compute(re, im, 1);
+	}
+
+	/** inverse-transform the complex data in place, including the division by the size */
+	void inverse(double[] re, double[] im) {
+		compute(re, im, -1);
+		double s = 1.0 / n;
+		for (int i = 0; i < n; i++) {
+			re[i] *= s;
+			im[i] *= s;
+		}
+	}
+
+	private void compute(double[] re, double[] im, int sign) {
+		for (int i = 0; i < n; i++) {
+			int j = reverse[i];
+			if (j > i) {
+				double t = re[i];
+				re[i] = re[j];
+				re[j] = t;
+				t = im[i];
+				im[i] = im[j];
+				im[j] = t;
+			}
+		}
+		for (int size = 2; size <= n; size <<= 1) {
+			int half = size >> 1;
+			int step = n / size;
+			for (int i = 0; i < n; i += size) {
+				for (int k = 0, t = 0; k < half; k++, t += step) {
+					double wr = cos[t], wi = sign * sin[t];
+					int a = i + k, b = a + half;
+					double xr = re[b] * wr - im[b] * wi;
+					double xi = re[b] * wi + im[b] * wr;
+					re[b] = re[a] - xr;
+					im[b] = im[a] - xi;
+					re[a] += xr;
+					im[a] += xi;
+				}
+			}
+		}
+	}
+
+}
@@ -23,6 +23,7 @@ package org.concord.mw2d.models;
 import java.awt.Color;
 import java.awt.Cursor;
 import java.awt.EventQueue;
+import java.awt.GraphicsEnvironment;
 import java.awt.Shape;
 import java.beans.XMLDecoder;
 import java.beans.XMLEncoder;
@@ -80,14 +81,17 @@ import org.concord.modeler.event.ModelListener;
 import org.concord.modeler.event.PageComponentEvent;
 import org.concord.modeler.event.PageComponentListener;
 import org.concord.modeler.event.ScriptListener;
+import org.concord.modeler.math.GradientMinimizer;
 import org.concord.modeler.process.AbstractLoadable;
 import org.concord.modeler.process.ImageStreamGenerator;
 import org.concord.modeler.process.Job;
+import org.concord.modeler.process.JobProfiler;
 import org.concord.modeler.process.Loadable;
 import org.concord.modeler.ui.ProcessMonitor;
 import org.concord.modeler.util.DataQueue;
 import org.concord.modeler.util.FileUtilities;
 import org.concord.modeler.util.FloatQueue;
+import org.concord.modeler.util.FloatQueueTwin;
 import org.concord.modeler.util.HomoQueueGroup;
 import org.concord.modeler.util.SwingWorker;
 import org.concord.mw2d.AtomisticView;
@@ -230,6 +234,15 @@ public abstract class MDModel implements Model, ParameterChangeListener {
 	/* Store the real model time in a queue for reconstructing time series later. */
 	volatile FloatQueue modelTimeQueue;
 
+	/* the recorded positions, velocities and accelerations of the particles */
+	final TrajectoryTape tape = new TrajectoryTape();
+
+	/** the suffix of the trajectory file that stores the movie of a model next to its model file */
+	public final static String MOVIE_FILE_SUFFIX = ".mwt";
+
+	/* if true, the movie is saved to a trajectory file along with the model */
+	private boolean movieSaved;
+
 	private static byte jobIndex;
 	private volatile boolean stopAtNextRecordingStep;
 	private long systemTimeOfLastStepEnd;
@@ -246,6 +259,7 @@ public abstract class MDModel implements Model, ParameterChangeListener {
 
 	/* the dynamic task pool installed in this model */
 	Job job;
+	final JobProfiler profiler = new JobProfiler();
 
 	/* heat bath (off by default) */
 	HeatBath heatBath;
@@ -261,7 +275,9 @@ public abstract class MDModel implements Model, ParameterChangeListener {
 				stopAtNextRecordingStep = false;
 				return;
 			}
+			long t = profiler.begin();
 			record();
+			profiler.end(JobProfiler.RECORD, t);
 			movie.setCurrentFrameIndex(getTapePointer());
 			if (stopAtNextRecordingStep) {
 				stopImmediately();
@@ -358,6 +374,7 @@ public abstract class MDModel implements Model, ParameterChangeListener {
 				// System.out.println(systemTimeElapsed-minimumJobCycleTime);
 			}
 			systemTimeOfLastStepEnd = System.currentTimeMillis();
+			long t = profiler.begin();
 			((MDView) getView()).showNextFrameOfImages();
 			if (getView() instanceof AtomisticView) {
 				AtomisticView view = (AtomisticView) getView();
@@ -372,6 +389,7 @@ public abstract class MDModel implements Model, ParameterChangeListener {
 			if (movie.getMovieSlider().isShowing()) {
 				movie.getMovieSlider().repaint();
 			}
+			profiler.end(JobProfiler.VIEW_UPDATE, t);
 			notifyUpdateListeners(new UpdateEvent(MDModel.this, UpdateEvent.VIEW_UPDATED));
 		}
 
@@ -513,6 +531,7 @@ public abstract class MDModel implements Model, ParameterChangeListener {
 			}
 		}
 
+		tape.release();
 		((MDView) getView()).destroy();
 		if (boundary.getQueue() != null)
 			boundary.getQueue().setLength(-1);
@@ -660,6 +679,8 @@ public abstract class MDModel implements Model, ParameterChangeListener {
 			synchronized (((MDView) getView()).getUpdateLock()) {
 				encode(out);
 			}
+			if (movieSaved)
+				saveMovie(file);
 			saveImages(file.getParentFile());
 			putProperties(file);
 			notifyModelListeners(new ModelEvent(this, ModelEvent.MODEL_OUTPUT));
@@ -1317,6 +1338,10 @@ public abstract class MDModel implements Model, ParameterChangeListener {
 	}
 
 	void createProgressMonitor() {
+		if (GraphicsEnvironment.isHeadless()) { // there is no window to show the progress when rendering offscreen
+			monitor = new ProcessMonitor(null, false);
+			return;
+		}
 		boolean b = ioProgressBar == null;
 		monitor = new ProcessMonitor(JOptionPane.getFrameForComponent(getView()), b);
 		if (b) {
@@ -1393,6 +1418,39 @@ public abstract class MDModel implements Model, ParameterChangeListener {
 			if (q.getName().equals(name))
 				return q;
 		}
+		return getParticleQueue(name);
+	}
+
+	/* the queues of the particles are not kept in the movie queue group, but read from the tape when requested */
+	private DataQueue getParticleQueue(String name) {
+		int i = name.indexOf(": ");
+		if (i != 2)
+			return null;
+		String prefix = name.substring(0, 2);
+		String particle = name.substring(4);
+		boolean first = prefix.charAt(1) == 'x';
+		if (!first && prefix.charAt(1) != 'y')
+			return null;
+		for (int k = 0, n = getNumberOfParticles(); k < n; k++) {
+			Particle p = getParticle(k);
+			if (!particle.equals(p.toString()))
+				continue;
+			FloatQueueTwin q = null;
+			switch (prefix.charAt(0)) {
+			case 'R':
+				q = p.getRxRyQueue();
+				break;
+			case 'V':
+				q = p.getVxVyQueue();
+				break;
+			case 'A':
+				q = p.getAxAyQueue();
+				break;
+			}
+			if (q == null)
+				return null;
+			return first ? q.getQueue1() : q.getQueue2();
+		}
 		return null;
 	}
 
@@ -1457,6 +1515,98 @@ public abstract class MDModel implements Model, ParameterChangeListener {
 		return modelTimeQueue;
 	}
 
+	/** return the tape that records the positions, velocities and accelerations of the particles */
+	public TrajectoryTape getTrajectoryTape() {
+		return tape;
+	}
+
+	/**
+	 * If set true, saving this model to a file also saves the recorded movie to a trajectory file next to it, which
+	 * will be mapped back when the model file is loaded. This flag is saved with the model.
+	 */
+	public void setMovieSaved(boolean b) {
+		movieSaved = b;
+	}
+
+	public boolean isMovieSaved() {
+		return movieSaved;
+	}
+
+	/** return the trajectory file that goes with the specified model file */
+	public static File getMovieFile(File modelFile) {
+		return new File(FileUtilities.removeSuffix(modelFile.getPath()) + MOVIE_FILE_SUFFIX);
+	}
+
+	/* the time series recorded along with the tape, in the order they are stored in a trajectory file */
+	List<FloatQueue> getMovieSeries() {
+		List<FloatQueue> list = new ArrayList<FloatQueue>();
+		list.add(modelTimeQueue);
+		list.add(kine);
+		list.add(pote);
+		list.add(tote);
+		for (FloatQueue q : channelTs)
+			list.add(q);
+		return list;
+	}
+
+	/* fill the queues that are not stored in a trajectory file for n frames, so that the movie is complete */
+	void fillMovieQueues(int n) {
+	}
+
+	/** save the recorded movie to the specified trajectory file */
+	public void exportMovie(File file) throws IOException {
+		if (!hasEmbeddedMovie())
+			throw new IllegalStateException("There is no movie to export");
+		tape.save(file, getMovieSeries(), getNumberOfParticles());
+	}
+
+	/**
+	 * load the movie saved in the specified trajectory file, which must have been recorded for the same particles. The
+	 * frames are mapped from the file rather than read into memory, so any frame can be shown at once by moving the
+	 * movie slider. Return the number of frames loaded.
+	 */
+	public int importMovie(File file) throws IOException {
+		stopImmediately();
+		activateEmbeddedMovie(true);
+		int n = tape.open(file, getMovieSeries(), getNumberOfParticles());
+		if (n > 0) {
+			fillMovieQueues(n);
+			setTapePointer(n);
+		}
+		movie.setCurrentFrameIndex(getTapePointer());
+		movie.getMovieSlider().repaint();
+		return n;
+	}
+
+	private void saveMovie(File modelFile) {
+		File file = getMovieFile(modelFile);
+		if (!hasEmbeddedMovie()) {
+			if (file.exists())
+				file.delete();
+			return;
+		}
+		try {
+			exportMovie(file);
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void loadMovie(File modelFile) {
+		if (!movieSaved)
+			return;
+		File file = getMovieFile(modelFile);
+		if (!file.exists())
+			return;
+		try {
+			importMovie(file);
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
 	public void setMovieQueueGroup(HomoQueueGroup g) {
 		movieQueueGroup = g;
 	}
@@ -1504,9 +1654,11 @@ public abstract class MDModel implements Model, ParameterChangeListener {
 					while (true) {
 						super.run();
 						while (!isStopped()) {
+							long t = profiler.begin();
 							modelTime += (float) getTimeStep();
 							advance(indexOfStep++);
 							execute();
+							profiler.endStep(t);
 						}
 						synchronized (this) {
 							try {
@@ -1534,6 +1686,7 @@ public abstract class MDModel implements Model, ParameterChangeListener {
 					getView().getActionMap().get("Properties").actionPerformed(null);
 				}
 			});
+			job.setProfiler(profiler);
 		}
 		if (!recorderDeactivated && !job.contains(movieUpdater))
 			job.add(movieUpdater);
@@ -1549,6 +1702,26 @@ public abstract class MDModel implements Model, ParameterChangeListener {
 		return job;
 	}
 
+	/**
+	 * advance this model by the given number of steps on the calling thread, without running the tasks of its job. This
+	 * drives a model that is rendered offscreen, where there is no job thread and no repainting.
+	 */
+	public void step(int n) {
+		if (job == null)
+			initializeJob();
+		int i = job.getIndexOfStep();
+		for (int k = 0; k < n; k++) {
+			modelTime += (float) getTimeStep();
+			advance(i++);
+		}
+		job.setIndexOfStep(i);
+	}
+
+	/** return the profiler that times the steps, the phases of a step and the tasks of this model's job */
+	public JobProfiler getProfiler() {
+		return profiler;
+	}
+
 	void addCustomTasks(List<TaskAttributes> list) {
 		job.removeAllNonSystemTasks();
 		if (list == null || list.isEmpty())
@@ -1781,11 +1954,14 @@ public abstract class MDModel implements Model, ParameterChangeListener {
 				new SwingWorker("Energy Minimizer") {
 					public Object construct() {
 						Minimizer m = new Minimizer((MolecularModel) (MDModel.this));
-						for (int i = 0; i <= 50; i++) {
-							pot = m.sd(1.0);
-							if (i % 10 == 0)
-								getView().repaint();
-						}
+						pot = m.minimize(GradientMinimizer.LBFGS, 50, 1.0, GradientMinimizer.DEFAULT_TOLERANCE,
+								new GradientMinimizer.Listener() {
+								public boolean iterationDone(int iteration, double energy, double rmsGradient) {
+									if (iteration % 10 == 0)
+										getView().repaint();
+									return true;
+								}
+							});
 						return new Double(pot);
 					}
 
@@ -2468,6 +2644,7 @@ public abstract class MDModel implements Model, ParameterChangeListener {
 
 	void prepareToRead() {
 		isLoading.set(true);
+		movieSaved = false;
 		stopImmediately();
 		blockView(true);
 		if (monitor == null)
@@ -2657,6 +2834,8 @@ public abstract class MDModel implements Model, ParameterChangeListener {
 			if (in != null) {
 				try {
 					decode(in);
+					if (file != null)
+						loadMovie(file);
 				} catch (Exception e) {
 					EventQueue.invokeLater(new Runnable() {
 						public void run() {
@@ -2713,6 +2892,7 @@ public abstract class MDModel implements Model, ParameterChangeListener {
 		private boolean reminderEnabled;
 		private String reminderMessage;
 		private String script;
+		private boolean movieSaved;
 
 		public State() {
 			obstacles = new ArrayList<RectangularObstacle.Delegate>();
@@ -2723,6 +2903,14 @@ public abstract class MDModel implements Model, ParameterChangeListener {
 			script = s;
 		}
 
+		public void setMovieSaved(boolean b) {
+			movieSaved = b;
+		}
+
+		public boolean getMovieSaved() {
+			return movieSaved;
+		}
+
 		public String getScript() {
 			return script;
 		}
@@ -26,16 +26,20 @@ import java.awt.EventQueue;
 import java.awt.Shape;
 import java.beans.XMLDecoder;
 import java.beans.XMLEncoder;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import javax.swing.JComponent;
 import javax.swing.JOptionPane;
 
 import org.concord.modeler.draw.FillMode;
 import org.concord.modeler.event.ModelEvent;
+import org.concord.modeler.process.JobProfiler;
 import org.concord.modeler.process.Loadable;
+import org.concord.modeler.process.WorkerPool;
 import org.concord.modeler.util.DataQueue;
 import org.concord.modeler.util.FloatQueue;
 import org.concord.mw2d.MDView;
@@ -44,8 +48,14 @@ import org.concord.mw2d.event.ParameterChangeEvent;
 
 public class MesoModel extends MDModel {
 
-	/* Maximum number of mesogens allowed in a meso model (100). */
-	private static final short NMAX = 100;
+	/*
+	 * Maximum number of mesogens allowed in a meso model (2000). The pairwise forces are computed from a neighbor list
+	 * built with cells, so the cost grows linearly with the number of mesogens. The neighbor list grows as needed.
+	 */
+	private static final short NMAX = 2000;
+
+	/* The thickness of the buffer zone of the neighbor list, relative to the cutoff. */
+	private static final double LIST_SKIN = 0.2;
 
 	MesoView view;
 	GayBerneParticle[] gb;
@@ -58,7 +68,29 @@ public class MesoModel extends MDModel {
 	private volatile double dt = 1.0;
 	private double dt2 = dt * dt * 0.5;
 	private double nu = 1.0, mu = 2.0;
-	private double fxij, fyij, x_ij, y_ij, r_ij;
+
+	/* the neighbor list of the Gay-Berne interactions, and the conditions under which it was built */
+	private boolean updateList = true;
+	private int[] pointer, neighborList;
+	private double[] rx0, ry0;
+	private double listCutOff;
+	private int listCount, listBoundaryType;
+	private double listWidth, listHeight;
+	private CellList cellList;
+	private int[] adjacentCells = new int[9];
+
+	/* the sorted indices of the charged or dipolar particles, which interact with each other regardless of the cutoff */
+	private int[] polar;
+	private int[] polarRank;
+	private boolean[] isPolar;
+	private int polarCount;
+
+	private boolean parallelForceEnabled;
+	private int forceThreads = WorkerPool.getProcessorCount();
+	private double[][] fxBuffer, fyBuffer, tauBuffer, pairResult;
+	private ElectrostaticForce[] esForces;
+	private int[] blockStart;
+	private List<Callable<Double>> pairTasks;
 
 	public MesoModel() {
 		this(DEFAULT_WIDTH, DEFAULT_HEIGHT, DataQueue.DEFAULT_SIZE);
@@ -145,9 +177,6 @@ public class MesoModel extends MDModel {
 	public void destroy() {
 		super.destroy();
 		for (GayBerneParticle p : gb) {
-			p.initializeRQ(-1);
-			p.initializeVQ(-1);
-			p.initializeAQ(-1);
 			p.initializeThetaQ(-1);
 			p.initializeOmegaQ(-1);
 			p.initializeAlphaQ(-1);
@@ -358,9 +387,6 @@ public class MesoModel extends MDModel {
 			gb[i].vx = data[i + numberOfParticles * 3];
 			gb[i].vy = data[i + numberOfParticles * 4];
 			gb[i].omega = data[i + numberOfParticles * 5];
-			gb[i].moveRPointer(0);
-			gb[i].moveVPointer(0);
-			gb[i].moveAPointer(0);
 			gb[i].moveThetaPointer(0);
 			gb[i].moveOmegaPointer(0);
 			gb[i].moveAlphaPointer(0);
@@ -371,6 +397,7 @@ public class MesoModel extends MDModel {
 		for (FloatQueue q : channelTs)
 			q.setPointer(0);
 		modelTimeQueue.setPointer(0);
+		tape.setPointer(0);
 		if (heatBathActivated()) {
 			heatBath.setExpectedTemperature(stateHolder.getHeatBathTemperature());
 		}
@@ -381,9 +408,7 @@ public class MesoModel extends MDModel {
 
 	void record() {
 		super.record();
-		updateAllRQ();
-		updateAllVQ();
-		updateAllAQ();
+		tape.record(gb, numberOfParticles);
 		updateAllThetaQ();
 		updateAllOmegaQ();
 		updateAllAlphaQ();
@@ -393,11 +418,9 @@ public class MesoModel extends MDModel {
 		if (!hasEmbeddedMovie())
 			throw new RuntimeException("Cannot set pointer because there is no tape");
 		modelTimeQueue.setPointer(n);
+		tape.setPointer(n);
 		for (int i = 0; i < numberOfParticles; i++) {
 			GayBerneParticle p = gb[i];
-			p.moveRPointer(n);
-			p.moveVPointer(n);
-			p.moveAPointer(n);
 			p.moveThetaPointer(n);
 			p.moveOmegaPointer(n);
 			p.moveAlphaPointer(n);
@@ -414,11 +437,9 @@ public class MesoModel extends MDModel {
 		kine.setLength(n);
 		pote.setLength(n);
 		tote.setLength(n);
+		tape.allocate(n, numberOfParticles);
 		for (int i = 0; i < numberOfParticles; i++) {
 			GayBerneParticle p = gb[i];
-			p.initializeRQ(n);
-			p.initializeVQ(n);
-			p.initializeAQ(n);
 			p.initializeThetaQ(n);
 			p.initializeOmegaQ(n);
 			p.initializeAlphaQ(n);
@@ -449,57 +470,27 @@ public class MesoModel extends MDModel {
 		setRecorderDisabled(!b);
 	}
 
+	List<FloatQueue> getMovieSeries() {
+		List<FloatQueue> list = super.getMovieSeries();
+		for (int i = 0; i < numberOfParticles; i++) {
+			GayBerneParticle p = gb[i];
+			list.add(p.thetaQ);
+			list.add(p.omegaQ);
+			list.add(p.alphaQ);
+		}
+		return list;
+	}
+
 	public boolean hasEmbeddedMovie() {
 		if (numberOfParticles <= 0 || getTapePointer() <= 0)
 			return false;
-		if (gb[0].rQ == null || gb[0].rQ.isEmpty())
+		if (!gb[0].isOnTape())
 			return false;
 		return true;
 	}
 
 	public void setUpdateList(boolean b) {
-	}
-
-	public void checkNeighborList() {
-	}
-
-	private void updateAllRQ() {
-		int c = movie.getCapacity();
-		for (int i = 0; i < numberOfParticles; i++) {
-			try {
-				gb[i].updateRQ();
-			}
-			catch (Exception e) {
-				gb[i].initializeRQ(c);
-				gb[i].updateRQ();
-			}
-		}
-	}
-
-	private void updateAllVQ() {
-		int c = movie.getCapacity();
-		for (int i = 0; i < numberOfParticles; i++) {
-			try {
-				gb[i].updateVQ();
-			}
-			catch (Exception e) {
-				gb[i].initializeVQ(c);
-				gb[i].updateVQ();
-			}
-		}
-	}
-
-	private void updateAllAQ() {
-		int c = movie.getCapacity();
-		for (int i = 0; i < numberOfParticles; i++) {
-			try {
-				gb[i].updateAQ();
-			}
-			catch (Exception e) {
-				gb[i].initializeAQ(c);
-				gb[i].updateAQ();
-			}
-		}
+		updateList = b;
 	}
 
 	private void updateAllThetaQ() {
@@ -639,6 +630,30 @@ public class MesoModel extends MDModel {
 		return (int) rCutOff;
 	}
 
+	/**
+	 * If set true, the pairwise forces will be computed on multiple threads. Each thread accumulates forces and torques
+	 * into its own buffers, and the buffers are summed up in a fixed order, so the results do not depend on thread
+	 * scheduling. With one thread, the results are exactly the same as those of the serial computation.
+	 */
+	public void setParallelForceEnabled(boolean b) {
+		parallelForceEnabled = b;
+	}
+
+	public boolean isParallelForceEnabled() {
+		return parallelForceEnabled;
+	}
+
+	/** set the number of threads used to compute the pairwise forces in parallel. The default is the number of processors. */
+	public void setForceThreads(int n) {
+		if (n < 1)
+			throw new IllegalArgumentException("number of threads must be at least 1");
+		forceThreads = n;
+	}
+
+	public int getForceThreads() {
+		return forceThreads;
+	}
+
 	public synchronized void setFriction(float friction) {
 		for (int i = 0; i < numberOfParticles; i++)
 			gb[i].setFriction(friction);
@@ -650,6 +665,7 @@ public class MesoModel extends MDModel {
 
 	public synchronized void setNumberOfParticles(int n) {
 		numberOfParticles = n;
+		updateList = true;
 		view.notifyNOPChange();
 	}
 
@@ -850,8 +866,11 @@ public class MesoModel extends MDModel {
 				return;
 		}
 		predictor();
+		long t = profiler.begin();
 		pot = computeForce(time);
+		t = profiler.lap(JobProfiler.FORCE, t);
 		corrector();
+		profiler.end(JobProfiler.CORRECTOR, t);
 	}
 
 	/* TODO: */
@@ -965,9 +984,12 @@ public class MesoModel extends MDModel {
 	}
 
 	synchronized void predictor() {
+		long t = profiler.begin();
 		for (int i = 0; i < numberOfParticles; i++)
 			gb[i].predict(dt, dt2);
+		t = profiler.lap(JobProfiler.PREDICTOR, t);
 		putGBsInBounds();
+		profiler.end(JobProfiler.BOUNDARY, t);
 	}
 
 	synchronized void corrector() {
@@ -1084,54 +1106,12 @@ public class MesoModel extends MDModel {
 
 		}
 
-		for (int i = 0; i < numberOfParticles - 1; i++) {
-			for (int j = i + 1; j < numberOfParticles; j++) {
-				x_ij = gb[i].rx - gb[j].rx;
-				y_ij = gb[i].ry - gb[j].ry;
-				// apply the minimum image convention
-				if (boundary.getType() == RectangularBoundary.PBC_ID) {
-					if (x_ij > boundary.width * 0.5) {
-						x_ij -= boundary.width;
-					}
-					if (x_ij <= -boundary.width * 0.5) {
-						x_ij += boundary.width;
-					}
-					if (y_ij > boundary.height * 0.5) {
-						y_ij -= boundary.height;
-					}
-					if (y_ij <= -boundary.height * 0.5) {
-						y_ij += boundary.height;
-					}
-				}
-				r_ij = Math.hypot(x_ij, y_ij);
-				if (r_ij <= rCutOff) {
-					gbForce.checkin(gb[i], gb[j], x_ij, y_ij, r_ij);
-					etemp = gbForce.energy();
-					vsum += etemp;
-					gb[i].tau -= gbForce.torque_i();
-					gb[j].tau -= gbForce.torque_j();
-					fxij = gbForce.fx_i();
-					fyij = gbForce.fy_i();
-					gb[i].fx -= fxij;
-					gb[i].fy -= fyij;
-					gb[j].fx += fxij;
-					gb[j].fy += fyij;
-				}
-				if ((Math.abs(gb[i].dipoleMoment) > Particle.ZERO || Math.abs(gb[i].charge) > Particle.ZERO)
-						&& (Math.abs(gb[j].dipoleMoment) > Particle.ZERO || Math.abs(gb[j].charge) > Particle.ZERO)) {
-					esForce.checkin(universe, gb[i], gb[j], x_ij, y_ij, r_ij);
-					etemp = esForce.energy();
-					vsum += etemp;
-					gb[i].tau -= esForce.torque_i();
-					gb[j].tau -= esForce.torque_j();
-					fxij = esForce.fx_i();
-					fyij = esForce.fy_i();
-					gb[i].fx -= fxij;
-					gb[i].fy -= fyij;
-					gb[j].fx += fxij;
-					gb[j].fy += fyij;
-				}
-			}
+		if (numberOfParticles > 1) {
+			checkNeighborList();
+			if (updateList)
+				updateNeighborList();
+			findPolarParticles();
+			vsum = computePairForces();
 		}
 
 		double inverseMass = 1.0;
@@ -1210,6 +1190,287 @@ public class MesoModel extends MDModel {
 
 	}
 
+	/*
+	 * split the particles into contiguous blocks of about equal work and compute the pairwise forces of each block into
+	 * its own buffers, on the worker threads if parallel computation is enabled. The buffers are added in the order of
+	 * the blocks, so that a single block reproduces the serial computation bit for bit.
+	 */
+	private double computePairForces() {
+
+		int n = numberOfParticles;
+		int m = n - 1;
+		int nt = parallelForceEnabled ? Math.min(forceThreads, m) : 1;
+
+		if (fxBuffer == null || fxBuffer.length < nt) {
+			fxBuffer = new double[nt][gb.length];
+			fyBuffer = new double[nt][gb.length];
+			tauBuffer = new double[nt][gb.length];
+			pairResult = new double[nt][5];
+			esForces = new ElectrostaticForce[nt];
+			esForces[0] = esForce;
+			for (int t = 1; t < nt; t++)
+				esForces[t] = new ElectrostaticForce();
+		}
+		for (int t = 0; t < nt; t++) {
+			Arrays.fill(fxBuffer[t], 0, n, 0);
+			Arrays.fill(fyBuffer[t], 0, n, 0);
+			Arrays.fill(tauBuffer[t], 0, n, 0);
+		}
+
+		double vsum;
+		if (nt > 1) {
+			// the work of a particle is the number of its neighbors and polar partners after it
+			long total = 0;
+			for (int i = 0; i < m; i++)
+				total += getPairWork(i);
+			if (pairTasks == null || pairTasks.size() != nt)
+				createPairTasks(nt);
+			long work = 0;
+			int i = 0;
+			for (int t = 0; t < nt; t++) {
+				long target = total * (t + 1) / nt;
+				while (i < m && (work < target || t == nt - 1)) {
+					work += getPairWork(i);
+					i++;
+				}
+				blockStart[t + 1] = i;
+			}
+			List<Double> partials = WorkerPool.invoke(pairTasks);
+			vsum = partials.get(0);
+			for (int t = 1; t < nt; t++)
+				vsum += partials.get(t);
+		}
+		else {
+			vsum = computePairForces(0, m, fxBuffer[0], fyBuffer[0], tauBuffer[0], esForce, pairResult[0]);
+		}
+
+		for (int i = 0; i < n; i++) {
+			GayBerneParticle p = gb[i];
+			p.fx = fxBuffer[0][i];
+			p.fy = fyBuffer[0][i];
+			p.tau = tauBuffer[0][i];
+			for (int t = 1; t < nt; t++) {
+				p.fx += fxBuffer[t][i];
+				p.fy += fyBuffer[t][i];
+				p.tau += tauBuffer[t][i];
+			}
+		}
+
+		return vsum;
+
+	}
+
+	/* the tasks are created once for a number of threads, and compute the blocks between the current block starts */
+	private void createPairTasks(int nt) {
+		blockStart = new int[nt + 1];
+		pairTasks = new ArrayList<Callable<Double>>(nt);
+		for (int t = 0; t < nt; t++) {
+			final int k = t;
+			pairTasks.add(new Callable<Double>() {
+				public Double call() {
+					return computePairForces(blockStart[k], blockStart[k + 1], fxBuffer[k], fyBuffer[k], tauBuffer[k],
+							esForces[k], pairResult[k]);
+				}
+			});
+		}
+	}
+
+	private int getPairWork(int i) {
+		return pointer[i + 1] - pointer[i] + (isPolar[i] ? polarCount - polarRank[i] : 0) + 1;
+	}
+
+	/*
+	 * compute the interactions of the particles from beg to end with the particles after them. The partners of a
+	 * particle are its neighbors merged with the polar particles after it, in ascending order, so that the forces are
+	 * accumulated in the same order as the plain pairwise loop. The Gay-Berne interaction is cut off, but the
+	 * electrostatic interaction between two polar particles is not.
+	 */
+	private double computePairForces(int beg, int end, double[] fx, double[] fy, double[] tau, ElectrostaticForce es,
+			double[] result) {
+
+		boolean pbc = boundary.getType() == RectangularBoundary.PBC_ID;
+		double width = boundary.width, height = boundary.height;
+		double vsum = 0.0;
+		double x_ij, y_ij, r_ij, fxij, fyij;
+		int j, k, kend, l;
+
+		for (int i = beg; i < end; i++) {
+			k = pointer[i];
+			kend = pointer[i + 1];
+			l = isPolar[i] ? polarRank[i] : polarCount;
+			while (k < kend || l < polarCount) {
+				if (l >= polarCount || (k < kend && neighborList[k] < polar[l])) {
+					j = neighborList[k++];
+				}
+				else if (k >= kend || polar[l] < neighborList[k]) {
+					j = polar[l++];
+				}
+				else {
+					j = neighborList[k++];
+					l++;
+				}
+				x_ij = gb[i].rx - gb[j].rx;
+				y_ij = gb[i].ry - gb[j].ry;
+				// apply the minimum image convention
+				if (pbc) {
+					if (x_ij > width * 0.5) {
+						x_ij -= width;
+					}
+					if (x_ij <= -width * 0.5) {
+						x_ij += width;
+					}
+					if (y_ij > height * 0.5) {
+						y_ij -= height;
+					}
+					if (y_ij <= -height * 0.5) {
+						y_ij += height;
+					}
+				}
+				r_ij = Math.hypot(x_ij, y_ij);
+				if (r_ij <= rCutOff) {
+					gbForce.compute(gb[i], gb[j], x_ij, y_ij, r_ij, result);
+					vsum += result[0];
+					tau[i] -= result[1];
+					tau[j] -= result[2];
+					fxij = result[3];
+					fyij = result[4];
+					fx[i] -= fxij;
+					fy[i] -= fyij;
+					fx[j] += fxij;
+					fy[j] += fyij;
+				}
+				if (isPolar[i] && isPolar[j]) {
+					es.checkin(universe, gb[i], gb[j], x_ij, y_ij, r_ij);
+					vsum += es.energy();
+					tau[i] -= es.torque_i();
+					tau[j] -= es.torque_j();
+					fxij = es.fx_i();
+					fyij = es.fy_i();
+					fx[i] -= fxij;
+					fy[i] -= fyij;
+					fx[j] += fxij;
+					fy[j] += fyij;
+				}
+			}
+		}
+
+		return vsum;
+
+	}
+
+	/* find the particles that carry a charge or a dipole moment */
+	private void findPolarParticles() {
+		if (polar == null) {
+			polar = new int[gb.length];
+			polarRank = new int[gb.length];
+			isPolar = new boolean[gb.length];
+		}
+		polarCount = 0;
+		for (int i = 0; i < numberOfParticles; i++) {
+			isPolar[i] = Math.abs(gb[i].dipoleMoment) > Particle.ZERO || Math.abs(gb[i].charge) > Particle.ZERO;
+			if (isPolar[i])
+				polar[polarCount++] = i;
+			polarRank[i] = polarCount;
+		}
+	}
+
+	/*
+	 * determine whether or not the neighbor list should be updated: it should if the particles, the cutoff or the box
+	 * have changed since it was built, or if two particles might have moved through the buffer zone towards each other.
+	 */
+	public void checkNeighborList() {
+		if (updateList)
+			return;
+		if (listCount != numberOfParticles || listCutOff != rCutOff || listBoundaryType != boundary.getType()
+				|| listWidth != boundary.width || listHeight != boundary.height) {
+			updateList = true;
+			return;
+		}
+		double dx, dy, d2, d2max = 0.0;
+		for (int i = 0; i < numberOfParticles; i++) {
+			dx = gb[i].rx - rx0[i];
+			dy = gb[i].ry - ry0[i];
+			d2 = dx * dx + dy * dy;
+			if (d2 > d2max)
+				d2max = d2;
+		}
+		updateList = 2.0 * Math.sqrt(d2max) > rCutOff * LIST_SKIN;
+	}
+
+	/*
+	 * rebuild the neighbor list by binning the particles into cells no smaller than the list radius, so that only the
+	 * particles in adjacent cells have to be checked. The neighbors of each particle are sorted in ascending order.
+	 */
+	private void updateNeighborList() {
+
+		int n = numberOfParticles;
+		if (pointer == null) {
+			pointer = new int[gb.length + 1];
+			neighborList = new int[Math.max(16, 8 * gb.length)];
+			rx0 = new double[gb.length];
+			ry0 = new double[gb.length];
+		}
+		for (int i = 0; i < n; i++) {
+			rx0[i] = gb[i].rx;
+			ry0[i] = gb[i].ry;
+		}
+
+		// only the fully periodic boundary applies the minimum image convention in computeForce
+		int type = boundary.getType();
+		boolean pbc = type == RectangularBoundary.PBC_ID;
+		double rList = rCutOff * (1.0 + LIST_SKIN);
+		double rList2 = rList * rList;
+		double width = boundary.width, height = boundary.height;
+		if (cellList == null)
+			cellList = new CellList();
+		cellList.bin(boundary, pbc ? type : RectangularBoundary.DBC_ID, rList, rx0, ry0, n);
+
+		int nlist = 0;
+		int ncell;
+		double x, y;
+		for (int i = 0; i < n; i++) {
+			pointer[i] = nlist;
+			ncell = cellList.getAdjacentCells(cellList.getCellOf(i), adjacentCells);
+			for (int c = 0; c < ncell; c++) {
+				for (int j = cellList.getFirst(adjacentCells[c]); j >= 0; j = cellList.getNext(j)) {
+					if (j <= i)
+						continue;
+					x = rx0[i] - rx0[j];
+					y = ry0[i] - ry0[j];
+					if (pbc) {
+						if (x > width * 0.5)
+							x -= width;
+						if (x <= -width * 0.5)
+							x += width;
+						if (y > height * 0.5)
+							y -= height;
+						if (y <= -height * 0.5)
+							y += height;
+					}
+					if (x * x + y * y <= rList2) {
+						if (nlist == neighborList.length) {
+							int[] t = new int[2 * nlist];
+							System.arraycopy(neighborList, 0, t, 0, nlist);
+							neighborList = t;
+						}
+						neighborList[nlist++] = j;
+					}
+				}
+			}
+			if (nlist - pointer[i] > 1)
+				Arrays.sort(neighborList, pointer[i], nlist);
+		}
+		pointer[n] = nlist;
+
+		listCount = n;
+		listCutOff = rCutOff;
+		listBoundaryType = type;
+		listWidth = width;
+		listHeight = height;
+		updateList = false;
+
+	}
+
 	synchronized void rescaleVelocities(double ratio) {
 		for (int i = 0; i < numberOfParticles; i++) {
 			gb[i].vx *= ratio;
@@ -1249,6 +1510,8 @@ public class MesoModel extends MDModel {
 			q.clear();
 		Arrays.fill(channels, 0);
 		movieUpdater.setInterval(state.getFrameInterval());
+		setMovieSaved(state.getMovieSaved());
+		setParallelForceEnabled(state.isParallelForceEnabled());
 		paintView.setInterval(state.getViewRefreshInterval());
 		if (heatBath != null)
 			heatBath.destroy();
@@ -1402,6 +1665,8 @@ public class MesoModel extends MDModel {
 		state.setFields(fields);
 		state.setNumberOfParticles(numberOfParticles);
 		state.setFrameInterval(movieUpdater.getInterval());
+		state.setMovieSaved(isMovieSaved());
+		state.setParallelForceEnabled(parallelForceEnabled);
 		state.setViewRefreshInterval(paintView.getInterval());
 		state.setTimeStep(getTimeStep());
 		state.setScript(initializationScript);
@@ -1447,14 +1712,9 @@ public class MesoModel extends MDModel {
 			throw new IllegalArgumentException("Frame " + frame + " does not exist");
 		view.showFrameOfImages(frame);
 		modelTime = modelTimeQueue.getData(frame);
+		tape.load(frame, gb, numberOfParticles);
 		for (int i = 0; i < numberOfParticles; i++) {
 			GayBerneParticle p = gb[i];
-			p.rx = p.rQ.getQueue1().getData(frame);
-			p.ry = p.rQ.getQueue2().getData(frame);
-			p.vx = p.vQ.getQueue1().getData(frame);
-			p.vy = p.vQ.getQueue2().getData(frame);
-			p.ax = p.aQ.getQueue1().getData(frame);
-			p.ay = p.aQ.getQueue2().getData(frame);
 			p.fx = p.ax * p.mass;
 			p.fy = p.ay * p.mass;
 			p.theta = p.thetaQ.getData(frame);
@@ -1465,9 +1725,21 @@ public class MesoModel extends MDModel {
 	}
 
 	public static class State extends MDModel.State {
+
+		private boolean parallelForceEnabled;
+
 		public State() {
 			super();
 		}
+
+		public void setParallelForceEnabled(boolean b) {
+			parallelForceEnabled = b;
+		}
+
+		public boolean isParallelForceEnabled() {
+			return parallelForceEnabled;
+		}
+
 	}
 
 }
\ No newline at end of file
@@ -20,6 +20,9 @@
 
 package org.concord.mw2d.models;
 
+import org.concord.modeler.math.EnergyFunction;
+import org.concord.modeler.math.GradientMinimizer;
+
 /**
  * Energy minimization is a commonly used method in molecular modeling and simulation. It is based on the point that a
  * conformation of lower energy has better stability against thermal perturbations, searching an energy minimum can
@@ -31,6 +34,7 @@ public class Minimizer {
 	private MolecularModel model;
 	private static double[] congvxAtLastStep, congvyAtLastStep;
 	private double modeGradientAtLastStep = 1.0;
+	private GradientMinimizer gradientMinimizer;
 
 	public Minimizer(MolecularModel model) {
 		this.model = model;
@@ -118,4 +122,77 @@ public class Minimizer {
 		return potential;
 	}
 
+	/**
+	 * Minimize the potential energy with a line search in each iteration. Only the movable atoms are moved. This
+	 * converges in far fewer steps than the fixed-steplength methods.
+	 * 
+	 * @param method
+	 *            <code>GradientMinimizer.STEEPEST_DESCENT</code>, <code>GradientMinimizer.CONJUGATE_GRADIENT</code>
+	 *            or <code>GradientMinimizer.LBFGS</code>
+	 * @param maxIterations
+	 *            the maximum number of iterations
+	 * @param delta
+	 *            the maximum displacement of a coordinate in the first trial of a line search
+	 * @param tolerance
+	 *            the root mean square of the gradient (in eV/&#197;) below which the minimization stops
+	 * @param listener
+	 *            the callback notified after each iteration, or null
+	 * @return the potential energy after minimization
+	 */
+	public double minimize(byte method, int maxIterations, double delta, double tolerance,
+			GradientMinimizer.Listener listener) {
+		int n = model.getNumberOfAtoms();
+		if (n <= 1)
+			return -1.0;
+		final int[] movable = new int[n];
+		int m = 0;
+		for (int i = 0; i < n; i++) {
+			if (model.atom[i].isMovable())
+				movable[m++] = i;
+		}
+		final int nm = m;
+		double[] x = new double[2 * nm];
+		for (int k = 0; k < nm; k++) {
+			x[2 * k] = model.atom[movable[k]].rx;
+			x[2 * k + 1] = model.atom[movable[k]].ry;
+		}
+		if (gradientMinimizer == null)
+			gradientMinimizer = new GradientMinimizer();
+		gradientMinimizer.setMethod(method);
+		gradientMinimizer.setMaximumIterations(maxIterations);
+		gradientMinimizer.setMaximumStep(delta);
+		gradientMinimizer.setTolerance(tolerance);
+		gradientMinimizer.setListener(listener);
+		gradientMinimizer.minimize(new EnergyFunction() {
+			public double compute(double[] x, double[] gradient) {
+				Atom a;
+				for (int k = 0; k < nm; k++) {
+					a = model.atom[movable[k]];
+					a.rx = x[2 * k];
+					a.ry = x[2 * k + 1];
+				}
+				// at a non-negative time the forces are accelerations, including the bonded ones
+				double v = model.computeForce(0) * model.getNumberOfAtoms();
+				for (int k = 0; k < nm; k++) {
+					a = model.atom[movable[k]];
+					gradient[2 * k] = -a.fx * a.mass / MDModel.GF_CONVERSION_CONSTANT;
+					gradient[2 * k + 1] = -a.fy * a.mass / MDModel.GF_CONVERSION_CONSTANT;
+				}
+				return v;
+			}
+		}, x);
+		for (int k = 0; k < nm; k++) {
+			model.atom[movable[k]].rx = x[2 * k];
+			model.atom[movable[k]].ry = x[2 * k + 1];
+		}
+		model.putInBounds();
+		return model.computeForce(-1);
+	}
+
+	/** stop the minimization started by <code>minimize</code>. This can be called from another thread. */
+	public void stop() {
+		if (gradientMinimizer != null)
+			gradientMinimizer.stop();
+	}
+
 }
\ No newline at end of file
@@ -411,36 +411,22 @@ public class MolecularModel extends AtomicModel {
 				|| (iID == ID_A && jID == ID_U) || (iID == ID_U && jID == ID_A);
 	}
 
-	private void resetBondTable() {
-		int n = bondTable.length;
-		for (int i = 0; i < n; i++) {
-			for (int j = i + 1; j < n; j++) {
-				bondTable[i][j] = false;
-				bondTable[j][i] = false;
-			}
-			bondTable[i][i] = false;
-		}
-	}
-
 	void updateBondTable() {
 		if (this instanceof ReactionModel)
 			return;
 		if (ljBetweenBondPairs)
 			return;
-		resetBondTable();
+		bondExclusions.clear();
 		if (bonds.isEmpty())
 			return;
 		RadialBond rb;
-		int i1, i2;
 		synchronized (bonds.getSynchronizationLock()) {
 			for (Iterator it = bonds.iterator(); it.hasNext();) {
 				rb = (RadialBond) it.next();
-				i1 = rb.getAtom1().getIndex();
-				i2 = rb.getAtom2().getIndex();
-				bondTable[i1][i2] = true;
-				bondTable[i2][i1] = true;
+				bondExclusions.add(rb.getAtom1().getIndex(), rb.getAtom2().getIndex());
 			}
 		}
+		bondExclusions.build(numberOfAtoms);
 	}
 
 	boolean needMinimization() {
@@ -768,7 +754,7 @@ public class MolecularModel extends AtomicModel {
 
 	public void clear() {
 		super.clear();
-		resetBondTable();
+		bondExclusions.clear();
 		destroyBonds();
 		setSolvent(null);
 		if (vdwLines != null && !vdwLines.isEmpty())
@@ -92,6 +92,7 @@ class Mvd {
 		else if ("y".equalsIgnoreCase(p.direction))
 			option = Y_ONLY;
 		boolean doAreaDetection = !p.area.equals(model.boundary);
+		TrajectoryTape tape = model.tape;
 		if (p.scalar) {
 			delta = p.bound / nslice;
 			float invDelta = 1.0f / delta;
@@ -99,14 +100,14 @@ class Mvd {
 				if (model.atom[i].getID() == p.element) {
 					for (int k = 0; k < m; k++) {
 						if (doAreaDetection) {
-							rx = model.atom[i].getRxRyQueue().getQueue1().getData(k);
-							ry = model.atom[i].getRxRyQueue().getQueue2().getData(k);
+							rx = tape.get(TrajectoryTape.RX, k, i);
+							ry = tape.get(TrajectoryTape.RY, k, i);
 							if (!p.area.contains(rx, ry))
 								continue;
 						}
 						switch (option) {
 						case X_ONLY:
-							vx = Math.abs(10000 * model.atom[i].getVxVyQueue().getQueue1().getData(k));
+							vx = Math.abs(10000 * tape.get(TrajectoryTape.VX, k, i));
 							if (vx < p.bound) {
 								int a = Math.round(vx * invDelta);
 								if (a >= 0 && a < mvd.length)
@@ -114,7 +115,7 @@ class Mvd {
 							}
 							break;
 						case Y_ONLY:
-							vy = Math.abs(10000 * model.atom[i].getVxVyQueue().getQueue2().getData(k));
+							vy = Math.abs(10000 * tape.get(TrajectoryTape.VY, k, i));
 							if (vy < p.bound) {
 								int a = Math.round(vy * invDelta);
 								if (a >= 0 && a < mvd.length)
@@ -122,8 +123,8 @@ class Mvd {
 							}
 							break;
 						case XY_BOTH:
-							vx = model.atom[i].getVxVyQueue().getQueue1().getData(k);
-							vy = model.atom[i].getVxVyQueue().getQueue2().getData(k);
+							vx = tape.get(TrajectoryTape.VX, k, i);
+							vy = tape.get(TrajectoryTape.VY, k, i);
 							vx = 10000 * (float) Math.hypot(vx, vy);
 							if (vx < p.bound) {
 								int a = Math.round(vx * invDelta);
@@ -143,14 +144,14 @@ class Mvd {
 				if (model.atom[i].getID() == p.element) {
 					for (int k = 0; k < m; k++) {
 						if (doAreaDetection) {
-							rx = model.atom[i].getRxRyQueue().getQueue1().getData(k);
-							ry = model.atom[i].getRxRyQueue().getQueue2().getData(k);
+							rx = tape.get(TrajectoryTape.RX, k, i);
+							ry = tape.get(TrajectoryTape.RY, k, i);
 							if (!p.area.contains(rx, ry))
 								continue;
 						}
 						switch (option) {
 						case X_ONLY:
-							vx = 10000 * model.atom[i].getVxVyQueue().getQueue1().getData(k);
+							vx = 10000 * tape.get(TrajectoryTape.VX, k, i);
 							if (vx < p.bound && vx > -p.bound) {
 								int a = Math.round(vx * invDelta + 0.5f * nslice);
 								if (a >= 0 && a < mvd.length)
@@ -158,7 +159,7 @@ class Mvd {
 							}
 							break;
 						case Y_ONLY:
-							vy = 10000 * model.atom[i].getVxVyQueue().getQueue2().getData(k);
+							vy = 10000 * tape.get(TrajectoryTape.VY, k, i);
 							if (vy < p.bound && vy > -p.bound) {
 								int a = Math.round(vy * invDelta + 0.5f * nslice);
 								if (a >= 0 && a < mvd.length)
@@ -166,8 +167,8 @@ class Mvd {
 							}
 							break;
 						case XY_BOTH:
-							vx = 10000 * model.atom[i].getVxVyQueue().getQueue1().getData(k);
-							vy = 10000 * model.atom[i].getVxVyQueue().getQueue2().getData(k);
+							vx = 10000 * tape.get(TrajectoryTape.VX, k, i);
+							vy = 10000 * tape.get(TrajectoryTape.VY, k, i);
 							if (vx < p.bound && vx > -p.bound) {
 								int a = Math.round(vx * invDelta + 0.5f * nslice);
 								if (a >= 0 && a < mvd.length)
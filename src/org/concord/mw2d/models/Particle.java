@@ -141,15 +141,6 @@ public abstract class Particle implements Comparable, Cloneable, Serializable, M
 	/* the user field exerted on this particle to steer its motion */
 	UserField userField;
 
-	/* store <tt>rx, ry</tt> queues */
-	transient FloatQueueTwin rQ;
-
-	/* store <tt>vx, vy</tt> queues */
-	transient FloatQueueTwin vQ;
-
-	/* store <tt>ax, ay</tt> queues */
-	transient FloatQueueTwin aQ;
-
 	/* true if this particle is selected */
 	transient boolean selected;
 
@@ -216,9 +207,6 @@ public abstract class Particle implements Comparable, Cloneable, Serializable, M
 	}
 
 	public void destroy() {
-		rQ = null;
-		vQ = null;
-		aQ = null;
 		restraint = null;
 		userField = null;
 	}
@@ -830,156 +818,60 @@ public abstract class Particle implements Comparable, Cloneable, Serializable, M
 		return getHostModel().movieUpdater.getInterval();
 	}
 
-	public void initializeMovieQ(int n) {
-		initializeRQ(n);
-		initializeVQ(n);
-		initializeAQ(n);
-	}
-
-	/**
-	 * initialize coordinate queue twin. If the passed integer is less than 1, nullify the queues.
-	 */
-	public void initializeRQ(int n) {
-		if (rQ == null) {
-			if (n < 1)
-				return; // already null
-			rQ = new FloatQueueTwin(new FloatQueue("Rx: " + toString(), n), new FloatQueue("Ry: " + toString(), n));
-			rQ.setInterval(getMovieInterval());
-			rQ.setPointer(0);
-			rQ.setCoordinateQueue(getHostModel().getModelTimeQueue());
-			getHostModel().getMovieQueueGroup().add(rQ);
-		} else {
-			rQ.setLength(n);
-			if (n < 1) {
-				getHostModel().getMovieQueueGroup().remove(rQ);
-				rQ = null;
-			} else {
-				rQ.setPointer(0);
-			}
-		}
-	}
-
-	/**
-	 * initialize velocity queue twin. If the passed integer is less than 1, nullify the array.
-	 */
-	public void initializeVQ(int n) {
-		if (vQ == null) {
-			if (n < 1)
-				return; // already null
-			vQ = new FloatQueueTwin(new FloatQueue("Vx: " + toString(), n), new FloatQueue("Vy: " + toString(), n));
-			vQ.setInterval(getMovieInterval());
-			vQ.setPointer(0);
-			vQ.setCoordinateQueue(getHostModel().getModelTimeQueue());
-			getHostModel().getMovieQueueGroup().add(vQ);
-		} else {
-			vQ.setLength(n);
-			if (n < 1) {
-				getHostModel().getMovieQueueGroup().remove(vQ);
-				vQ = null;
-			} else {
-				vQ.setPointer(0);
-			}
-		}
-	}
-
-	/**
-	 * initialize acceleration queue twin. If the passed integer is less than 1, nullify the array.
-	 */
-	public void initializeAQ(int n) {
-		if (aQ == null) {
-			if (n < 1)
-				return; // already null
-			aQ = new FloatQueueTwin(new FloatQueue("Ax: " + toString(), n), new FloatQueue("Ay: " + toString(), n));
-			aQ.setInterval(getMovieInterval());
-			aQ.setPointer(0);
-			aQ.setCoordinateQueue(getHostModel().getModelTimeQueue());
-			getHostModel().getMovieQueueGroup().add(aQ);
-		} else {
-			aQ.setLength(n);
-			if (n < 1) {
-				getHostModel().getMovieQueueGroup().remove(aQ);
-				aQ = null;
-			} else {
-				aQ.setPointer(0);
-			}
-		}
-	}
-
-	/** push current coordinate into the coordinate queue */
-	public synchronized void updateRQ() {
-		if (rQ == null || rQ.isEmpty())
-			throw new RuntimeException("Attempt to write to the empty queue");
-		rQ.update(rx, ry);
-	}
-
-	/** push current velocity into the velocity queue */
-	public synchronized void updateVQ() {
-		if (vQ == null || vQ.isEmpty())
-			throw new RuntimeException("Attempt to write to the empty queue");
-		vQ.update(vx, vy);
-	}
-
-	/** push current acceleration into the acceleration queue */
-	public synchronized void updateAQ() {
-		if (aQ == null || aQ.isEmpty())
-			throw new RuntimeException("Attempt to write to the empty queue");
-		aQ.update(ax, ay);
-	}
-
 	/**
-	 * When an array is initialized and its elements subsequently filled, it occurs that until the array is full, some of the elements are empty, the pointer points to the begin index of unfilled segment. The pointer will stop at the last index of the array once the whole array is filled up.
+	 * make room for this particle on the trajectory tape of the host model, which holds n frames. The positions,
+	 * velocities and accelerations of all the particles are recorded together on the tape, so nothing is done if the
+	 * passed integer is less than 1: the tape is released by the model.
+	 * 
+	 * @see org.concord.mw2d.models.TrajectoryTape
 	 */
-	public synchronized int getRPointer() {
-		if (rQ == null || rQ.isEmpty())
-			return -1;
-		return rQ.getPointer();
-	}
-
-	/** @see org.concord.mw2d.models.Particle#getRPointer */
-	public synchronized void moveRPointer(int i) {
-		if (rQ == null || rQ.isEmpty())
+	public void initializeMovieQ(int n) {
+		if (n < 1)
 			return;
-		rQ.setPointer(i);
-	}
-
-	/** @see org.concord.mw2d.models.Particle#getRPointer */
-	public synchronized int getVPointer() {
-		if (vQ == null || vQ.isEmpty())
-			return -1;
-		return vQ.getPointer();
-	}
-
-	/** @see org.concord.mw2d.models.Particle#getRPointer */
-	public synchronized void moveVPointer(int i) {
-		if (vQ == null || vQ.isEmpty())
+		MDModel model = getHostModel();
+		if (model == null)
 			return;
-		vQ.setPointer(i);
+		model.tape.setCapacity(n);
+		model.tape.ensureWidth(index + 1);
 	}
 
-	/** @see org.concord.mw2d.models.Particle#getRPointer */
-	public synchronized int getAPointer() {
-		if (aQ == null || aQ.isEmpty())
-			return -1;
-		return aQ.getPointer();
+	/** return true if this particle has been recorded on the trajectory tape */
+	boolean isOnTape() {
+		MDModel model = getHostModel();
+		return model != null && model.tape.getPointer() > 0 && model.tape.hasSlot(index);
 	}
 
-	/** @see org.concord.mw2d.models.Particle#getRPointer */
-	public synchronized void moveAPointer(int i) {
-		if (aQ == null || aQ.isEmpty())
-			return;
-		aQ.setPointer(i);
+	/** return the specified quantity of this particle recorded at the specified frame */
+	float getRecord(byte channel, int frame) {
+		return getHostModel().tape.get(channel, frame, index);
 	}
 
+	/** return a read-only view of the recorded coordinates of this particle, or null if it is not on the tape */
 	public FloatQueueTwin getRxRyQueue() {
-		return rQ;
+		return createQueueTwin(TrajectoryTape.RX, TrajectoryTape.RY, "Rx: ", "Ry: ");
 	}
 
+	/** return a read-only view of the recorded velocities of this particle, or null if it is not on the tape */
 	public FloatQueueTwin getVxVyQueue() {
-		return vQ;
+		return createQueueTwin(TrajectoryTape.VX, TrajectoryTape.VY, "Vx: ", "Vy: ");
 	}
 
+	/** return a read-only view of the recorded accelerations of this particle, or null if it is not on the tape */
 	public FloatQueueTwin getAxAyQueue() {
-		return aQ;
+		return createQueueTwin(TrajectoryTape.AX, TrajectoryTape.AY, "Ax: ", "Ay: ");
+	}
+
+	private FloatQueueTwin createQueueTwin(byte c1, byte c2, String s1, String s2) {
+		MDModel model = getHostModel();
+		if (model == null || !model.tape.hasSlot(index))
+			return null;
+		TrajectoryTape tape = model.tape;
+		FloatQueue q1 = tape.getSeriesQueue(c1, index, s1 + toString());
+		FloatQueue q2 = tape.getSeriesQueue(c2, index, s2 + toString());
+		FloatQueueTwin q = new FloatQueueTwin(q1, q2);
+		q.setInterval(getMovieInterval());
+		q.setCoordinateQueue(model.getModelTimeQueue());
+		return q;
 	}
 
 	public void setShowRTraj(boolean b) {
@@ -995,8 +887,9 @@ public abstract class Particle implements Comparable, Cloneable, Serializable, M
 	void renderRTraj(Graphics2D g) {
 		if (!movable)
 			return;
-		if (rQ == null || rQ.isEmpty())
+		if (!isOnTape())
 			return;
+		TrajectoryTape tape = getHostModel().tape;
 
 		Stroke oldStroke = g.getStroke();
 		Color oldColor = g.getColor();
@@ -1021,12 +914,12 @@ public abstract class Particle implements Comparable, Cloneable, Serializable, M
 		}
 
 		int ibeg = 0;
-		int iend = rQ.getPointer();
-		while (ibeg < iend - 1 && Math.abs(rQ.getQueue1().getData(ibeg) + rQ.getQueue2().getData(ibeg)) < ZERO)
+		int iend = tape.getPointer();
+		while (ibeg < iend - 1 && Math.abs(tape.get(TrajectoryTape.RX, ibeg, index) + tape.get(TrajectoryTape.RY, ibeg, index)) < ZERO)
 			ibeg++;
 		if (iend > ibeg) {
-			float x = rQ.getQueue1().getData(ibeg);
-			float y = rQ.getQueue2().getData(ibeg);
+			float x = tape.get(TrajectoryTape.RX, ibeg, index);
+			float y = tape.get(TrajectoryTape.RY, ibeg, index);
 			switch (getView().getTrajectoryStyle()) {
 			case StyleConstant.TRAJECTORY_LINE_STYLE:
 				lineUp.moveTo(x, y);
@@ -1042,8 +935,8 @@ public abstract class Particle implements Comparable, Cloneable, Serializable, M
 				break;
 			}
 			for (int n = ibeg; n < iend; n++) {
-				x = rQ.getQueue1().getData(n);
-				y = rQ.getQueue2().getData(n);
+				x = tape.get(TrajectoryTape.RX, n, index);
+				y = tape.get(TrajectoryTape.RY, n, index);
 				switch (getView().getTrajectoryStyle()) {
 				case StyleConstant.TRAJECTORY_LINE_STYLE:
 					if (lineUp != null) // in case lineUp has been nullified in the middle of this loop
@@ -1091,12 +984,13 @@ public abstract class Particle implements Comparable, Cloneable, Serializable, M
 			return;
 		if (!showRMean)
 			return;
-		if (rQ == null || rQ.isEmpty())
+		if (!isOnTape())
 			return;
 		if (outOfView())
 			return;
-		int x = (int) rQ.getQueue1().getAverage();
-		int y = (int) rQ.getQueue2().getAverage();
+		TrajectoryTape tape = getHostModel().tape;
+		int x = (int) tape.getAverage(TrajectoryTape.RX, index);
+		int y = (int) tape.getAverage(TrajectoryTape.RY, index);
 		if (x <= 0 && y <= 0)
 			return;
 		Stroke oldStroke = g.getStroke();
@@ -1125,12 +1019,13 @@ public abstract class Particle implements Comparable, Cloneable, Serializable, M
 	public void renderMeanForce(Graphics2D g) {
 		if (!showFMean)
 			return;
-		if (aQ == null || aQ.isEmpty())
+		if (!isOnTape())
 			return;
 		if (outOfView())
 			return;
-		float x = aQ.getQueue1().getAverage();
-		float y = aQ.getQueue2().getAverage();
+		TrajectoryTape tape = getHostModel().tape;
+		float x = tape.getAverage(TrajectoryTape.AX, index);
+		float y = tape.getAverage(TrajectoryTape.AY, index);
 		if (Math.abs(x) <= ZERO && Math.abs(y) <= ZERO)
 			return;
 		g.setColor(getView().getBackground());
@@ -25,6 +25,11 @@ import java.awt.Color;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
 import javax.swing.JComponent;
 import javax.swing.JDialog;
 import javax.swing.JOptionPane;
@@ -34,6 +39,7 @@ import org.concord.modeler.g2d.Curve;
 import org.concord.modeler.g2d.CurveFlavor;
 import org.concord.modeler.g2d.Legend;
 import org.concord.modeler.g2d.XYGrapher;
+import org.concord.modeler.process.WorkerPool;
 import org.concord.modeler.util.SwingWorker;
 
 /**
@@ -47,6 +53,9 @@ import org.concord.modeler.util.SwingWorker;
 
 class Pcf {
 
+	/* the minimum number of frames worth sending to another thread */
+	private final static int MIN_FRAMES_PER_TASK = 8;
+
 	private AtomicModel model;
 	private short nslice = 100;
 
@@ -82,180 +91,203 @@ class Pcf {
 		int m = model.getTapePointer();
 		if (m <= 0)
 			return null;
-		int n1 = 0, n2 = 0;
-		double rxi, ryi, rxj, ryj, dxij, dyij;
-		boolean doAreaDetection = !parameter.area.equals(model.boundary);
-		if (parameter.element1 != parameter.element2) {
-			for (int i = 0; i < model.numberOfAtoms; i++) {
-				if (model.atom[i].getID() != parameter.element1 && model.atom[i].getID() != parameter.element2)
-					continue;
-				if (doAreaDetection) {
-					for (int k = 0; k < m; k++) {
-						rxi = model.atom[i].getRxRyQueue().getQueue1().getData(k);
-						ryi = model.atom[i].getRxRyQueue().getQueue2().getData(k);
-						if (parameter.area.contains(rxi, ryi)) {
-							if (model.atom[i].getID() == parameter.element1)
-								n1++;
-							else if (model.atom[i].getID() == parameter.element2)
-								n2++;
-						}
-					}
-				}
-				else {
-					if (model.atom[i].getID() == parameter.element1)
-						n1 += m;
-					else if (model.atom[i].getID() == parameter.element2)
-						n2 += m;
-				}
-			}
+		int n = model.numberOfAtoms;
+		/* the atoms of the selected elements: 1 for element1 and 2 for element2 */
+		int[] index = new int[n];
+		byte[] type = new byte[n];
+		int count = 0;
+		for (int i = 0; i < n; i++) {
+			byte id = (byte) model.atom[i].getID();
+			if (id == parameter.element1)
+				type[count] = 1;
+			else if (id == parameter.element2)
+				type[count] = 2;
+			else
+				continue;
+			index[count++] = i;
 		}
-		else {
-			for (int i = 0; i < model.numberOfAtoms; i++) {
-				if (model.atom[i].getID() != parameter.element1)
-					continue;
-				if (doAreaDetection) {
-					for (int k = 0; k < m; k++) {
-						rxi = model.atom[i].getRxRyQueue().getQueue1().getData(k);
-						ryi = model.atom[i].getRxRyQueue().getQueue2().getData(k);
-						if (parameter.area.contains(rxi, ryi))
-							n1++;
-					}
-				}
-				else {
-					n1 += m;
-				}
-			}
-			n2 = n1;
+		if (count == 0)
+			return null;
+		int tasks = Math.max(1, Math.min(WorkerPool.getProcessorCount(), m / MIN_FRAMES_PER_TASK));
+		List<Histogram> list = new ArrayList<Histogram>(tasks);
+		for (int t = 0; t < tasks; t++)
+			list.add(new Histogram(parameter, index, type, count, m * t / tasks, m * (t + 1) / tasks));
+		long[] rdf = new long[nslice];
+		long n1 = 0, n2 = 0;
+		for (Histogram h : WorkerPool.invoke(list)) {
+			for (int i = 0; i < nslice; i++)
+				rdf[i] += h.rdf[i];
+			n1 += h.n1;
+			n2 += h.n2;
 		}
+		if (parameter.element1 == parameter.element2)
+			n2 = n1;
 		if (n1 == 0 || n2 == 0)
 			return null;
 		double slice = (double) parameter.length / (double) nslice;
-		double inverseSlice = 1.0 / slice;
-		double[] rdf = new double[nslice];
-		int ir;
-		double xbox = model.boundary.width;
-		double ybox = model.boundary.height;
-		if (parameter.element1 != parameter.element2) {
-			for (int i = 0; i < model.numberOfAtoms; i++) {
-				for (int j = i + 1; j < model.numberOfAtoms; j++) {
-					if ((model.atom[i].getID() == parameter.element1 && model.atom[j].getID() == parameter.element2)
-							|| (model.atom[i].getID() == parameter.element2 && model.atom[j].getID() == parameter.element1)) {
-						for (int k = 0; k < m; k++) {
-							rxi = model.atom[i].getRxRyQueue().getQueue1().getData(k);
-							ryi = model.atom[i].getRxRyQueue().getQueue2().getData(k);
-							if (doAreaDetection && !parameter.area.contains(rxi, ryi))
-								continue;
-							rxj = model.atom[j].getRxRyQueue().getQueue1().getData(k);
-							ryj = model.atom[j].getRxRyQueue().getQueue2().getData(k);
-							dxij = rxi - rxj;
-							dyij = ryi - ryj;
-							switch (model.boundary.getType()) {
-							case RectangularBoundary.PBC_ID:
-								if (dxij > xbox * 0.5) {
-									dxij -= xbox;
-								}
-								if (dxij <= -xbox * 0.5) {
-									dxij += xbox;
-								}
-								if (dyij > ybox * 0.5) {
-									dyij -= ybox;
-								}
-								if (dyij <= -ybox * 0.5) {
-									dyij += ybox;
-								}
-								break;
-							case RectangularBoundary.XRYPBC_ID:
-								if (dyij > ybox * 0.5) {
-									dyij -= ybox;
-								}
-								if (dyij <= -ybox * 0.5) {
-									dyij += ybox;
-								}
-								break;
-							case RectangularBoundary.XPYRBC_ID:
-								if (dxij > xbox * 0.5) {
-									dxij -= xbox;
-								}
-								if (dxij <= -xbox * 0.5) {
-									dxij += xbox;
-								}
-								break;
-							}
-							ir = (int) (Math.hypot(dxij, dyij) * inverseSlice);
-							if (ir < nslice)
-								rdf[ir]++;
-						}
+		double[] f = new double[nslice + nslice];
+		/* normalize: */
+		double v = parameter.element1 == parameter.element2 ? m * parameter.area.getWidth()
+				* parameter.area.getHeight() / (Math.PI * n1 * n2 * slice * slice) : m * parameter.area.getWidth()
+				* parameter.area.getHeight() / (2 * Math.PI * n1 * n2 * slice * slice);
+		for (int i = 0; i < nslice; i++) {
+			f[i + i] = i * slice * 0.1;
+			f[i + i + 1] = rdf[i] * v / (i + 1);
+		}
+		return f;
+	}
+
+	/*
+	 * Count the pairs of a range of frames. The selected atoms of a frame are binned into cells no smaller than the
+	 * maximum distance, so that only the pairs in adjacent cells are checked. The cells wrap around in the periodic
+	 * directions, in which the minimum image convention is applied as well.
+	 */
+	private class Histogram implements Callable<Histogram> {
+
+		private final Parameter parameter;
+		private final int[] index;
+		private final byte[] type;
+		private final int count;
+		private final int beg, end;
+		final long[] rdf = new long[nslice];
+		long n1, n2;
+
+		Histogram(Parameter parameter, int[] index, byte[] type, int count, int beg, int end) {
+			this.parameter = parameter;
+			this.index = index;
+			this.type = type;
+			this.count = count;
+			this.beg = beg;
+			this.end = end;
+		}
+
+		public Histogram call() {
+			boolean doAreaDetection = !parameter.area.equals(model.boundary);
+			boolean sameElement = parameter.element1 == parameter.element2;
+			double xbox = model.boundary.width;
+			double ybox = model.boundary.height;
+			boolean xpbc = false, ypbc = false;
+			switch (model.boundary.getType()) {
+			case RectangularBoundary.PBC_ID:
+				xpbc = ypbc = true;
+				break;
+			case RectangularBoundary.XRYPBC_ID:
+				ypbc = true;
+				break;
+			case RectangularBoundary.XPYRBC_ID:
+				xpbc = true;
+				break;
+			}
+			// a little slack so that rounding never drops a pair the binning would have counted
+			double range = parameter.length * 1.0001;
+			double range2 = range * range;
+			double inverseSlice = nslice / (double) parameter.length;
+			double x0 = model.boundary.x, y0 = model.boundary.y;
+			int nx = Math.max(1, (int) (xbox / range));
+			int ny = Math.max(1, (int) (ybox / range));
+			while ((long) nx * ny > 4L * count + 16) {
+				nx = Math.max(1, nx / 2);
+				ny = Math.max(1, ny / 2);
+			}
+			// fewer than three cells would make a cell its own neighbor on both sides
+			if (xpbc && nx < 3)
+				nx = 1;
+			if (ypbc && ny < 3)
+				ny = 1;
+			double dx = xbox / nx, dy = ybox / ny;
+			int[] head = new int[nx * ny];
+			int[] next = new int[count];
+			int[] cx = new int[count], cy = new int[count];
+			boolean[] inside = new boolean[count];
+			double[] x = new double[count], y = new double[count];
+			int n = model.numberOfAtoms;
+			float[] rx = new float[n], ry = new float[n];
+			TrajectoryTape tape = model.tape;
+			for (int k = beg; k < end; k++) {
+				tape.getFrame(TrajectoryTape.RX, k, rx, n);
+				tape.getFrame(TrajectoryTape.RY, k, ry, n);
+				Arrays.fill(head, -1);
+				for (int a = count - 1; a >= 0; a--) {
+					x[a] = rx[index[a]];
+					y[a] = ry[index[a]];
+					inside[a] = !doAreaDetection || parameter.area.contains(x[a], y[a]);
+					if (inside[a]) {
+						if (type[a] == 1)
+							n1++;
+						else
+							n2++;
 					}
+					cx[a] = cell(x[a] - x0, dx, nx, xpbc);
+					cy[a] = cell(y[a] - y0, dy, ny, ypbc);
+					int c = cx[a] + nx * cy[a];
+					next[a] = head[c];
+					head[c] = a;
 				}
-			}
-		}
-		else {
-			for (int i = 0; i < model.numberOfAtoms; i++) {
-				if (model.atom[i].getID() == parameter.element1) {
-					for (int j = i + 1; j < model.numberOfAtoms; j++) {
-						if (model.atom[j].getID() == parameter.element2) {
-							for (int k = 0; k < m; k++) {
-								rxi = model.atom[i].getRxRyQueue().getQueue1().getData(k);
-								ryi = model.atom[i].getRxRyQueue().getQueue2().getData(k);
-								if (doAreaDetection && !parameter.area.contains(rxi, ryi))
+				for (int a = 0; a < count; a++) {
+					// the area is checked for the atom of the lower index only
+					if (!inside[a])
+						continue;
+					for (int p = -1; p <= 1; p++) {
+						if (ny == 1 && p != 0)
+							continue;
+						int j = cy[a] + p;
+						if (j < 0 || j >= ny) {
+							if (!ypbc)
+								continue;
+							j = j < 0 ? j + ny : j - ny;
+						}
+						for (int q = -1; q <= 1; q++) {
+							if (nx == 1 && q != 0)
+								continue;
+							int i = cx[a] + q;
+							if (i < 0 || i >= nx) {
+								if (!xpbc)
+									continue;
+								i = i < 0 ? i + nx : i - nx;
+							}
+							for (int b = head[i + nx * j]; b >= 0; b = next[b]) {
+								if (b <= a)
+									continue;
+								if (!sameElement && type[a] == type[b])
 									continue;
-								rxj = model.atom[j].getRxRyQueue().getQueue1().getData(k);
-								ryj = model.atom[j].getRxRyQueue().getQueue2().getData(k);
-								// if(doAreaDetection && !parameter.area.contains(rxj, ryj)) continue;
-								dxij = rxi - rxj;
-								dyij = ryi - ryj;
+								double dxij = x[a] - x[b];
+								double dyij = y[a] - y[b];
 								/* minimum image conventions */
-								switch (model.boundary.getType()) {
-								case RectangularBoundary.PBC_ID:
-									if (dxij > xbox * 0.5) {
+								if (xpbc) {
+									if (dxij > xbox * 0.5)
 										dxij -= xbox;
-									}
-									if (dxij <= -xbox * 0.5) {
+									if (dxij <= -xbox * 0.5)
 										dxij += xbox;
-									}
-									if (dyij > ybox * 0.5) {
-										dyij -= ybox;
-									}
-									if (dyij <= -ybox * 0.5) {
-										dyij += ybox;
-									}
-									break;
-								case RectangularBoundary.XRYPBC_ID:
-									if (dyij > ybox * 0.5) {
+								}
+								if (ypbc) {
+									if (dyij > ybox * 0.5)
 										dyij -= ybox;
-									}
-									if (dyij <= -ybox * 0.5) {
+									if (dyij <= -ybox * 0.5)
 										dyij += ybox;
-									}
-									break;
-								case RectangularBoundary.XPYRBC_ID:
-									if (dxij > xbox * 0.5) {
-										dxij -= xbox;
-									}
-									if (dxij <= -xbox * 0.5) {
-										dxij += xbox;
-									}
-									break;
 								}
-								ir = (int) (Math.hypot(dxij, dyij) * inverseSlice);
-								if (ir < nslice)
-									rdf[ir]++;
+								double r2 = dxij * dxij + dyij * dyij;
+								if (r2 < range2) {
+									int ir = (int) (Math.sqrt(r2) * inverseSlice);
+									if (ir < nslice)
+										rdf[ir]++;
+								}
 							}
 						}
 					}
 				}
 			}
+			return this;
 		}
-		double[] f = new double[nslice + nslice];
-		/* normalize: */
-		double v = parameter.element1 == parameter.element2 ? m * parameter.area.getWidth()
-				* parameter.area.getHeight() / (Math.PI * n1 * n2 * slice * slice) : m * parameter.area.getWidth()
-				* parameter.area.getHeight() / (2 * Math.PI * n1 * n2 * slice * slice);
-		for (int i = 0; i < nslice; i++) {
-			f[i + i] = i * slice * 0.1;
-			f[i + i + 1] = rdf[i] * v / (i + 1);
+
+		private int cell(double x, double d, int n, boolean periodic) {
+			int i = (int) Math.floor(x / d);
+			if (periodic) {
+				i %= n;
+				return i < 0 ? i + n : i;
+			}
+			return i < 0 ? 0 : (i >= n ? n - 1 : i);
 		}
-		return f;
+
 	}
 
 	void show(final Parameter[] parameter) {
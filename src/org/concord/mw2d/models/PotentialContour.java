@@ -20,19 +20,65 @@
 
 package org.concord.mw2d.models;
 
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.concord.modeler.process.WorkerPool;
+
+/**
+ * <p>
+ * This computes the potential a probe atom would feel at the center of each cell of a grid that covers the view. The
+ * potential is split into a short-range part and a long-range part. The short-range part is the Lennard-Jones potential
+ * of the atoms within the cutoff, which are found by binning the atoms into cells. The long-range part is the Coulomb
+ * potential of all the charged atoms, which is computed with a Barnes-Hut tree. As before, an atom does not contribute
+ * at a point inside its core. Because the tree includes every charge, the Coulomb potentials of the charged atoms
+ * whose cores contain a point are taken back in the short-range part.
+ * </p>
+ *
+ * <p>
+ * The state of the atoms is remembered between calls. If only a few atoms have changed, only the short-range part of
+ * the cells around their old and new positions is recomputed, and the long-range part is recomputed only if a charged
+ * atom has changed. The rows of the grid are split among the worker threads.
+ * </p>
+ *
+ * @author Charles Xie
+ */
+
 public class PotentialContour {
 
+	private final static int MIN_ROWS_PER_TASK = 8;
+
 	private Atom probe;
 	private int width, height, cellSize = 2;
 	private int nx, ny;
 	private double[] contour;
-	private boolean charged;
-	private int increment;
-	private double distance, xdis, ydis, x0, y0;
-	private double sigmaSquare, sr2, sr6, sr12;
+	private double cutoff = 2.0;
 	private double constant;
 
+	/* the short-range and the long-range parts of the potential, and the cells whose short-range part is out of date */
+	private double[] shortRange, longRange;
+	private boolean[] dirty;
+
+	/* the atoms and the parameters as they were when the contour was last computed */
+	private boolean valid;
+	private int count;
+	private double[] rx, ry, sigma, epsilon, charge;
+	private int[] changed;
+	private double probeSigma, probeEpsilon, probeCharge;
+	private double lastConstant, lastCutoff;
+	private int lastType;
+
+	private final Rectangle2D.Double box = new Rectangle2D.Double();
+	private CellList cellList;
+	private CoulombTree tree;
+	private double range;
+
 	public void setProbe(Atom probe, int width, int height) {
+		if (probe != this.probe)
+			valid = false;
 		this.probe = probe;
 		if (width == this.width && height == this.height)
 			return;
@@ -41,6 +87,10 @@ public class PotentialContour {
 		nx = (int) ((float) width / (float) cellSize);
 		ny = (int) ((float) height / (float) cellSize);
 		contour = new double[nx * ny];
+		shortRange = new double[nx * ny];
+		longRange = new double[nx * ny];
+		dirty = new boolean[nx * ny];
+		valid = false;
 	}
 
 	public int getCellSize() {
@@ -51,6 +101,20 @@ public class PotentialContour {
 		constant = coulombConstant / dielectricConstant;
 	}
 
+	/**
+	 * set the cutoff of the Lennard-Jones potential in the unit of the sigma of a pair, which should be the same as that
+	 * of the model. The default is 2.
+	 */
+	public void setCutOff(double cutoff) {
+		if (cutoff <= 0)
+			throw new IllegalArgumentException("cutoff<=0");
+		this.cutoff = cutoff;
+	}
+
+	public double getCutOff() {
+		return cutoff;
+	}
+
 	public double[] getContour(int numberOfAtoms, Atom[] atom, int boundaryType) {
 
 		if (nx * ny <= 0)
@@ -58,63 +122,236 @@ public class PotentialContour {
 		if (numberOfAtoms <= 0)
 			return null;
 
-		increment = 0;
-		charged = Math.abs(probe.charge) > Particle.ZERO;
+		boolean charged = Math.abs(probe.charge) > Particle.ZERO;
+		if (!valid || numberOfAtoms != count || boundaryType != lastType || constant != lastConstant
+				|| cutoff != lastCutoff || probe.sigma != probeSigma || probe.epsilon != probeEpsilon
+				|| probe.charge != probeCharge) {
+			valid = false;
+			count = numberOfAtoms;
+			lastType = boundaryType;
+			lastConstant = constant;
+			lastCutoff = cutoff;
+			probeSigma = probe.sigma;
+			probeEpsilon = probe.epsilon;
+			probeCharge = probe.charge;
+		}
 
-		for (int i = 0; i < ny; i++) {
-			for (int j = 0; j < nx; j++) {
+		if (rx == null || rx.length < numberOfAtoms) {
+			rx = new double[numberOfAtoms];
+			ry = new double[numberOfAtoms];
+			sigma = new double[numberOfAtoms];
+			epsilon = new double[numberOfAtoms];
+			charge = new double[numberOfAtoms];
+			changed = new int[numberOfAtoms];
+		}
 
-				contour[increment] = 0.0;
-				y0 = (i + 0.5) * cellSize;
-				x0 = (j + 0.5) * cellSize;
+		boolean updateLongRange = !valid;
+		if (valid) {
+			// find the atoms that have changed, and mark the cells around their old and new positions
+			int nchanged = 0;
+			for (int m = 0; m < numberOfAtoms; m++) {
+				Atom a = atom[m];
+				if (a.rx != rx[m] || a.ry != ry[m] || a.sigma != sigma[m] || a.epsilon != epsilon[m] || a.charge != charge[m]) {
+					changed[nchanged++] = m;
+					if (charged && (Math.abs(a.charge) > Particle.ZERO || Math.abs(charge[m]) > Particle.ZERO))
+						updateLongRange = true;
+				}
+			}
+			if (nchanged == 0)
+				return contour;
+			// if many atoms have changed, it is cheaper to recompute everything than to mark the cells around each
+			boolean all = nchanged > numberOfAtoms / 8;
+			if (all)
+				Arrays.fill(dirty, true);
+			for (int k = 0; k < nchanged; k++) {
+				if (!all)
+					markDirty(changed[k], boundaryType);
+				store(atom, changed[k]);
+				if (!all)
+					markDirty(changed[k], boundaryType);
+			}
+		}
+		else {
+			for (int m = 0; m < numberOfAtoms; m++)
+				store(atom, m);
+			Arrays.fill(dirty, true);
+		}
+
+		// bin the atoms into cells big enough for both the cutoff and the cores
+		double sigmax = 0;
+		for (int m = 0; m < numberOfAtoms; m++) {
+			if (sigma[m] > sigmax)
+				sigmax = sigma[m];
+		}
+		range = Math.max(cutoff, 1) * Math.sqrt(probeSigma * sigmax);
+		box.setRect(0, 0, width, height);
+		if (cellList == null)
+			cellList = new CellList();
+		cellList.bin(box, boundaryType, range, rx, ry, numberOfAtoms);
 
-				for (int m = 0; m < numberOfAtoms; m++) {
-					ydis = y0 - atom[m].ry;
-					xdis = x0 - atom[m].rx;
-					switch (boundaryType) {
-					case Boundary.PBC_ID:
-						if (xdis > width * 0.5)
-							xdis -= width;
-						if (xdis <= -width * 0.5)
-							xdis += width;
-						if (ydis > height * 0.5)
-							ydis -= height;
-						if (ydis <= -height * 0.5)
-							ydis += height;
-						break;
-					case RectangularBoundary.XRYPBC_ID:
-						if (ydis > height * 0.5)
-							ydis -= height;
-						if (ydis <= -height * 0.5)
-							ydis += height;
-						break;
-					case RectangularBoundary.XPYRBC_ID:
-						if (xdis > width * 0.5)
-							xdis -= width;
-						if (xdis <= -width * 0.5)
-							xdis += width;
-						break;
+		if (updateLongRange) {
+			if (charged) {
+				if (tree == null)
+					tree = new CoulombTree();
+				tree.build(box, boundaryType, rx, ry, charge, numberOfAtoms, Particle.ZERO);
+			}
+			else {
+				Arrays.fill(longRange, 0);
+			}
+		}
+
+		final boolean computeLongRange = updateLongRange && charged;
+		final int type = boundaryType;
+		int tasks = Math.max(1, Math.min(WorkerPool.getProcessorCount(), ny / MIN_ROWS_PER_TASK));
+		if (tasks > 1) {
+			List<Callable<Object>> list = new ArrayList<Callable<Object>>(tasks);
+			for (int t = 0; t < tasks; t++) {
+				final int beg = ny * t / tasks, end = ny * (t + 1) / tasks;
+				list.add(new Callable<Object>() {
+					public Object call() {
+						computeRows(beg, end, type, computeLongRange);
+						return null;
 					}
-					distance = xdis * xdis + ydis * ydis;
-					if (distance > probe.sigma * atom[m].sigma) {
-						sigmaSquare = probe.sigma * atom[m].sigma;
+				});
+			}
+			WorkerPool.invoke(list);
+		}
+		else {
+			computeRows(0, ny, boundaryType, computeLongRange);
+		}
+
+		valid = true;
+		return contour;
+
+	}
+
+	private void store(Atom[] atom, int m) {
+		rx[m] = atom[m].rx;
+		ry[m] = atom[m].ry;
+		sigma[m] = atom[m].sigma;
+		epsilon[m] = atom[m].epsilon;
+		charge[m] = atom[m].charge;
+	}
+
+	/* mark the cells that are within the reach of the m-th atom as it is stored */
+	private void markDirty(int m, int boundaryType) {
+		boolean xPeriodic = boundaryType == Boundary.PBC_ID || boundaryType == RectangularBoundary.XPYRBC_ID;
+		boolean yPeriodic = boundaryType == Boundary.PBC_ID || boundaryType == RectangularBoundary.XRYPBC_ID;
+		double reach = Math.max(cutoff, 1) * Math.sqrt(probeSigma * sigma[m]) + cellSize;
+		int jmin = (int) Math.floor((rx[m] - reach) / cellSize);
+		int jmax = (int) Math.floor((rx[m] + reach) / cellSize);
+		int imin = (int) Math.floor((ry[m] - reach) / cellSize);
+		int imax = (int) Math.floor((ry[m] + reach) / cellSize);
+		if (xPeriodic && jmax - jmin >= nx) {
+			jmin = 0;
+			jmax = nx - 1;
+		}
+		if (yPeriodic && imax - imin >= ny) {
+			imin = 0;
+			imax = ny - 1;
+		}
+		for (int i = imin; i <= imax; i++) {
+			int row = i;
+			if (yPeriodic) {
+				row %= ny;
+				if (row < 0)
+					row += ny;
+			}
+			else if (row < 0 || row >= ny) {
+				continue;
+			}
+			for (int j = jmin; j <= jmax; j++) {
+				int col = j;
+				if (xPeriodic) {
+					col %= nx;
+					if (col < 0)
+						col += nx;
+				}
+				else if (col < 0 || col >= nx) {
+					continue;
+				}
+				dirty[row * nx + col] = true;
+			}
+		}
+	}
+
+	private void computeRows(int beg, int end, int boundaryType, boolean computeLongRange) {
+		int[] cells = new int[9];
+		int[] stack = computeLongRange ? tree.createStack() : null;
+		double scale = probeCharge * constant;
+		double x0, y0;
+		int k;
+		for (int i = beg; i < end; i++) {
+			y0 = (i + 0.5) * cellSize;
+			for (int j = 0; j < nx; j++) {
+				x0 = (j + 0.5) * cellSize;
+				k = i * nx + j;
+				if (dirty[k]) {
+					shortRange[k] = computeShortRange(x0, y0, boundaryType, cells);
+					dirty[k] = false;
+				}
+				if (computeLongRange)
+					longRange[k] = tree.getPotentialAt(x0, y0, stack) * scale;
+				contour[k] = shortRange[k] + longRange[k];
+			}
+		}
+	}
+
+	private double computeShortRange(double x0, double y0, int boundaryType, int[] cells) {
+
+		boolean charged = Math.abs(probeCharge) > Particle.ZERO;
+		double cutoffSquare = cutoff * cutoff;
+		double xdis, ydis, distance, sigmaSquare, sr2, sr6, sr12;
+		double v = 0;
+
+		int ncell = cellList.getAdjacentCells(cellList.getCell(x0, y0), cells);
+		for (int c = 0; c < ncell; c++) {
+			for (int m = cellList.getFirst(cells[c]); m >= 0; m = cellList.getNext(m)) {
+				ydis = y0 - ry[m];
+				xdis = x0 - rx[m];
+				switch (boundaryType) {
+				case Boundary.PBC_ID:
+					if (xdis > width * 0.5)
+						xdis -= width;
+					if (xdis <= -width * 0.5)
+						xdis += width;
+					if (ydis > height * 0.5)
+						ydis -= height;
+					if (ydis <= -height * 0.5)
+						ydis += height;
+					break;
+				case RectangularBoundary.XRYPBC_ID:
+					if (ydis > height * 0.5)
+						ydis -= height;
+					if (ydis <= -height * 0.5)
+						ydis += height;
+					break;
+				case RectangularBoundary.XPYRBC_ID:
+					if (xdis > width * 0.5)
+						xdis -= width;
+					if (xdis <= -width * 0.5)
+						xdis += width;
+					break;
+				}
+				distance = xdis * xdis + ydis * ydis;
+				sigmaSquare = probeSigma * sigma[m];
+				if (distance > sigmaSquare) {
+					if (distance < sigmaSquare * cutoffSquare) {
 						sr2 = sigmaSquare / distance;
 						sr6 = sr2 * sr2 * sr2;
 						sr12 = sr6 * sr6;
-						contour[increment] += 0.5 * (probe.epsilon + atom[m].epsilon) * (sr12 - sr6);
-						if (charged && Math.abs(atom[m].charge) > Particle.ZERO)
-							contour[increment] += atom[m].charge * probe.charge / Math.sqrt(distance) * constant;
+						v += 0.5 * (probeEpsilon + epsilon[m]) * (sr12 - sr6);
 					}
 				}
-
-				increment++;
-
+				else if (charged && distance > 0 && Math.abs(charge[m]) > Particle.ZERO) {
+					// the tree does not know about the cores
+					v -= charge[m] * probeCharge / Math.sqrt(distance) * constant;
+				}
 			}
-
 		}
 
-		return contour;
+		return v;
 
 	}
 
-}
\ No newline at end of file
+}
@@ -23,14 +23,17 @@ package org.concord.mw2d.models;
 import java.beans.XMLDecoder;
 import java.beans.XMLEncoder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import javax.swing.Action;
 
 import org.concord.modeler.math.Vector2D;
 import org.concord.modeler.process.AbstractLoadable;
 import org.concord.modeler.process.Loadable;
+import org.concord.modeler.process.WorkerPool;
 import org.concord.mw2d.AtomisticView;
 import org.concord.mw2d.event.ParameterChangeEvent;
 
@@ -46,6 +49,7 @@ public class ReactionModel extends MolecularModel {
 	private final static float H2O_ANGLE = 109.47f / 180.0f * (float) Math.PI;
 	private final static float ANGLE_TOLL = (float) (0.05 * Math.PI);
 	private final static float BOND_LENGTH_RATIO = 0.6f;
+	private final static int MIN_ATOMS_PER_TASK = 64;
 	private boolean allowUselessCollision;
 	private boolean conserveEnergy = true;
 	Reaction type;
@@ -65,6 +69,10 @@ public class ReactionModel extends MolecularModel {
 	private Vector2D vvj = new Vector2D();
 	private Vector2D vrij = new Vector2D();
 
+	/* the positions and diameters of the atoms copied for the collision scan, and the cells they are binned into */
+	private double[] scanX, scanY, scanSigma;
+	private CellList collisionCellList;
+
 	/* the subtask of making the reaction */
 	private Loadable react = new AbstractLoadable(20) {
 		public void execute() {
@@ -530,43 +538,141 @@ public class ReactionModel extends MolecularModel {
 	 * <code>bonds</code> to see if the atoms are bound in the same bond for every pair of atoms (N*(N-1)/2 pairs) can
 	 * be much more expensive than calculating the distances of every pair and then searching the bonding status of the
 	 * pairs that are within the collision diameters, the number of which is much smaller than N*(N-1)/2. </p> <p> The
-	 * Verlet neighbor list method (same as that used in calculating the Lennard-Jones potentials) is used. </p>
+	 * Verlet neighbor list method (same as that used in calculating the Lennard-Jones potentials) is used. When the
+	 * list is out of date, the atoms are binned into cells no smaller than the longest possible bond instead of checking
+	 * every pair. The pairs are found in parallel, but collide one after another in the order of a serial scan. </p>
 	 */
 	private void scan() {
 
-		if (updateList) {
+		final int n = numberOfAtoms;
+		if (n < 2)
+			return;
 
-			for (int i = 0; i < numberOfAtoms - 1; i++) {
-				for (int j = i + 1; j < numberOfAtoms; j++) {
-					xij = atom[i].rx - atom[j].rx;
-					yij = atom[i].ry - atom[j].ry;
-					rij = xij * xij + yij * yij;
-					bondLength = getBondLength(atom[i], atom[j]);
-					if (rij <= bondLength * bondLength)
-						collide(i, j);
-				}
-			}
+		if (scanX == null || scanX.length < n) {
+			scanX = new double[atom.length];
+			scanY = new double[atom.length];
+			scanSigma = new double[atom.length];
+		}
+		double smax = 0;
+		for (int i = 0; i < n; i++) {
+			scanX[i] = atom[i].rx;
+			scanY[i] = atom[i].ry;
+			scanSigma[i] = atom[i].sigma;
+			if (smax < atom[i].sigma)
+				smax = atom[i].sigma;
+		}
+
+		// when the neighbor list is not up to date, bin the atoms into cells no smaller than the longest possible bond
+		final boolean useCells = updateList;
+		if (useCells) {
+			if (collisionCellList == null)
+				collisionCellList = new CellList();
+			collisionCellList.bin(boundary, boundary.getType(), BOND_LENGTH_RATIO * 2 * smax, scanX, scanY, n);
+		}
 
+		// find the colliding pairs in parallel, and then let them collide in the order of a serial scan
+		int tasks = Math.max(1, Math.min(WorkerPool.getProcessorCount(), n / MIN_ATOMS_PER_TASK));
+		List<Collisions> results;
+		if (tasks == 1) {
+			results = new ArrayList<Collisions>(1);
+			results.add(findCollisions(0, n - 1, useCells));
 		}
 		else {
+			List<Callable<Collisions>> list = new ArrayList<Callable<Collisions>>(tasks);
+			for (int t = 0; t < tasks; t++) {
+				final int beg = (n - 1) * t / tasks;
+				final int end = (n - 1) * (t + 1) / tasks;
+				list.add(new Callable<Collisions>() {
+					public Collisions call() {
+						return findCollisions(beg, end, useCells);
+					}
+				});
+			}
+			results = WorkerPool.invoke(list);
+		}
+
+		int i, j;
+		for (Collisions c : results) {
+			for (int k = 0; k < c.size; k += 2) {
+				i = c.pair[k];
+				j = c.pair[k + 1];
+				xij = atom[i].rx - atom[j].rx;
+				yij = atom[i].ry - atom[j].ry;
+				rij = xij * xij + yij * yij;
+				bondLength = getBondLength(atom[i], atom[j]);
+				collide(i, j);
+			}
+		}
 
-			int i, j, jbeg, jend, jnab;
-			for (i = 0; i < numberOfAtoms - 1; i++) {
-				jbeg = pointer[i];
-				jend = pointer[i + 1];
-				if (jbeg < jend) {
-					for (jnab = jbeg; jnab < jend; jnab++) {
-						j = neighborList[jnab];
-						xij = atom[i].rx - atom[j].rx;
-						yij = atom[i].ry - atom[j].ry;
-						rij = xij * xij + yij * yij;
-						bondLength = getBondLength(atom[i], atom[j]);
-						if (rij <= bondLength * bondLength)
-							collide(i, j);
+	}
+
+	/*
+	 * return the pairs (i, j), where beg <= i < end and j > i, whose distances are within the bond lengths, in the same
+	 * order as the pairs are visited by a serial scan, either of all the pairs or of the neighbor list.
+	 */
+	private Collisions findCollisions(int beg, int end, boolean useCells) {
+		Collisions c = new Collisions();
+		double[] x = scanX, y = scanY, sigma = scanSigma;
+		double dx, dy, b;
+		if (useCells) {
+			int[] cells = new int[9];
+			int[] partner = new int[16];
+			for (int i = beg; i < end; i++) {
+				int m = 0;
+				int ncell = collisionCellList.getAdjacentCells(collisionCellList.getCellOf(i), cells);
+				for (int k = 0; k < ncell; k++) {
+					for (int j = collisionCellList.getFirst(cells[k]); j >= 0; j = collisionCellList.getNext(j)) {
+						if (j <= i)
+							continue;
+						dx = x[i] - x[j];
+						dy = y[i] - y[j];
+						b = BOND_LENGTH_RATIO * (sigma[i] + sigma[j]);
+						if (dx * dx + dy * dy <= b * b) {
+							if (m == partner.length) {
+								int[] a = new int[m * 2];
+								System.arraycopy(partner, 0, a, 0, m);
+								partner = a;
+							}
+							partner[m++] = j;
+						}
 					}
 				}
+				if (m > 1)
+					Arrays.sort(partner, 0, m);
+				for (int k = 0; k < m; k++)
+					c.add(i, partner[k]);
 			}
+		}
+		else {
+			int j;
+			for (int i = beg; i < end; i++) {
+				for (int jnab = pointer[i], jend = pointer[i + 1]; jnab < jend; jnab++) {
+					j = neighborList[jnab];
+					dx = x[i] - x[j];
+					dy = y[i] - y[j];
+					b = BOND_LENGTH_RATIO * (sigma[i] + sigma[j]);
+					if (dx * dx + dy * dy <= b * b)
+						c.add(i, j);
+				}
+			}
+		}
+		return c;
+	}
 
+	/* a growing list of the pairs of atoms found to be colliding */
+	private static class Collisions {
+
+		int[] pair = new int[16];
+		int size;
+
+		void add(int i, int j) {
+			if (size + 2 > pair.length) {
+				int[] a = new int[pair.length * 2];
+				System.arraycopy(pair, 0, a, 0, size);
+				pair = a;
+			}
+			pair[size++] = i;
+			pair[size++] = j;
 		}
 
 	}
@@ -39,11 +39,11 @@ final class Statistics {
 			int count = 0;
 			for (int i = fromIndex; i < toIndex; i++) {
 				if (p[i].isSelected()) {
-					if (p[i].rQ == null || p[i].rQ.getPointer() <= 0) {
+					if (!p[i].isOnTape()) {
 						average += p[i].rx;
 					}
 					else {
-						average += p[i].rQ.getQueue1().getAverage();
+						average += p[i].getHostModel().tape.getAverage(TrajectoryTape.RX, p[i].index);
 					}
 					count++;
 				}
@@ -20,7 +20,11 @@
 
 package org.concord.mw2d.models;
 
-import org.concord.modeler.util.FloatQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.concord.modeler.process.WorkerPool;
 
 public class StructureFactor {
 
@@ -31,6 +35,9 @@ public class StructureFactor {
 
 	private final static double TWOPI = Math.PI + Math.PI;
 
+	/* the minimum number of rows worth sending to another thread */
+	private final static int MIN_ROWS_PER_TASK = 8;
+
 	private float reciprocalUnit = 0.002f;
 	private int width, height;
 	private int xmin, ymin, xmax, ymax;
@@ -39,6 +46,16 @@ public class StructureFactor {
 	/* Debye-Waller factors */
 	private float[] bFactor;
 
+	/* the averaged positions and the squared mean displacements of the atoms, cached for the tape */
+	private double[] meanX, meanY;
+	private float[] meanDisplacement;
+	private TrajectoryTape cachedTape;
+	private int cachedModCount, cachedCount;
+
+	/* the wave vector components times the positions, and the tabulated factors of the columns */
+	private double[] ux, uy;
+	private double[] columnRe, columnIm;
+
 	private float[] f;
 	private int[] pixels;
 
@@ -70,36 +87,73 @@ public class StructureFactor {
 		return Math.round(reciprocalUnit * 5000);
 	}
 
-	private static float getMeanDisplacement(FloatQueue q) {
-		if (q == null)
+	private static float getMeanDisplacement(TrajectoryTape tape, byte channel, int k) {
+		if (!tape.hasSlot(k))
 			throw new IllegalStateException("the recorder must be turned on to do this calculation.");
-		int n = Math.min(q.getPointer(), q.getLength());
+		int n = Math.min(tape.getPointer(), tape.getCapacity());
 		if (n < 2)
 			return 0;
 		float tx = 0;
-		float[] x = (float[]) q.getData();
+		float x0 = tape.get(channel, 0, k), x1;
 		for (int i = 1; i < n; i++) {
-			tx += Math.abs(x[i] - x[i - 1]);
+			x1 = tape.get(channel, i, k);
+			tx += Math.abs(x1 - x0);
+			x0 = x1;
 		}
 		return tx / (n - 1);
 	}
 
+	/*
+	 * update the averaged positions and the mean displacements of the atoms from the tape. They are kept until the tape
+	 * is changed, as they do not depend on the wave vector.
+	 */
+	private void updateAverages(TrajectoryTape tape, int m) {
+		int modCount = tape.getModificationCount();
+		if (tape == cachedTape && modCount == cachedModCount && m == cachedCount)
+			return;
+		if (meanX == null || meanX.length < m) {
+			meanX = new double[m];
+			meanY = new double[m];
+			meanDisplacement = new float[m];
+		}
+		float dx, dy;
+		for (int i = 0; i < m; i++) {
+			meanX[i] = tape.getAverage(TrajectoryTape.RX, i);
+			meanY[i] = tape.getAverage(TrajectoryTape.RY, i);
+			if (tape.hasSlot(i)) {
+				dx = getMeanDisplacement(tape, TrajectoryTape.RX, i);
+				dy = getMeanDisplacement(tape, TrajectoryTape.RY, i);
+				meanDisplacement[i] = dx * dx + dy * dy;
+			}
+			else {
+				meanDisplacement[i] = 0;
+			}
+		}
+		cachedTape = tape;
+		cachedModCount = modCount;
+		cachedCount = m;
+	}
+
 	public void compute(AtomicModel model, final int type) {
 
-		int m = model.getNumberOfAtoms();
+		final int m = model.getNumberOfAtoms();
+		boolean hasMovie = model.getTapePointer() > 0;
+		if (hasMovie)
+			updateAverages(model.tape, m);
 
 		// computer the Debye-Waller factors (B-factors)
 
+		if (bFactor == null || bFactor.length < m) {
+			bFactor = new float[m];
+			ux = new double[m];
+			uy = new double[m];
+		}
 		if (type == X_RAY) {
-			if (bFactor == null || bFactor.length < m)
-				bFactor = new float[m];
-			if (model.getTapePointer() > 0) {
-				float dx, dy;
-				for (int i = 0; i < m; i++) {
-					dx = getMeanDisplacement(model.atom[i].rQ.getQueue1());
-					dy = getMeanDisplacement(model.atom[i].rQ.getQueue2());
-					bFactor[i] = (0.1f * (dx * dx + dy * dy)) * reciprocalUnit;
-				}
+			if (hasMovie) {
+				if (m > 0 && !model.tape.hasSlot(m - 1))
+					throw new IllegalStateException("the recorder must be turned on to do this calculation.");
+				for (int i = 0; i < m; i++)
+					bFactor[i] = (0.1f * meanDisplacement[i]) * reciprocalUnit;
 			}
 			else {
 				for (int i = 0; i < m; i++) {
@@ -110,46 +164,87 @@ public class StructureFactor {
 
 		// compute the structure factors
 
-		double realSum;
-		double imagSum;
-		double prefactor;
 		double constant = TWOPI * reciprocalUnit;
-		double exponent;
-		double rx, ry;
-		int incr = 0;
-		boolean hasMovie = model.getTapePointer() > 0;
-		for (int j = xmin; j <= xmax; j++) {
-			for (int i = ymin; i <= ymax; i++) {
+		for (int n = 0; n < m; n++) {
+			// NOTE!!! the reason there is a minus before i*ry is because our molecular view's coordinate
+			// system points downward. In order for the X-ray image to be positioned consistently with
+			// the molecular structure, the wave vector must also assumes a downward direction to be
+			// positive.
+			ux[n] = (hasMovie ? meanX[n] : model.atom[n].rx) * constant;
+			uy[n] = -(hasMovie ? meanY[n] : model.atom[n].ry) * constant;
+		}
+
+		/*
+		 * The phase factor of an atom is exp(i*j*ux)*exp(i*i*uy), and the X-ray prefactor sigma*exp(-(i*i+j*j)*b) splits
+		 * the same way. The factors that depend on i are tabulated once for all the rows, and those that depend on j are
+		 * advanced from row to row by multiplying exp(i*ux), so no trigonometric function is evaluated in the sweep.
+		 */
+		int size = height * m;
+		if (columnRe == null || columnRe.length < size) {
+			columnRe = new double[size];
+			columnIm = new double[size];
+		}
+		for (int n = 0; n < m; n++) {
+			double w = type == X_RAY ? model.atom[n].getSigma() : 1;
+			double cr = Math.cos(ymin * uy[n]), ci = Math.sin(ymin * uy[n]);
+			double sr = Math.cos(uy[n]), si = Math.sin(uy[n]), t;
+			for (int i = ymin, k = n; i <= ymax; i++, k += m) {
+				double e = type == X_RAY ? w * Math.exp(-i * i * bFactor[n]) : w;
+				columnRe[k] = cr * e;
+				columnIm[k] = ci * e;
+				t = cr * sr - ci * si;
+				ci = cr * si + ci * sr;
+				cr = t;
+			}
+		}
+
+		int tasks = Math.max(1, Math.min(WorkerPool.getProcessorCount(), width / MIN_ROWS_PER_TASK));
+		List<Callable<Object>> list = new ArrayList<Callable<Object>>(tasks);
+		for (int t = 0; t < tasks; t++) {
+			final int beg = xmin + width * t / tasks;
+			final int end = xmin + width * (t + 1) / tasks;
+			list.add(new Callable<Object>() {
+				public Object call() {
+					sweep(beg, end, m, type);
+					return null;
+				}
+			});
+		}
+		WorkerPool.invoke(list);
+
+	}
+
+	/* compute the rows j = beg, ..., end-1 of the structure factors */
+	private void sweep(int beg, int end, int m, int type) {
+		double[] cr = new double[m], ci = new double[m], sr = new double[m], si = new double[m];
+		double[] pr = new double[m], pi = new double[m];
+		for (int n = 0; n < m; n++) {
+			cr[n] = Math.cos(beg * ux[n]);
+			ci[n] = Math.sin(beg * ux[n]);
+			sr[n] = Math.cos(ux[n]);
+			si[n] = Math.sin(ux[n]);
+		}
+		double realSum, imagSum, t;
+		int incr = (beg - xmin) * height;
+		for (int j = beg; j < end; j++) {
+			for (int n = 0; n < m; n++) {
+				double e = type == X_RAY ? Math.exp(-j * j * bFactor[n]) : 1;
+				pr[n] = cr[n] * e;
+				pi[n] = ci[n] * e;
+				t = cr[n] * sr[n] - ci[n] * si[n];
+				ci[n] = cr[n] * si[n] + ci[n] * sr[n];
+				cr[n] = t;
+			}
+			for (int k = 0, size = height * m; k < size; k += m) {
 				realSum = 0.0;
 				imagSum = 0.0;
 				for (int n = 0; n < m; n++) {
-					if (hasMovie) {
-						rx = model.atom[n].getRxRyQueue().getQueue1().getAverage();
-						ry = model.atom[n].getRxRyQueue().getQueue2().getAverage();
-					}
-					else {
-						rx = model.atom[n].rx;
-						ry = model.atom[n].ry;
-					}
-					// NOTE!!! the reason there is a minus before i*ry is because our molecular view's coordinate
-					// system points downward. In order for the X-ray image to be positioned consistently with
-					// the molecular structure, the wave vector must also assumes a downward direction to be
-					// positive.
-					exponent = (j * rx - i * ry) * constant;
-					if (type == X_RAY) {
-						prefactor = model.atom[n].getSigma() * Math.exp(-(i * i + j * j) * bFactor[n]);
-						realSum += Math.cos(exponent) * prefactor;
-						imagSum += Math.sin(exponent) * prefactor;
-					}
-					else if (type == NEUTRON) {
-						realSum += Math.cos(exponent);
-						imagSum += Math.sin(exponent);
-					}
+					realSum += pr[n] * columnRe[k + n] - pi[n] * columnIm[k + n];
+					imagSum += pr[n] * columnIm[k + n] + pi[n] * columnRe[k + n];
 				}
 				f[incr++] = (float) (realSum * realSum + imagSum * imagSum);
 			}
 		}
-
 	}
 
 	/* create the diffraction image pixels */
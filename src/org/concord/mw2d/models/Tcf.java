@@ -24,28 +24,44 @@ import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
 import javax.swing.JComponent;
 import javax.swing.JDialog;
 import javax.swing.JOptionPane;
+import javax.swing.Timer;
 
 import org.concord.modeler.event.PageComponentEvent;
 import org.concord.modeler.g2d.Curve;
 import org.concord.modeler.g2d.CurveFlavor;
 import org.concord.modeler.g2d.Legend;
 import org.concord.modeler.g2d.XYGrapher;
+import org.concord.modeler.process.WorkerPool;
 import org.concord.modeler.util.SwingWorker;
 
+/**
+ * compute the time correlation function (TCF) of two quantities of the atoms of an element. The correlation of the
+ * recorded series of each atom is computed with the fast Fourier transform (the Wiener-Khinchin theorem), with the
+ * atoms split among the worker threads. While a TCF dialog is open, the correlation is updated with the frames that
+ * are recorded afterwards, so that the curves follow a running model.
+ */
+
 class Tcf {
 
-	private final static byte RX = 0x01;
-	private final static byte RY = 0x02;
-	private final static byte VX = 0x03;
-	private final static byte VY = 0x04;
-	private final static byte AX = 0x05;
-	private final static byte AY = 0x06;
+	/* the minimum number of atoms worth sending to another thread */
+	private final static int MIN_ATOMS_PER_TASK = 8;
+
+	/* the interval in milliseconds between updates of an open TCF dialog */
+	private final static int REFRESH_INTERVAL = 1000;
 
 	private AtomicModel model;
+	private final List<Accumulator> accumulators = new ArrayList<Accumulator>();
 
 	final static class Parameter {
 
@@ -72,106 +88,221 @@ class Tcf {
 		this.model = model;
 	}
 
-	private double[] compute(Parameter p) {
-		int m = model.getTapePointer();
-		if (m <= 0)
-			return null;
-		double rxi1, ryi1, rxi2, ryi2;
-		int length = p.length;
-		if (length * 2 > m)
-			length = m / 2;
-		double[] tcf = new double[length];
-		int j;
-		double f1 = 0, f2 = 0;
-		int sum;
-		byte bx = RX;
-		if ("ry".equalsIgnoreCase(p.fx))
-			bx = RY;
-		else if ("vx".equalsIgnoreCase(p.fx))
-			bx = VX;
-		else if ("vy".equalsIgnoreCase(p.fx))
-			bx = VY;
-		else if ("ax".equalsIgnoreCase(p.fx))
-			bx = AX;
-		else if ("ay".equalsIgnoreCase(p.fx))
-			bx = AY;
-		byte by = RX;
-		if ("ry".equalsIgnoreCase(p.fy))
-			by = RY;
-		else if ("vx".equalsIgnoreCase(p.fy))
-			by = VX;
-		else if ("vy".equalsIgnoreCase(p.fy))
-			by = VY;
-		else if ("ax".equalsIgnoreCase(p.fy))
-			by = AX;
-		else if ("ay".equalsIgnoreCase(p.fy))
-			by = AY;
+	private static byte getChannel(String s) {
+		if ("ry".equalsIgnoreCase(s))
+			return TrajectoryTape.RY;
+		if ("vx".equalsIgnoreCase(s))
+			return TrajectoryTape.VX;
+		if ("vy".equalsIgnoreCase(s))
+			return TrajectoryTape.VY;
+		if ("ax".equalsIgnoreCase(s))
+			return TrajectoryTape.AX;
+		if ("ay".equalsIgnoreCase(s))
+			return TrajectoryTape.AY;
+		return TrajectoryTape.RX;
+	}
+
+	private static double getValue(byte channel, Atom a) {
+		switch (channel) {
+		case TrajectoryTape.RY:
+			return (float) a.ry;
+		case TrajectoryTape.VX:
+			return (float) a.vx;
+		case TrajectoryTape.VY:
+			return (float) a.vy;
+		case TrajectoryTape.AX:
+			return (float) a.ax;
+		case TrajectoryTape.AY:
+			return (float) a.ay;
+		}
+		return (float) a.rx;
+	}
+
+	/* return the indices of the atoms of the element */
+	private int[] select(byte element) {
+		int n = model.numberOfAtoms;
+		int count = 0;
+		for (int i = 0; i < n; i++) {
+			if (model.atom[i].getID() == element)
+				count++;
+		}
+		int[] index = new int[count];
+		count = 0;
+		for (int i = 0; i < n; i++) {
+			if (model.atom[i].getID() == element)
+				index[count++] = i;
+		}
+		return index;
+	}
+
+	/*
+	 * The sums of the products of the two quantities and the numbers of the products for the time lags 0, ..., length-1,
+	 * over the first m frames on the tape.
+	 */
+	private static class Correlation {
+
+		final double[] sum;
+		final long[] count;
+
+		Correlation(int length) {
+			sum = new double[length];
+			count = new long[length];
+		}
+
+		void add(Correlation c) {
+			for (int x = 0; x < sum.length; x++) {
+				sum[x] += c.sum[x];
+				count[x] += c.count[x];
+			}
+		}
+
+	}
+
+	/*
+	 * The series of the selected atoms over the first m frames on the tape, copied at once while holding the lock of the
+	 * tape, so that the correlation can be computed from them while new frames are recorded. When the tape is full, every
+	 * new frame shifts the frames on the tape by one.
+	 */
+	private static class Series {
+
+		int m, modCount;
+		float[][] a, b, x, y;
+
+	}
+
+	private Series copySeries(Parameter p, int[] index) {
+		byte bx = getChannel(p.fx);
+		byte by = getChannel(p.fy);
 		boolean doAreaDetection = !p.area.equals(model.boundary);
-		for (int x = 0; x < length; x++) {
-			sum = 0;
-			for (int i = 0; i < model.numberOfAtoms; i++) {
-				if (model.atom[i].getID() == p.element) {
-					for (int k = 0; k < m; k++) {
-						j = k + x;
-						if (j >= m)
-							continue;
-						if (doAreaDetection) {
-							rxi1 = model.atom[i].getRxRyQueue().getQueue1().getData(k);
-							ryi1 = model.atom[i].getRxRyQueue().getQueue2().getData(k);
-							if (!p.area.contains(rxi1, ryi1))
-								continue;
-							rxi2 = model.atom[i].getRxRyQueue().getQueue1().getData(j);
-							ryi2 = model.atom[i].getRxRyQueue().getQueue2().getData(j);
-							if (!p.area.contains(rxi2, ryi2))
-								continue;
-						}
-						switch (bx) {
-						case RX:
-							f1 = model.atom[i].getRxRyQueue().getQueue1().getData(k);
-							break;
-						case RY:
-							f1 = model.atom[i].getRxRyQueue().getQueue2().getData(k);
-							break;
-						case VX:
-							f1 = model.atom[i].getVxVyQueue().getQueue1().getData(k);
-							break;
-						case VY:
-							f1 = model.atom[i].getVxVyQueue().getQueue2().getData(k);
-							break;
-						case AX:
-							f1 = model.atom[i].getAxAyQueue().getQueue1().getData(k);
-							break;
-						case AY:
-							f1 = model.atom[i].getAxAyQueue().getQueue2().getData(k);
-							break;
-						}
-						switch (by) {
-						case RX:
-							f2 = model.atom[i].getRxRyQueue().getQueue1().getData(j);
-							break;
-						case RY:
-							f2 = model.atom[i].getRxRyQueue().getQueue2().getData(j);
-							break;
-						case VX:
-							f2 = model.atom[i].getVxVyQueue().getQueue1().getData(j);
-							break;
-						case VY:
-							f2 = model.atom[i].getVxVyQueue().getQueue2().getData(j);
-							break;
-						case AX:
-							f2 = model.atom[i].getAxAyQueue().getQueue1().getData(j);
-							break;
-						case AY:
-							f2 = model.atom[i].getAxAyQueue().getQueue2().getData(j);
-							break;
-						}
-						tcf[x] += f1 * f2;
-						sum++;
-					}
+		TrajectoryTape tape = model.tape;
+		Series series = new Series();
+		series.a = new float[index.length][];
+		if (by != bx)
+			series.b = new float[index.length][];
+		if (doAreaDetection) {
+			series.x = new float[index.length][];
+			series.y = new float[index.length][];
+		}
+		synchronized (tape) {
+			int m = tape.getPointer();
+			series.m = m;
+			series.modCount = tape.getModificationCount();
+			for (int s = 0; s < index.length; s++) {
+				int i = index[s];
+				series.a[s] = new float[m];
+				tape.getSeries(bx, i, series.a[s], m);
+				if (by != bx) {
+					series.b[s] = new float[m];
+					tape.getSeries(by, i, series.b[s], m);
+				}
+				if (doAreaDetection) {
+					series.x[s] = new float[m];
+					series.y[s] = new float[m];
+					tape.getSeries(TrajectoryTape.RX, i, series.x[s], m);
+					tape.getSeries(TrajectoryTape.RY, i, series.y[s], m);
+				}
+			}
+		}
+		return series;
+	}
+
+	private Correlation correlate(final Parameter p, final Series series, final int length) {
+		Correlation c = new Correlation(length);
+		int count = series.a.length;
+		if (count == 0 || length <= 0)
+			return c;
+		final FFT fft = new FFT(FFT.getSize(series.m + length));
+		int tasks = Math.max(1, Math.min(WorkerPool.getProcessorCount(), count / MIN_ATOMS_PER_TASK));
+		List<Callable<Correlation>> list = new ArrayList<Callable<Correlation>>(tasks);
+		for (int t = 0; t < tasks; t++) {
+			final int beg = count * t / tasks;
+			final int end = count * (t + 1) / tasks;
+			list.add(new Callable<Correlation>() {
+				public Correlation call() {
+					return correlate(p, series, beg, end, length, fft);
+				}
+			});
+		}
+		for (Correlation r : WorkerPool.invoke(list))
+			c.add(r);
+		return c;
+	}
+
+	/*
+	 * c(x) = sum_k a(k) b(k+x) is the inverse transform of conj(A)B. Both series are packed into one complex transform.
+	 * If an area is specified, the products of the frames in which the atom is outside the area are masked out, and
+	 * the number of products is the autocorrelation of the mask.
+	 */
+	private Correlation correlate(Parameter p, Series series, int beg, int end, int length, FFT fft) {
+		Correlation c = new Correlation(length);
+		byte bx = getChannel(p.fx);
+		byte by = getChannel(p.fy);
+		boolean doAreaDetection = series.x != null;
+		int m = series.m;
+		int n = fft.getSize();
+		double[] re = new double[n], im = new double[n], zr = new double[n], zi = new double[n];
+		boolean[] w = new boolean[m];
+		for (int s = beg; s < end; s++) {
+			float[] a = series.a[s];
+			float[] b = by != bx ? series.b[s] : null;
+			if (doAreaDetection) {
+				float[] x = series.x[s], y = series.y[s];
+				for (int k = 0; k < m; k++)
+					w[k] = p.area.contains(x[k], y[k]);
+			}
+			for (int k = 0; k < n; k++) {
+				if (k < m && (!doAreaDetection || w[k])) {
+					re[k] = a[k];
+					im[k] = by != bx ? b[k] : 0;
+				}
+				else {
+					re[k] = im[k] = 0;
 				}
 			}
-			if (sum > 0)
-				tcf[x] /= sum;
+			fft.transform(re, im);
+			for (int k = 0; k < n; k++) {
+				int j = (n - k) & (n - 1);
+				// split the transform of a + ib into those of a and b
+				double ar = 0.5 * (re[k] + re[j]), ai = 0.5 * (im[k] - im[j]);
+				double br = 0.5 * (im[k] + im[j]), bi = -0.5 * (re[k] - re[j]);
+				if (by == bx) {
+					br = ar;
+					bi = ai;
+				}
+				zr[k] = ar * br + ai * bi;
+				zi[k] = ar * bi - ai * br;
+			}
+			fft.inverse(zr, zi);
+			for (int k = 0; k < length; k++)
+				c.sum[k] += zr[k];
+			if (doAreaDetection) {
+				for (int k = 0; k < n; k++) {
+					re[k] = k < m && w[k] ? 1 : 0;
+					im[k] = 0;
+				}
+				fft.transform(re, im);
+				for (int k = 0; k < n; k++) {
+					zr[k] = re[k] * re[k] + im[k] * im[k];
+					zi[k] = 0;
+				}
+				fft.inverse(zr, zi);
+				for (int k = 0; k < length; k++)
+					c.count[k] += Math.round(zr[k]);
+			}
+			else {
+				for (int k = 0; k < length; k++)
+					c.count[k] += m - k;
+			}
+		}
+		return c;
+	}
+
+	/* normalize the correlation of the first length lags to c(0) and pair them with the time lags */
+	private double[] normalize(Correlation c, int length) {
+		double[] tcf = new double[length];
+		for (int x = 0; x < length; x++) {
+			if (c.count[x] > 0)
+				tcf[x] = c.sum[x] / c.count[x];
 		}
 		double[] f = new double[length + length];
 		/* normalize: */
@@ -183,6 +314,161 @@ class Tcf {
 		return f;
 	}
 
+	/* called by the model after a frame is recorded */
+	void record() {
+		synchronized (accumulators) {
+			for (Accumulator a : accumulators)
+				a.record();
+		}
+	}
+
+	/*
+	 * This accumulates the correlation of the frames on the tape when it is created and of the frames recorded after
+	 * that, for which it keeps the values of the last few frames. The frames recorded afterwards are not limited by the
+	 * length of the tape. The correlation of the frames on the tape is computed without holding the lock of the
+	 * accumulators, so that the simulation is not blocked by it. The frames recorded in the meantime are added from the
+	 * tape by catchUp(), which is called while holding the lock before the accumulator is registered.
+	 */
+	private class Accumulator {
+
+		private final Parameter parameter;
+		private final byte bx, by;
+		private final int[] index;
+		private final int numberOfAtoms;
+		private final int length;
+		private final Correlation correlation;
+		private final float[][] history;
+		private final boolean[][] inside;
+		private int frames;
+		private final int modCount;
+		private int caughtUp = -1;
+		private float lastTime;
+
+		Accumulator(Parameter p) {
+			parameter = p;
+			bx = getChannel(p.fx);
+			by = getChannel(p.fy);
+			index = select(p.element);
+			numberOfAtoms = model.numberOfAtoms;
+			length = Math.max(1, p.length);
+			Series series = copySeries(p, index);
+			int m = series.m;
+			modCount = series.modCount;
+			correlation = new Correlation(length);
+			Correlation c = correlate(p, series, Math.min(length, m));
+			System.arraycopy(c.sum, 0, correlation.sum, 0, c.sum.length);
+			System.arraycopy(c.count, 0, correlation.count, 0, c.count.length);
+			history = new float[index.length][length];
+			inside = new boolean[index.length][length];
+			for (int k = Math.max(0, m - length); k < m; k++) {
+				int slot = k % length;
+				for (int s = 0; s < index.length; s++) {
+					history[s][slot] = series.a[s][k];
+					inside[s][slot] = series.x == null || p.area.contains(series.x[s][k], series.y[s][k]);
+				}
+			}
+			frames = m;
+			lastTime = m > 0 ? model.modelTimeQueue.getData(m - 1) : Float.NaN;
+		}
+
+		/*
+		 * add the frames recorded on the tape since the series were copied. This must be called while holding the lock
+		 * of the accumulators, so that no frame is missed or counted twice. The new frames are the last ones on the tape,
+		 * as the earlier frames may have shifted if the tape is full.
+		 */
+		synchronized void catchUp() {
+			if (model.numberOfAtoms != numberOfAtoms)
+				return;
+			TrajectoryTape tape = model.tape;
+			synchronized (tape) {
+				int pointer = tape.getPointer();
+				int n = Math.min(tape.getModificationCount() - modCount, pointer);
+				if (n <= 0)
+					return;
+				boolean doAreaDetection = !parameter.area.equals(model.boundary);
+				for (int k = pointer - n; k < pointer; k++) {
+					int slot = frames % length;
+					int lags = Math.min(frames + 1, length);
+					for (int s = 0; s < index.length; s++) {
+						int i = index[s];
+						boolean in = !doAreaDetection || parameter.area.contains(tape.get(TrajectoryTape.RX, k, i), tape.get(TrajectoryTape.RY, k, i));
+						add(s, slot, lags, tape.get(bx, k, i), tape.get(by, k, i), in);
+					}
+					frames++;
+				}
+				caughtUp = tape.getModificationCount();
+			}
+		}
+
+		synchronized void record() {
+			if (model.numberOfAtoms != numberOfAtoms || model.modelTime == lastTime)
+				return;
+			lastTime = model.modelTime;
+			if (caughtUp >= 0 && model.tape.getModificationCount() == caughtUp) {
+				// the frame that was being recorded when catchUp() was called has been added from the tape
+				caughtUp = -1;
+				return;
+			}
+			boolean doAreaDetection = !parameter.area.equals(model.boundary);
+			int slot = frames % length;
+			int lags = Math.min(frames + 1, length);
+			for (int s = 0; s < index.length; s++) {
+				Atom a = model.atom[index[s]];
+				boolean in = !doAreaDetection || parameter.area.contains((float) a.rx, (float) a.ry);
+				add(s, slot, lags, (float) getValue(bx, a), getValue(by, a), in);
+			}
+			frames++;
+		}
+
+		/* put the values of the s-th atom into the slot of the history and add their products with the last frames */
+		private void add(int s, int slot, int lags, float f1, double f2, boolean in) {
+			history[s][slot] = f1;
+			inside[s][slot] = in;
+			if (!in)
+				return;
+			float[] h = history[s];
+			boolean[] w = inside[s];
+			for (int x = 0, k = slot; x < lags; x++) {
+				if (w[k]) {
+					correlation.sum[x] += h[k] * f2;
+					correlation.count[x]++;
+				}
+				if (--k < 0)
+					k = length - 1;
+			}
+		}
+
+		synchronized int getFrames() {
+			return frames;
+		}
+
+		synchronized double[] getData() {
+			return normalize(correlation, Math.min(length, frames / 2));
+		}
+
+	}
+
+	private Curve createCurve(int i, Parameter p, double[] data) {
+		Curve c = new Curve();
+		c.setLegend(new Legend(Element.idToName(p.element) + ":" + p.fx + "-" + p.fy + "(" + i + ")", 150, 50 + i * 15));
+		switch (i) {
+		case 1:
+			c.setFlavor(new CurveFlavor(Color.blue));
+			break;
+		case 2:
+			c.setFlavor(new CurveFlavor(Color.red));
+			break;
+		case 3:
+			c.setFlavor(new CurveFlavor(Color.magenta));
+			break;
+		case 4:
+			c.setFlavor(new CurveFlavor(Color.orange));
+			break;
+		}
+		c.setData(data);
+		return c;
+	}
+
 	void show(final Parameter[] p) {
 		String s2 = "";
 		if (p.length > 1) {
@@ -210,41 +496,48 @@ class Tcf {
 		});
 		new SwingWorker("Tcf") {
 			public Object construct() {
-				Curve[] c = new Curve[p.length];
-				double[] data;
-				for (int i = 0; i < p.length; i++) {
-					data = compute(p[i]);
-					if (data == null)
-						return null;
-					c[i] = new Curve();
-					c[i].setLegend(new Legend(Element.idToName(p[i].element) + ":" + p[i].fx + "-" + p[i].fy + "(" + i
-							+ ")", 150, 50 + i * 15));
-					switch (i) {
-					case 1:
-						c[i].setFlavor(new CurveFlavor(Color.blue));
-						break;
-					case 2:
-						c[i].setFlavor(new CurveFlavor(Color.red));
-						break;
-					case 3:
-						c[i].setFlavor(new CurveFlavor(Color.magenta));
-						break;
-					case 4:
-						c[i].setFlavor(new CurveFlavor(Color.orange));
-						break;
+				if (model.getTapePointer() <= 0)
+					return null;
+				Accumulator[] a = new Accumulator[p.length];
+				for (int i = 0; i < p.length; i++)
+					a[i] = new Accumulator(p[i]);
+				synchronized (accumulators) {
+					for (int i = 0; i < p.length; i++) {
+						a[i].catchUp();
+						accumulators.add(a[i]);
 					}
-					c[i].setData(data);
 				}
-				return c;
+				return a;
 			}
 
 			public void finished() {
-				Curve[] c = (Curve[]) getValue();
-				if (c != null) {
+				final Accumulator[] a = (Accumulator[]) getValue();
+				if (a != null) {
 					graph.getXAxis().setTitleText("\u03c4 (fs)");
 					graph.getYAxis().setTitleText("c(\u03c4)");
-					for (int i = 0; i < c.length; i++)
-						graph.append(c[i]);
+					final int[] frames = new int[a.length];
+					for (int i = 0; i < a.length; i++) {
+						graph.append(createCurve(i, p[i], a[i].getData()));
+						frames[i] = a[i].getFrames();
+					}
+					// follow the frames recorded while the dialog is open
+					final Timer timer = new Timer(REFRESH_INTERVAL, new ActionListener() {
+						public void actionPerformed(ActionEvent e) {
+							boolean changed = false;
+							for (int i = 0; i < a.length; i++) {
+								if (a[i].getFrames() != frames[i]) {
+									frames[i] = a[i].getFrames();
+									changed = true;
+								}
+							}
+							if (!changed)
+								return;
+							graph.removeAllCurves();
+							for (int i = 0; i < a.length; i++)
+								graph.append(createCurve(i, p[i], a[i].getData()));
+							graph.getGraph().repaint();
+						}
+					});
 					JDialog dialog = new JDialog(JOptionPane.getFrameForComponent(model.view),
 							"Time Correlation Function: " + s, false);
 					graph.setDialog(dialog);
@@ -252,8 +545,17 @@ class Tcf {
 					dialog.setSize(300, 300);
 					dialog.setLocation(200, 200);
 					dialog.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+					dialog.addWindowListener(new WindowAdapter() {
+						public void windowClosed(WindowEvent e) {
+							timer.stop();
+							synchronized (accumulators) {
+								accumulators.removeAll(Arrays.asList(a));
+							}
+						}
+					});
 					dialog.pack();
 					dialog.setVisible(true);
+					timer.start();
 				}
 				else {
 					JOptionPane.showMessageDialog(JOptionPane.getFrameForComponent(model.view),
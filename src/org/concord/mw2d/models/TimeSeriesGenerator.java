@@ -84,6 +84,7 @@ class TimeSeriesGenerator {
 			return null;
 		double[] result = new double[m];
 		int noa = model.getNumberOfAtoms();
+		TrajectoryTape tape = model.tape;
 		Atom at;
 		float rx, ry, vx, vy, ax, ay;
 		int count;
@@ -94,24 +95,24 @@ class TimeSeriesGenerator {
 				at = model.atom[k];
 				if (!p.containsElement((byte) at.getID()))
 					continue;
-				rx = at.getRxRyQueue().getQueue1().getData(i);
-				ry = at.getRxRyQueue().getQueue2().getData(i);
+				rx = tape.get(TrajectoryTape.RX, i, k);
+				ry = tape.get(TrajectoryTape.RY, i, k);
 				if (p.area.contains(rx, ry)) {
 					switch (p.type) {
 					case LAC:
 						result[i]++;
 						break;
 					case LAT:
-						vx = at.getVxVyQueue().getQueue1().getData(i);
-						vy = at.getVxVyQueue().getQueue2().getData(i);
+						vx = tape.get(TrajectoryTape.VX, i, k);
+						vy = tape.get(TrajectoryTape.VY, i, k);
 						result[i] += at.mass * (vx * vx + vy * vy);
 						count++;
 						break;
 					case LAP:
-						vx = at.getVxVyQueue().getQueue1().getData(i);
-						vy = at.getVxVyQueue().getQueue2().getData(i);
-						ax = at.getAxAyQueue().getQueue1().getData(i);
-						ay = at.getAxAyQueue().getQueue2().getData(i);
+						vx = tape.get(TrajectoryTape.VX, i, k);
+						vy = tape.get(TrajectoryTape.VY, i, k);
+						ax = tape.get(TrajectoryTape.AX, i, k);
+						ay = tape.get(TrajectoryTape.AY, i, k);
 						result[i] += at.mass * ((vx * vx + vy * vy) * 2 * MDModel.EV_CONVERTER + rx * ax + ry * ay);
 						break;
 					}
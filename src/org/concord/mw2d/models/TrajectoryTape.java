@@ -0,0 +1,795 @@
+/*
+ *   Copyright (C) 2006  The Concord Consortium, Inc.,
+ *   25 Love Lane, Concord, MA 01742
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * END LICENSE */
+
+package org.concord.mw2d.models;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+import org.concord.modeler.util.DataQueue;
+import org.concord.modeler.util.FloatQueue;
+
+/**
+ * <p>
+ * This is the tape that records the positions, velocities and accelerations of the particles of a model. Unlike the
+ * queues of the other recorded quantities, the data of all the particles are stored together: each quantity is one
+ * contiguous array in which a frame holds the values of particles 0, 1, 2, ... in a row. Recording a frame therefore
+ * writes a few contiguous rows instead of updating six queues per particle, and showing a frame reads them back.
+ * </p>
+ *
+ * <p>
+ * The frames are kept in a ring, so when the tape is full the oldest frame is overwritten without shifting the others.
+ * Frame 0 is always the oldest frame on the tape. When the size of the tape exceeds the heap budget, the arrays are
+ * kept in a memory-mapped temporary file instead of the heap, so that a long recording of a big model does not run out
+ * of memory. If the tape is too long to be mapped, it falls back to a ring on the heap that keeps as many of the latest
+ * frames as the heap budget allows.
+ * </p>
+ *
+ * <p>
+ * The tape is recorded on the job thread and read on the event dispatch thread and by the analysis tools. The readers
+ * take the same lock as the recorder, so that a frame is never read while the ring is rotating.
+ * </p>
+ *
+ * <p>
+ * A tape can be saved to a trajectory file, which stores a header, the time series recorded along with the tape and
+ * then the frames of each quantity in a row. Opening the file maps the frames instead of reading them, so a long movie
+ * can be played back and scrubbed without loading it into the heap. The frames are copied only when the tape is
+ * written to again.
+ * </p>
+ *
+ * @author Charles Xie
+ */
+
+public class TrajectoryTape {
+
+	public final static byte RX = 0;
+	public final static byte RY = 1;
+	public final static byte VX = 2;
+	public final static byte VY = 3;
+	public final static byte AX = 4;
+	public final static byte AY = 5;
+	final static byte CHANNELS = 6;
+
+	/** the default maximum number of bytes kept on the heap: 64 MB */
+	public final static long DEFAULT_HEAP_BUDGET = 64L << 20;
+
+	/* "MW2T" and the version of the trajectory file format */
+	private final static int MAGIC = 0x4d573254;
+	private final static int VERSION = 1;
+	private final static int HEADER_SIZE = 20;
+
+	private long heapBudget = DEFAULT_HEAP_BUDGET;
+
+	/* the requested number of frames and particles. The storage is allocated when it is first written to. */
+	private int capacity, width;
+
+	/* the number of recorded frames, and the physical position of frame 0 in the ring */
+	private volatile int pointer;
+	private volatile int start;
+
+	/* changed whenever frames are recorded, dropped or loaded */
+	private volatile int modCount;
+
+	private volatile Storage storage;
+
+	/*
+	 * The rows of the tape. A storage is never resized: a new one is created instead, so that a reader holding the old
+	 * one is not affected.
+	 */
+	private static class Storage {
+
+		final int capacity, width;
+		float[][] heap;
+		FloatBuffer[] mapped;
+		boolean readOnly;
+		File file;
+		RandomAccessFile raf;
+
+		Storage(int capacity, int width, long heapBudget) throws IOException {
+			this.capacity = capacity;
+			this.width = width;
+			long size = (long) capacity * width;
+			if (size * CHANNELS * 4 <= heapBudget) {
+				if (size > Integer.MAX_VALUE)
+					throw new IllegalArgumentException("The tape is too long: " + capacity + " frames x " + width + " particles");
+				heap = new float[CHANNELS][(int) size];
+			}
+			else {
+				if (size * 4 > Integer.MAX_VALUE)
+					throw new IllegalArgumentException("The tape is too long: " + capacity + " frames x " + width + " particles");
+				file = File.createTempFile("mw2d", ".tape");
+				file.deleteOnExit();
+				raf = new RandomAccessFile(file, "rw");
+				raf.setLength(size * 4 * CHANNELS);
+				FileChannel fc = raf.getChannel();
+				mapped = new FloatBuffer[CHANNELS];
+				for (int c = 0; c < CHANNELS; c++)
+					mapped[c] = fc.map(FileChannel.MapMode.READ_WRITE, c * size * 4, size * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+			}
+		}
+
+		/* map the frames of a trajectory file. The rows of channel c start at offset + c * stride. */
+		Storage(RandomAccessFile raf, long offset, long stride, int capacity, int width) throws IOException {
+			this.capacity = capacity;
+			this.width = width;
+			this.raf = raf;
+			long size = (long) capacity * width * 4;
+			if (size > Integer.MAX_VALUE)
+				throw new IOException("The tape is too long: " + capacity + " frames x " + width + " particles");
+			FileChannel fc = raf.getChannel();
+			mapped = new FloatBuffer[CHANNELS];
+			for (int c = 0; c < CHANNELS; c++)
+				mapped[c] = fc.map(FileChannel.MapMode.READ_ONLY, offset + c * stride, size).asFloatBuffer();
+			readOnly = true;
+		}
+
+		float get(int c, int k) {
+			return heap != null ? heap[c][k] : mapped[c].get(k);
+		}
+
+		void set(int c, int k, float x) {
+			if (heap != null)
+				heap[c][k] = x;
+			else
+				mapped[c].put(k, x);
+		}
+
+		void release() {
+			heap = null;
+			mapped = null;
+			if (raf != null) {
+				try {
+					raf.close();
+				}
+				catch (IOException e) {
+					e.printStackTrace();
+				}
+				raf = null;
+			}
+			if (file != null) {
+				// a mapped file cannot be deleted on some platforms until the mapping is garbage-collected
+				file.delete();
+				file = null;
+			}
+		}
+
+	}
+
+	TrajectoryTape() {
+	}
+
+	/**
+	 * set the maximum number of bytes the tape may take on the heap. A tape bigger than this is kept in a memory-mapped
+	 * temporary file. The change takes effect when the tape is reallocated.
+	 */
+	public void setHeapBudget(long bytes) {
+		if (bytes < 0)
+			throw new IllegalArgumentException("heap budget cannot be negative");
+		heapBudget = bytes;
+	}
+
+	public long getHeapBudget() {
+		return heapBudget;
+	}
+
+	/** return true if the data of this tape are kept in a memory-mapped file rather than on the heap */
+	public boolean isMapped() {
+		Storage s = storage;
+		return s != null && s.mapped != null;
+	}
+
+	/** return the number of frames this tape can hold */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/** return the number of particles per frame */
+	public int getWidth() {
+		return width;
+	}
+
+	/** return the number of recorded frames */
+	public int getPointer() {
+		return pointer;
+	}
+
+	/** move the pointer to the specified frame. The frames after it will be overwritten by the next recording. */
+	public synchronized void setPointer(int n) {
+		if (n < 0)
+			n = 0;
+		else if (n > capacity)
+			n = capacity;
+		pointer = n;
+		modCount++;
+	}
+
+	/**
+	 * return a number that changes whenever frames are recorded, dropped or loaded, so that what is derived from the
+	 * frames can be cached
+	 */
+	int getModificationCount() {
+		return modCount;
+	}
+
+	/** return true if the tape has room for the i-th particle */
+	public boolean hasSlot(int i) {
+		return capacity > 0 && i >= 0 && i < width;
+	}
+
+	/**
+	 * reset this tape to hold the specified number of frames and particles, discarding all the recorded frames. If the
+	 * number of frames is less than 1, release the tape.
+	 */
+	public synchronized void allocate(int capacity, int width) {
+		release();
+		if (capacity < 1)
+			return;
+		this.capacity = capacity;
+		this.width = Math.max(width, 0);
+	}
+
+	/** discard the recorded frames and the storage */
+	public synchronized void release() {
+		if (storage != null) {
+			storage.release();
+			storage = null;
+		}
+		capacity = 0;
+		width = 0;
+		pointer = 0;
+		start = 0;
+		modCount++;
+	}
+
+	/**
+	 * change the number of frames this tape can hold, keeping the oldest recorded frames that fit. If the number is
+	 * less than 1, release the tape.
+	 */
+	public synchronized void setCapacity(int n) {
+		if (n == capacity)
+			return;
+		if (n < 1) {
+			release();
+			return;
+		}
+		resize(n, width);
+	}
+
+	/** make room for at least n particles per frame, keeping the recorded frames */
+	public synchronized void ensureWidth(int n) {
+		if (n > width)
+			resize(capacity, n);
+	}
+
+	private void resize(int newCapacity, int newWidth) {
+		Storage old = storage;
+		int m = Math.min(pointer, newCapacity);
+		if (old == null || m == 0) {
+			if (old != null) {
+				old.release();
+				storage = null;
+			}
+			capacity = newCapacity;
+			width = newWidth;
+			pointer = m;
+			start = 0;
+			return;
+		}
+		Storage s = createStorage(newCapacity, newWidth);
+		if (s == null)
+			return;
+		newCapacity = s.capacity;
+		m = Math.min(m, newCapacity);
+		int w = Math.min(old.width, newWidth);
+		for (int c = 0; c < CHANNELS; c++) {
+			for (int k = 0; k < m; k++) {
+				int src = physicalFrame(k, old.capacity) * old.width;
+				int dst = k * newWidth;
+				if (old.heap != null && s.heap != null) {
+					System.arraycopy(old.heap[c], src, s.heap[c], dst, w);
+				}
+				else {
+					for (int i = 0; i < w; i++)
+						s.set(c, dst + i, old.get(c, src + i));
+				}
+			}
+		}
+		storage = s;
+		old.release();
+		capacity = newCapacity;
+		width = newWidth;
+		pointer = m;
+		start = 0;
+	}
+
+	/*
+	 * create the storage for the specified number of frames and particles. If it cannot be mapped, fall back to a ring
+	 * on the heap with as many frames as the heap budget allows, so the returned storage may hold fewer frames than
+	 * requested.
+	 */
+	private Storage createStorage(int capacity, int width) {
+		try {
+			return new Storage(capacity, width, heapBudget);
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+		}
+		catch (IllegalArgumentException e) {
+			e.printStackTrace();
+		}
+		long frameSize = (long) Math.max(width, 1) * CHANNELS * 4;
+		long max = Math.min(heapBudget / frameSize, Integer.MAX_VALUE / Math.max(width, 1));
+		int n = (int) Math.max(1, Math.min(capacity, max));
+		try {
+			return new Storage(n, width, Long.MAX_VALUE);
+		}
+		catch (IOException e) {
+			// a storage on the heap does not touch the file system
+			return null;
+		}
+		catch (OutOfMemoryError e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	private int physicalFrame(int frame, int capacity) {
+		int f = start + frame;
+		return f >= capacity ? f - capacity : f;
+	}
+
+	/**
+	 * record the current positions, velocities and accelerations of the first n particles as a new frame. If the tape
+	 * is full, the oldest frame is dropped.
+	 */
+	synchronized void record(Particle[] p, int n) {
+		if (capacity < 1)
+			return;
+		ensureWidth(n);
+		Storage s = storage;
+		if (s != null && s.readOnly) {
+			// the frames mapped from a trajectory file are copied before the tape is written to
+			resize(capacity, width);
+			s = storage;
+		}
+		if (s == null || s.capacity != capacity || s.width != width) {
+			s = createStorage(capacity, width);
+			if (s == null)
+				return;
+			storage = s;
+			capacity = s.capacity;
+			pointer = 0;
+			start = 0;
+		}
+		int frame;
+		if (pointer < capacity) {
+			frame = pointer;
+		}
+		else {
+			frame = pointer - 1;
+			start = start + 1 == capacity ? 0 : start + 1;
+		}
+		int k = physicalFrame(frame, capacity) * width;
+		if (s.heap != null) {
+			float[] rx = s.heap[RX], ry = s.heap[RY], vx = s.heap[VX], vy = s.heap[VY], ax = s.heap[AX], ay = s.heap[AY];
+			Particle a;
+			for (int i = 0; i < n; i++) {
+				a = p[i];
+				rx[k + i] = (float) a.rx;
+				ry[k + i] = (float) a.ry;
+				vx[k + i] = (float) a.vx;
+				vy[k + i] = (float) a.vy;
+				ax[k + i] = (float) a.ax;
+				ay[k + i] = (float) a.ay;
+			}
+		}
+		else {
+			Particle a;
+			for (int i = 0; i < n; i++) {
+				a = p[i];
+				s.mapped[RX].put(k + i, (float) a.rx);
+				s.mapped[RY].put(k + i, (float) a.ry);
+				s.mapped[VX].put(k + i, (float) a.vx);
+				s.mapped[VY].put(k + i, (float) a.vy);
+				s.mapped[AX].put(k + i, (float) a.ax);
+				s.mapped[AY].put(k + i, (float) a.ay);
+			}
+		}
+		if (pointer < capacity)
+			pointer++;
+		modCount++;
+	}
+
+	/**
+	 * set the positions, velocities and accelerations of the first n particles to those recorded at the specified
+	 * frame. The particles that are not on the tape are left unchanged.
+	 */
+	synchronized void load(int frame, Particle[] p, int n) {
+		Storage s = storage;
+		if (s == null || frame < 0 || frame >= s.capacity)
+			return;
+		int m = Math.min(n, s.width);
+		int k = physicalFrame(frame, s.capacity) * s.width;
+		Particle a;
+		for (int i = 0; i < m; i++) {
+			a = p[i];
+			a.rx = s.get(RX, k + i);
+			a.ry = s.get(RY, k + i);
+			a.vx = s.get(VX, k + i);
+			a.vy = s.get(VY, k + i);
+			a.ax = s.get(AX, k + i);
+			a.ay = s.get(AY, k + i);
+		}
+	}
+
+	/** return the value of the specified quantity of the i-th particle at the specified frame, or 0 if not recorded */
+	public synchronized float get(byte channel, int frame, int i) {
+		Storage s = storage;
+		if (s == null || i >= s.width || frame >= s.capacity)
+			return 0;
+		return s.get(channel, physicalFrame(frame, s.capacity) * s.width + i);
+	}
+
+	/**
+	 * copy the values of the specified quantity of particles 0, ..., n-1 at the specified frame into the array. The
+	 * particles that are not on the tape get zero.
+	 */
+	public synchronized void getFrame(byte channel, int frame, float[] dst, int n) {
+		Storage s = storage;
+		if (s == null || frame >= s.capacity) {
+			for (int i = 0; i < n; i++)
+				dst[i] = 0;
+			return;
+		}
+		int m = Math.min(n, s.width);
+		int k = physicalFrame(frame, s.capacity) * s.width;
+		if (s.heap != null) {
+			System.arraycopy(s.heap[channel], k, dst, 0, m);
+		}
+		else {
+			FloatBuffer b = s.mapped[channel];
+			for (int i = 0; i < m; i++)
+				dst[i] = b.get(k + i);
+		}
+		for (int i = m; i < n; i++)
+			dst[i] = 0;
+	}
+
+	/**
+	 * copy the values of the specified quantity of the i-th particle at frames 0, ..., n-1 into the array. The frames
+	 * that are not on the tape get zero.
+	 */
+	public synchronized void getSeries(byte channel, int i, float[] dst, int n) {
+		Storage s = storage;
+		if (s == null || i >= s.width) {
+			for (int k = 0; k < n; k++)
+				dst[k] = 0;
+			return;
+		}
+		int m = Math.min(n, s.capacity);
+		for (int k = 0; k < m; k++)
+			dst[k] = s.get(channel, physicalFrame(k, s.capacity) * s.width + i);
+		for (int k = m; k < n; k++)
+			dst[k] = 0;
+	}
+
+	/**
+	 * return a read-only queue of the specified quantity of the i-th particle, which reads the values straight from this
+	 * tape instead of copying them
+	 */
+	FloatQueue getSeriesQueue(byte channel, int i, String name) {
+		return new SeriesQueue(this, channel, i, name);
+	}
+
+	/** return the average of the specified quantity of the i-th particle over the recorded frames */
+	public synchronized float getAverage(byte channel, int i) {
+		Storage s = storage;
+		int m = Math.min(pointer, capacity);
+		if (s == null || i >= s.width || m <= 0)
+			return 0;
+		m = Math.min(m, s.capacity);
+		float sum = 0;
+		for (int k = 0; k < m; k++)
+			sum += s.get(channel, physicalFrame(k, s.capacity) * s.width + i);
+		return sum / m;
+	}
+
+	/**
+	 * save the recorded frames of the first n particles to the specified file, preceded by the given time series, which
+	 * are supposed to have been recorded along with the frames. The data are written to a temporary file next to it,
+	 * which then replaces the file, so that a file still mapped by this or another tape is never written over.
+	 */
+	synchronized void save(File file, List<FloatQueue> series, int n) throws IOException {
+		if (storage != null && storage.readOnly) {
+			// do not read from a mapping of the file that is about to be replaced
+			resize(capacity, width);
+		}
+		File tmp = new File(file.getPath() + ".tmp");
+		boolean written = false;
+		try {
+			write(tmp, series, n);
+			written = true;
+		}
+		finally {
+			if (!written)
+				tmp.delete();
+		}
+		replace(tmp, file);
+	}
+
+	/*
+	 * On Windows, a file cannot be renamed over another one, and a file that is still mapped can be neither deleted nor
+	 * written to. A mapping is only released when its buffer is garbage-collected, so try again after collecting the
+	 * garbage a few times.
+	 */
+	private static void replace(File src, File dst) throws IOException {
+		for (int i = 0; i < 10; i++) {
+			if (src.renameTo(dst))
+				return;
+			if (dst.delete() && src.renameTo(dst))
+				return;
+			System.gc();
+			System.runFinalization();
+			try {
+				Thread.sleep(50);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		src.delete();
+		throw new IOException("Cannot replace " + dst);
+	}
+
+	private void write(File file, List<FloatQueue> series, int n) throws IOException {
+		Storage s = storage;
+		int m = s == null ? 0 : Math.min(pointer, s.capacity);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(m);
+			out.writeInt(n);
+			out.writeInt(series.size());
+			for (FloatQueue q : series) {
+				int len = q.getLength();
+				for (int k = 0; k < m; k++)
+					out.writeFloat(k < len ? q.getData(k) : 0);
+			}
+			if (m > 0) {
+				int w = Math.min(n, s.width);
+				for (int c = 0; c < CHANNELS; c++) {
+					for (int k = 0; k < m; k++) {
+						int j = physicalFrame(k, s.capacity) * s.width;
+						for (int i = 0; i < w; i++)
+							out.writeFloat(s.get(c, j + i));
+						for (int i = w; i < n; i++)
+							out.writeFloat(0);
+					}
+				}
+			}
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * map the frames saved in the specified file onto this tape and read the time series saved with them into the
+	 * given queues. The tape must have been allocated for n particles. If the file has more frames than the tape can
+	 * hold, only the latest ones are kept. Return the number of frames on the tape.
+	 */
+	synchronized int open(File file, List<FloatQueue> series, int n) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			if (raf.length() < HEADER_SIZE || raf.readInt() != MAGIC)
+				throw new IOException(file + " is not a trajectory file");
+			int version = raf.readInt();
+			if (version != VERSION)
+				throw new IOException("Unsupported version of trajectory file: " + version);
+			int frames = raf.readInt();
+			int w = raf.readInt();
+			int count = raf.readInt();
+			if (w != n || w > width)
+				throw new IOException("The trajectory in " + file + " has " + w + " particles, but the model has " + n);
+			if (count != series.size())
+				throw new IOException("The trajectory in " + file + " does not match the model");
+			long seriesSize = (long) count * frames * 4;
+			long stride = (long) frames * w * 4;
+			if (frames < 0 || raf.length() < HEADER_SIZE + seriesSize + CHANNELS * stride)
+				throw new IOException(file + " is truncated");
+			int m = Math.min(frames, capacity);
+			int skip = frames - m;
+			if (seriesSize > Integer.MAX_VALUE)
+				throw new IOException("Too many time series in " + file);
+			FloatBuffer b = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, seriesSize).asFloatBuffer();
+			for (int j = 0; j < count; j++) {
+				FloatQueue q = series.get(j);
+				int len = Math.min(m, q.getLength());
+				for (int k = 0; k < len; k++)
+					q.setData(k, b.get(j * frames + skip + k));
+				q.setPointer(len);
+			}
+			Storage s = null;
+			if (m > 0)
+				s = new Storage(raf, HEADER_SIZE + seriesSize + (long) skip * w * 4, stride, m, w);
+			else
+				raf.close();
+			if (storage != null)
+				storage.release();
+			storage = s;
+			pointer = m;
+			start = 0;
+			modCount++;
+			return m;
+		}
+		catch (IOException e) {
+			raf.close();
+			throw e;
+		}
+	}
+
+	/*
+	 * A read-only view of the values of one quantity of one particle on a tape. The graphs read it element by element,
+	 * which goes to the tape directly; the statistics and the whole array are computed from a copy.
+	 */
+	private static class SeriesQueue extends FloatQueue {
+
+		private TrajectoryTape tape;
+		private byte channel;
+		private int index;
+
+		SeriesQueue(TrajectoryTape tape, byte channel, int index, String name) {
+			super(0);
+			this.tape = tape;
+			this.channel = channel;
+			this.index = index;
+			setName(name);
+		}
+
+		private FloatQueue copy() {
+			int n = getLength();
+			FloatQueue q = new FloatQueue(getName(), n);
+			if (n > 0)
+				tape.getSeries(channel, index, (float[]) q.getData(), n);
+			q.setPointer(Math.min(getPointer(), n));
+			return q;
+		}
+
+		private static UnsupportedOperationException readOnly() {
+			return new UnsupportedOperationException("The recorded trajectory cannot be changed");
+		}
+
+		public int getLength() {
+			return tape.getCapacity();
+		}
+
+		public boolean isEmpty() {
+			return getLength() == 0;
+		}
+
+		public int getPointer() {
+			return tape.getPointer();
+		}
+
+		public void setPointer(int i) {
+			// the superclass constructor sets the pointer before the tape is assigned
+			if (tape != null)
+				throw readOnly();
+		}
+
+		public float getData(int i) {
+			return tape.get(channel, i, index);
+		}
+
+		/** return a copy of the recorded values */
+		public Object getData() {
+			return copy().getData();
+		}
+
+		public float sum(int start, int end) {
+			return copy().sum(start, end);
+		}
+
+		public float getCurrentValue() {
+			return copy().getCurrentValue();
+		}
+
+		public float getMinValue() {
+			return copy().getMinValue();
+		}
+
+		public float getMaxValue() {
+			return copy().getMaxValue();
+		}
+
+		public float getAverage(int n) {
+			return copy().getAverage(n);
+		}
+
+		public float getExponentialRunningAverage(float weight, int frame) {
+			return copy().getExponentialRunningAverage(weight, frame);
+		}
+
+		public float getSimpleRunningAverage(int n, int frame) {
+			return copy().getSimpleRunningAverage(n, frame);
+		}
+
+		public float getMeanSquare() {
+			return copy().getMeanSquare();
+		}
+
+		public float getRMSDeviation() {
+			return copy().getRMSDeviation();
+		}
+
+		public String toString() {
+			return copy().toString();
+		}
+
+		public void setLength(int m) {
+			if (tape != null)
+				throw readOnly();
+		}
+
+		public void setData(Object o) {
+			throw readOnly();
+		}
+
+		public void setData(int i, float f) {
+			throw readOnly();
+		}
+
+		public void update(float f) {
+			throw readOnly();
+		}
+
+		public void move(int n) {
+			throw readOnly();
+		}
+
+		public void clear() {
+			throw readOnly();
+		}
+
+		public void clearAfter(int n) {
+			throw readOnly();
+		}
+
+		public void clearBefore(int n) {
+			throw readOnly();
+		}
+
+		public void copyFrom(DataQueue q) {
+			throw readOnly();
+		}
+
+	}
+
+}
@@ -41,6 +41,7 @@ import javax.swing.JPanel;
 import javax.swing.JRadioButton;
 import javax.swing.SwingConstants;
 
+import org.concord.modeler.math.GradientMinimizer;
 import org.concord.mw2d.AtomisticView;
 import org.concord.mw2d.models.Minimizer;
 import org.concord.mw2d.models.MolecularModel;
@@ -88,7 +89,6 @@ class AAFFMinimizer extends JDialog {
 
 		s = MDContainer.getInternationalText("ConjugateGradients");
 		rb = new JRadioButton(s != null ? s : "Conjugate Gradients");
-		rb.setEnabled(false);
 		rb.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
 				job.method = MinimizeJob.CG;
@@ -97,6 +97,16 @@ class AAFFMinimizer extends JDialog {
 		bg.add(rb);
 		p.add(rb);
 
+		s = MDContainer.getInternationalText("LBFGS");
+		rb = new JRadioButton(s != null ? s : "L-BFGS");
+		rb.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				job.method = MinimizeJob.LBFGS;
+			}
+		});
+		bg.add(rb);
+		p.add(rb);
+
 		panel.add(p, BorderLayout.WEST);
 
 		p = new JPanel();
@@ -135,6 +145,21 @@ class AAFFMinimizer extends JDialog {
 		box.add(cb);
 		p.add(box);
 
+		box = new Box(BoxLayout.X_AXIS);
+		s = MDContainer.getInternationalText("GradientTolerance");
+		box.add(new JLabel((s != null ? s : "Gradient Tolerance") + ": ", SwingConstants.LEFT));
+		cb = new JComboBox(new Object[] { new Double(0.0001), new Double(0.001), new Double(0.01), new Double(0.1) });
+		cb.setPreferredSize(new Dimension(80, 20));
+		cb.setSelectedItem(new Double(GradientMinimizer.DEFAULT_TOLERANCE));
+		cb.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				JComboBox c = (JComboBox) e.getSource();
+				job.tolerance = ((Double) c.getSelectedItem()).doubleValue();
+			}
+		});
+		box.add(cb);
+		p.add(box);
+
 		panel.add(p, BorderLayout.CENTER);
 
 		getContentPane().add(panel, BorderLayout.CENTER);
@@ -169,11 +194,12 @@ class AAFFMinimizer extends JDialog {
 
 	class MinimizeJob implements Runnable {
 
-		private final static byte SD = 1, CG = 2;
+		private final static byte SD = 1, CG = 2, LBFGS = 3;
 		private Minimizer m;
 		private MolecularModel model;
 		private short nStep = 100;
 		private double delta = 1.0;
+		private double tolerance = GradientMinimizer.DEFAULT_TOLERANCE;
 		private byte method = SD;
 		private boolean stop;
 		private int i;
@@ -192,22 +218,34 @@ class AAFFMinimizer extends JDialog {
 		}
 
 		public void run() {
-			for (i = 0; i < nStep; i++) {
-				if (stop)
-					break;
-				switch (method) {
-				case SD:
+			if (method == SD) {
+				for (i = 0; i < nStep; i++) {
+					if (stop)
+						break;
 					pot = m.sd(delta);
-					break;
-				case CG:
-					pot = m.cg(delta);
-					break;
-				}
-				if (i % 20 == 0) {
-					EventQueue.invokeLater(refresh);
-					model.getView().repaint();
+					if (i % 20 == 0) {
+						EventQueue.invokeLater(refresh);
+						model.getView().repaint();
+					}
 				}
 			}
+			else {
+				// the line-search methods stop by themselves when the forces are small enough
+				i = 0;
+				pot = m.minimize(method == CG ? GradientMinimizer.CONJUGATE_GRADIENT : GradientMinimizer.LBFGS, nStep,
+						delta, tolerance, new GradientMinimizer.Listener() {
+							public boolean iterationDone(int iteration, double energy, double rmsGradient) {
+								i = iteration;
+								if (iteration % 20 == 0) {
+									pot = energy / model.getNumberOfAtoms();
+									EventQueue.invokeLater(refresh);
+									model.getView().repaint();
+								}
+								return !stop;
+							}
+						});
+				EventQueue.invokeLater(refresh);
+			}
 			model.notifyChange();
 		}
 
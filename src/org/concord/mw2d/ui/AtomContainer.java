@@ -1353,7 +1353,7 @@ public class AtomContainer extends MDContainer implements RNATranscriptionListen
 		private JRadioButtonMenuItem rbMenuItem0;
 		private JMenu gridMenu;
 		private JMenuItem energyTSItem;
-		private JMenuItem disableRecorderItem;
+		private JMenuItem disableRecorderItem, saveMovieItem;
 		private JMenuItem removeToolBarItem;
 		private JMenuItem quantumdynamicsMenuItem;
 		private JMenuItem setupFlowMenuItem;
@@ -1768,6 +1768,8 @@ public class AtomContainer extends MDContainer implements RNATranscriptionListen
 					setupFlowMenuItem.setEnabled(model.getRecorderDisabled() && model.isAtomFlowEnabled());
 					enableFlowMenuItem.setEnabled(model.getRecorderDisabled());
 					disableRecorderItem.setEnabled(!model.hasGraphs() && !hasDNAScroller() && !model.isAtomFlowEnabled());
+					setMenuItemWithoutNotifyingListeners(saveMovieItem, model.isMovieSaved());
+					saveMovieItem.setEnabled(!model.getRecorderDisabled());
 				}
 
 				public void menuCanceled(MenuEvent e) {
@@ -1791,6 +1793,16 @@ public class AtomContainer extends MDContainer implements RNATranscriptionListen
 			});
 			menu.add(disableRecorderItem);
 
+			s = getInternationalText("SaveMovieWithModel");
+			saveMovieItem = new JCheckBoxMenuItem(s != null ? s : "Save Movie with Model");
+			saveMovieItem.addItemListener(new ItemListener() {
+				public void itemStateChanged(ItemEvent e) {
+					model.setMovieSaved(e.getStateChange() == ItemEvent.SELECTED);
+					model.notifyChange();
+				}
+			});
+			menu.add(saveMovieItem);
+
 			s = getInternationalText("EnableFlow");
 			enableFlowMenuItem = new JCheckBoxMenuItem(s != null ? s : "Enable Flow");
 			enableFlowMenuItem.addItemListener(new ItemListener() {
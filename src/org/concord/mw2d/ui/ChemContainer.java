@@ -232,7 +232,7 @@ public class ChemContainer extends MDContainer {
 
 	private class MB extends SimulatorMenuBar {
 
-		private JMenuItem energyTSItem, disableRecorderItem, removeToolBarItem, enablePropertyDialogMenuItem;
+		private JMenuItem energyTSItem, disableRecorderItem, saveMovieItem, removeToolBarItem, enablePropertyDialogMenuItem;
 
 		private void enableMovieMenuItems(boolean b) {
 			energyTSItem.setEnabled(b);
@@ -393,6 +393,8 @@ public class ChemContainer extends MDContainer {
 			menu.addMenuListener(new MenuListener() {
 				public void menuSelected(MenuEvent e) {
 					disableRecorderItem.setEnabled(!model.hasGraphs());
+					setMenuItemWithoutNotifyingListeners(saveMovieItem, model.isMovieSaved());
+					saveMovieItem.setEnabled(!model.getRecorderDisabled());
 					setMenuItemWithoutNotifyingListeners(enablePropertyDialogMenuItem, view.isPropertyDialogEnabled());
 				}
 
@@ -417,6 +419,16 @@ public class ChemContainer extends MDContainer {
 			});
 			menu.add(disableRecorderItem);
 
+			s = getInternationalText("SaveMovieWithModel");
+			saveMovieItem = new JCheckBoxMenuItem(s != null ? s : "Save Movie with Model");
+			saveMovieItem.addItemListener(new ItemListener() {
+				public void itemStateChanged(ItemEvent e) {
+					model.setMovieSaved(e.getStateChange() == ItemEvent.SELECTED);
+					model.notifyChange();
+				}
+			});
+			menu.add(saveMovieItem);
+
 			s = getInternationalText("EnablePropertyDialog");
 			enablePropertyDialogMenuItem = new JCheckBoxMenuItem(s != null ? s : "Enable Property Dialog");
 			enablePropertyDialogMenuItem.addItemListener(new ItemListener() {
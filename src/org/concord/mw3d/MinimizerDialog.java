@@ -40,6 +40,7 @@ import javax.swing.JPanel;
 import javax.swing.JRadioButton;
 import javax.swing.SwingConstants;
 
+import org.concord.modeler.math.GradientMinimizer;
 import org.concord.mw3d.models.MolecularModel;
 
 /**
@@ -51,6 +52,8 @@ class MinimizerDialog extends JDialog {
 	private final static DecimalFormat FORMAT = new DecimalFormat();
 	private short nstep = 100;
 	private float stepLength = 0.1f;
+	private double tolerance = GradientMinimizer.DEFAULT_TOLERANCE;
+	private byte method = -1; // fixed-steplength steepest descents
 	private MolecularModel model;
 
 	static {
@@ -81,12 +84,31 @@ class MinimizerDialog extends JDialog {
 		s = MolecularContainer.getInternationalText("SteepestDescents");
 		JRadioButton rb = new JRadioButton(s != null ? s : "Steepest Descents");
 		rb.setSelected(true);
+		rb.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				method = -1;
+			}
+		});
 		bg.add(rb);
 		p.add(rb);
 
 		s = MolecularContainer.getInternationalText("ConjugateGradients");
 		rb = new JRadioButton(s != null ? s : "Conjugate Gradients");
-		rb.setEnabled(false);
+		rb.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				method = GradientMinimizer.CONJUGATE_GRADIENT;
+			}
+		});
+		bg.add(rb);
+		p.add(rb);
+
+		s = MolecularContainer.getInternationalText("LBFGS");
+		rb = new JRadioButton(s != null ? s : "L-BFGS");
+		rb.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				method = GradientMinimizer.LBFGS;
+			}
+		});
 		bg.add(rb);
 		p.add(rb);
 
@@ -128,6 +150,21 @@ class MinimizerDialog extends JDialog {
 		box.add(cb);
 		p.add(box);
 
+		box = new Box(BoxLayout.X_AXIS);
+		s = MolecularContainer.getInternationalText("GradientTolerance");
+		box.add(new JLabel((s != null ? s : "Gradient Tolerance") + ": ", SwingConstants.LEFT));
+		cb = new JComboBox(new Object[] { new Double(0.0001), new Double(0.001), new Double(0.01), new Double(0.1) });
+		cb.setPreferredSize(new Dimension(80, 20));
+		cb.setSelectedItem(new Double(GradientMinimizer.DEFAULT_TOLERANCE));
+		cb.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				JComboBox c = (JComboBox) e.getSource();
+				tolerance = ((Double) c.getSelectedItem()).doubleValue();
+			}
+		});
+		box.add(cb);
+		p.add(box);
+
 		panel.add(p, BorderLayout.CENTER);
 
 		getContentPane().add(panel, BorderLayout.CENTER);
@@ -151,7 +188,9 @@ class MinimizerDialog extends JDialog {
 	void runMinimizer() {
 		Thread t = new Thread(new Runnable() {
 			public void run() {
-				model.minimize(nstep, stepLength, 10);
+				if (method < 0)
+					model.minimize(nstep, stepLength, 10);
+				else model.minimize(method, nstep, stepLength, tolerance, null, 10);
 				model.notifyChange();
 			}
 		});
@@ -163,7 +202,9 @@ class MinimizerDialog extends JDialog {
 	void runMinimizer(final BitSet bs) {
 		Thread t = new Thread(new Runnable() {
 			public void run() {
-				model.minimize(nstep, stepLength, bs, 10);
+				if (method < 0)
+					model.minimize(nstep, stepLength, bs, 10);
+				else model.minimize(method, nstep, stepLength, tolerance, bs, 10);
 				model.notifyChange();
 			}
 		});
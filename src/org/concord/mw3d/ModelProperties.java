@@ -34,6 +34,7 @@ import java.awt.event.WindowEvent;
 import javax.swing.BorderFactory;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JDialog;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
@@ -55,6 +56,7 @@ class ModelProperties extends JDialog {
 	private MolecularModel model;
 	private JTextArea scriptArea;
 	private FloatNumberTextField stepField;
+	private JCheckBox parallelForceCheckBox;
 	private JLabel lengthLabel, widthLabel, heightLabel;
 	private JLabel atomCountLabel, rbondCountLabel, abondCountLabel, tbondCountLabel, moleculeCountLabel;
 	private JTabbedPane tabbedPane;
@@ -160,7 +162,7 @@ class ModelProperties extends JDialog {
 		s = MolecularContainer.getInternationalText("Interaction");
 		tabbedPane.add(s != null ? s : "Interactions", panel);
 
-		p = new JPanel(new GridLayout(7, 2, 2, 2));
+		p = new JPanel(new GridLayout(8, 2, 2, 2));
 		panel.add(p, BorderLayout.NORTH);
 
 		s = MolecularContainer.getInternationalText("GenericParticleProperties");
@@ -285,6 +287,13 @@ class ModelProperties extends JDialog {
 		tbondCountLabel = new JLabel(Integer.toString(model.getTBondCount()));
 		p.add(tbondCountLabel);
 
+		s = MolecularContainer.getInternationalText("ForceComputation");
+		p.add(new JLabel(s != null ? s : "Force Computation", SwingConstants.LEFT));
+		s = MolecularContainer.getInternationalText("ComputeForcesInParallel");
+		parallelForceCheckBox = new JCheckBox(s != null ? s : "Use all processors");
+		parallelForceCheckBox.setSelected(model.isParallelForceEnabled());
+		p.add(parallelForceCheckBox);
+
 		/* script */
 
 		scriptPanel = new JPanel(new BorderLayout(2, 2));
@@ -321,6 +330,7 @@ class ModelProperties extends JDialog {
 	private void confirm() {
 
 		model.setTimeStep(stepField.getValue());
+		model.setParallelForceEnabled(parallelForceCheckBox.isSelected());
 		String s = scriptArea.getText();
 		if (s != null && !s.trim().equals("")) {
 			model.setInitializationScript(scriptArea.getText());
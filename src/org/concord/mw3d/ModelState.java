@@ -44,6 +44,7 @@ import org.concord.mw3d.models.TBondState;
 public class ModelState implements Serializable {
 
 	private float timestep = 0.5f;
+	private boolean parallelForce;
 	private float length = 100;
 	private float width = 50;
 	private float height = 50;
@@ -334,6 +335,14 @@ public class ModelState implements Serializable {
 		return timestep;
 	}
 
+	public void setParallelForce(boolean b) {
+		parallelForce = b;
+	}
+
+	public boolean getParallelForce() {
+		return parallelForce;
+	}
+
 	public void setRBonds(List<RBondState> rbonds) {
 		this.rbonds = rbonds;
 	}
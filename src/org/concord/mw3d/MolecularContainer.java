@@ -786,6 +786,7 @@ public abstract class MolecularContainer extends JComponent implements Model, Jm
 		state.setVelocityVectorScalingFactor(view.getVelocityVectorScalingFactor());
 		state.setMoleculeStyle(view.getMolecularStyle());
 		state.setTimeStep(model.getTimeStep());
+		state.setParallelForce(model.isParallelForceEnabled());
 		state.setLength(model.getLength());
 		state.setWidth(model.getWidth());
 		state.setHeight(model.getHeight());
@@ -949,6 +950,7 @@ public abstract class MolecularContainer extends JComponent implements Model, Jm
 		model.setViewRefreshInterval(state.getViewRefreshInterval());
 		model.setInitializationScript(state.getInitScript());
 		model.setTimeStep(state.getTimeStep());
+		model.setParallelForceEnabled(state.getParallelForce());
 		model.setLength(state.getLength());
 		model.setWidth(state.getWidth());
 		model.setHeight(state.getHeight());
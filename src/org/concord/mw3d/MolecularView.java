@@ -40,6 +40,7 @@ import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionListener;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.BitSet;
 import java.util.HashMap;
@@ -53,6 +54,7 @@ import javax.vecmath.Point3f;
 import javax.vecmath.Point3i;
 import javax.vecmath.Vector3f;
 
+import org.myjmol.api.AtomCoordinateBuffer;
 import org.myjmol.api.Cockpit;
 import org.myjmol.api.JmolAdapter;
 import org.myjmol.api.JmolViewer;
@@ -66,6 +68,7 @@ import org.concord.modeler.draw.Draw;
 import org.concord.modeler.draw.DrawingElement;
 import org.concord.modeler.draw.FillMode;
 import org.concord.modeler.draw.GradientFactory;
+import org.concord.modeler.process.JobProfiler;
 import org.concord.modeler.ui.IconPool;
 import org.concord.modeler.util.FileUtilities;
 import org.concord.mw3d.models.ABond;
@@ -106,6 +109,7 @@ public class MolecularView extends Draw {
 		FORMAT.setMaximumFractionDigits(2);
 		FORMAT.setMaximumIntegerDigits(3);
 	}
+	private final static DecimalFormat PROFILER_FORMAT = new DecimalFormat("#0.###");
 
 	private static Map<String, Byte> nameIdMap;
 
@@ -131,6 +135,7 @@ public class MolecularView extends Draw {
 	private boolean showGlassSimulationBox = true;
 	private boolean showEnergizer;
 	private boolean showClock;
+	private boolean showProfiler;
 	private boolean showCharge;
 	private boolean showVdwLines;
 	private boolean showAtomIndex;
@@ -179,6 +184,7 @@ public class MolecularView extends Draw {
 	private float positionCenter, positionCorner;
 
 	private BitSet velocityBitSet;
+	private final Object coordinateLock = new Object();
 	private BitSet trajectoryBitSet;
 	private BitSet translucentBitSet;
 	private BitSet hidenBitSet;
@@ -218,6 +224,7 @@ public class MolecularView extends Draw {
 		viewer.setAutoBond(false);
 		viewer.setShowRebondTime(false);
 		viewer.setDisablePopupMenu(true);
+		viewer.setParallelRendering(true);
 		viewer.setColorBackground(Color.black);
 		setMolecularStyle(SPACE_FILLING);
 
@@ -818,23 +825,38 @@ public class MolecularView extends Draw {
 	 * if there is no change of coordinates.)
 	 */
 	public void refresh() {
-		synchronized (viewer) {
-			int n = model.getAtomCount();
-			Atom at;
+		int n = model.getAtomCount();
+		int vdw = viewer.getPercentVdwAtom();
+		Atom at;
+		// fill the back frame of the coordinate buffer, which the viewer takes when it renders the next image
+		synchronized (coordinateLock) {
+			AtomCoordinateBuffer buffer = viewer.getAtomCoordinateBuffer();
+			AtomCoordinateBuffer.Frame frame = buffer.getBackFrame(n, true, keShading);
+			float[] xyz = frame.getCoordinates();
+			float[] size = frame.getSizes();
+			int[] argb = frame.getColors();
 			for (int i = 0; i < n; i++) {
 				at = model.getAtom(i);
+				xyz[3 * i] = at.getRx();
+				xyz[3 * i + 1] = at.getRy();
+				xyz[3 * i + 2] = at.getRz();
 				if (at.isGenericParticle()) {
-					int vdw = viewer.getPercentVdwAtom();
-					viewer.setAtomSize(i, vdw == 100 ? 1000 * at.getSigma() : at.getSigma() * vdw * 10);
-				}
-				if (keShading) {
-					viewer.setAtomCoordinates(i, at.getRx(), at.getRy(), at.getRz(), getKeShadingColor(at.getKe()));
+					size[i] = vdw == 100 ? 1000 * at.getSigma() : at.getSigma() * vdw * 10;
 				}
 				else {
-					viewer.setAtomCoordinates(i, at.getRx(), at.getRy(), at.getRz());
+					size[i] = -1;
 				}
-				if (velocityBitSet.get(i))
+				if (keShading)
+					argb[i] = getKeShadingColor(at.getKe());
+			}
+			buffer.publish();
+		}
+		synchronized (viewer) {
+			if (!velocityBitSet.isEmpty()) {
+				for (int i = velocityBitSet.nextSetBit(0); i >= 0 && i < n; i = velocityBitSet.nextSetBit(i + 1)) {
+					at = model.getAtom(i);
 					viewer.setAtomVelocities(i, at.getVx(), at.getVy(), at.getVz());
+				}
 			}
 			if (showVdwLines) {
 				viewer.setVdwForceLines(model.getVdwPairs());
@@ -1210,6 +1232,22 @@ public class MolecularView extends Draw {
 		}
 	}
 
+	/**
+	 * show the steps per second, the milliseconds per step, the slowest phases and tasks of the simulation and the time
+	 * spent in each phase of the force computation
+	 */
+	public void setShowProfiler(boolean b) {
+		showProfiler = b;
+		if (b && !model.getProfiler().isEnabled())
+			model.resetForceTimes();
+		model.getProfiler().setEnabled(b);
+		repaint();
+	}
+
+	public boolean getShowProfiler() {
+		return showProfiler;
+	}
+
 	void setRightClickJob(Runnable r) {
 		rightClickJob = r;
 	}
@@ -1459,6 +1497,8 @@ public class MolecularView extends Draw {
 	}
 
 	public void paintComponent(Graphics g) {
+		JobProfiler profiler = model != null ? model.getProfiler() : null;
+		long t = profiler != null ? profiler.begin() : 0;
 		if (backgroundImage != null) {
 			int imax = getWidth() / iconWidth + 1;
 			int jmax = getHeight() / iconHeight + 1;
@@ -1480,6 +1520,8 @@ public class MolecularView extends Draw {
 		}
 		super.paintComponent(g);
 		update(g);
+		if (profiler != null)
+			profiler.end(JobProfiler.PAINT, t);
 	}
 
 	public void update(Graphics g) {
@@ -1526,6 +1568,8 @@ public class MolecularView extends Draw {
 				}
 			}
 			paintInfoString(g);
+			if (showProfiler)
+				paintProfiler(g);
 			if (viewer.getNavigationMode()) {
 				navigator.paint(g);
 				cockpit.paint(g);
@@ -1534,6 +1578,25 @@ public class MolecularView extends Draw {
 		}
 	}
 
+	private void paintProfiler(Graphics g) {
+		JobProfiler profiler = model.getProfiler();
+		g.setColor(contrastBackground());
+		g.setFont(FONT_PLAIN_12);
+		int h = g.getFontMetrics().getHeight();
+		String[] forces = model.getForceTimeReport().split("\n");
+		int y = getHeight() - (6 + forces.length) * h - 5;
+		g.drawString(Math.round(profiler.getStepsPerSecond()) + " steps/s, "
+				+ PROFILER_FORMAT.format(profiler.getMillisecondsPerStep()) + " ms/step", 5, y);
+		for (JobProfiler.Timer t : profiler.getSlowest(5)) {
+			y += h;
+			g.drawString(t.getName() + ": " + PROFILER_FORMAT.format(t.getMean() * 1.0e-6) + " ms x " + t.getCount(), 5, y);
+		}
+		for (String x : forces) {
+			y += h;
+			g.drawString(x, 5, y);
+		}
+	}
+
 	private void paintInfoString(Graphics g) {
 		if (infoString == null)
 			return;
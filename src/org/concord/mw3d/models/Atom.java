@@ -144,12 +144,14 @@ public class Atom {
 			rbondList = Collections.synchronizedList(new ArrayList<RBond>());
 		if (!rbondList.contains(rbond))
 			rbondList.add(rbond);
+		bondsChanged();
 	}
 
 	void removeRBond(RBond rbond) {
 		if (rbondList == null)
 			return;
 		rbondList.remove(rbond);
+		bondsChanged();
 	}
 
 	void addABond(ABond abond) {
@@ -157,12 +159,29 @@ public class Atom {
 			abondList = Collections.synchronizedList(new ArrayList<ABond>());
 		if (!abondList.contains(abond))
 			abondList.add(abond);
+		bondsChanged();
 	}
 
 	void removeABond(ABond abond) {
 		if (abondList == null)
 			return;
 		abondList.remove(abond);
+		bondsChanged();
+	}
+
+	private void bondsChanged() {
+		if (model != null)
+			model.invalidateBondExclusions();
+	}
+
+	/* the radial bonds this atom is involved in, or null if there is none */
+	List<RBond> getRBondList() {
+		return rbondList;
+	}
+
+	/* the angular bonds this atom is involved in, or null if there is none */
+	List<ABond> getABondList() {
+		return abondList;
 	}
 
 	void addTBond(TBond tbond) {
@@ -203,6 +222,7 @@ public class Atom {
 				tbondList.clear();
 			}
 		}
+		bondsChanged();
 	}
 
 	public void setElementNumber(short i) {
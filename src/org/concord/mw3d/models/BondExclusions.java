@@ -0,0 +1,124 @@
+/*
+ *   Copyright (C) 2006  The Concord Consortium, Inc.,
+ *   25 Love Lane, Concord, MA 01742
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * END LICENSE */
+
+package org.concord.mw3d.models;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This is a precomputed table of the pairs of atoms that are excluded from the non-bonded interactions because they
+ * are connected by a radial bond or belong to the same angular bond. It gives the same answer as
+ * <code>atom[i].isBonded(atom[j]) || atom[i].isABonded(atom[j])</code>, but looks up a short sorted list of
+ * partners instead of walking the bond lists of the atom. The table is built lazily and invalidated whenever a bond
+ * is added to or removed from an atom, or atoms are removed.
+ *
+ * @author Charles Xie
+ *
+ */
+class BondExclusions {
+
+	private int n = -1;
+	private volatile boolean valid;
+	private int[] start = new int[1];
+	private int[] partner = new int[16];
+
+	BondExclusions() {
+	}
+
+	void invalidate() {
+		valid = false;
+	}
+
+	/** return true if the table is up to date for the first n atoms */
+	boolean isValid(int n) {
+		return valid && this.n == n;
+	}
+
+	/** build the table for the first n atoms of the array */
+	void build(Atom[] atom, int n) {
+		valid = true; // set first so that a bond change during the build invalidates it again
+		this.n = n;
+		if (start.length < n + 1)
+			start = new int[n + 1];
+		int m = 0;
+		for (int i = 0; i < n; i++) {
+			start[i] = m;
+			Atom a = atom[i];
+			List<RBond> rbonds = a.getRBondList();
+			if (rbonds != null && !rbonds.isEmpty()) {
+				synchronized (rbonds) {
+					for (RBond rb : rbonds) {
+						m = add(atom, n, rb.getAtom1(), a, m);
+						m = add(atom, n, rb.getAtom2(), a, m);
+					}
+				}
+			}
+			List<ABond> abonds = a.getABondList();
+			if (abonds != null && !abonds.isEmpty()) {
+				synchronized (abonds) {
+					for (ABond ab : abonds) {
+						m = add(atom, n, ab.getAtom1(), a, m);
+						m = add(atom, n, ab.getAtom2(), a, m);
+						m = add(atom, n, ab.getAtom3(), a, m);
+					}
+				}
+			}
+			// sort the partners and drop the duplicates
+			int beg = start[i];
+			Arrays.sort(partner, beg, m);
+			int k = beg;
+			for (int p = beg; p < m; p++) {
+				if (p == beg || partner[p] != partner[p - 1])
+					partner[k++] = partner[p];
+			}
+			m = k;
+		}
+		start[n] = m;
+	}
+
+	/* add the index of the partner unless it is the atom itself or not among the first n atoms */
+	private int add(Atom[] atom, int n, Atom other, Atom self, int m) {
+		if (other == null || other == self)
+			return m;
+		int j = other.index;
+		if (j < 0 || j >= n || atom[j] != other)
+			return m;
+		if (m == partner.length) {
+			int[] a = new int[m * 2];
+			System.arraycopy(partner, 0, a, 0, m);
+			partner = a;
+		}
+		partner[m] = j;
+		return m + 1;
+	}
+
+	/** return true if the non-bonded interactions between the i-th and the j-th atoms are excluded */
+	boolean contains(int i, int j) {
+		for (int k = start[i], end = start[i + 1]; k < end; k++) {
+			if (partner[k] == j)
+				return true;
+			if (partner[k] > j)
+				return false;
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,141 @@
+/*
+ *   Copyright (C) 2006  The Concord Consortium, Inc.,
+ *   25 Love Lane, Concord, MA 01742
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * END LICENSE */
+
+package org.concord.mw3d.models;
+
+/**
+ * This is a linked-cell binning of atoms in 3D. The bounding box of the atoms is divided into cells that are no smaller
+ * than the given interaction range, so that all the partners of an atom within the range can be found in the 27 cells
+ * around the cell of the atom. A point outside the bounding box is put into the nearest edge cell, which never misses
+ * a pair because clamping never separates two cells further.
+ *
+ * @author Charles Xie
+ *
+ */
+class CellList {
+
+	private int nx, ny, nz;
+	private float x0, y0, z0, dx, dy, dz;
+	private int[] head, next;
+
+	CellList() {
+	}
+
+	/**
+	 * bin the first n atoms at the given coordinates into cells of at least the given range. The total number of cells
+	 * is capped at a few per atom so that a sparse system does not allocate a huge empty grid.
+	 */
+	void bin(float[] rx, float[] ry, float[] rz, int n, float range) {
+		if (n <= 0) {
+			nx = ny = nz = 0;
+			return;
+		}
+		float xmin = rx[0], xmax = rx[0], ymin = ry[0], ymax = ry[0], zmin = rz[0], zmax = rz[0];
+		for (int i = 1; i < n; i++) {
+			if (rx[i] < xmin)
+				xmin = rx[i];
+			else if (rx[i] > xmax)
+				xmax = rx[i];
+			if (ry[i] < ymin)
+				ymin = ry[i];
+			else if (ry[i] > ymax)
+				ymax = ry[i];
+			if (rz[i] < zmin)
+				zmin = rz[i];
+			else if (rz[i] > zmax)
+				zmax = rz[i];
+		}
+		x0 = xmin;
+		y0 = ymin;
+		z0 = zmin;
+		float w = xmax - xmin, h = ymax - ymin, d = zmax - zmin;
+		if (range <= 0 || Float.isNaN(range))
+			range = Math.max(w, Math.max(h, d)) + 1;
+		int maxCells = Math.max(2 * n, 27);
+		while (true) {
+			nx = Math.max(1, (int) (w / range));
+			ny = Math.max(1, (int) (h / range));
+			nz = Math.max(1, (int) (d / range));
+			if ((long) nx * ny * nz <= maxCells)
+				break;
+			range *= 1.5f;
+		}
+		dx = nx > 1 ? w / nx : Math.max(w, range);
+		dy = ny > 1 ? h / ny : Math.max(h, range);
+		dz = nz > 1 ? d / nz : Math.max(d, range);
+		int m = nx * ny * nz;
+		if (head == null || head.length < m)
+			head = new int[m];
+		for (int k = 0; k < m; k++)
+			head[k] = -1;
+		if (next == null || next.length < n)
+			next = new int[n];
+		// insert in reverse order so that each cell chain lists atoms in ascending index order
+		for (int i = n - 1; i >= 0; i--) {
+			int c = getCellX(rx[i]) + nx * (getCellY(ry[i]) + ny * getCellZ(rz[i]));
+			next[i] = head[c];
+			head[c] = i;
+		}
+	}
+
+	int getCellCountX() {
+		return nx;
+	}
+
+	int getCellCountY() {
+		return ny;
+	}
+
+	int getCellCountZ() {
+		return nz;
+	}
+
+	/** return the column of cells the x coordinate falls in, clamped to the grid */
+	int getCellX(float x) {
+		return clamp((int) Math.floor((x - x0) / dx), nx);
+	}
+
+	int getCellY(float y) {
+		return clamp((int) Math.floor((y - y0) / dy), ny);
+	}
+
+	int getCellZ(float z) {
+		return clamp((int) Math.floor((z - z0) / dz), nz);
+	}
+
+	private static int clamp(int i, int n) {
+		if (i < 0)
+			return 0;
+		if (i >= n)
+			return n - 1;
+		return i;
+	}
+
+	/** return the first atom in the cell at the given column, row and layer, or -1 if the cell is empty */
+	int getFirst(int i, int j, int k) {
+		return head[i + nx * (j + ny * k)];
+	}
+
+	/** return the atom next to the i-th atom in the same cell, or -1 if i is the last one */
+	int getNext(int i) {
+		return next[i];
+	}
+
+}
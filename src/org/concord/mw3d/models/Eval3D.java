@@ -86,13 +86,11 @@ class Eval3D extends AbstractEval {
 
 	private MolecularModel model;
 	private MolecularView view;
-	private Atom[] atom;
 	private List<ScriptExecutionListener> executionListeners;
 
 	public Eval3D(MolecularModel model, boolean asTask) {
 		super();
 		this.model = model;
-		atom = model.atom;
 		view = model.getView();
 		setAsTask(asTask);
 	}
@@ -1048,7 +1046,7 @@ class Eval3D extends AbstractEval {
 		if (nop <= 0)
 			return true;
 		for (int k = 0; k < nop; k++) {
-			if (atom[k].isSelected())
+			if (model.atom[k].isSelected())
 				view.setCharge(k, c);
 		}
 		view.repaint();
@@ -1121,8 +1119,8 @@ class Eval3D extends AbstractEval {
 			return true;
 		List<Atom> list = new ArrayList<Atom>();
 		for (int k = 0; k < nop; k++) {
-			if (atom[k].isSelected())
-				list.add(atom[k]);
+			if (model.atom[k].isSelected())
+				list.add(model.atom[k]);
 		}
 		model.heatAtoms(list, h);
 		view.repaint();
@@ -1402,6 +1400,11 @@ class Eval3D extends AbstractEval {
 			view.setShowClock(result == ON);
 			return true;
 		}
+		result = parseOnOff("profiler", s);
+		if (result != -1) {
+			view.setShowProfiler(result == ON);
+			return true;
+		}
 		result = parseOnOff("vdwline", s);
 		if (result != -1) {
 			view.setShowVdwLines(result == ON);
@@ -1541,6 +1544,11 @@ class Eval3D extends AbstractEval {
 					model.notifyChange();
 					return true;
 				}
+				else if (s0 == "parallelforce") {
+					model.setParallelForceEnabled("on".equalsIgnoreCase(s[1].trim()));
+					model.notifyChange();
+					return true;
+				}
 				else if (s0 == "movable") {
 					boolean b = "on".equalsIgnoreCase(s[1].trim());
 					int n = model.getAtomCount();
@@ -1721,6 +1729,14 @@ class Eval3D extends AbstractEval {
 				model.notifyChange();
 				return true;
 			}
+			else if (s0 == "celllist") {
+				if (x < 0) {
+					out(ScriptEvent.FAILED, "Illegal parameter: cell list threshold cannot be negative: " + x);
+					return false;
+				}
+				model.setCellListThreshold((int) Math.round(x));
+				return true;
+			}
 			else if (s0 == "heatbath") {
 				model.activateHeatBath(x > 0);
 				if (model.heatBathActivated())
@@ -2077,6 +2093,10 @@ class Eval3D extends AbstractEval {
 	private boolean evaluatePrintClause(String str) {
 		if (str == null)
 			return false;
+		if (str.trim().equalsIgnoreCase("profiler")) {
+			out(ScriptEvent.SUCCEEDED, model.getProfiler().getReport() + model.getForceTimeReport());
+			return true;
+		}
 		str = format(str);
 		out(ScriptEvent.SUCCEEDED, str);
 		return true;
@@ -2290,32 +2310,32 @@ class Eval3D extends AbstractEval {
 		boolean b = true;
 		if (s == "id") {
 			String symbol = model.getSymbol((int) x);
-			atom[i].setSymbol(symbol);
+			model.atom[i].setSymbol(symbol);
 			view.getViewer().setAtomType(i, (short) x, symbol);
 			// FIXME: this doesn't change the view
 		}
 		else if (s == "rx")
-			atom[i].rx = x;
+			model.atom[i].rx = x;
 		else if (s == "ry")
-			atom[i].ry = x;
+			model.atom[i].ry = x;
 		else if (s == "rz")
-			atom[i].rz = x;
+			model.atom[i].rz = x;
 		else if (s == "vx")
-			atom[i].vx = x * IV_CONVERTER;
+			model.atom[i].vx = x * IV_CONVERTER;
 		else if (s == "vy")
-			atom[i].vy = x * IV_CONVERTER;
+			model.atom[i].vy = x * IV_CONVERTER;
 		else if (s == "vz")
-			atom[i].vz = x * IV_CONVERTER;
+			model.atom[i].vz = x * IV_CONVERTER;
 		else if (s == "ax")
-			atom[i].ax = x;
+			model.atom[i].ax = x;
 		else if (s == "ay")
-			atom[i].ay = x;
+			model.atom[i].ay = x;
 		else if (s == "az")
-			atom[i].az = x;
+			model.atom[i].az = x;
 		else if (s == "charge")
-			atom[i].charge = x;
+			model.atom[i].charge = x;
 		else if (s == "friction")
-			atom[i].damp = x;
+			model.atom[i].damp = x;
 		else {
 			out(ScriptEvent.FAILED, "Cannot set property: " + str2);
 			b = false;
@@ -2364,7 +2384,7 @@ class Eval3D extends AbstractEval {
 		int n = model.getAtomCount();
 		BitSet bs = new BitSet(n);
 		for (int k = 0; k < n; k++) {
-			if (atom[k].isSelected())
+			if (model.atom[k].isSelected())
 				bs.set(k);
 		}
 		if (bs.cardinality() > 0)
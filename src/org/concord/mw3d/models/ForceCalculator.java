@@ -20,9 +20,15 @@
 
 package org.concord.mw3d.models;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
 import javax.vecmath.Point3f;
 import javax.vecmath.Vector3f;
 
+import org.concord.modeler.process.WorkerPool;
 import org.myjmol.api.Pair;
 
 class ForceCalculator {
@@ -41,6 +47,12 @@ class ForceCalculator {
 	private final static float SIX_TIMES_UNIT_FORCE = 6.0f * GF_CONVERSION_CONSTANT;
 	private final static float MIN_SINTHETA = 0.001f;
 
+	/* by default, the neighbor list is rebuilt with cells when there are at least this many atoms */
+	private final static int CELL_LIST_THRESHOLD = 100;
+
+	/* a bonded phase is split into pieces of at least this many bonds */
+	private final static int MIN_BONDS_PER_TASK = 64;
+
 	float xbox = 50f, ybox = 25f, zbox = 25f; // half size of the simulation box
 
 	private MolecularModel model;
@@ -51,39 +63,121 @@ class ForceCalculator {
 	private float sigmai, sigmaj, sigmaij;
 	private float rxi, ryi, rzi;
 	private float fxi, fyi, fzi;
-	private float fxk, fyk, fzk;
-	private float fxl, fyl, fzl;
 	private float rxij, ryij, rzij, rij, rijsq;
-	private float rxkj, rykj, rzkj, rkj, rkjsq;
-	private float rxlk, rylk, rzlk, rlk, rlksq;
 	float virialLJ, virialEL;
 	private float sr2, sr6, sr12, vij, wij, fij;
 	private float fxij, fyij, fzij;
 	private float rCutOff = 2.5f, rList = rCutOff + 1.0f;
 	private float rCutOffSq;
 	private float sigab, epsab;
-	private float strength, angle, length;
-	private float inverseMass1, inverseMass2, inverseMass3, inverseMass4;
-	private Atom atom1, atom2, atom3, atom4;
-	private float theta, sintheta;
-	private Vector3f vector1, vector2;
+	private float inverseMass1;
 
 	private volatile boolean updateList = true;
 	private int[] neighborList, pointer;
+	private int cellListThreshold = CELL_LIST_THRESHOLD;
 	private boolean isPBC;
 	private Pair[] pairs;
+	private BondExclusions exclusions;
+	private CellList cellList;
+	private int[] cellsX = new int[9], cellsY = new int[9], cellsZ = new int[9];
+
+	private boolean parallel;
+	private int threads = WorkerPool.getProcessorCount();
+	private float[] forceX, forceY, forceZ;
+	private float[][] bufferX, bufferY, bufferZ;
+	private RBond[] rBondArray = new RBond[0];
+	private ABond[] aBondArray = new ABond[0];
+	private TBond[] tBondArray = new TBond[0];
+	private long[] phaseTime = new long[6];
+	private int computeCount;
 
 	ForceCalculator(MolecularModel model) {
 		this.model = model;
 		this.atom = model.atom;
-		rx0 = new float[MolecularModel.SIZE];
-		ry0 = new float[MolecularModel.SIZE];
-		rz0 = new float[MolecularModel.SIZE];
-		neighborList = new int[MolecularModel.SIZE * MolecularModel.SIZE >> 1];
-		pointer = new int[MolecularModel.SIZE];
-		vector1 = new Vector3f();
-		vector2 = new Vector3f();
+		int n = atom.length;
+		rx0 = new float[n];
+		ry0 = new float[n];
+		rz0 = new float[n];
+		neighborList = new int[n * n >> 1];
+		pointer = new int[n];
 		rCutOffSq = rCutOff * rCutOff;
+		exclusions = new BondExclusions();
+		cellList = new CellList();
+		forceX = new float[n];
+		forceY = new float[n];
+		forceZ = new float[n];
+	}
+
+	/*
+	 * called when the model has replaced its atom array with a larger one. The arrays indexed by atoms are grown before
+	 * the new atom array is taken, and the neighbor list will be rebuilt in the next step.
+	 */
+	synchronized void setAtomArray(Atom[] a) {
+		int n = a.length;
+		rx0 = grow(rx0, n);
+		ry0 = grow(ry0, n);
+		rz0 = grow(rz0, n);
+		int[] p = new int[n];
+		System.arraycopy(pointer, 0, p, 0, pointer.length);
+		pointer = p;
+		forceX = new float[n];
+		forceY = new float[n];
+		forceZ = new float[n];
+		atom = a;
+		updateList = true;
+	}
+
+	private static float[] grow(float[] x, int n) {
+		float[] y = new float[n];
+		System.arraycopy(x, 0, y, 0, x.length);
+		return y;
+	}
+
+	void setCellListThreshold(int n) {
+		if (n < 0)
+			throw new IllegalArgumentException("threshold cannot be negative");
+		cellListThreshold = n;
+	}
+
+	int getCellListThreshold() {
+		return cellListThreshold;
+	}
+
+	void setParallel(boolean b) {
+		parallel = b;
+	}
+
+	boolean isParallel() {
+		return parallel;
+	}
+
+	void setThreads(int n) {
+		if (n < 1)
+			throw new IllegalArgumentException("number of threads must be at least 1");
+		threads = n;
+	}
+
+	int getThreads() {
+		return threads;
+	}
+
+	/* return the time in nanoseconds spent in the specified phase since the last reset */
+	long getPhaseTime(byte phase) {
+		return phaseTime[phase];
+	}
+
+	/* return the number of force computations since the last reset */
+	int getComputeCount() {
+		return computeCount;
+	}
+
+	void resetPhaseTimes() {
+		Arrays.fill(phaseTime, 0);
+		computeCount = 0;
+	}
+
+	void invalidateBondExclusions() {
+		exclusions.invalidate();
 	}
 
 	void setUpdateList(boolean b) {
@@ -265,6 +359,10 @@ class ForceCalculator {
 		if (movableCount == 0)
 			return 0;
 
+		// the phases are timed only while the profiler of the model is on
+		boolean timed = model.getProfiler().isEnabled();
+		long t0 = timed ? System.nanoTime() : 0;
+
 		checkNeighborList(iAtom);
 
 		float vsum = 0.0f;
@@ -274,7 +372,16 @@ class ForceCalculator {
 
 		isPBC = model.boundaryType == MolecularModel.PERIODIC_BOUNDARY;
 
-		if (updateList) {
+		if (!exclusions.isValid(iAtom))
+			exclusions.build(atom, iAtom);
+
+		boolean rebuildList = updateList;
+		if (rebuildList && iAtom >= cellListThreshold) {
+			updateNeighborListWithCells(iAtom);
+			rebuildList = false;
+		}
+
+		if (rebuildList) {
 
 			for (int i = 0; i < iAtom; i++) {
 				rx0[i] = atom[i].rx;
@@ -301,10 +408,9 @@ class ForceCalculator {
 
 					if (!iMovable && !atom[j].isMovable())
 						continue;
-					if (atom[i].isBonded(atom[j]) || atom[i].isABonded(atom[j]))
+					if (exclusions.contains(i, j))
 						continue;
 					// do not compute LJ and Coulombic forces for bonded pairs.
-					// if there are many bonds, perhaps we should pre-generate a bonding table.
 
 					rxij = rxi - atom[j].rx;
 					ryij = ryi - atom[j].ry;
@@ -322,6 +428,11 @@ class ForceCalculator {
 					sigmaij = sigmai * sigmaj;
 
 					if (rijsq < rList * rList * sigmaij) {
+						if (nlist == neighborList.length) {
+							int[] newList = new int[nlist * 2];
+							System.arraycopy(neighborList, 0, newList, 0, nlist);
+							neighborList = newList;
+						}
 						neighborList[nlist++] = j;
 					}
 
@@ -395,130 +506,13 @@ class ForceCalculator {
 		}
 		else {
 
-			int j;
-
-			for (int i = 0, iAtom1 = iAtom - 1; i < iAtom1; i++) {
-
-				iMovable = atom[i].isMovable();
-
-				rxi = atom[i].rx;
-				ryi = atom[i].ry;
-				rzi = atom[i].rz;
-				fxi = atom[i].fx;
-				fyi = atom[i].fy;
-				fzi = atom[i].fz;
-
-				jbeg = pointer[i];
-				jend = pointer[i + 1];
-
-				if (jbeg < jend) {
-
-					for (int jnab = jbeg; jnab < jend; jnab++) {
-
-						j = neighborList[jnab];
-						if (!iMovable && !atom[j].isMovable())
-							continue;
-						if (atom[i].isBonded(atom[j]) || atom[i].isABonded(atom[j]))
-							continue;
-						// do not compute LJ for bonded pairs.
-						// there can be many bonds, perhaps we should pre-generate a bonding table.
-
-						rxij = rxi - atom[j].rx;
-						ryij = ryi - atom[j].ry;
-						rzij = rzi - atom[j].rz;
-
-						if (isPBC) {
-							minimumImageConvention();
-						}
-						rijsq = rxij * rxij + ryij * ryij + rzij * rzij;
-
-						sigmai = atom[i].sigma;
-						sigmaj = atom[j].sigma;
-
-						if (rijsq < rCutOffSq * sigmai * sigmaj) {
-
-							sigab = 0.5f * (sigmai + sigmaj);
-							sigab *= sigab;
-							sr2 = sigab / rijsq;
-							/* check if this pair gets too close */
-							if (sr2 > 2.0f) {
-								sr2 = 2.0f;
-								rijsq = 0.5f * sigab;
-							}
-							sr6 = sr2 * sr2 * sr2;
-							sr12 = sr6 * sr6;
-							// geometric mean is costly
-							// epsab = 4 * (float) Math.sqrt(atom[i].epsilon * atom[j].epsilon);
-							// use arithmetic mean instead
-							epsab = 2.0f * (atom[i].epsilon + atom[j].epsilon);
-							vij = (sr12 - sr6) * epsab;
-							wij = vij + sr12 * epsab;
-
-							/*
-							 * if(cutOffShift){ vij-=poten_LJ[atom[i].getID()][atom[j].getID()];
-							 * wij-=slope_LJ[atom[i].getID()][atom[j].getID()]; }
-							 */
-
-							vsum += vij;
-							virialLJ += wij;
-
-							fij = wij / rijsq * SIX_TIMES_UNIT_FORCE;
-							fxij = fij * rxij;
-							fyij = fij * ryij;
-							fzij = fij * rzij;
-							fxi += fxij;
-							fyi += fyij;
-							fzi += fzij;
-							atom[j].fx -= fxij;
-							atom[j].fy -= fyij;
-							atom[j].fz -= fzij;
-
-						}
-					}
-				}
-
-				// do not use neighbor list for computing Coulombic forces
-				if (model.coulombicIsOn) {
-
-					for (j = i + 1; j < iAtom; j++) {
-						if (Math.abs(atom[i].charge) + Math.abs(atom[j].charge) < MolecularModel.ZERO)
-							continue;
-						if (!iMovable && !atom[j].isMovable())
-							continue;
-						if (atom[i].isBonded(atom[j]) || atom[i].isABonded(atom[j]))
-							continue;
-						rxij = rxi - atom[j].rx;
-						ryij = ryi - atom[j].ry;
-						rzij = rzi - atom[j].rz;
-						if (isPBC) {
-							minimumImageConvention();
-						}
-						rijsq = rxij * rxij + ryij * ryij + rzij * rzij;
-						coul = COULOMB_CONSTANT * atom[i].charge * atom[j].charge / (float) Math.sqrt(rijsq);
-						vsum += coul;
-						virialEL += coul;
-						fij = coul / rijsq * GF_CONVERSION_CONSTANT;
-						fxij = fij * rxij;
-						fyij = fij * ryij;
-						fzij = fij * rzij;
-						fxi += fxij;
-						fyi += fyij;
-						fzi += fzij;
-						atom[j].fx -= fxij;
-						atom[j].fy -= fyij;
-						atom[j].fz -= fzij;
-					}
-
-				}
-
-				atom[i].fx = fxi;
-				atom[i].fy = fyi;
-				atom[i].fz = fzi;
-
-			}
+			vsum = computeNonBondedForces(iAtom, vsum);
 
 		}
 
+		long t1 = timed ? System.nanoTime() : 0;
+		phaseTime[MolecularModel.NON_BONDED_FORCES] += t1 - t0;
+
 		for (int i = 0; i < iAtom; i++) {
 			if (atom[i].isMovable()) {
 				damp(atom[i]);
@@ -530,12 +524,25 @@ class ForceCalculator {
 			}
 		}
 
+		long t2 = timed ? System.nanoTime() : 0;
+		phaseTime[MolecularModel.FIELD_FORCES] += t2 - t1;
+
 		// must be after the above procedure because the mass is divided separately for the following forces
 		// each of the following routines consume much less time than the vdw calculations (for <1000 r, a, t-bonds)
 		vsum += calculateRestraints();
+		long t3 = timed ? System.nanoTime() : 0;
+		phaseTime[MolecularModel.RESTRAINT_FORCES] += t3 - t2;
 		vsum += calculateRBonds();
+		long t4 = timed ? System.nanoTime() : 0;
+		phaseTime[MolecularModel.RADIAL_BOND_FORCES] += t4 - t3;
 		vsum += calculateABonds();
+		long t5 = timed ? System.nanoTime() : 0;
+		phaseTime[MolecularModel.ANGULAR_BOND_FORCES] += t5 - t4;
 		vsum += calculateTBonds();
+		if (timed) {
+			phaseTime[MolecularModel.TORSIONAL_BOND_FORCES] += System.nanoTime() - t5;
+			computeCount++;
+		}
 
 		virialLJ *= 3.0f;
 
@@ -588,112 +595,443 @@ class ForceCalculator {
 		return energy * 0.5f;
 	}
 
-	// v(r)=k*(rij-rij_0)^2/2
+	/*
+	 * compute the Lennard-Jones and Coulomb forces between the atoms that have a valid neighbor list. The atoms that own
+	 * pairs are split into blocks of about equal work, each of which accumulates forces into its own buffer on a worker
+	 * thread. The buffers are added up in the order of the blocks, so the results do not depend on thread scheduling, and
+	 * a single block reproduces the serial computation exactly.
+	 */
+	private float computeNonBondedForces(final int iAtom, float vsum) {
+
+		for (int i = 0; i < iAtom; i++) {
+			forceX[i] = atom[i].fx;
+			forceY[i] = atom[i].fy;
+			forceZ[i] = atom[i].fz;
+		}
+
+		int m = iAtom - 1;
+		int nt = parallel ? Math.min(threads, m) : 1;
+		if (nt <= 1) {
+			float[] r = computePairs(0, m, iAtom, forceX, forceY, forceZ, vsum, virialLJ, virialEL);
+			vsum = r[0];
+			virialLJ = r[1];
+			virialEL = r[2];
+		}
+		else {
+			ensureBuffers(nt - 1, iAtom);
+			boolean coulombic = model.coulombicIsOn;
+			long total = 0;
+			for (int i = 0; i < m; i++)
+				total += pointer[i + 1] - pointer[i] + (coulombic ? iAtom - 1 - i : 0) + 1;
+			List<Callable<float[]>> tasks = new ArrayList<Callable<float[]>>(nt);
+			long work = 0;
+			int ibeg = 0, i = 0;
+			for (int t = 0; t < nt; t++) {
+				long target = total * (t + 1) / nt;
+				while (i < m && (work < target || t == nt - 1)) {
+					work += pointer[i + 1] - pointer[i] + (coulombic ? iAtom - 1 - i : 0) + 1;
+					i++;
+				}
+				final int b = ibeg, e = i;
+				final float[] bx = t == 0 ? forceX : bufferX[t - 1];
+				final float[] by = t == 0 ? forceY : bufferY[t - 1];
+				final float[] bz = t == 0 ? forceZ : bufferZ[t - 1];
+				final float v0 = t == 0 ? vsum : 0, w0 = t == 0 ? virialLJ : 0, e0 = t == 0 ? virialEL : 0;
+				tasks.add(new Callable<float[]>() {
+					public float[] call() {
+						return computePairs(b, e, iAtom, bx, by, bz, v0, w0, e0);
+					}
+				});
+				ibeg = i;
+			}
+			List<float[]> partials = WorkerPool.invoke(tasks);
+			float[] r = partials.get(0);
+			vsum = r[0];
+			virialLJ = r[1];
+			virialEL = r[2];
+			for (int t = 1; t < nt; t++) {
+				r = partials.get(t);
+				vsum += r[0];
+				virialLJ += r[1];
+				virialEL += r[2];
+			}
+			reduceBuffers(nt - 1, iAtom);
+		}
+
+		for (int i = 0; i < iAtom; i++) {
+			atom[i].fx = forceX[i];
+			atom[i].fy = forceY[i];
+			atom[i].fz = forceZ[i];
+		}
+
+		return vsum;
+
+	}
+
+	/*
+	 * compute the pairwise forces of atoms ibeg, ..., iend-1 in the same way as the serial loop over the neighbor list
+	 * did, except that everything is held in local variables and the forces go into the given buffers. Return the
+	 * potential energy, the LJ virial and the electrostatic virial, starting from the given values.
+	 */
+	private float[] computePairs(int ibeg, int iend, int iAtom, float[] bx, float[] by, float[] bz, float v, float wLJ, float wEL) {
+
+		float rxi, ryi, rzi, fxi, fyi, fzi, rxij, ryij, rzij, rijsq;
+		float sigmai, sigmaj, sigab, epsab, sr2, sr6, sr12, vij, wij, fij, fxij, fyij, fzij, coul;
+		boolean iMovable;
+		boolean coulombic = model.coulombicIsOn;
+		int j;
+
+		for (int i = ibeg; i < iend; i++) {
+
+			iMovable = atom[i].isMovable();
+			rxi = atom[i].rx;
+			ryi = atom[i].ry;
+			rzi = atom[i].rz;
+			fxi = bx[i];
+			fyi = by[i];
+			fzi = bz[i];
+
+			for (int jnab = pointer[i], jend = pointer[i + 1]; jnab < jend; jnab++) {
+				j = neighborList[jnab];
+				if (!iMovable && !atom[j].isMovable())
+					continue;
+				if (exclusions.contains(i, j))
+					continue;
+				rxij = rxi - atom[j].rx;
+				ryij = ryi - atom[j].ry;
+				rzij = rzi - atom[j].rz;
+				if (isPBC) {
+					if (rxij > xbox * 0.5f)
+						rxij -= xbox;
+					if (rxij <= -xbox * 0.5f)
+						rxij += xbox;
+					if (ryij > ybox * 0.5f)
+						ryij -= ybox;
+					if (ryij <= -ybox * 0.5f)
+						ryij += ybox;
+					if (rzij > zbox * 0.5f)
+						rzij -= zbox;
+					if (rzij <= -zbox * 0.5f)
+						rzij += zbox;
+				}
+				rijsq = rxij * rxij + ryij * ryij + rzij * rzij;
+				sigmai = atom[i].sigma;
+				sigmaj = atom[j].sigma;
+				if (rijsq < rCutOffSq * sigmai * sigmaj) {
+					sigab = 0.5f * (sigmai + sigmaj);
+					sigab *= sigab;
+					sr2 = sigab / rijsq;
+					/* check if this pair gets too close */
+					if (sr2 > 2.0f) {
+						sr2 = 2.0f;
+						rijsq = 0.5f * sigab;
+					}
+					sr6 = sr2 * sr2 * sr2;
+					sr12 = sr6 * sr6;
+					epsab = 2.0f * (atom[i].epsilon + atom[j].epsilon);
+					vij = (sr12 - sr6) * epsab;
+					wij = vij + sr12 * epsab;
+					v += vij;
+					wLJ += wij;
+					fij = wij / rijsq * SIX_TIMES_UNIT_FORCE;
+					fxij = fij * rxij;
+					fyij = fij * ryij;
+					fzij = fij * rzij;
+					fxi += fxij;
+					fyi += fyij;
+					fzi += fzij;
+					bx[j] -= fxij;
+					by[j] -= fyij;
+					bz[j] -= fzij;
+				}
+			}
+
+			// do not use neighbor list for computing Coulombic forces
+			if (coulombic) {
+				for (j = i + 1; j < iAtom; j++) {
+					if (Math.abs(atom[i].charge) + Math.abs(atom[j].charge) < MolecularModel.ZERO)
+						continue;
+					if (!iMovable && !atom[j].isMovable())
+						continue;
+					if (exclusions.contains(i, j))
+						continue;
+					rxij = rxi - atom[j].rx;
+					ryij = ryi - atom[j].ry;
+					rzij = rzi - atom[j].rz;
+					if (isPBC) {
+						if (rxij > xbox * 0.5f)
+							rxij -= xbox;
+						if (rxij <= -xbox * 0.5f)
+							rxij += xbox;
+						if (ryij > ybox * 0.5f)
+							ryij -= ybox;
+						if (ryij <= -ybox * 0.5f)
+							ryij += ybox;
+						if (rzij > zbox * 0.5f)
+							rzij -= zbox;
+						if (rzij <= -zbox * 0.5f)
+							rzij += zbox;
+					}
+					rijsq = rxij * rxij + ryij * ryij + rzij * rzij;
+					coul = COULOMB_CONSTANT * atom[i].charge * atom[j].charge / (float) Math.sqrt(rijsq);
+					v += coul;
+					wEL += coul;
+					fij = coul / rijsq * GF_CONVERSION_CONSTANT;
+					fxij = fij * rxij;
+					fyij = fij * ryij;
+					fzij = fij * rzij;
+					fxi += fxij;
+					fyi += fyij;
+					fzi += fzij;
+					bx[j] -= fxij;
+					by[j] -= fyij;
+					bz[j] -= fzij;
+				}
+			}
+
+			bx[i] = fxi;
+			by[i] = fyi;
+			bz[i] = fzi;
+
+		}
+
+		return new float[] { v, wLJ, wEL };
+
+	}
+
+	private void ensureBuffers(int count, int n) {
+		if (bufferX == null || bufferX.length < count) {
+			bufferX = new float[count][];
+			bufferY = new float[count][];
+			bufferZ = new float[count][];
+		}
+		for (int t = 0; t < count; t++) {
+			if (bufferX[t] == null || bufferX[t].length < n) {
+				bufferX[t] = new float[atom.length];
+				bufferY[t] = new float[atom.length];
+				bufferZ[t] = new float[atom.length];
+			}
+			else {
+				Arrays.fill(bufferX[t], 0, n, 0);
+				Arrays.fill(bufferY[t], 0, n, 0);
+				Arrays.fill(bufferZ[t], 0, n, 0);
+			}
+		}
+	}
+
+	private void reduceBuffers(int count, int n) {
+		for (int t = 0; t < count; t++) {
+			float[] bx = bufferX[t], by = bufferY[t], bz = bufferZ[t];
+			for (int k = 0; k < n; k++) {
+				forceX[k] += bx[k];
+				forceY[k] += by[k];
+				forceZ[k] += bz[k];
+			}
+		}
+	}
+
 	private float calculateRBonds() {
-		int n = model.rBonds.size();
-		if (n <= 0)
-			return 0;
-		float energy = 0;
-		RBond rBond;
+		int n;
 		synchronized (model.rBonds) {
-			for (int i = 0; i < n; i++) {
-				rBond = model.rBonds.get(i);
-				atom1 = rBond.getAtom1();
-				atom2 = rBond.getAtom2();
-				if (!atom1.isMovable() && !atom2.isMovable())
-					continue;
-				length = rBond.getLength();
-				strength = rBond.getStrength();
-				rxij = atom2.rx - atom1.rx;
-				ryij = atom2.ry - atom1.ry;
-				rzij = atom2.rz - atom1.rz;
-				wij = (float) Math.sqrt(rxij * rxij + ryij * ryij + rzij * rzij);
-				sr2 = strength * GF_CONVERSION_CONSTANT * (wij - length) / wij; // reuse sr2
-				inverseMass1 = 1.0f / atom1.mass;
-				inverseMass2 = 1.0f / atom2.mass;
-				atom1.fx += sr2 * rxij * inverseMass1;
-				atom1.fy += sr2 * ryij * inverseMass1;
-				atom1.fz += sr2 * rzij * inverseMass1;
-				atom2.fx -= sr2 * rxij * inverseMass2;
-				atom2.fy -= sr2 * ryij * inverseMass2;
-				atom2.fz -= sr2 * rzij * inverseMass2;
-				wij -= length;
-				energy += strength * wij * wij;
+			n = model.rBonds.size();
+			if (n <= 0)
+				return 0;
+			rBondArray = model.rBonds.toArray(rBondArray);
+		}
+		return calculateBondedForces(MolecularModel.RADIAL_BOND_FORCES, n);
+	}
+
+	private float calculateABonds() {
+		int n;
+		synchronized (model.aBonds) {
+			n = model.aBonds.size();
+			if (n <= 0)
+				return 0;
+			aBondArray = model.aBonds.toArray(aBondArray);
+		}
+		return calculateBondedForces(MolecularModel.ANGULAR_BOND_FORCES, n);
+	}
+
+	private float calculateTBonds() {
+		int n;
+		synchronized (model.tBonds) {
+			n = model.tBonds.size();
+			if (n <= 0)
+				return 0;
+			tBondArray = model.tBonds.toArray(tBondArray);
+		}
+		return calculateBondedForces(MolecularModel.TORSIONAL_BOND_FORCES, n);
+	}
+
+	/*
+	 * compute the forces of the first n bonds of the given type, copied from the bond list of the model, and add them to
+	 * the atoms. The bonds are split into pieces whose forces are accumulated into separate buffers and added up in order.
+	 */
+	private float calculateBondedForces(final byte type, int n) {
+
+		int iAtom = model.iAtom;
+		for (int i = 0; i < iAtom; i++) {
+			forceX[i] = atom[i].fx;
+			forceY[i] = atom[i].fy;
+			forceZ[i] = atom[i].fz;
+		}
+
+		float energy;
+		int nt = parallel ? Math.min(threads, Math.max(1, n / MIN_BONDS_PER_TASK)) : 1;
+		if (nt <= 1) {
+			energy = calculateBonds(type, 0, n, forceX, forceY, forceZ);
+		}
+		else {
+			ensureBuffers(nt - 1, iAtom);
+			List<Callable<Float>> tasks = new ArrayList<Callable<Float>>(nt);
+			for (int t = 0; t < nt; t++) {
+				final int b = n * t / nt, e = n * (t + 1) / nt;
+				final float[] bx = t == 0 ? forceX : bufferX[t - 1];
+				final float[] by = t == 0 ? forceY : bufferY[t - 1];
+				final float[] bz = t == 0 ? forceZ : bufferZ[t - 1];
+				tasks.add(new Callable<Float>() {
+					public Float call() {
+						return calculateBonds(type, b, e, bx, by, bz);
+					}
+				});
 			}
+			List<Float> partials = WorkerPool.invoke(tasks);
+			energy = partials.get(0);
+			for (int t = 1; t < nt; t++)
+				energy += partials.get(t);
+			reduceBuffers(nt - 1, iAtom);
+		}
+
+		for (int i = 0; i < iAtom; i++) {
+			atom[i].fx = forceX[i];
+			atom[i].fy = forceY[i];
+			atom[i].fz = forceZ[i];
 		}
+
 		return energy * 0.5f;
+
 	}
 
-	private float calculateABonds() {
+	private float calculateBonds(byte type, int beg, int end, float[] bx, float[] by, float[] bz) {
+		switch (type) {
+		case MolecularModel.RADIAL_BOND_FORCES:
+			return calculateRBonds(beg, end, bx, by, bz);
+		case MolecularModel.ANGULAR_BOND_FORCES:
+			return calculateABonds(beg, end, bx, by, bz);
+		case MolecularModel.TORSIONAL_BOND_FORCES:
+			return calculateTBonds(beg, end, bx, by, bz);
+		}
+		return 0;
+	}
 
-		int n = model.aBonds.size();
-		if (n <= 0)
-			return 0;
-		ABond aBond;
+	// v(r)=k*(rij-rij_0)^2/2, return twice the energy
+	private float calculateRBonds(int beg, int end, float[] bx, float[] by, float[] bz) {
 		float energy = 0;
+		float length, strength, rxij, ryij, rzij, rij, f, inverseMass1, inverseMass2;
+		RBond rBond;
+		Atom atom1, atom2;
+		int i1, i2;
+		for (int i = beg; i < end; i++) {
+			rBond = rBondArray[i];
+			atom1 = rBond.getAtom1();
+			atom2 = rBond.getAtom2();
+			if (!atom1.isMovable() && !atom2.isMovable())
+				continue;
+			i1 = atom1.index;
+			i2 = atom2.index;
+			length = rBond.getLength();
+			strength = rBond.getStrength();
+			rxij = atom2.rx - atom1.rx;
+			ryij = atom2.ry - atom1.ry;
+			rzij = atom2.rz - atom1.rz;
+			rij = (float) Math.sqrt(rxij * rxij + ryij * ryij + rzij * rzij);
+			f = strength * GF_CONVERSION_CONSTANT * (rij - length) / rij;
+			inverseMass1 = 1.0f / atom1.mass;
+			inverseMass2 = 1.0f / atom2.mass;
+			bx[i1] += f * rxij * inverseMass1;
+			by[i1] += f * ryij * inverseMass1;
+			bz[i1] += f * rzij * inverseMass1;
+			bx[i2] -= f * rxij * inverseMass2;
+			by[i2] -= f * ryij * inverseMass2;
+			bz[i2] -= f * rzij * inverseMass2;
+			rij -= length;
+			energy += strength * rij * rij;
+		}
+		return energy;
+	}
 
-		synchronized (model.aBonds) {
+	// return twice the energy
+	private float calculateABonds(int beg, int end, float[] bx, float[] by, float[] bz) {
 
-			for (int i = 0; i < n; i++) {
+		float energy = 0;
+		float angle, strength, rxij, ryij, rzij, rxkj, rykj, rzkj, rijsq, rkjsq, rij, rkj, dot, theta, sintheta, dtheta, f;
+		float fxi, fyi, fzi, fxk, fyk, fzk, inverseMass1, inverseMass2, inverseMass3;
+		Vector3f v1 = new Vector3f(), v2 = new Vector3f();
+		ABond aBond;
+		Atom atom1, atom2, atom3;
+		int i1, i2, i3;
 
-				aBond = model.aBonds.get(i);
-				atom1 = aBond.getAtom1();
-				atom2 = aBond.getAtom2();
-				atom3 = aBond.getAtom3();
-				if (!atom1.isMovable() && !atom2.isMovable() && !atom3.isMovable())
-					continue;
-				angle = aBond.getAngle();
-				strength = aBond.getStrength();
-				rxij = atom1.rx - atom2.rx;
-				ryij = atom1.ry - atom2.ry;
-				rzij = atom1.rz - atom2.rz;
-				vector1.set(rxij, ryij, rzij);
-				rxkj = atom3.rx - atom2.rx;
-				rykj = atom3.ry - atom2.ry;
-				rzkj = atom3.rz - atom2.rz;
-				vector2.set(rxkj, rykj, rzkj);
-				rijsq = rxij * rxij + ryij * ryij + rzij * rzij;
-				rkjsq = rxkj * rxkj + rykj * rykj + rzkj * rzkj;
-				rij = (float) Math.sqrt(rijsq);
-				rkj = (float) Math.sqrt(rkjsq);
-				sr2 = rxij * rxkj + ryij * rykj + rzij * rzkj;
-				theta = vector1.angle(vector2);
-				sintheta = (float) Math.sin(theta);
-				if (Math.abs(sintheta) < MIN_SINTHETA) {// zero or 180 degree disaster
-					sintheta = sintheta > 0 ? MIN_SINTHETA : -MIN_SINTHETA;
-				}
-				sr12 = theta - angle;
-				sr6 = strength * sr12 / (sintheta * rij * rkj);
-
-				rijsq = 1.0f / rijsq;
-				rkjsq = 1.0f / rkjsq;
-				fxi = sr6 * (rxkj - sr2 * rxij * rijsq);
-				fyi = sr6 * (rykj - sr2 * ryij * rijsq);
-				fzi = sr6 * (rzkj - sr2 * rzij * rijsq);
-				fxk = sr6 * (rxij - sr2 * rxkj * rkjsq);
-				fyk = sr6 * (ryij - sr2 * rykj * rkjsq);
-				fzk = sr6 * (rzij - sr2 * rzkj * rkjsq);
-
-				inverseMass1 = GF_CONVERSION_CONSTANT / atom1.mass;
-				inverseMass2 = GF_CONVERSION_CONSTANT / atom2.mass;
-				inverseMass3 = GF_CONVERSION_CONSTANT / atom3.mass;
-				atom1.fx += fxi * inverseMass1;
-				atom1.fy += fyi * inverseMass1;
-				atom1.fz += fzi * inverseMass1;
-				atom3.fx += fxk * inverseMass3;
-				atom3.fy += fyk * inverseMass3;
-				atom3.fz += fzk * inverseMass3;
-				atom2.fx -= (fxi + fxk) * inverseMass2;
-				atom2.fy -= (fyi + fyk) * inverseMass2;
-				atom2.fz -= (fzi + fzk) * inverseMass2;
-
-				energy += strength * sr12 * sr12;
+		for (int i = beg; i < end; i++) {
 
+			aBond = aBondArray[i];
+			atom1 = aBond.getAtom1();
+			atom2 = aBond.getAtom2();
+			atom3 = aBond.getAtom3();
+			if (!atom1.isMovable() && !atom2.isMovable() && !atom3.isMovable())
+				continue;
+			i1 = atom1.index;
+			i2 = atom2.index;
+			i3 = atom3.index;
+			angle = aBond.getAngle();
+			strength = aBond.getStrength();
+			rxij = atom1.rx - atom2.rx;
+			ryij = atom1.ry - atom2.ry;
+			rzij = atom1.rz - atom2.rz;
+			v1.set(rxij, ryij, rzij);
+			rxkj = atom3.rx - atom2.rx;
+			rykj = atom3.ry - atom2.ry;
+			rzkj = atom3.rz - atom2.rz;
+			v2.set(rxkj, rykj, rzkj);
+			rijsq = rxij * rxij + ryij * ryij + rzij * rzij;
+			rkjsq = rxkj * rxkj + rykj * rykj + rzkj * rzkj;
+			rij = (float) Math.sqrt(rijsq);
+			rkj = (float) Math.sqrt(rkjsq);
+			dot = rxij * rxkj + ryij * rykj + rzij * rzkj;
+			theta = v1.angle(v2);
+			sintheta = (float) Math.sin(theta);
+			if (Math.abs(sintheta) < MIN_SINTHETA) {// zero or 180 degree disaster
+				sintheta = sintheta > 0 ? MIN_SINTHETA : -MIN_SINTHETA;
 			}
+			dtheta = theta - angle;
+			f = strength * dtheta / (sintheta * rij * rkj);
+
+			rijsq = 1.0f / rijsq;
+			rkjsq = 1.0f / rkjsq;
+			fxi = f * (rxkj - dot * rxij * rijsq);
+			fyi = f * (rykj - dot * ryij * rijsq);
+			fzi = f * (rzkj - dot * rzij * rijsq);
+			fxk = f * (rxij - dot * rxkj * rkjsq);
+			fyk = f * (ryij - dot * rykj * rkjsq);
+			fzk = f * (rzij - dot * rzkj * rkjsq);
+
+			inverseMass1 = GF_CONVERSION_CONSTANT / atom1.mass;
+			inverseMass2 = GF_CONVERSION_CONSTANT / atom2.mass;
+			inverseMass3 = GF_CONVERSION_CONSTANT / atom3.mass;
+			bx[i1] += fxi * inverseMass1;
+			by[i1] += fyi * inverseMass1;
+			bz[i1] += fzi * inverseMass1;
+			bx[i3] += fxk * inverseMass3;
+			by[i3] += fyk * inverseMass3;
+			bz[i3] += fzk * inverseMass3;
+			bx[i2] -= (fxi + fxk) * inverseMass2;
+			by[i2] -= (fyi + fyk) * inverseMass2;
+			bz[i2] -= (fzi + fzk) * inverseMass2;
+
+			energy += strength * dtheta * dtheta;
 
 		}
 
-		return energy * 0.5f;
+		return energy;
 
 	}
 
@@ -701,87 +1039,183 @@ class ForceCalculator {
 	 * Important note: to save some computation, we do not actually compute the diheral angle. Instead, we compute the
 	 * direct angle between A-B bond and C-D bond, which is much faster. The result of this simplification is that one
 	 * will have to be careful in seting the equilibrium angle to be that between A-B and C-D. If this is taken care
-	 * correctly, there should not be any adverse effect caused by this simplification.
+	 * correctly, there should not be any adverse effect caused by this simplification. Return twice the energy.
 	 */
-	private float calculateTBonds() {
+	private float calculateTBonds(int beg, int end, float[] bx, float[] by, float[] bz) {
 
-		int n = model.tBonds.size();
-		if (n <= 0)
-			return 0;
-		TBond tBond;
 		float energy = 0;
+		float strength, rxij, ryij, rzij, rxlk, rylk, rzlk, rijsq, rlksq, rij, rlk, dot, theta, sintheta, f;
+		float fxi, fyi, fzi, fxl, fyl, fzl, inverseMass1, inverseMass2, inverseMass3, inverseMass4;
+		Vector3f v1 = new Vector3f(), v2 = new Vector3f();
+		TBond tBond;
+		Atom atom1, atom2, atom3, atom4;
+		int i1, i2, i3, i4;
 
-		synchronized (model.tBonds) {
+		for (int i = beg; i < end; i++) {
 
-			for (int i = 0; i < n; i++) {
+			tBond = tBondArray[i];
+			atom1 = tBond.getAtom1();
+			atom2 = tBond.getAtom2();
+			atom3 = tBond.getAtom3();
+			atom4 = tBond.getAtom4();
+			if (!atom1.isMovable() && !atom2.isMovable() && !atom3.isMovable() && !atom4.isMovable())
+				continue;
+			i1 = atom1.index;
+			i2 = atom2.index;
+			i3 = atom3.index;
+			i4 = atom4.index;
+			strength = tBond.getStrength();
+			rxij = atom1.rx - atom2.rx;
+			ryij = atom1.ry - atom2.ry;
+			rzij = atom1.rz - atom2.rz;
+			v1.set(rxij, ryij, rzij);
+			rxlk = atom4.rx - atom3.rx;
+			rylk = atom4.ry - atom3.ry;
+			rzlk = atom4.rz - atom3.rz;
+			v2.set(rxlk, rylk, rzlk);
+			rijsq = rxij * rxij + ryij * ryij + rzij * rzij;
+			rlksq = rxlk * rxlk + rylk * rylk + rzlk * rzlk;
+			rij = (float) Math.sqrt(rijsq);
+			rlk = (float) Math.sqrt(rlksq);
+			dot = rxij * rxlk + ryij * rylk + rzij * rzlk;
+			theta = v1.angle(v2);
+			sintheta = (float) Math.sin(theta);
+			if (Math.abs(sintheta) < MIN_SINTHETA) {// zero or 180 degree disaster
+				sintheta = sintheta > 0 ? MIN_SINTHETA : -MIN_SINTHETA;
+			}
+			f = (float) Math.sin(tBond.getPeriodicity() * theta - tBond.getAngle());
+			f = 0.5f * tBond.getPeriodicity() * strength * f / (rij * rlk * sintheta);
+
+			rijsq = 1.0f / rijsq;
+			rlksq = 1.0f / rlksq;
+			fxi = f * (rxlk - dot * rxij * rijsq);
+			fyi = f * (rylk - dot * ryij * rijsq);
+			fzi = f * (rzlk - dot * rzij * rijsq);
+			fxl = f * (rxij - dot * rxlk * rlksq);
+			fyl = f * (ryij - dot * rylk * rlksq);
+			fzl = f * (rzij - dot * rzlk * rlksq);
+
+			inverseMass1 = GF_CONVERSION_CONSTANT / atom1.mass;
+			inverseMass2 = GF_CONVERSION_CONSTANT / atom2.mass;
+			inverseMass3 = GF_CONVERSION_CONSTANT / atom3.mass;
+			inverseMass4 = GF_CONVERSION_CONSTANT / atom4.mass;
+			bx[i1] += fxi * inverseMass1;
+			by[i1] += fyi * inverseMass1;
+			bz[i1] += fzi * inverseMass1;
+			bx[i4] += fxl * inverseMass4;
+			by[i4] += fyl * inverseMass4;
+			bz[i4] += fzl * inverseMass4;
+			bx[i2] -= fxi * inverseMass2;
+			by[i2] -= fyi * inverseMass2;
+			bz[i2] -= fzi * inverseMass2;
+			bx[i3] -= fxl * inverseMass3;
+			by[i3] -= fyl * inverseMass3;
+			bz[i3] -= fzl * inverseMass3;
+
+			// note that we use 1-cos(...) instead of 1+cos(...) as used on the following page:
+			// http://en.wikipedia.org/wiki/AMBER
+			// This reduced the equilibrium energy to zero, as in the case of radial and angular bonds
+			energy += strength * (1.0f - Math.cos(tBond.getPeriodicity() * theta - tBond.getAngle()));
 
-				tBond = model.tBonds.get(i);
-				atom1 = tBond.getAtom1();
-				atom2 = tBond.getAtom2();
-				atom3 = tBond.getAtom3();
-				atom4 = tBond.getAtom4();
-				if (!atom1.isMovable() && !atom2.isMovable() && !atom3.isMovable() && !atom4.isMovable())
-					continue;
-				angle = tBond.getAngle();
-				strength = tBond.getStrength();
-				rxij = atom1.rx - atom2.rx;
-				ryij = atom1.ry - atom2.ry;
-				rzij = atom1.rz - atom2.rz;
-				vector1.set(rxij, ryij, rzij);
-				rxlk = atom4.rx - atom3.rx;
-				rylk = atom4.ry - atom3.ry;
-				rzlk = atom4.rz - atom3.rz;
-				vector2.set(rxlk, rylk, rzlk);
-				rijsq = rxij * rxij + ryij * ryij + rzij * rzij;
-				rlksq = rxlk * rxlk + rylk * rylk + rzlk * rzlk;
-				rij = (float) Math.sqrt(rijsq);
-				rlk = (float) Math.sqrt(rlksq);
-				sr2 = rxij * rxlk + ryij * rylk + rzij * rzlk;
-				theta = vector1.angle(vector2);
-				sintheta = (float) Math.sin(theta);
-				if (Math.abs(sintheta) < MIN_SINTHETA) {// zero or 180 degree disaster
-					sintheta = sintheta > 0 ? MIN_SINTHETA : -MIN_SINTHETA;
-				}
-				sr12 = (float) Math.sin(tBond.getPeriodicity() * theta - tBond.getAngle());
-				sr6 = 0.5f * tBond.getPeriodicity() * strength * sr12 / (rij * rlk * sintheta);
-
-				rijsq = 1.0f / rijsq;
-				rlksq = 1.0f / rlksq;
-				fxi = sr6 * (rxlk - sr2 * rxij * rijsq);
-				fyi = sr6 * (rylk - sr2 * ryij * rijsq);
-				fzi = sr6 * (rzlk - sr2 * rzij * rijsq);
-				fxl = sr6 * (rxij - sr2 * rxlk * rlksq);
-				fyl = sr6 * (ryij - sr2 * rylk * rlksq);
-				fzl = sr6 * (rzij - sr2 * rzlk * rlksq);
-
-				inverseMass1 = GF_CONVERSION_CONSTANT / atom1.mass;
-				inverseMass2 = GF_CONVERSION_CONSTANT / atom2.mass;
-				inverseMass3 = GF_CONVERSION_CONSTANT / atom3.mass;
-				inverseMass4 = GF_CONVERSION_CONSTANT / atom4.mass;
-				atom1.fx += fxi * inverseMass1;
-				atom1.fy += fyi * inverseMass1;
-				atom1.fz += fzi * inverseMass1;
-				atom4.fx += fxl * inverseMass4;
-				atom4.fy += fyl * inverseMass4;
-				atom4.fz += fzl * inverseMass4;
-				atom2.fx -= fxi * inverseMass2;
-				atom2.fy -= fyi * inverseMass2;
-				atom2.fz -= fzi * inverseMass2;
-				atom3.fx -= fxl * inverseMass3;
-				atom3.fy -= fyl * inverseMass3;
-				atom3.fz -= fzl * inverseMass3;
-
-				// note that we use 1-cos(...) instead of 1+cos(...) as used on the following page:
-				// http://en.wikipedia.org/wiki/AMBER
-				// This reduced the equilibrium energy to zero, as in the case of radial and angular bonds
-				energy += strength * (1.0f - Math.cos(tBond.getPeriodicity() * theta - tBond.getAngle()));
+		}
+
+		return energy;
 
+	}
+
+	/*
+	 * rebuild the neighbor list by binning the atoms into cells no smaller than the list radius of the largest atoms, so
+	 * that only the atoms in the cells around an atom have to be checked. The pairs are tested exactly as the pairwise
+	 * scan in compute() does and the neighbors of each atom are sorted, so the list is the same as that built by the scan.
+	 */
+	private void updateNeighborListWithCells(int iAtom) {
+
+		float maxSigma = 0;
+		for (int i = 0; i < iAtom; i++) {
+			rx0[i] = atom[i].rx;
+			ry0[i] = atom[i].ry;
+			rz0[i] = atom[i].rz;
+			if (atom[i].sigma > maxSigma)
+				maxSigma = atom[i].sigma;
+		}
+		cellList.bin(rx0, ry0, rz0, iAtom, rList * maxSigma);
+
+		boolean iMovable;
+		int mx, my, mz, j;
+		nlist = 0;
+
+		for (int i = 0, iAtom1 = iAtom - 1; i < iAtom1; i++) {
+
+			pointer[i] = nlist;
+			rxi = atom[i].rx;
+			ryi = atom[i].ry;
+			rzi = atom[i].rz;
+			iMovable = atom[i].isMovable();
+
+			// with the periodic boundary, the minimum image of a partner may be one box length away
+			mx = getCandidateCells(rxi, xbox, 0, cellsX);
+			my = getCandidateCells(ryi, ybox, 1, cellsY);
+			mz = getCandidateCells(rzi, zbox, 2, cellsZ);
+
+			for (int a = 0; a < mx; a++) {
+				for (int b = 0; b < my; b++) {
+					for (int c = 0; c < mz; c++) {
+						for (j = cellList.getFirst(cellsX[a], cellsY[b], cellsZ[c]); j >= 0; j = cellList.getNext(j)) {
+							if (j <= i)
+								continue;
+							if (!iMovable && !atom[j].isMovable())
+								continue;
+							if (exclusions.contains(i, j))
+								continue;
+							rxij = rxi - atom[j].rx;
+							ryij = ryi - atom[j].ry;
+							rzij = rzi - atom[j].rz;
+							if (isPBC) {
+								minimumImageConvention();
+							}
+							rijsq = rxij * rxij + ryij * ryij + rzij * rzij;
+							if (rijsq < rList * rList * (atom[i].sigma * atom[j].sigma)) {
+								if (nlist == neighborList.length) {
+									int[] newList = new int[nlist * 2];
+									System.arraycopy(neighborList, 0, newList, 0, nlist);
+									neighborList = newList;
+								}
+								neighborList[nlist++] = j;
+							}
+						}
+					}
+				}
 			}
 
+			Arrays.sort(neighborList, pointer[i], nlist);
+
 		}
 
-		return 0.5f * energy;
+		if (iAtom > 0)
+			pointer[iAtom - 1] = nlist;
+
+	}
 
+	/* fill the buffer with the distinct cells along the axis that may hold partners of an atom at the coordinate */
+	private int getCandidateCells(float x, float period, int axis, int[] buffer) {
+		int n = axis == 0 ? cellList.getCellCountX() : (axis == 1 ? cellList.getCellCountY() : cellList.getCellCountZ());
+		int count = 0;
+		for (int s = 0; s < (isPBC ? 3 : 1); s++) {
+			float y = s == 0 ? x : (s == 1 ? x - period : x + period);
+			int c = axis == 0 ? cellList.getCellX(y) : (axis == 1 ? cellList.getCellY(y) : cellList.getCellZ(y));
+			for (int k = Math.max(0, c - 1), kmax = Math.min(n - 1, c + 1); k <= kmax; k++) {
+				boolean dup = false;
+				for (int m = 0; m < count; m++) {
+					if (buffer[m] == k) {
+						dup = true;
+						break;
+					}
+				}
+				if (!dup)
+					buffer[count++] = k;
+			}
+		}
+		return count;
 	}
 
 	private void checkNeighborList(int iAtom) {
@@ -0,0 +1,117 @@
+/*
+ *   Copyright (C) 2006  The Concord Consortium, Inc.,
+ *   25 Love Lane, Concord, MA 01742
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * END LICENSE */
+
+package org.concord.mw3d.models;
+
+import java.util.BitSet;
+
+import org.concord.modeler.math.EnergyFunction;
+import org.concord.modeler.math.GradientMinimizer;
+
+/**
+ * This minimizes the potential energy of a model with a <code>GradientMinimizer</code>, which searches along each
+ * direction for a proper step instead of moving a fixed steplength as <code>SteepestDescentMinimizer</code> does.
+ *
+ * @author Charles Xie
+ *
+ */
+public class LineSearchMinimizer {
+
+	private LineSearchMinimizer() {
+	}
+
+	/**
+	 * @param method
+	 *            <code>GradientMinimizer.STEEPEST_DESCENT</code>, <code>GradientMinimizer.CONJUGATE_GRADIENT</code>
+	 *            or <code>GradientMinimizer.LBFGS</code>
+	 * @param maxIterations
+	 *            the maximum number of iterations
+	 * @param delta
+	 *            the maximum displacement of a coordinate in the first trial of a line search
+	 * @param tolerance
+	 *            the root mean square of the gradient (in eV/&#197;) below which the minimization stops
+	 * @param selection
+	 *            the atoms to move, or null to move all the movable atoms
+	 * @param listener
+	 *            the callback notified after each iteration with the total potential energy, or null
+	 * @return the potential energy per movable atom after this minimization
+	 */
+	public static float minimize(final MolecularModel model, byte method, int maxIterations, float delta,
+			double tolerance, BitSet selection, GradientMinimizer.Listener listener) {
+		int n = model.getAtomCount();
+		if (n <= 1)
+			return -1;
+		final int[] moved = new int[n];
+		int m = 0;
+		int movableCount = 0;
+		for (int i = 0; i < n; i++) {
+			if (!model.atom[i].isMovable())
+				continue;
+			movableCount++;
+			if (selection == null || selection.get(i))
+				moved[m++] = i;
+		}
+		final int nm = m;
+		final int count = movableCount;
+		double[] x = new double[3 * nm];
+		Atom a;
+		for (int k = 0; k < nm; k++) {
+			a = model.atom[moved[k]];
+			x[3 * k] = a.rx;
+			x[3 * k + 1] = a.ry;
+			x[3 * k + 2] = a.rz;
+		}
+		GradientMinimizer minimizer = new GradientMinimizer();
+		minimizer.setMethod(method);
+		minimizer.setMaximumIterations(maxIterations);
+		minimizer.setMaximumStep(delta);
+		minimizer.setTolerance(tolerance);
+		minimizer.setListener(listener);
+		minimizer.minimize(new EnergyFunction() {
+			public double compute(double[] x, double[] gradient) {
+				Atom a;
+				for (int k = 0; k < nm; k++) {
+					a = model.atom[moved[k]];
+					a.rx = (float) x[3 * k];
+					a.ry = (float) x[3 * k + 1];
+					a.rz = (float) x[3 * k + 2];
+				}
+				double v = (double) model.compute(-1) * count;
+				// the forces are accelerations
+				for (int k = 0; k < nm; k++) {
+					a = model.atom[moved[k]];
+					gradient[3 * k] = -a.fx * a.mass / ForceCalculator.GF_CONVERSION_CONSTANT;
+					gradient[3 * k + 1] = -a.fy * a.mass / ForceCalculator.GF_CONVERSION_CONSTANT;
+					gradient[3 * k + 2] = -a.fz * a.mass / ForceCalculator.GF_CONVERSION_CONSTANT;
+				}
+				return v;
+			}
+		}, x);
+		for (int k = 0; k < nm; k++) {
+			a = model.atom[moved[k]];
+			a.rx = (float) x[3 * k];
+			a.ry = (float) x[3 * k + 1];
+			a.rz = (float) x[3 * k + 2];
+		}
+		model.applyBoundary();
+		return model.compute(-1);
+	}
+
+}
@@ -48,8 +48,10 @@ import org.concord.modeler.SlideMovie;
 import org.concord.modeler.event.ModelEvent;
 import org.concord.modeler.event.ScriptExecutionListener;
 import org.concord.modeler.event.ScriptListener;
+import org.concord.modeler.math.GradientMinimizer;
 import org.concord.modeler.process.AbstractLoadable;
 import org.concord.modeler.process.Job;
+import org.concord.modeler.process.JobProfiler;
 import org.concord.modeler.process.Loadable;
 import org.concord.modeler.process.TaskState;
 import org.concord.modeler.util.DataQueue;
@@ -79,11 +81,23 @@ import org.myjmol.api.Pair;
 
 public class MolecularModel {
 
-	public final static short SIZE = 1000;
+	/** the maximum number of atoms. The atom array starts smaller and doubles when it is full. */
+	public final static int SIZE = 50000;
+	private final static int INITIAL_CAPACITY = 1000;
 	final static byte REFLECTING_BOUNDARY = 0;
 	final static byte PERIODIC_BOUNDARY = 1;
 	private final static byte GENERIC_PARTICLE_TYPES = 4;
 
+	/* phases of the force computation whose times are recorded */
+	public final static byte NON_BONDED_FORCES = 0;
+	public final static byte FIELD_FORCES = 1;
+	public final static byte RESTRAINT_FORCES = 2;
+	public final static byte RADIAL_BOND_FORCES = 3;
+	public final static byte ANGULAR_BOND_FORCES = 4;
+	public final static byte TORSIONAL_BOND_FORCES = 5;
+	private final static String[] FORCE_PHASE_NAMES = { "Non-bonded", "Fields", "Restraints", "Radial bonds",
+			"Angular bonds", "Torsional bonds" };
+
 	/*
 	 * convert mvv into eV: ( E-3 / 6E23 ) [kg] x ( E-10 / E-15 )^2 [m^2/s^2] / 1.6E-19 [J] divided by 2 (save the multiplier prefactor 0.5 for computing kinetic energy)
 	 */
@@ -149,6 +163,7 @@ public class MolecularModel {
 	private Runnable changeNotifier, runNotifier;
 
 	Job job;
+	final JobProfiler profiler = new JobProfiler();
 
 	List<RBond> rBonds;
 	List<ABond> aBonds;
@@ -189,9 +204,11 @@ public class MolecularModel {
 				// System.out.println(systemTimeElapsed+","+minimumJobCycleTime);
 			}
 			systemTimeOfLastStepEnd = System.currentTimeMillis();
+			long t = profiler.begin();
 			view.refresh();
 			if (movie.getMovieSlider().isShowing())
 				movie.getMovieSlider().repaint();
+			profiler.end(JobProfiler.VIEW_UPDATE, t);
 		}
 
 		public int getPriority() {
@@ -217,7 +234,9 @@ public class MolecularModel {
 			/*
 			 * if(isEmpty()) { stopImmediately(); stopAtNextRecordingStep=false; return; }
 			 */
+			long t = profiler.begin();
 			record();
+			profiler.end(JobProfiler.RECORD, t);
 			movie.setCurrentFrameIndex(getTapePointer() - 1);
 			if (stopAtNextRecordingStep) {
 				stopImmediately();
@@ -252,7 +271,7 @@ public class MolecularModel {
 
 		this();
 
-		atom = new Atom[SIZE];
+		atom = new Atom[INITIAL_CAPACITY];
 		forceCalculator = new ForceCalculator(this);
 
 		movieQueueGroup = new HomoQueueGroup("Movie");
@@ -1298,7 +1317,7 @@ public class MolecularModel {
 	}
 
 	public int getMaxAtom() {
-		return atom.length;
+		return SIZE;
 	}
 
 	public int getAtomCount() {
@@ -1406,6 +1425,12 @@ public class MolecularModel {
 		}
 	}
 
+	/* called when a radial or angular bond is added to or removed from an atom */
+	void invalidateBondExclusions() {
+		if (forceCalculator != null)
+			forceCalculator.invalidateBondExclusions();
+	}
+
 	/* this method is called by the script interpreter after radial bonds are removed. */
 	void removeGhostABonds() {
 		if (aBonds.isEmpty())
@@ -1505,12 +1530,23 @@ public class MolecularModel {
 		tbond.getAtom4().removeTBond(tbond);
 	}
 
+	/* the removed atoms kept beyond iAtom for reuse are copied as well */
+	private void growAtomArray() {
+		Atom[] a = new Atom[Math.min(atom.length << 1, SIZE)];
+		System.arraycopy(atom, 0, a, 0, atom.length);
+		forceCalculator.setAtomArray(a);
+		atom = a;
+	}
+
 	/**
 	 * Adding an atom of the specified type, velocity and charge to the specified position. Note: This method does not check if the added atom overlaps with others.
 	 */
 	public boolean addAtom(String element, float rx, float ry, float rz, float vx, float vy, float vz, float charge) {
-		if (iAtom == atom.length)
-			return false;
+		if (iAtom == atom.length) {
+			if (atom.length >= SIZE)
+				return false;
+			growAtomArray();
+		}
 		if (atom[iAtom] == null) {
 			atom[iAtom] = new Atom(element, this);
 			atom[iAtom].setModel(this);
@@ -1569,6 +1605,7 @@ public class MolecularModel {
 			atom[j].clearBondLists();
 		}
 		iAtom = n;
+		invalidateBondExclusions();
 	}
 
 	public BitSet removeAtom(Atom a) {
@@ -1771,6 +1808,84 @@ public class MolecularModel {
 		return view;
 	}
 
+	/**
+	 * If set true, the non-bonded pairs and the radial, angular and torsional bonds will be computed on multiple threads.
+	 * Each thread accumulates forces into its own buffer, and the buffers are summed up in a fixed order, so the results
+	 * do not depend on thread scheduling. With one thread, the results are exactly the same as those of the serial
+	 * computation.
+	 */
+	public void setParallelForceEnabled(boolean b) {
+		forceCalculator.setParallel(b);
+	}
+
+	public boolean isParallelForceEnabled() {
+		return forceCalculator.isParallel();
+	}
+
+	/** set the number of threads used by the parallel force computation. The default is the number of processors. */
+	public void setForceThreads(int n) {
+		forceCalculator.setThreads(n);
+	}
+
+	public int getForceThreads() {
+		return forceCalculator.getThreads();
+	}
+
+	/**
+	 * set the number of atoms from which the neighbor list is built with cells instead of checking all pairs. The
+	 * default is 100. Setting it beyond the number of atoms turns the cell list off.
+	 */
+	public void setCellListThreshold(int n) {
+		forceCalculator.setCellListThreshold(n);
+	}
+
+	public int getCellListThreshold() {
+		return forceCalculator.getCellListThreshold();
+	}
+
+	/**
+	 * return the total time in nanoseconds spent in the specified phase of the force computation since the last reset.
+	 * The phases are timed only while the profiler is enabled.
+	 * 
+	 * @see #NON_BONDED_FORCES
+	 * @see #FIELD_FORCES
+	 * @see #RESTRAINT_FORCES
+	 * @see #RADIAL_BOND_FORCES
+	 * @see #ANGULAR_BOND_FORCES
+	 * @see #TORSIONAL_BOND_FORCES
+	 */
+	public long getForceTime(byte phase) {
+		return forceCalculator.getPhaseTime(phase);
+	}
+
+	/** return the number of force computations since the last reset */
+	public int getForceCount() {
+		return forceCalculator.getComputeCount();
+	}
+
+	public void resetForceTimes() {
+		forceCalculator.resetPhaseTimes();
+	}
+
+	/** return a summary of the average time per step spent in each phase of the force computation */
+	public String getForceTimeReport() {
+		int n = forceCalculator.getComputeCount();
+		long total = 0;
+		for (byte i = 0; i < FORCE_PHASE_NAMES.length; i++)
+			total += forceCalculator.getPhaseTime(i);
+		StringBuffer sb = new StringBuffer();
+		sb.append("Force computations: " + n + "\n");
+		for (byte i = 0; i < FORCE_PHASE_NAMES.length; i++) {
+			long t = forceCalculator.getPhaseTime(i);
+			sb.append(FORCE_PHASE_NAMES[i] + ": ");
+			sb.append(n > 0 ? (t / n) / 1000 : 0);
+			sb.append(" \u00b5s/step (");
+			sb.append(total > 0 ? Math.round(100.0 * t / total) : 0);
+			sb.append("%)\n");
+		}
+		return sb.toString();
+	}
+
 	public void setTimeStep(float timeStep) {
 		this.timeStep = timeStep;
 		timeStep2 = timeStep * timeStep * 0.5f;
@@ -1800,9 +1915,11 @@ public class MolecularModel {
 					while (true) {
 						super.run();
 						while (!isStopped()) {
+							long t = profiler.begin();
 							modelTime += getTimeStep();
 							advance(indexOfStep++);
 							execute();
+							profiler.endStep(t);
 						}
 						synchronized (this) {
 							try {
@@ -1830,6 +1947,7 @@ public class MolecularModel {
 					getView().getActionMap().get("properties").actionPerformed(null);
 				}
 			});
+			job.setProfiler(profiler);
 
 		}
 		if (!recorderDisabled && !job.contains(movieUpdater))
@@ -1838,12 +1956,33 @@ public class MolecularModel {
 			job.add(paintView);
 	}
 
+	/** return the profiler that times the steps, the phases of a step and the tasks of this model's job */
+	public JobProfiler getProfiler() {
+		return profiler;
+	}
+
 	public Job getJob() {
 		if (job == null)
 			initializeJob();
 		return job;
 	}
 
+	/**
+	 * advance this model by the given number of steps on the calling thread, without running the tasks of its job. This
+	 * drives a model that is rendered offscreen, where there is no job thread and no repainting.
+	 */
+	public synchronized void step(int n) {
+		if (job == null)
+			initializeJob();
+		checkCharges();
+		int i = job.getIndexOfStep();
+		for (int k = 0; k < n; k++) {
+			modelTime += getTimeStep();
+			advance(i++);
+		}
+		job.setIndexOfStep(i);
+	}
+
 	public void addCustomTasks(List<TaskState> list) {
 		if (job == null)
 			initializeJob();
@@ -1933,13 +2072,55 @@ public class MolecularModel {
 		view.repaint();
 	}
 
+	/**
+	 * minimize with a line-search method of <code>GradientMinimizer</code>.
+	 * 
+	 * @param method
+	 *            <code>GradientMinimizer.STEEPEST_DESCENT</code>, <code>GradientMinimizer.CONJUGATE_GRADIENT</code>
+	 *            or <code>GradientMinimizer.LBFGS</code>
+	 * @param tolerance
+	 *            the root mean square of the gradient (in eV/&#197;) below which the minimization stops
+	 * @param selectionSet
+	 *            the atoms to move, or null to move all the movable atoms
+	 */
+	public float minimize(byte method, int nstep, float delta, double tolerance, BitSet selectionSet,
+			final int delay) {
+		final float oldPot = compute(0);
+		int movableCount = 0;
+		for (int i = 0; i < iAtom; i++) {
+			if (atom[i].isMovable())
+				movableCount++;
+		}
+		final int count = movableCount;
+		pot = LineSearchMinimizer.minimize(this, method, nstep, delta, tolerance, selectionSet,
+				new GradientMinimizer.Listener() {
+				public boolean iterationDone(int iteration, double energy, double rmsGradient) {
+					if (iteration % 10 == 0) {
+						view.setInfoString("Energy minimizer: " + ((float) energy / count - oldPot) + " eV");
+						view.refresh();
+						view.repaint();
+						if (delay > 0) {
+							try {
+								Thread.sleep(delay);
+							} catch (InterruptedException e) {
+							}
+						}
+					}
+					return true;
+				}
+			});
+		view.setInfoString(null);
+		view.repaint();
+		return pot;
+	}
+
 	public void run() {
 		if (job != null)
 			job.processPendingRequests();
 		if (needMinimization()) {
 			Runnable r = new Runnable() {
 				public void run() {
-					minimize(50, 1.0f, -1);
+					minimize(GradientMinimizer.LBFGS, 50, 1.0f, GradientMinimizer.DEFAULT_TOLERANCE, null, -1);
 					run2();
 				}
 			};
@@ -2234,7 +2415,9 @@ public class MolecularModel {
 	}
 
 	void predictor() {
+		long t = profiler.begin();
 		applyBoundary();
+		t = profiler.lap(JobProfiler.BOUNDARY, t);
 		synchronized (forceCalculator) {
 			if (iAtom > 0) {
 				for (int i = 0; i < iAtom; i++) {
@@ -2243,6 +2426,7 @@ public class MolecularModel {
 				}
 			}
 		}
+		profiler.end(JobProfiler.PREDICTOR, t);
 	}
 
 	void corrector() {
@@ -2267,8 +2451,11 @@ public class MolecularModel {
 
 	void advance(int i) {
 		predictor();
+		long t = profiler.begin();
 		pot = compute(i);
+		t = profiler.lap(JobProfiler.FORCE, t);
 		corrector();
+		profiler.end(JobProfiler.CORRECTOR, t);
 	}
 
 	private void checkCharges() {
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2003-2005  The Jmol Development Team
+ *
+ * Contact: jmol-developers@lists.sf.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.myjmol.api;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * XIE: A triple buffer through which a simulation engine hands the coordinates, sizes and colors of all its atoms to
+ * the viewer at once. The engine fills the back frame and publishes it; the viewer takes the newest published frame
+ * when it renders. Neither side waits for the other: the engine always has a frame of its own to write, and a frame
+ * published twice before the viewer takes it is simply replaced by the newer one.
+ *
+ * <pre>
+ * AtomCoordinateBuffer.Frame f = buffer.getBackFrame(n, false, true);
+ * float[] xyz = f.getCoordinates(); // x0, y0, z0, x1, y1, z1, ...
+ * int[] argb = f.getColors();
+ * ... fill the first n atoms ...
+ * buffer.publish();
+ * viewer.refresh();
+ * </pre>
+ *
+ * Only one thread may write to a buffer. When atoms are added or removed, the viewer discards the frames published
+ * before, including a frame that is being filled at the time, because their atom indices are no longer valid.
+ */
+public class AtomCoordinateBuffer {
+
+	private final static int FRESH = 4;
+
+	private final Frame[] frames = { new Frame(), new Frame(), new Frame() };
+	private final AtomicInteger ready = new AtomicInteger(2);
+	private int back; // owned by the writer
+	private int front = 1; // owned by the reader
+	private volatile int generation; // incremented by discard()
+
+	/**
+	 * return the frame for the writer to fill, with room for the given number of atoms.
+	 *
+	 * @param sizes
+	 *            true if the frame carries the sizes of the atoms
+	 * @param colors
+	 *            true if the frame carries the colors of the atoms
+	 */
+	public Frame getBackFrame(int count, boolean sizes, boolean colors) {
+		Frame f = frames[back];
+		f.allocate(count, sizes, colors);
+		f.generation = generation;
+		return f;
+	}
+
+	/** publish the back frame, which becomes the newest frame for the reader. */
+	public void publish() {
+		back = ready.getAndSet(back | FRESH) & 3;
+	}
+
+	/** return the newest published frame if it has not been taken yet, or null otherwise. */
+	public synchronized Frame take() {
+		if ((ready.get() & FRESH) == 0)
+			return null;
+		front = ready.getAndSet(front) & 3;
+		Frame f = frames[front];
+		return f.generation == generation ? f : null;
+	}
+
+	/**
+	 * throw away the frames published so far and the frame being filled, if any. The next frame that the writer starts
+	 * filling after this call is the first one to be taken.
+	 */
+	public synchronized void discard() {
+		generation++;
+		if ((ready.get() & FRESH) != 0)
+			front = ready.getAndSet(front) & 3;
+	}
+
+	/** return true if there is a published frame that has not been taken yet. */
+	public boolean hasFreshFrame() {
+		return (ready.get() & FRESH) != 0;
+	}
+
+	/** the packed coordinates, sizes and colors of the atoms at one moment */
+	public static class Frame {
+
+		private float[] xyz = new float[0];
+		private float[] size = new float[0];
+		private int[] argb = new int[0];
+		private int count;
+		private boolean hasSizes, hasColors;
+		private int generation;
+
+		void allocate(int n, boolean sizes, boolean colors) {
+			count = n;
+			hasSizes = sizes;
+			hasColors = colors;
+			if (xyz.length < 3 * n)
+				xyz = new float[3 * n];
+			if (sizes && size.length < n)
+				size = new float[n];
+			if (colors && argb.length < n)
+				argb = new int[n];
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		/** return the coordinates, packed as x, y and z of each atom in turn */
+		public float[] getCoordinates() {
+			return xyz;
+		}
+
+		/** return the sizes in the unit of <code>JmolViewer.setAtomSize</code>; a negative size is left unchanged */
+		public float[] getSizes() {
+			return size;
+		}
+
+		public int[] getColors() {
+			return argb;
+		}
+
+		public boolean hasSizes() {
+			return hasSizes;
+		}
+
+		public boolean hasColors() {
+			return hasColors;
+		}
+
+	}
+
+}
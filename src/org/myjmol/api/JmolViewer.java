@@ -120,6 +120,12 @@ abstract public class JmolViewer extends JmolSimpleViewer {
 	/** XIE */
 	abstract public boolean getDepthCueing();
 
+	/** XIE */
+	abstract public void setParallelRendering(boolean b);
+
+	/** XIE */
+	abstract public boolean isParallelRendering();
+
 	/**
 	 * XIE: In the Jmol perspective model, the sizes of shapes are determined only by their z-depth's. And the
 	 * determination is independent of those of the coordinates. This results in a discrepancy of the projection of size
@@ -302,6 +308,9 @@ abstract public class JmolViewer extends JmolSimpleViewer {
 
 	abstract public void setAtomVelocities(int index, float vx, float vy, float vz);
 
+	/** XIE: return the buffer through which the coordinates, sizes and colors of all the atoms are passed at once */
+	abstract public AtomCoordinateBuffer getAtomCoordinateBuffer();
+
 	abstract public void setAtomCoordinates(int index, Point3f p);
 
 	abstract public void setAtomCoordinates(int index, float x, float y, float z, int argb);
@@ -740,6 +749,12 @@ abstract public class JmolViewer extends JmolSimpleViewer {
 
 	abstract public void rebond();
 
+	/**
+	 * XIE: rebond the atoms that have moved farther than the tolerance (in angstroms) since they were last rebonded,
+	 * breaking the autobonds that have become too long and making new ones. Return the number of new bonds.
+	 */
+	abstract public int rebondMovedAtoms(float tolerance);
+
 	abstract public float getMinBondDistance();
 
 	abstract public void refresh();
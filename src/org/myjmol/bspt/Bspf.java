@@ -59,6 +59,15 @@ public final class Bspf {
     bspt.addTuple(tuple);
   }
 
+  /**
+   * XIE: refit all the trees after the tuples have moved
+   */
+  public void refit() {
+    for (int i = bspts.length; --i >= 0; )
+      if (bspts[i] != null)
+        bspts[i].refit();
+  }
+
   public void stats() {
     for (int i = 0; i < bspts.length; ++i)
       bspts[i].stats();
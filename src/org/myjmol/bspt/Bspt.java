@@ -75,6 +75,7 @@ public final class Bspt {
   int treeDepth;
   int dimMax;
   Element eleRoot;
+  float[][] refitMin, refitMax; // XIE: the bounding boxes of each level
 
   /*
     static float distance(int dim, Tuple t1, Tuple t2) {
@@ -110,6 +111,22 @@ public final class Bspt {
     eleRoot = eleRoot.addTuple(0, tuple);
   }
 
+  /**
+   * XIE: bring the bounds of the nodes up to date after the tuples have
+   * moved, keeping the shape of the tree. This costs a single pass through
+   * the tuples. The tree does not get less correct however far the tuples
+   * move, only less efficient to search, so it is best rebuilt when most of
+   * them have moved a long way.
+   */
+  public void refit() {
+    // the leaves may be one level below treeDepth
+    if (refitMin == null || refitMin.length <= treeDepth) {
+      refitMin = new float[treeDepth + 1][dimMax];
+      refitMax = new float[treeDepth + 1][dimMax];
+    }
+    eleRoot.refit(0, refitMin[0], refitMax[0]);
+  }
+
   /**
    * prints some simple stats to stdout
    */
@@ -31,6 +31,9 @@ abstract class Element {
   Bspt bspt;
   int count;
   abstract Element addTuple(int level, Tuple tuple);
+  // XIE: recompute the bounds after the tuples have moved, and return the
+  // bounding box of this element in min and max
+  abstract void refit(int level, float[] min, float[] max);
   /*
     abstract void dump(int level);
   */
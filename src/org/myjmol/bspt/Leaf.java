@@ -62,6 +62,23 @@ class Leaf extends Element {
     }
   }
 
+  void refit(int level, float[] min, float[] max) {
+    for (int dim = bspt.dimMax; --dim >= 0; ) {
+      min[dim] = Float.MAX_VALUE;
+      max[dim] = -Float.MAX_VALUE;
+    }
+    for (int i = count; --i >= 0; ) {
+      Tuple t = tuples[i];
+      for (int dim = bspt.dimMax; --dim >= 0; ) {
+        float value = t.getDimensionValue(dim);
+        if (value < min[dim])
+          min[dim] = value;
+        if (value > max[dim])
+          max[dim] = value;
+      }
+    }
+  }
+
   Element addTuple(int level, Tuple tuple) {
     if (count < Bspt.leafCountMax) {
       tuples[count++] = tuple;
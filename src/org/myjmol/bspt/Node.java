@@ -70,6 +70,27 @@ class Node extends Element {
     count = Bspt.leafCountMax;
   }
   
+  void refit(int level, float[] min, float[] max) {
+    float[] childMin = bspt.refitMin[level + 1];
+    float[] childMax = bspt.refitMax[level + 1];
+    eleLeft.refit(level + 1, childMin, childMax);
+    minLeft = childMin[dim];
+    maxLeft = childMax[dim];
+    for (int i = bspt.dimMax; --i >= 0; ) {
+      min[i] = childMin[i];
+      max[i] = childMax[i];
+    }
+    eleRight.refit(level + 1, childMin, childMax);
+    minRight = childMin[dim];
+    maxRight = childMax[dim];
+    for (int i = bspt.dimMax; --i >= 0; ) {
+      if (childMin[i] < min[i])
+        min[i] = childMin[i];
+      if (childMax[i] > max[i])
+        max[i] = childMax[i];
+    }
+  }
+
   Element addTuple(int level, Tuple tuple) {
     float dimValue = tuple.getDimensionValue(dim);
     ++count;
@@ -91,6 +91,17 @@ final public class Graphics3D {
 
 	Font3D font3dCurrent;
 
+	// XIE: parallel rendering
+	private final static int STRIPS_PER_PROCESSOR = 4;
+	private final static int MIN_ROWS_PER_STRIP = 8;
+	private final static int MIN_SPHERES_PER_STRIP = 16;
+	private boolean parallelRendering;
+	private int sphereCount;
+	private int[] sphereQueue = new int[0]; // diameter, x, y, z, screened and argb of each queued sphere
+	private int[][] sphereShades = new int[0][];
+	private Sphere3D[] stripSpheres;
+	private int[] downsampleBuffer;
+
 	final static int ZBUFFER_BACKGROUND = Platform3D.ZBUFFER_BACKGROUND;
 
 	/**
@@ -255,6 +266,26 @@ final public class Graphics3D {
 	 * used internally when oversampling is enabled
 	 */
 	private void downSampleFullSceneAntialiasing() {
+		int strips = parallelRendering ? getStripCount(windowHeight) : 1;
+		if (strips > 1) {
+			// the rows cannot be downsampled in place in parallel, as a strip would overwrite the rows another one reads
+			final int windowSize = windowWidth * windowHeight;
+			if (downsampleBuffer == null || downsampleBuffer.length < windowSize)
+				downsampleBuffer = new int[windowSize];
+			Runnable[] tasks = new Runnable[strips];
+			for (int k = 0; k < strips; k++) {
+				final int row0 = windowHeight * k / strips;
+				final int row1 = windowHeight * (k + 1) / strips;
+				tasks[k] = new Runnable() {
+					public void run() {
+						downSample(pbuf, downsampleBuffer, row0, row1);
+					}
+				};
+			}
+			RenderPool.invoke(tasks, strips);
+			System.arraycopy(downsampleBuffer, 0, pbuf, 0, windowSize);
+			return;
+		}
 		int[] pbuf1 = pbuf;
 		int[] pbuf4 = pbuf;
 		int width4 = width;
@@ -278,7 +309,127 @@ final public class Graphics3D {
 		}
 	}
 
+	/** XIE: downsample the window rows from row0 (inclusive) to row1 (exclusive) of the oversampled buffer */
+	private void downSample(int[] pbuf4, int[] pbuf1, int row0, int row1) {
+		int width4 = width;
+		int offset1 = row0 * windowWidth;
+		int offset4 = 2 * row0 * width4;
+		for (int i = row1 - row0; --i >= 0;) {
+			for (int j = windowWidth; --j >= 0;) {
+				int argb;
+				argb = (pbuf4[offset4] >> 2) & 0x3F3F3F3F;
+				argb += (pbuf4[offset4 + width4] >> 2) & 0x3F3F3F3F;
+				++offset4;
+				argb += (pbuf4[offset4] >> 2) & 0x3F3F3F3F;
+				argb += (pbuf4[offset4 + width4] >> 2) & 0x3F3F3F3F;
+				argb += (argb & 0xC0C0C0C0) >> 6;
+				argb |= 0xFF000000;
+				pbuf1[offset1] = argb;
+				++offset1;
+				++offset4;
+			}
+			offset4 += width4;
+		}
+	}
+
+	/**
+	 * XIE: render spheres, clear the buffers and downsample the antialiased frame with several threads, each of which
+	 * takes a horizontal strip of the frame. The spheres are queued until another primitive is drawn or the rendering
+	 * ends, and every strip draws the queued spheres in the order they came, so each pixel is written in the same
+	 * order and the image is identical to the one rendered by a single thread.
+	 */
+	public void setParallelRendering(boolean b) {
+		flushSpheres();
+		parallelRendering = b && RenderPool.PROCESSORS > 1;
+		platform.parallelClearing = parallelRendering;
+	}
+
+	public boolean isParallelRendering() {
+		return parallelRendering;
+	}
+
+	private int getStripCount(int rows) {
+		return Math.min(STRIPS_PER_PROCESSOR * RenderPool.PROCESSORS, rows / MIN_ROWS_PER_STRIP);
+	}
+
+	private void queueSphere(short colix, int diameter, int x, int y, int z) {
+		int n = sphereCount;
+		if (sphereQueue.length < 6 * (n + 1)) {
+			int[] q = new int[Math.max(6 * 256, sphereQueue.length * 2)];
+			System.arraycopy(sphereQueue, 0, q, 0, 6 * n);
+			sphereQueue = q;
+			int[][] r = new int[q.length / 6][];
+			System.arraycopy(sphereShades, 0, r, 0, n);
+			sphereShades = r;
+		}
+		int k = 6 * n;
+		sphereQueue[k] = diameter;
+		sphereQueue[k + 1] = x;
+		sphereQueue[k + 2] = y;
+		sphereQueue[k + 3] = z;
+		if (diameter <= 1) {
+			sphereQueue[k + 5] = getColixArgb(colix);
+			sphereShades[n] = null;
+		}
+		else {
+			sphereQueue[k + 4] = (colix & TRANSLUCENT_MASK) != 0 ? 1 : 0;
+			sphereShades[n] = getShades(colix);
+		}
+		sphereCount = n + 1;
+	}
+
+	/** XIE: render the queued spheres */
+	private void flushSpheres() {
+		final int n = sphereCount;
+		if (n == 0)
+			return;
+		sphereCount = 0;
+		int strips = n < MIN_SPHERES_PER_STRIP * 2 ? 1 : Math.min(n / MIN_SPHERES_PER_STRIP, getStripCount(height));
+		if (strips < 2) {
+			renderSpheres(sphere3d, n, 0, height);
+			return;
+		}
+		// create the shapes on this thread, so that the other threads only read them
+		for (int i = 0; i < n; i++) {
+			int d = sphereQueue[6 * i];
+			if (d > 1)
+				sphere3d.getSphereShape(d > Sphere3D.maxOddSizeSphere ? d & ~1 : d);
+		}
+		if (stripSpheres == null || stripSpheres.length < strips) {
+			stripSpheres = new Sphere3D[strips];
+			for (int k = 0; k < strips; k++)
+				stripSpheres[k] = new Sphere3D(this);
+		}
+		Runnable[] tasks = new Runnable[strips];
+		for (int k = 0; k < strips; k++) {
+			final int y0 = height * k / strips;
+			final int y1 = height * (k + 1) / strips;
+			final Sphere3D s = stripSpheres[k];
+			s.setStrip(y0, y1);
+			tasks[k] = new Runnable() {
+				public void run() {
+					renderSpheres(s, n, y0, y1);
+				}
+			};
+		}
+		RenderPool.invoke(tasks, strips);
+	}
+
+	private void renderSpheres(Sphere3D s, int n, int y0, int y1) {
+		int[] q = sphereQueue;
+		for (int i = 0, k = 0; i < n; i++, k += 6) {
+			if (q[k] <= 1) {
+				if (q[k + 2] >= y0 && q[k + 2] < y1)
+					plotPixelClipped(q[k + 5], q[k + 1], q[k + 2], q[k + 3]);
+			}
+			else {
+				s.render(sphereShades[i], q[k + 4] != 0, q[k], q[k + 1], q[k + 2], q[k + 3]);
+			}
+		}
+	}
+
 	public boolean hasContent() {
+		flushSpheres();
 		return platform.hasContent();
 	}
 
@@ -333,6 +484,7 @@ final public class Graphics3D {
 	 *            center z
 	 */
 	public void fillScreenedCircleCentered(short colixFill, int diameter, int x, int y, int z) {
+		flushSpheres();
 		// halo only -- simple Z/window clip
 		if (isClippedZ(z))
 			return;
@@ -353,6 +505,7 @@ final public class Graphics3D {
 
 	// XIE
 	public void fillCircleCentered(short colixFill, int diameter, int x, int y, int z) {
+		flushSpheres();
 		if (isClippedZ(z))
 			return;
 		int r = (diameter + 1) >> 1;
@@ -383,6 +536,13 @@ final public class Graphics3D {
 	 */
 	public void fillSphereCentered(short colix, int diameter, int x, int y, int z) {
 		// if (depthCueing) Shade3D.depthCue = Math.max(0.1f, 1.0f - (z - 1) * 0.001f);
+		if (parallelRendering && currentlyRendering) {
+			if (diameter < Sphere3D.maxSphereCache) {
+				queueSphere(colix, diameter, x, y, z);
+				return;
+			}
+			flushSpheres();
+		}
 		if (diameter <= 1) {
 			plotPixelClipped(getColixArgb(colix), x, y, z);
 		}
@@ -438,6 +598,7 @@ final public class Graphics3D {
 	 *            pixel count
 	 */
 	public void drawRect(short colix, int x, int y, int z, int zSlab, int rWidth, int rHeight) {
+		flushSpheres();
 		// labels (and rubberband, not implemented)
 		if (isClippedZ(zSlab))
 			return;
@@ -476,6 +637,7 @@ final public class Graphics3D {
 	 *            pixel count
 	 */
 	public void fillRect(short colix, int x, int y, int z, int zSlab, int widthFill, int heightFill) {
+		flushSpheres();
 		// hover and labels only -- slab at atom or front -- simple Z/window clip
 		if (isClippedZ(zSlab))
 			return;
@@ -505,6 +667,7 @@ final public class Graphics3D {
 
 	// XIE
 	public void fillScreenedRect(short colix, int x, int y, int z, int w, int h) {
+		flushSpheres();
 		if (isClippedZ(z))
 			return;
 		if (x < 0) {
@@ -553,6 +716,7 @@ final public class Graphics3D {
 	 */
 
 	public void drawString(String str, Font3D font3d, short colix, int xBaseline, int yBaseline, int z, int zSlab) {
+		flushSpheres();
 		// axis, labels, measures
 		if (str == null)
 			return;
@@ -582,6 +746,7 @@ final public class Graphics3D {
 
 	public void drawStringNoSlab(String str, Font3D font3d, short colix, short bgcolix, int xBaseline, int yBaseline,
 			int z) {
+		flushSpheres();
 		// echo, frank, hover, molecularOrbital, uccage
 		if (str == null)
 			return;
@@ -671,6 +836,7 @@ final public class Graphics3D {
 
 	public void endRendering() {
 		if (currentlyRendering) {
+			flushSpheres();
 			if (antialiasThisFrame)
 				downSampleFullSceneAntialiasing();
 			platform.notifyEndOfRendering();
@@ -679,6 +845,7 @@ final public class Graphics3D {
 	}
 
 	public void snapshotAnaglyphChannelBytes() {
+		flushSpheres();
 		if (currentlyRendering)
 			throw new NullPointerException();
 		if (anaglyphChannelBytes == null || anaglyphChannelBytes.length != pbuf.length)
@@ -735,11 +902,13 @@ final public class Graphics3D {
 	 ******************************************************************************************************************/
 
 	public void drawPixel(int x, int y, int z) {
+		flushSpheres();
 		// measures - render angle
 		plotPixelClipped(x, y, z);
 	}
 
 	public void drawPoints(short colix, int count, int[] coordinates) {
+		flushSpheres();
 		// for dots only
 		setColix(colix);
 		plotPoints(count, coordinates);
@@ -750,12 +919,14 @@ final public class Graphics3D {
 	 ******************************************************************************************************************/
 
 	public void drawDashedLine(short colix, int run, int rise, int x1, int y1, int z1, int x2, int y2, int z2) {
+		flushSpheres();
 		// measures only
 		int argb = getColixArgb(colix);
 		line3d.plotDashedLine(argb, isTranslucent, argb, isTranslucent, run, rise, x1, y1, z1, x2, y2, z2, false);
 	}
 
 	public void drawDottedLine(short colix, Point3i pointA, Point3i pointB) {
+		flushSpheres();
 		// axes, bbcage only
 		setColix(colix);
 		line3d.plotDashedLine(argbCurrent, isTranslucent, argbCurrent, isTranslucent, 2, 1, pointA.x, pointA.y,
@@ -764,18 +935,21 @@ final public class Graphics3D {
 
 	/** XIE */
 	public void drawDottedLine(short colix, int xA, int yA, int zA, int xB, int yB, int zB) {
+		flushSpheres();
 		setColix(colix);
 		line3d.plotDashedLine(argbCurrent, isTranslucent, argbCurrent, isTranslucent, 2, 1, xA, yA, zA, xB, yB, zB,
 				false);
 	}
 
 	public void drawLine(short colix, int x1, int y1, int z1, int x2, int y2, int z2) {
+		flushSpheres();
 		// stars
 		setColix(colix);
 		line3d.plotLine(argbCurrent, isTranslucent, argbCurrent, isTranslucent, x1, y1, z1, x2, y2, z2, false);
 	}
 
 	public void drawLine(short colix1, short colix2, int x1, int y1, int z1, int x2, int y2, int z2) {
+		flushSpheres();
 		// backbone and sticks
 		line3d.plotLine(getColixArgb(colix1), isColixTranslucent(colix1), getColixArgb(colix2),
 				isColixTranslucent(colix2), x1, y1, z1, x2, y2, z2, false);
@@ -783,16 +957,19 @@ final public class Graphics3D {
 
 	/** XIE */
 	public void drawLine(short colix, Point3i pA, Point3i pB) {
+		flushSpheres();
 		drawLine(colix, pA.x, pA.y, pA.z, pB.x, pB.y, pB.z);
 	}
 
 	void drawLine(Point3i pointA, Point3i pointB) {
+		flushSpheres();
 		// draw quadrilateral and hermite
 		line3d.plotLine(argbCurrent, isTranslucent, argbCurrent, isTranslucent, pointA.x, pointA.y, pointA.z, pointB.x,
 				pointB.y, pointB.z, false);
 	}
 
 	public void fillEllipticalCylinder(short colix, byte endcaps, int a, int b, Point3f top, Point3f bot) {
+		flushSpheres();
 		if (ellipticalCylinder3D == null)
 			ellipticalCylinder3D = new EllipticalCylinder3D(this);
 		ellipticalCylinder3D.render(colix, endcaps, a, b, top.x, top.y, top.z, bot.x, bot.y, bot.z);
@@ -805,63 +982,75 @@ final public class Graphics3D {
 
 	public void fillCylinder(short colixA, short colixB, byte endcaps, int diameter, int xA, int yA, int zA, int xB,
 			int yB, int zB) {
+		flushSpheres();
 		cylinder3d.render(colixA, colixB, endcaps, diameter, xA, yA, zA, xB, yB, zB);
 	}
 
 	public void fillCylinder(short colix, byte endcaps, int diameter, int xA, int yA, int zA, int xB, int yB, int zB) {
+		flushSpheres();
 		cylinder3d.render(colix, colix, endcaps, diameter, xA, yA, zA, xB, yB, zB);
 	}
 
 	public void fillCylinder(short colix, byte endcaps, int diameter, Point3i screenA, Point3i screenB) {
+		flushSpheres();
 		cylinder3d.render(colix, colix, endcaps, diameter, screenA.x, screenA.y, screenA.z, screenB.x, screenB.y,
 				screenB.z);
 	}
 
 	public void fillCylinderBits(short colixA, short colixB, byte endcaps, int diameter, int xA, int yA, int zA,
 			int xB, int yB, int zB) {
+		flushSpheres();
 		cylinder3d.renderBits(colixA, colixB, endcaps, diameter, xA, yA, zA, xB, yB, zB);
 	}
 
 	public void fillCylinderBits(short colix, byte endcaps, int diameter, Point3i screenA, Point3i screenB) {
+		flushSpheres();
 		// dipole cross, cartoonRockets
 		cylinder3d.renderBits(colix, colix, endcaps, diameter, screenA.x, screenA.y, screenA.z, screenB.x, screenB.y,
 				screenB.z);
 	}
 
 	public void fillCylinderBits(short colix, byte endcaps, int diameter, Point3f screenA, Point3f screenB) {
+		flushSpheres();
 		// dipole cross, cartoonRockets
 		cylinder3d.renderBits(colix, colix, endcaps, diameter, screenA.x, screenA.y, screenA.z, screenB.x, screenB.y,
 				screenB.z);
 	}
 
 	public void fillCone(short colix, byte endcap, int diameter, Point3i screenBase, Point3i screenTip) {
+		flushSpheres();
 		// dipoles, mesh, vectors
 		cylinder3d.renderCone(colix, endcap, diameter, screenBase.x, screenBase.y, screenBase.z, screenTip.x,
 				screenTip.y, screenTip.z);
 	}
 
 	public void fillCone(short colix, byte endcap, int diameter, Point3f screenBase, Point3f screenTip) {
+		flushSpheres();
 		// cartoons, rockets
 		cylinder3d.renderCone(colix, endcap, diameter, screenBase.x, screenBase.y, screenBase.z, screenTip.x,
 				screenTip.y, screenTip.z);
 	}
 
 	public void drawHermite(short colix, int tension, Point3i s0, Point3i s1, Point3i s2, Point3i s3) {
+		flushSpheres();
 		hermite3d.render(false, colix, tension, 0, 0, 0, s0, s1, s2, s3);
 	}
 
 	public void drawHermite(boolean fill, boolean border, short colix, int tension, Point3i s0, Point3i s1, Point3i s2,
 			Point3i s3, Point3i s4, Point3i s5, Point3i s6, Point3i s7) {
+		flushSpheres();
 		hermite3d.render2(fill, border, colix, tension, s0, s1, s2, s3, s4, s5, s6, s7, 0);
 	}
 
 	public void drawHermite(boolean fill, boolean border, short colix, int tension, Point3i s0, Point3i s1, Point3i s2,
 			Point3i s3, Point3i s4, Point3i s5, Point3i s6, Point3i s7, int aspectRatio) {
+		flushSpheres();
 		hermite3d.render2(fill, border, colix, tension, s0, s1, s2, s3, s4, s5, s6, s7, aspectRatio);
 	}
 
 	public void fillHermite(short colix, int tension, int diameterBeg, int diameterMid, int diameterEnd, Point3i s0,
 			Point3i s1, Point3i s2, Point3i s3) {
+		flushSpheres();
 		hermite3d.render(true, colix, tension, diameterBeg, diameterMid, diameterEnd, s0, s1, s2, s3);
 	}
 
@@ -875,6 +1064,7 @@ final public class Graphics3D {
 	 ******************************************************************************************************************/
 
 	public void drawTriangle(short colix, Point3i screenA, Point3i screenB, Point3i screenC) {
+		flushSpheres();
 		// primary method for Mesh
 		drawTriangle(colix, screenA.x, screenA.y, screenA.z, screenB.x, screenB.y, screenB.z, screenC.x, screenC.y,
 				screenC.z, false);
@@ -882,6 +1072,7 @@ final public class Graphics3D {
 
 	void drawTriangle(short colix, int xA, int yA, int zA, int xB, int yB, int zB, int xC, int yC, int zC,
 			boolean notClipped) {
+		flushSpheres();
 		setColix(colix);
 		line3d.plotLine(argbCurrent, isTranslucent, argbCurrent, isTranslucent, xA, yA, zA, xB, yB, zB, notClipped);
 		line3d.plotLine(argbCurrent, isTranslucent, argbCurrent, isTranslucent, xA, yA, zA, xC, yC, zC, notClipped);
@@ -890,6 +1081,7 @@ final public class Graphics3D {
 
 	public void drawCylinderTriangle(short colix, int xA, int yA, int zA, int xB, int yB, int zB, int xC, int yC,
 			int zC, int diameter) {
+		flushSpheres();
 		// polyhedra
 		fillCylinder(colix, colix, Graphics3D.ENDCAPS_SPHERICAL, diameter, xA, yA, zA, xB, yB, zB);
 		fillCylinder(colix, colix, Graphics3D.ENDCAPS_SPHERICAL, diameter, xA, yA, zA, xC, yC, zC);
@@ -897,6 +1089,7 @@ final public class Graphics3D {
 	}
 
 	public void drawfillTriangle(short colix, int xA, int yA, int zA, int xB, int yB, int zB, int xC, int yC, int zC) {
+		flushSpheres();
 		// sticks -- sterochemical wedge notation -- not implemented?
 		setColix(colix);
 		line3d.plotLine(argbCurrent, isTranslucent, argbCurrent, isTranslucent, xA, yA, zA, xB, yB, zB, false);
@@ -907,6 +1100,7 @@ final public class Graphics3D {
 
 	public void fillTriangle(Point3i screenA, short colixA, short normixA, Point3i screenB, short colixB,
 			short normixB, Point3i screenC, short colixC, short normixC) {
+		flushSpheres();
 		// mesh
 		boolean useGouraud;
 		if (normixA == normixB && normixA == normixC && colixA == colixB && colixA == colixC) {
@@ -931,6 +1125,7 @@ final public class Graphics3D {
 
 	// XIE
 	public void fillScreenedTriangle(short colix, Point3i screenA, Point3i screenB, Point3i screenC) {
+		flushSpheres();
 		setColix(colix);
 		isTranslucent = true;
 		triangle3d.fillTriangle(screenA, screenB, screenC, false);
@@ -939,6 +1134,7 @@ final public class Graphics3D {
 	}
 
 	public void fillTriangle(short colix, Point3i screenA, Point3i screenB, Point3i screenC) {
+		flushSpheres();
 		// geodesic (Dots.java)
 		calcSurfaceShade(colix, screenA, screenB, screenC);
 		triangle3d.fillTriangle(screenA, screenB, screenC, false);
@@ -946,6 +1142,7 @@ final public class Graphics3D {
 
 	public void fillTriangle(short colix, short normix, int xScreenA, int yScreenA, int zScreenA, int xScreenB,
 			int yScreenB, int zScreenB, int xScreenC, int yScreenC, int zScreenC) {
+		flushSpheres();
 		// polyhedra
 		setColorNoisy(colix, normix3d.getIntensity(normix));
 		triangle3d.fillTriangle(xScreenA, yScreenA, zScreenA, xScreenB, yScreenB, zScreenB, xScreenC, yScreenC,
@@ -953,18 +1150,21 @@ final public class Graphics3D {
 	}
 
 	public void fillTriangle(short colix, Point3f screenA, Point3f screenB, Point3f screenC) {
+		flushSpheres();
 		// rockets
 		setColorNoisy(colix, calcIntensityScreen(screenA, screenB, screenC));
 		triangle3d.fillTriangle(screenA, screenB, screenC, false);
 	}
 
 	public void fillTriangle(Point3i screenA, Point3i screenB, Point3i screenC) {
+		flushSpheres();
 		// cartoon, hermite
 		triangle3d.fillTriangle(screenA, screenB, screenC, false);
 	}
 
 	public void fillTriangle(Point3i screenA, short colixA, short normixA, Point3i screenB, short colixB,
 			short normixB, Point3i screenC, short colixC, short normixC, float factor) {
+		flushSpheres();
 		// isosurface
 		boolean useGouraud;
 		if (normixA == normixB && normixA == normixC && colixA == colixB && colixA == colixC) {
@@ -992,6 +1192,7 @@ final public class Graphics3D {
 	 ******************************************************************************************************************/
 
 	public void drawQuadrilateral(short colix, Point3i screenA, Point3i screenB, Point3i screenC, Point3i screenD) {
+		flushSpheres();
 		setColix(colix);
 		drawLine(screenA, screenB);
 		drawLine(screenB, screenC);
@@ -1000,6 +1201,7 @@ final public class Graphics3D {
 	}
 
 	public void fillQuadrilateral(short colix, Point3f screenA, Point3f screenB, Point3f screenC, Point3f screenD) {
+		flushSpheres();
 		// hermite, rockets
 		setColorNoisy(colix, calcIntensityScreen(screenA, screenB, screenC));
 		triangle3d.fillTriangle(screenA, screenB, screenC, false);
@@ -1008,6 +1210,7 @@ final public class Graphics3D {
 
 	public void fillQuadrilateral(Point3i screenA, short colixA, short normixA, Point3i screenB, short colixB,
 			short normixB, Point3i screenC, short colixC, short normixC, Point3i screenD, short colixD, short normixD) {
+		flushSpheres();
 		// mesh
 		fillTriangle(screenA, colixA, normixA, screenB, colixB, normixB, screenC, colixC, normixC);
 		fillTriangle(screenA, colixA, normixA, screenC, colixC, normixC, screenD, colixD, normixD);
@@ -1575,6 +1778,7 @@ final public class Graphics3D {
 	}
 
 	public void changeColixArgb(short id, int argb) {
+		flushSpheres();
 		if (id < changableColixMap.length && changableColixMap[id] != 0)
 			changableColixMap[id] = Colix.getColix(argb);
 	}
@@ -1584,6 +1788,7 @@ final public class Graphics3D {
 	 ******************************************************************************************************************/
 
 	public void flushShadesAndImageCaches() {
+		flushSpheres();
 		Colix.flushShades();
 		Sphere3D.flushImageCache();
 	}
@@ -2216,10 +2421,12 @@ final public class Graphics3D {
 	}
 
 	public void drawString(String str, Font3D font3d, short colix, int xBaseline, int yBaseline, int z) {
+		flushSpheres();
 		drawString(str, font3d, colix, (short) 0, xBaseline, yBaseline, z);
 	}
 
 	public void drawString(String str, Font3D font3d, short colix, short bgcolix, int xBaseline, int yBaseline, int z) {
+		flushSpheres();
 
 		font3dCurrent = font3d;
 		setColix(colix);
@@ -2230,6 +2437,7 @@ final public class Graphics3D {
 	}
 
 	public void fillQuadrilateral(short colix, Point3i screenA, Point3i screenB, Point3i screenC, Point3i screenD) {
+		flushSpheres();
 		// System.out.println(screenA+","+screenB+","+screenC+","+screenD+" - "+width+", "+height);
 		fillTriangle(colix, screenA, screenB, screenC);
 		fillTriangle(colix, screenA, screenC, screenD);
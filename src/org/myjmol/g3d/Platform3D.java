@@ -26,6 +26,7 @@ package org.myjmol.g3d;
 import java.awt.Component;
 import java.awt.Graphics;
 import java.awt.Image;
+import java.util.Arrays;
 
 /**
  * <p>
@@ -54,6 +55,8 @@ abstract class Platform3D {
 	boolean useClearingThread = true;
 
 	ClearingThread clearingThread;
+	boolean parallelClearing; // XIE
+	private final static int MIN_PIXELS_PER_TASK = 1 << 16;
 
 	static Platform3D createInstance(Component awtComponent) {
 		Platform3D platform = (forcePlatformAWT ? new Awt3D(awtComponent) : allocateSwing3D());
@@ -129,12 +132,34 @@ abstract class Platform3D {
 	}
 
 	void clearScreenBuffer(int argbBackground) {
+		int tasks = parallelClearing ? Math.min(RenderPool.PROCESSORS, bufferSize / MIN_PIXELS_PER_TASK) : 1;
+		if (tasks > 1) {
+			final int argb = argbBackground;
+			Runnable[] r = new Runnable[tasks];
+			for (int k = 0; k < tasks; k++) {
+				final int i0 = (int) ((long) bufferSize * k / tasks);
+				final int i1 = (int) ((long) bufferSize * (k + 1) / tasks);
+				r[k] = new Runnable() {
+					public void run() {
+						clearScreenBuffer(argb, i0, i1);
+					}
+				};
+			}
+			RenderPool.invoke(r, tasks);
+			return;
+		}
 		for (int i = bufferSize; --i >= 0;) {
 			zBuffer[i] = ZBUFFER_BACKGROUND;
 			pBuffer[i] = argbBackground;
 		}
 	}
 
+	/** XIE: clear the pixels from i0 (inclusive) to i1 (exclusive) */
+	private void clearScreenBuffer(int argbBackground, int i0, int i1) {
+		Arrays.fill(zBuffer, i0, i1, ZBUFFER_BACKGROUND);
+		Arrays.fill(pBuffer, i0, i1, argbBackground);
+	}
+
 	final void obtainScreenBuffer() {
 		if (useClearingThread) {
 			clearingThread.obtainBufferForClient();
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2003-2005  The Jmol Development Team
+ *
+ * Contact: jmol-developers@lists.sf.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.myjmol.g3d;
+
+import org.myjmol.util.TaskPool;
+
+/**
+ * XIE: The daemon threads shared by all the <code>Graphics3D</code> instances to render parts of a frame at the same
+ * time. The calling thread always renders the first part itself. The viewer also uses them to generate isosurfaces.
+ */
+public final class RenderPool {
+
+	public final static int PROCESSORS = Runtime.getRuntime().availableProcessors();
+	private final static TaskPool pool = new TaskPool("Jmol render thread", PROCESSORS - 1, Thread.NORM_PRIORITY);
+
+	private RenderPool() {
+	}
+
+	/** run the tasks and return when all of them are done */
+	public static void invoke(Runnable[] tasks, int n) {
+		pool.invoke(tasks, n);
+	}
+
+}
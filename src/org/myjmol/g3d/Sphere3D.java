@@ -48,12 +48,23 @@ class Sphere3D {
 
   Graphics3D g3d;
 
+  // XIE: the rows this renderer may write to, when it renders one strip of the frame
+  private boolean strip;
+  private int stripMinY, stripMaxY;
+
   Sphere3D(Graphics3D g3d) {
     this.g3d = g3d;
   }
 
-  private final static int maxSphereCache = 128;
-  private final static int maxOddSizeSphere = 49;
+  /** XIE: restrict this renderer to the rows from minY (inclusive) to maxY (exclusive) */
+  void setStrip(int minY, int maxY) {
+    strip = true;
+    stripMinY = minY;
+    stripMaxY = maxY;
+  }
+
+  final static int maxSphereCache = 128;
+  final static int maxOddSizeSphere = 49;
   private final static int maxSphereDiameter = 1000;
   private static int[][] sphereShapeCache = new int[maxSphereCache][];
 
@@ -70,7 +81,8 @@ class Sphere3D {
     if (maxX < 0 || minX >= g3d.width)
       return;
     int minY = y - radius, maxY = y + radius;
-    if (maxY < 0 || minY >= g3d.height)
+    int yMin = strip ? stripMinY : 0, yMax = strip ? stripMaxY : g3d.height;
+    if (maxY < yMin || minY >= yMax)
       return;
     int minZ = z - radius, maxZ = z + radius;
     if (maxZ < g3d.slab || minZ > g3d.depth)
@@ -83,9 +95,9 @@ class Sphere3D {
     }
     int[] ss = getSphereShape(diameter);
     if (minX < 0 || maxX >= g3d.width ||
-        minY < 0 || maxY >= g3d.height ||
+        minY < yMin || maxY >= yMax ||
         minZ < g3d.slab || z > g3d.depth)
-      renderShapeClipped(shades, tScreened, ss, diameter, x, y, z);
+      renderShapeClipped(shades, tScreened, ss, diameter, x, y, z, yMin, yMax);
     else
       renderShapeUnclipped(shades, tScreened, ss, diameter, x, y, z);
   }
@@ -184,11 +196,11 @@ class Sphere3D {
   private final static int SHADE_SLAB_CLIPPED = Shade3D.shadeNormal - 5;
 
   private void renderShapeClipped(int[] shades, boolean tScreened, int[] sphereShape,
-                          int diameter, int x, int y, int z) {
+                          int diameter, int x, int y, int z, int yMin, int yMax) {
     int[] pbuf = g3d.pbuf;
     int[] zbuf = g3d.zbuf;
     int offsetSphere = 0;
-    int width = g3d.width, height = g3d.height;
+    int width = g3d.width;
     int slab = g3d.slab, depth = g3d.depth;
     int evenSizeCorrection = 1 - (diameter & 1);
     int offsetSouthCenter = width * y + x;
@@ -206,8 +218,8 @@ class Sphere3D {
     int flipflopsCenter =
       flipflopSE | (flipflopSW << 1) | (flipflopNE << 2) | (flipflopNW << 3);
     do {
-      boolean tSouthVisible = ySouth >= 0 && ySouth < height;
-      boolean tNorthVisible = yNorth >= 0 && yNorth < height;
+      boolean tSouthVisible = ySouth >= yMin && ySouth < yMax;
+      boolean tNorthVisible = yNorth >= yMin && yNorth < yMax;
       int offsetSE = offsetSouthCenter;
       int offsetSW = offsetSouthCenter - evenSizeCorrection;
       int offsetNE = offsetNorthCenter;
@@ -289,7 +301,7 @@ class Sphere3D {
     } while (--nLines > 0);
   }
 
-  private int[] getSphereShape(int diameter) {
+  int[] getSphereShape(int diameter) {
     int[] ss;
     if (diameter > maxSphereCache)
       diameter = maxSphereCache;
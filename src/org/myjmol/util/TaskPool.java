@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2003-2005  The Jmol Development Team
+ *
+ * Contact: jmol-developers@lists.sf.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.myjmol.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * XIE: A fixed pool of daemon threads that runs a computation split into pieces, used by both the Jmol renderer and
+ * the simulation engines. The calling thread always does the first piece itself. A thread of any task pool that splits
+ * a computation of its own runs all the pieces itself, so that a pool thread never waits for a pool.
+ */
+public final class TaskPool {
+
+	private final String name;
+	private final int threadCount;
+	private final int priority;
+	private ExecutorService executor;
+
+	/**
+	 * @param name
+	 *            the name of the threads, which are numbered after it
+	 * @param threadCount
+	 *            the number of threads, which are created when they are first needed
+	 * @param priority
+	 *            the priority of the threads
+	 */
+	public TaskPool(String name, int threadCount, int priority) {
+		this.name = name;
+		this.threadCount = Math.max(1, threadCount);
+		this.priority = priority;
+	}
+
+	private synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+				private int count;
+
+				public Thread newThread(Runnable r) {
+					Thread t = new PoolThread(r, name + " " + (count++));
+					t.setDaemon(true);
+					t.setPriority(priority);
+					return t;
+				}
+			});
+		}
+		return executor;
+	}
+
+	/** return true if the calling thread belongs to a task pool */
+	public static boolean isPoolThread() {
+		return Thread.currentThread() instanceof PoolThread;
+	}
+
+	/**
+	 * run the tasks and return their results in the same order as the tasks. The first task runs on the calling thread
+	 * and the rest on the pool threads, unless the calling thread is a pool thread itself, in which case all the tasks
+	 * run on the calling thread. This method does not return before all the tasks are done, even if the calling thread
+	 * is interrupted in the meantime, in which case the interrupt status is restored upon return.
+	 *
+	 * @throws RuntimeException
+	 *             if any task throws an exception
+	 */
+	public <T> List<T> invoke(List<? extends Callable<T>> tasks) {
+		int n = tasks.size();
+		List<T> results = new ArrayList<T>(n);
+		if (n == 0)
+			return results;
+		boolean inline = isPoolThread();
+		List<Future<T>> futures = new ArrayList<Future<T>>(n - 1);
+		if (n > 1 && !inline) {
+			ExecutorService es = getExecutor();
+			for (int i = 1; i < n; i++)
+				futures.add(es.submit(tasks.get(i)));
+		}
+		RuntimeException failure = null;
+		for (int i = 0; i < (inline ? n : 1); i++) {
+			try {
+				results.add(tasks.get(i).call());
+			}
+			catch (Exception e) {
+				if (failure == null)
+					failure = e instanceof RuntimeException ? (RuntimeException) e : new RuntimeException(e);
+			}
+		}
+		boolean interrupted = false;
+		for (Future<T> f : futures) {
+			while (true) {
+				try {
+					results.add(f.get());
+					break;
+				}
+				catch (InterruptedException e) {
+					interrupted = true;
+				}
+				catch (ExecutionException e) {
+					if (failure == null)
+						failure = new RuntimeException(e.getCause());
+					break;
+				}
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		if (failure != null)
+			throw failure;
+		return results;
+	}
+
+	/** run the first n tasks and return when all of them are done */
+	public void invoke(Runnable[] tasks, int n) {
+		if (n <= 0)
+			return;
+		List<Callable<Object>> list = new ArrayList<Callable<Object>>(n);
+		for (int i = 0; i < n; i++)
+			list.add(Executors.callable(tasks[i]));
+		invoke(list);
+	}
+
+	private static class PoolThread extends Thread {
+		PoolThread(Runnable r, String name) {
+			super(r, name);
+		}
+	}
+
+}
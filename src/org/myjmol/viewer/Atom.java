@@ -42,7 +42,9 @@ final public class Atom extends Point3fi implements Tuple {
 	final static byte VIBRATION_VECTOR_FLAG = 0x02;
 	final static byte IS_HETERO_FLAG = 0x04;
 	final static byte FORMALCHARGE_FLAGS = 0x07;
-	private final static java.awt.Dimension SCREEN_SIZE = java.awt.Toolkit.getDefaultToolkit().getScreenSize();
+	// XIE: there is no screen when rendering offscreen
+	private final static java.awt.Dimension SCREEN_SIZE = java.awt.GraphicsEnvironment.isHeadless() ? new java.awt.Dimension(
+			Short.MAX_VALUE, Short.MAX_VALUE) : java.awt.Toolkit.getDefaultToolkit().getScreenSize();
 
 	Group group;
 	int atomIndex;
@@ -41,6 +41,7 @@ class Bond {
 	boolean annotationKey; // XIE: this indicates that there is an annotation key on this atom
 	boolean interactionKey; // XIE: this indicates that there is an interaction key on this atom
 	BondPin pin; // XIE
+	boolean autoBonded; // XIE: made by autobonding, which may break it again when the atoms move apart
 	short annotationKeyColix = Graphics3D.GOLD; // XIE: annotation key color
 	short interactionKeyColix = Graphics3D.GRAY; // XIE: interaction key color
 	boolean selected;
@@ -422,6 +422,8 @@ public final class Frame {
 		Atom at = new Atom(this, currentModelIndex, atomCount, null, 0, element, atomName, viewer.getMadAtom(),
 				formalCharge, partialCharge, 0, 0, x, y, z, false, -1, '0', "", vx, vy, vz, '0', clientAtomReference);
 		atoms[atomCount] = at;
+		bspf = null;
+		bondedCoordinates = null;
 		at.modelIndex = (short) viewer.getDisplayModelIndex();
 		at.setMadAtom(viewer.getMadAtom());
 		at.transform(viewer);
@@ -463,6 +465,8 @@ public final class Frame {
 			atoms[n + i] = (Atom) removedAtomList.get(i);
 		}
 		atomCount = n;
+		bspf = null;
+		bondedCoordinates = null;
 	}
 
 	// XIE
@@ -474,6 +478,8 @@ public final class Frame {
 			atoms[i] = atoms[i + 1];
 			atoms[i].atomIndex = i;
 		}
+		bspf = null;
+		bondedCoordinates = null;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -1444,6 +1450,7 @@ public final class Frame {
 	}
 
 	Bspf bspf;
+	boolean bspfStale; // XIE: set when atoms have moved since the bspf was built or refitted
 
 	private final static boolean MIX_BSPT_ORDER = false;
 
@@ -1482,6 +1489,10 @@ public final class Frame {
 				// bspf.dump();
 			}
 		}
+		else if (bspfStale) {
+			bspf.refit();
+		}
+		bspfStale = false;
 	}
 
 	int getBsptCount() {
@@ -1703,7 +1714,97 @@ public final class Frame {
 		if (atomA.alternateLocationID != atomB.alternateLocationID && atomA.alternateLocationID != 0
 				&& atomB.alternateLocationID != 0)
 			return;
-		addBond(bondMutually(atomA, atomB, order, mad));
+		Bond bond = addBond(bondMutually(atomA, atomB, order, mad));
+		if (bond != null)
+			bond.autoBonded = true;
+	}
+
+	private float[] bondedCoordinates; // XIE
+	private BitSet bsMoved; // XIE
+
+	/*
+	 * XIE: rebond only the atoms that have moved farther than the tolerance since they were last looked at, so that
+	 * bonds can be shown on the fly while a simulation runs. Autobonds of these atoms that have become too long are
+	 * broken, and new bonds are searched for around them in the refitted bspf. The first call after atoms are added or
+	 * removed looks at all the atoms. Bonds not made by autobonding are left alone.
+	 */
+	int rebondMovedAtoms(float tolerance) {
+		if (atomCount == 0)
+			return 0;
+		if (bsMoved == null)
+			bsMoved = new BitSet(atomCount);
+		else bsMoved.clear();
+		if (bondedCoordinates == null || bondedCoordinates.length != 3 * atomCount) {
+			bondedCoordinates = new float[3 * atomCount];
+			bsMoved.set(0, atomCount);
+			findMaxRadii();
+		}
+		else {
+			float tolerance2 = tolerance * tolerance;
+			float dx, dy, dz;
+			for (int i = atomCount; --i >= 0;) {
+				Atom atom = atoms[i];
+				dx = atom.x - bondedCoordinates[3 * i];
+				dy = atom.y - bondedCoordinates[3 * i + 1];
+				dz = atom.z - bondedCoordinates[3 * i + 2];
+				if (dx * dx + dy * dy + dz * dz > tolerance2)
+					bsMoved.set(i);
+			}
+			if (bsMoved.isEmpty())
+				return 0;
+		}
+		for (int i = bsMoved.nextSetBit(0); i >= 0; i = bsMoved.nextSetBit(i + 1)) {
+			bondedCoordinates[3 * i] = atoms[i].x;
+			bondedCoordinates[3 * i + 1] = atoms[i].y;
+			bondedCoordinates[3 * i + 2] = atoms[i].z;
+		}
+		if (maxBondingRadius == Float.MIN_VALUE)
+			findMaxRadii();
+		float bondTolerance = viewer.getBondTolerance();
+		float minBondDistance = viewer.getMinBondDistance();
+		float minBondDistance2 = minBondDistance * minBondDistance;
+		short mad = viewer.getMadBond();
+
+		BitSet bsBroken = null;
+		for (int i = bondCount; --i >= 0;) {
+			Bond bond = bonds[i];
+			if (!bond.autoBonded || !bsMoved.get(bond.atom1.atomIndex) && !bsMoved.get(bond.atom2.atomIndex))
+				continue;
+			if (getBondOrder(bond.atom1, bond.atom1.getBondingRadiusFloat(), bond.atom2, bond.atom2
+					.getBondingRadiusFloat(), bond.atom1.distanceSquared(bond.atom2), minBondDistance2, bondTolerance) == 0) {
+				if (bsBroken == null)
+					bsBroken = new BitSet(bondCount);
+				bsBroken.set(i);
+			}
+		}
+		if (bsBroken != null)
+			deleteBonds(bsBroken);
+
+		initializeBspf();
+		int oldBondCount = bondCount;
+		for (int i = bsMoved.nextSetBit(0); i >= 0; i = bsMoved.nextSetBit(i + 1)) {
+			Atom atom = atoms[i];
+			if (atom.isDeleted())
+				continue;
+			float myBondingRadius = atom.getBondingRadiusFloat();
+			if (myBondingRadius == 0)
+				continue;
+			SphereIterator iter = bspf.getSphereIterator(atom.modelIndex);
+			iter.initialize(atom, myBondingRadius + maxBondingRadius + bondTolerance);
+			while (iter.hasMoreElements()) {
+				Atom atomNear = (Atom) iter.nextElement();
+				// a pair of moved atoms is looked at only once
+				if (atomNear == atom || atomNear.atomIndex < i && bsMoved.get(atomNear.atomIndex)
+						|| atom.isBonded(atomNear))
+					continue;
+				short order = getBondOrder(atom, myBondingRadius, atomNear, atomNear.getBondingRadiusFloat(), iter
+						.foundDistance2(), minBondDistance2, bondTolerance);
+				if (order > 0)
+					checkValencesAndBond(atom, atomNear, order, mad);
+			}
+			iter.release();
+		}
+		return bondCount - oldBondCount;
 	}
 
 	float hbondMax = 3.25f;
@@ -3093,6 +3194,7 @@ public final class Frame {
 		atoms[atomIndex].x = x;
 		atoms[atomIndex].y = y;
 		atoms[atomIndex].z = z;
+		bspfStale = true;
 	}
 
 	void setAtomCoordRelative(int atomIndex, float x, float y, float z) {
@@ -3101,6 +3203,7 @@ public final class Frame {
 		atoms[atomIndex].x += x;
 		atoms[atomIndex].y += y;
 		atoms[atomIndex].z += z;
+		bspfStale = true;
 	}
 
 	void setAtomCoordRelative(BitSet atomSet, float x, float y, float z) {
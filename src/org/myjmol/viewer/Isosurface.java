@@ -106,6 +106,7 @@ import javax.vecmath.Vector3f;
 import javax.vecmath.AxisAngle4f;
 
 import org.myjmol.g3d.Graphics3D;
+import org.myjmol.g3d.RenderPool;
 import org.myjmol.quantum.MepCalculation;
 import org.myjmol.quantum.QuantumCalculation;
 import org.myjmol.util.ArrayUtil;
@@ -1380,7 +1381,7 @@ class Isosurface extends MeshCollection {
 
 	int nBytes;
 	int nDataPoints;
-	String surfaceData;
+	StringBuffer surfaceData; // XIE: appended to for every run of inside or outside points
 	int nPointsX, nPointsY, nPointsZ;
 
 	void readVoxelData(boolean isMapData) throws Exception {
@@ -1408,7 +1409,7 @@ class Isosurface extends MeshCollection {
 		int dataCount = 0;
 		ichNextParse = 0;
 		nThisValue = 0;
-		surfaceData = "";
+		surfaceData = new StringBuffer();
 		nPointsX = voxelCounts[0];
 		nPointsY = voxelCounts[1];
 		nPointsZ = voxelCounts[2];
@@ -1552,7 +1553,7 @@ class Isosurface extends MeshCollection {
 					}
 					else {
 						if (dataCount != 0)
-							surfaceData += " " + dataCount;
+							surfaceData.append(' ').append(dataCount);
 						dataCount = 1;
 						inside = !inside;
 					}
@@ -1560,9 +1561,9 @@ class Isosurface extends MeshCollection {
 			}
 		}
 		if (!isJvxl)
-			surfaceData += " " + dataCount + "\n";
+			surfaceData.append(' ').append(dataCount).append('\n');
 		if (!isMapData) {
-			currentMesh.jvxlSurfaceData = (thePlane == null ? surfaceData : "");
+			currentMesh.jvxlSurfaceData = (thePlane == null ? surfaceData.toString() : "");
 			currentMesh.jvxlPlane = thePlane;
 		}
 		if (!isSilent)
@@ -1738,7 +1739,7 @@ class Isosurface extends MeshCollection {
 						// throw new NullPointerException();
 					}
 					else {
-						surfaceData += line + "\n";
+						surfaceData.append(line).append('\n');
 					}
 				}
 				thisInside = !thisInside;
@@ -2509,22 +2510,20 @@ class Isosurface extends MeshCollection {
 		int[][] isoPointIndexes = new int[cubeCountY * cubeCountZ][12];
 		for (int i = cubeCountY * cubeCountZ; --i >= 0;)
 			isoPointIndexes[i] = new int[12];
+		/*
+		 * XIE: the cubes are classified first, slab by slab along x at the same time. Only the cubes that the surface
+		 * passes through are then visited, serially and in the original order, so that the vertices, the triangles and
+		 * the JVXL edge fractions come out exactly as before. Skipping the cubes that are all inside or all outside
+		 * does not break the propagation of the vertex indexes, because an edge shared with such a cube is never
+		 * crossed.
+		 */
+		byte[] insideMasks = getInsideMasks();
 		int insideCount = 0, outsideCount = 0, surfaceCount = 0;
 		for (int x = cubeCountX; --x >= 0;) {
 			for (int y = cubeCountY; --y >= 0;) {
+				int k = (x * cubeCountY + y) * cubeCountZ;
 				for (int z = cubeCountZ; --z >= 0;) {
-					int[] voxelPointIndexes = propagateNeighborPointIndexes(x, y, z, isoPointIndexes);
-					int insideMask = 0;
-					for (int i = 8; --i >= 0;) {
-						Point3i offset = cubeVertexOffsets[i];
-						float voxelValue = voxelData[x + offset.x][y + offset.y][z + offset.z];
-						vertexValues[i] = voxelValue;
-						if (logCube)
-							vertexPoints[i].set(x + offset.x, y + offset.y, z + offset.z);
-						if (isInside(voxelValue, cutoff))
-							insideMask |= 1 << i;
-					}
-
+					int insideMask = insideMasks[k + z] & 0xFF;
 					if (insideMask == 0) {
 						++outsideCount;
 						continue;
@@ -2533,6 +2532,13 @@ class Isosurface extends MeshCollection {
 						++insideCount;
 						continue;
 					}
+					int[] voxelPointIndexes = propagateNeighborPointIndexes(x, y, z, isoPointIndexes);
+					for (int i = 8; --i >= 0;) {
+						Point3i offset = cubeVertexOffsets[i];
+						vertexValues[i] = voxelData[x + offset.x][y + offset.y][z + offset.z];
+						if (logCube)
+							vertexPoints[i].set(x + offset.x, y + offset.y, z + offset.z);
+					}
 					++surfaceCount;
 					if (!processOneCubical(insideMask, cutoff, voxelPointIndexes, x, y, z) || isContoured)
 						continue;
@@ -2558,6 +2564,76 @@ class Isosurface extends MeshCollection {
 					+ surfaceCount + " total=" + (insideCount + outsideCount + surfaceCount));
 	}
 
+	/*
+	 * XIE: return the inside mask of every cube, indexed by (x * cubeCountY + y) * cubeCountZ + z. Each slab of cubes
+	 * along x is classified by a thread of its own, which tests every voxel only once.
+	 */
+	private byte[] getInsideMasks() {
+		final byte[] masks = new byte[cubeCountX * cubeCountY * cubeCountZ];
+		int n = Math.max(1, Math.min(RenderPool.PROCESSORS, cubeCountX / 8));
+		Runnable[] tasks = new Runnable[n];
+		for (int i = 0; i < n; i++) {
+			final int x0 = cubeCountX * i / n;
+			final int x1 = cubeCountX * (i + 1) / n;
+			tasks[i] = new Runnable() {
+				public void run() {
+					classifySlab(x0, x1, masks);
+				}
+			};
+		}
+		RenderPool.invoke(tasks, n);
+		return masks;
+	}
+
+	private void classifySlab(int x0, int x1, byte[] masks) {
+		int ny = cubeCountY + 1;
+		int nz = cubeCountZ + 1;
+		boolean[] lower = new boolean[ny * nz];
+		boolean[] upper = new boolean[ny * nz];
+		classifyPlane(x0, lower);
+		for (int x = x0; x < x1; x++) {
+			classifyPlane(x + 1, upper);
+			for (int y = 0; y < cubeCountY; y++) {
+				int k = (x * cubeCountY + y) * cubeCountZ;
+				int j = y * nz;
+				for (int z = 0; z < cubeCountZ; z++, j++) {
+					// the bits follow cubeVertexOffsets
+					int mask = 0;
+					if (lower[j])
+						mask |= 0x01;
+					if (upper[j])
+						mask |= 0x02;
+					if (upper[j + 1])
+						mask |= 0x04;
+					if (lower[j + 1])
+						mask |= 0x08;
+					if (lower[j + nz])
+						mask |= 0x10;
+					if (upper[j + nz])
+						mask |= 0x20;
+					if (upper[j + nz + 1])
+						mask |= 0x40;
+					if (lower[j + nz + 1])
+						mask |= 0x80;
+					masks[k + z] = (byte) mask;
+				}
+			}
+			boolean[] b = lower;
+			lower = upper;
+			upper = b;
+		}
+	}
+
+	private void classifyPlane(int x, boolean[] inside) {
+		float[][] plane = voxelData[x];
+		int nz = cubeCountZ + 1;
+		for (int y = 0; y <= cubeCountY; y++) {
+			float[] row = plane[y];
+			for (int z = 0; z < nz; z++)
+				inside[y * nz + z] = isInside(row[z], cutoff);
+		}
+	}
+
 	boolean checkCutoff(int v1, int v2, int v3) {
 		// never cross a +/- junction with a triangle in the case of orbitals,
 		// where we are using |psi| instead of psi for the surface generation.
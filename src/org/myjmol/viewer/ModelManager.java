@@ -392,6 +392,10 @@ class ModelManager {
 		frame.rebond();
 	}
 
+	int rebondMovedAtoms(float tolerance) {
+		return frame == null ? 0 : frame.rebondMovedAtoms(tolerance);
+	}
+
 	boolean frankClicked(int x, int y) {
 		return getShapeSize(JmolConstants.SHAPE_FRANK) != 0 && frame.frankClicked(x, y);
 	}
@@ -115,6 +115,7 @@ public class Viewer extends JmolViewer {
 	boolean engineOn; // XIE
 	boolean interactionCentersVisible = true; // XIE
 	boolean keShading;
+	private final AtomCoordinateBuffer coordinateBuffer = new AtomCoordinateBuffer(); // XIE
 
 	private String strJavaVendor;
 	private String strJavaVersion;
@@ -475,6 +476,19 @@ public class Viewer extends JmolViewer {
 		return g3d.getDepthCueing();
 	}
 
+	/** XIE: render with several threads, which gives the same image as a single thread */
+	public void setParallelRendering(boolean b) {
+		if (g3d != null)
+			g3d.setParallelRendering(b);
+	}
+
+	/** XIE */
+	public boolean isParallelRendering() {
+		if (g3d == null)
+			return false;
+		return g3d.isParallelRendering();
+	}
+
 	/** XIE: indicate that an atom is clicked but NOT selected. */
 	public void setClickedAtom(int i) {
 		clickedAtom = i;
@@ -956,6 +970,7 @@ public class Viewer extends JmolViewer {
 		Frame frame = modelManager.frame;
 		if (frame == null)
 			return;
+		coordinateBuffer.discard();
 		frame.removeAtoms(bs);
 	}
 
@@ -1009,12 +1024,57 @@ public class Viewer extends JmolViewer {
 	public void setAtomVelocities(int index, float vx, float vy, float vz) {
 	}
 
+	/** XIE: return the buffer through which a simulation engine passes the coordinates of all the atoms at once */
+	public AtomCoordinateBuffer getAtomCoordinateBuffer() {
+		return coordinateBuffer;
+	}
+
+	/** XIE: how far in angstroms an atom moves before its bonds are looked at again, when autobonding is on */
+	private final static float REBOND_TOLERANCE = 0.1f;
+
+	/**
+	 * XIE: copy the newest frame published to the coordinate buffer, if any, into the atoms. If autobonding is on, the
+	 * bonds of the atoms that have moved are updated.
+	 */
+	void applyAtomCoordinateBuffer() {
+		if (!coordinateBuffer.hasFreshFrame())
+			return;
+		Frame frame = modelManager.frame;
+		if (frame == null)
+			return;
+		synchronized (coordinateBuffer) {
+			AtomCoordinateBuffer.Frame f = coordinateBuffer.take();
+			if (f == null)
+				return;
+			int n = Math.min(f.getCount(), frame.atomCount);
+			float[] xyz = f.getCoordinates();
+			float[] size = f.hasSizes() ? f.getSizes() : null;
+			int[] argb = f.hasColors() ? f.getColors() : null;
+			Atom atom;
+			for (int i = 0; i < n; i++) {
+				atom = frame.atoms[i];
+				atom.x = xyz[3 * i];
+				atom.y = xyz[3 * i + 1];
+				atom.z = xyz[3 * i + 2];
+				if (size != null && size[i] >= 0)
+					atom.sigma = (short) size[i];
+				if (argb != null)
+					atom.colixAtom = Graphics3D.getColix(argb[i]);
+			}
+			frame.bspfStale = true;
+			if (getAutoBond())
+				frame.rebondMovedAtoms(REBOND_TOLERANCE);
+		}
+	}
+
 	/** set the specified atom's coordinate and color (used for, e.g. kinetic energy shading) */
 	public void setAtomCoordinates(int index, float x, float y, float z, int argb) {
+		applyAtomCoordinateBuffer();
 		Frame frame = modelManager.frame;
 		if (frame == null)
 			return;
 		Atom atom = frame.getAtomAt(index);
+		frame.bspfStale = true;
 		atom.x = x;
 		atom.y = y;
 		atom.z = z;
@@ -1022,10 +1082,12 @@ public class Viewer extends JmolViewer {
 	}
 
 	public void setAtomCoordinates(int index, float x, float y, float z) {
+		applyAtomCoordinateBuffer();
 		Frame frame = modelManager.frame;
 		if (frame == null)
 			return;
 		Atom atom = frame.getAtomAt(index);
+		frame.bspfStale = true;
 		if (atom != null) {
 			atom.x = x;
 			atom.y = y;
@@ -1034,20 +1096,24 @@ public class Viewer extends JmolViewer {
 	}
 
 	public void setAtomCoordinates(int index, Point3f p) {
+		applyAtomCoordinateBuffer();
 		Frame frame = modelManager.frame;
 		if (frame == null)
 			return;
 		Atom atom = frame.getAtomAt(index);
+		frame.bspfStale = true;
 		if (atom != null)
 			atom.set(p);
 	}
 
 	/** set the specified atom's coordinates, size and color */
 	public void setAtomCoordinates(int index, float x, float y, float z, float d, int argb) {
+		applyAtomCoordinateBuffer();
 		Frame frame = modelManager.frame;
 		if (frame == null)
 			return;
 		Atom atom = frame.getAtomAt(index);
+		frame.bspfStale = true;
 		if (atom != null) {
 			atom.x = x;
 			atom.y = y;
@@ -1071,6 +1137,7 @@ public class Viewer extends JmolViewer {
 
 	/** set the specified atom's size */
 	public void setAtomSize(int index, float d) {
+		applyAtomCoordinateBuffer();
 		Frame frame = modelManager.frame;
 		if (frame == null)
 			return;
@@ -1081,6 +1148,7 @@ public class Viewer extends JmolViewer {
 
 	/** set the specified atom's color */
 	public void setAtomColor(int index, int argb) {
+		applyAtomCoordinateBuffer();
 		Frame frame = modelManager.frame;
 		if (frame == null)
 			return;
@@ -1131,6 +1199,7 @@ public class Viewer extends JmolViewer {
 			float x, float y, float z, float vx, float vy, float vz, Object clientObject) {
 		if (modelManager.frame == null)
 			modelManager.frame = new Frame(this, modelAdapter, clientObject);
+		coordinateBuffer.discard();
 		modelManager.frame.addAtom(atomUid, atomicNumber, atomName, formalCharge, partialCharge, x, y, z, vx, vy, vz,
 				clientObject);
 	}
@@ -2318,6 +2387,7 @@ public class Viewer extends JmolViewer {
 		// Eval
 		// setAppletContext
 		clear();
+		coordinateBuffer.discard();
 		modelManager.zap();
 		initializeModel();
 	}
@@ -2646,6 +2716,12 @@ public class Viewer extends JmolViewer {
 		refresh(0, "Viewer:rebond()");
 	}
 
+	/** XIE */
+	public int rebondMovedAtoms(float tolerance) {
+		applyAtomCoordinateBuffer();
+		return modelManager.rebondMovedAtoms(tolerance);
+	}
+
 	private void setBondTolerance(float bondTolerance) {
 		global.bondTolerance = bondTolerance;
 	}
@@ -3268,6 +3344,7 @@ public class Viewer extends JmolViewer {
 	}
 
 	public void renderScreenImage(Graphics g, Dimension size, Rectangle clip) {
+		applyAtomCoordinateBuffer();
 		if (isTainted || getSlabEnabled())
 			setModelVisibility();
 		isTainted = false;
@@ -3341,6 +3418,7 @@ public class Viewer extends JmolViewer {
 	}
 
 	public Image getScreenImage() {
+		applyAtomCoordinateBuffer();
 		boolean antialias = true;
 		boolean isStereo = false;
 		setRectClip(null);
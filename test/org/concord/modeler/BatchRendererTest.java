@@ -0,0 +1,152 @@
+/*
+ *   Copyright (C) 2006  The Concord Consortium, Inc.,
+ *   25 Love Lane, Concord, MA 01742
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * END LICENSE */
+
+package org.concord.modeler;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import junit.framework.TestCase;
+
+import org.concord.modeler.process.WorkerPool;
+
+/**
+ * Batch rendering runs several models at the same time, and each model splits its force computation on the worker
+ * pool. These tests make sure that neither the nested use of the worker pool nor more files than processors can leave
+ * all the threads waiting for one another.
+ *
+ * @author Charles Xie
+ */
+
+public class BatchRendererTest extends TestCase {
+
+	private final static long TIMEOUT = 120000;
+
+	private File dir;
+
+	protected void setUp() throws Exception {
+		System.setProperty("java.awt.headless", "true");
+		dir = File.createTempFile("batch", "");
+		dir.delete();
+		dir.mkdirs();
+	}
+
+	protected void tearDown() throws Exception {
+		delete(dir);
+	}
+
+	public void testNestedInvoke() throws Exception {
+		final int n = WorkerPool.getProcessorCount() + 2;
+		final List<Callable<Integer>> outer = new ArrayList<Callable<Integer>>();
+		for (int i = 0; i < n; i++) {
+			outer.add(new Callable<Integer>() {
+				public Integer call() {
+					List<Callable<Integer>> inner = new ArrayList<Callable<Integer>>();
+					for (int k = 0; k < n; k++) {
+						inner.add(new Callable<Integer>() {
+							public Integer call() {
+								return 1;
+							}
+						});
+					}
+					int sum = 0;
+					for (Integer x : WorkerPool.invoke(inner))
+						sum += x;
+					return sum;
+				}
+			});
+		}
+		final int[] sum = new int[1];
+		runWithTimeout(new Runnable() {
+			public void run() {
+				for (Integer x : WorkerPool.invoke(outer))
+					sum[0] += x;
+			}
+		});
+		assertEquals(n * n, sum[0]);
+	}
+
+	public void testMoreFilesThanProcessors() throws Exception {
+		int n = 2 * WorkerPool.getProcessorCount() + 1;
+		final List<File> files = new ArrayList<File>();
+		for (int i = 0; i < n; i++) {
+			File f = new File(dir, "model" + i + ".mml");
+			copy("parallelforce.mml", f);
+			files.add(f);
+		}
+		File out = new File(dir, "out");
+		final BatchRenderer renderer = new BatchRenderer();
+		renderer.setFrameCount(2);
+		renderer.setStepsPerFrame(20);
+		renderer.setOutputDirectory(out);
+		final int[] failures = { -1 };
+		runWithTimeout(new Runnable() {
+			public void run() {
+				failures[0] = renderer.render(files);
+			}
+		});
+		assertEquals(0, failures[0]);
+		for (int i = 0; i < n; i++) {
+			File frames = new File(out, "model" + i);
+			assertTrue(new File(frames, "000000.png").isFile());
+			assertTrue(new File(frames, "000001.png").isFile());
+		}
+	}
+
+	private static void runWithTimeout(Runnable r) throws InterruptedException {
+		Thread t = new Thread(r, "Test");
+		t.setDaemon(true);
+		t.start();
+		t.join(TIMEOUT);
+		assertFalse("The threads are waiting for one another", t.isAlive());
+	}
+
+	private void copy(String resource, File file) throws IOException {
+		InputStream in = getClass().getResourceAsStream(resource);
+		assertNotNull(resource + " was not found", in);
+		OutputStream out = new FileOutputStream(file);
+		try {
+			byte[] b = new byte[8192];
+			int k;
+			while ((k = in.read(b)) != -1)
+				out.write(b, 0, k);
+		}
+		finally {
+			in.close();
+			out.close();
+		}
+	}
+
+	private static void delete(File f) {
+		File[] children = f.listFiles();
+		if (children != null) {
+			for (File c : children)
+				delete(c);
+		}
+		f.delete();
+	}
+
+}
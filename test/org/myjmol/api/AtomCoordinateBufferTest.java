@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2003-2005  The Jmol Development Team
+ *
+ * Contact: jmol-developers@lists.sf.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.myjmol.api;
+
+import junit.framework.TestCase;
+
+/**
+ * XIE: The engine publishes frames to the buffer on its own thread while the viewer takes them on another. These tests
+ * make sure that the viewer never gets a frame that is half written, older than one it already got, or published
+ * before the frames were discarded.
+ */
+
+public class AtomCoordinateBufferTest extends TestCase {
+
+	private final static int ATOMS = 500;
+	private final static int FRAMES = 20000;
+	private final static int FRAMES_PER_DISCARD = 100;
+	private final static long TIMEOUT = 60000;
+
+	private AtomCoordinateBuffer buffer;
+
+	protected void setUp() throws Exception {
+		buffer = new AtomCoordinateBuffer();
+	}
+
+	public void testNewestFrameIsTaken() {
+		assertNull(buffer.take());
+		fill(1, 0);
+		buffer.publish();
+		fill(2, 0);
+		buffer.publish();
+		assertTrue(buffer.hasFreshFrame());
+		assertEquals(2, check(buffer.take(), 0));
+		assertFalse(buffer.hasFreshFrame());
+		assertNull(buffer.take());
+	}
+
+	public void testDiscardDropsPublishedFrames() {
+		fill(1, 0);
+		buffer.publish();
+		buffer.discard();
+		assertNull(buffer.take());
+		fill(2, 1);
+		buffer.publish();
+		assertEquals(2, check(buffer.take(), 1));
+	}
+
+	public void testDiscardDropsFrameBeingFilled() {
+		fill(1, 0);
+		buffer.discard();
+		buffer.publish();
+		assertNull(buffer.take());
+		fill(2, 1);
+		buffer.publish();
+		assertEquals(2, check(buffer.take(), 1));
+	}
+
+	/*
+	 * The writer numbers its frames and calls discard() every few frames, as the viewer does when atoms are added or
+	 * removed. The reader reads the number of completed discards before each take(), so a frame filled before the last
+	 * of them must not be returned.
+	 */
+	public void testNoTornOrOutOfOrderFrames() throws Exception {
+		final int[] discards = new int[1];
+		final Object lock = new Object();
+		Thread writer = new Thread("Writer") {
+			public void run() {
+				int epoch = 0;
+				for (int k = 1; k <= FRAMES; k++) {
+					fill(k, epoch);
+					buffer.publish();
+					if (k % FRAMES_PER_DISCARD == 0) {
+						buffer.discard();
+						epoch++;
+						synchronized (lock) {
+							discards[0] = epoch;
+						}
+					}
+				}
+			}
+		};
+		writer.setDaemon(true);
+		writer.start();
+		int last = 0, taken = 0;
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (writer.isAlive() && System.currentTimeMillis() < deadline) {
+			int epoch;
+			synchronized (lock) {
+				epoch = discards[0];
+			}
+			AtomCoordinateBuffer.Frame f = buffer.take();
+			if (f == null) {
+				Thread.yield();
+				continue;
+			}
+			int k = check(f, epoch);
+			assertTrue("Frame " + k + " was taken after frame " + last, k > last);
+			last = k;
+			taken++;
+		}
+		writer.join(TIMEOUT);
+		assertFalse("The writer did not finish", writer.isAlive());
+		assertTrue("No frame was taken", taken > 0);
+	}
+
+	private void fill(int k, int epoch) {
+		AtomCoordinateBuffer.Frame f = buffer.getBackFrame(ATOMS, false, true);
+		float[] xyz = f.getCoordinates();
+		int[] argb = f.getColors();
+		for (int i = 0; i < ATOMS; i++) {
+			xyz[3 * i] = k;
+			xyz[3 * i + 1] = k;
+			xyz[3 * i + 2] = k;
+			argb[i] = epoch;
+		}
+	}
+
+	/* return the number of the frame after checking that it is whole and not filled before the given epoch */
+	private static int check(AtomCoordinateBuffer.Frame f, int epoch) {
+		assertNotNull(f);
+		assertEquals(ATOMS, f.getCount());
+		assertTrue(f.hasColors());
+		float[] xyz = f.getCoordinates();
+		int[] argb = f.getColors();
+		int k = (int) xyz[0];
+		for (int i = 0; i < 3 * ATOMS; i++)
+			assertEquals("Frame " + k + " is torn", k, (int) xyz[i]);
+		for (int i = 0; i < ATOMS; i++)
+			assertEquals("Frame " + k + " is torn", argb[0], argb[i]);
+		assertTrue("Frame " + k + " was filled before it was discarded", argb[0] >= epoch);
+		return k;
+	}
+
+}